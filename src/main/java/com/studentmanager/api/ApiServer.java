@@ -0,0 +1,538 @@
+package com.studentmanager.api;
+
+import com.studentmanager.controller.StudentController;
+import com.studentmanager.dao.ChangeLogFollower;
+import com.studentmanager.dao.DataVersion;
+import com.studentmanager.dao.DatabaseConnection;
+import com.studentmanager.model.FixedPoint;
+import com.studentmanager.model.Grade;
+import com.studentmanager.model.LeaderboardEntry;
+import com.studentmanager.model.SemesterTrend;
+import com.studentmanager.model.Student;
+import com.studentmanager.strategy.GradeCalculationStrategy;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read-only HTTP/JSON API over {@link StudentController} for the portal and
+ * mobile app, built on the JDK's com.sun.net.httpserver.
+ *
+ * Each request runs on its own virtual thread when the JDK has them (21+),
+ * otherwise on a fixed platform pool. Responses carry an ETag derived from
+ * the in-memory data version; a matching If-None-Match gets 304 without any
+ * query, and unchanged responses are served from memory. Writes of other
+ * processes move the version once a background thread has read them from
+ * the change log, at most {@link #FOLLOW_INTERVAL_MS} later.
+ *
+ * Endpoints (all GET):
+ *   /api/students?major=&amp;q=&amp;offset=&amp;limit=
+ *   /api/students/{studentId}
+ *   /api/students/{studentId}/grades
+ *   /api/students/{studentId}/results
+ *   /api/students/{studentId}/rank?strategy=&amp;major=
+ *   /api/students/{studentId}/trend
+ *   /api/grades?semester=&amp;year=&amp;min_score=&amp;max_score=&amp;offset=&amp;limit=
+ *   /api/leaderboard?strategy=&amp;major=&amp;semester=&amp;year=&amp;top=
+ *   /api/trend?major=
+ */
+public class ApiServer {
+    private static final int DEFAULT_PORT = 8080;
+    private static final String DEFAULT_HOST = "127.0.0.1";
+    private static final int BACKLOG = 4096;
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_CACHED_RESPONSES = 1024;
+    private static final int FALLBACK_THREADS = 64;
+    private static final String CONTENT_TYPE = "application/json; charset=utf-8";
+    // How often the change log is read for writes of other processes
+    private static final long FOLLOW_INTERVAL_MS = 1000;
+
+    private final StudentController controller = new StudentController();
+    private final Map<String, CachedResponse> responseCache = new ConcurrentHashMap<>();
+    // Part of every ETag, so tags handed out before a restart never match
+    private final String startTag = Long.toString(System.currentTimeMillis(), 36);
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService follower = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "change-log-follower");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * A response body together with the ETag it was generated for
+     */
+    private static class CachedResponse {
+        final String etag;
+        final byte[] body;
+
+        CachedResponse(String etag, byte[] body) {
+            this.etag = etag;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Thrown by handlers to answer with an error status
+     */
+    private static class ApiException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * @param host Address to bind, e.g. 127.0.0.1 for local clients only
+     * @param port Port to listen on
+     * @throws IOException if the port cannot be bound
+     */
+    public ApiServer(String host, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(host, port), BACKLOG);
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+    }
+
+    public void start() {
+        // Before accepting requests, so the first ones find the aggregates ready
+        // Opens the snapshot file if there is one, otherwise loads from the database
+        controller.warmUpCaches();
+        follower.scheduleWithFixedDelay(ChangeLogFollower::catchUp, 0, FOLLOW_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        server.start();
+        System.out.println("API server listening on http://" + server.getAddress().getHostString()
+                           + ":" + server.getAddress().getPort() + "/api/");
+    }
+
+    /**
+     * Stop accepting requests and wait briefly for running ones
+     */
+    public void stop() {
+        server.stop(1);
+        follower.shutdown();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * One virtual thread per request where available (JDK 21+). Looked up
+     * reflectively so the code still compiles and runs on JDK 17.
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            System.out.println("Serving requests on virtual threads");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.out.println("Virtual threads unavailable, using " + FALLBACK_THREADS + " worker threads");
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newFixedThreadPool(FALLBACK_THREADS, runnable -> {
+                Thread thread = new Thread(runnable, "api-worker-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    // Request handling
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                throw new ApiException(405, "Method not allowed");
+            }
+
+            // DAOs report errors as empty lists or null; count them so a failed query
+            // becomes a 503 instead of an empty 200 (or a 404) cached under the ETag
+            long errors = DatabaseConnection.getErrorCount();
+            // Read the version before the data so a concurrent write can only make the tag stale, never wrong
+            String etag = currentEtag();
+            String cacheKey = exchange.getRequestURI().toString();
+            if (etagMatches(exchange.getRequestHeaders(), etag)) {
+                exchange.getResponseHeaders().set("ETag", etag);
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            CachedResponse cached = responseCache.get(cacheKey);
+            if (cached == null || !cached.etag.equals(etag)) {
+                JsonWriter json;
+                try {
+                    json = route(exchange);
+                } catch (ApiException e) {
+                    checkDatabaseErrors(errors);
+                    throw e;
+                }
+                checkDatabaseErrors(errors);
+                cached = new CachedResponse(etag, json.toString().getBytes(StandardCharsets.UTF_8));
+                if (responseCache.size() >= MAX_CACHED_RESPONSES) {
+                    responseCache.clear();
+                }
+                responseCache.put(cacheKey, cached);
+            }
+            send(exchange, 200, etag, cached.body);
+        } catch (ApiException e) {
+            JsonWriter error = new JsonWriter().beginObject().name("error").value(e.getMessage()).endObject();
+            send(exchange, e.status, null, error.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            System.err.println("Error handling " + exchange.getRequestURI() + ": " + e.getMessage());
+            e.printStackTrace();
+            JsonWriter error = new JsonWriter().beginObject().name("error").value("Internal server error").endObject();
+            send(exchange, 500, null, error.toString().getBytes(StandardCharsets.UTF_8));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * The count covers every thread, so a failure of a concurrent request
+     * also answers this one with 503; that is only ever a retry too many,
+     * while a missed failure would cache a wrong answer
+     */
+    private static void checkDatabaseErrors(long errorsBefore) throws ApiException {
+        if (DatabaseConnection.getErrorCount() != errorsBefore) {
+            throw new ApiException(503, "Database error, try again later");
+        }
+    }
+
+    private JsonWriter route(HttpExchange exchange) throws ApiException {
+        String path = exchange.getRequestURI().getPath().substring("/api/".length());
+        if (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        String[] segments = path.split("/");
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+        switch (segments[0]) {
+            case "students":
+                if (segments.length == 1) {
+                    return listStudents(query);
+                }
+                Student student = controller.getStudentByStudentId(segments[1]);
+                if (student == null) {
+                    throw new ApiException(404, "Student not found: " + segments[1]);
+                }
+                if (segments.length == 2) {
+                    return studentDetail(student);
+                }
+                if (segments.length == 3 && segments[2].equals("grades")) {
+                    return studentGrades(student);
+                }
+                if (segments.length == 3 && segments[2].equals("results")) {
+                    return studentResults(student);
+                }
+                if (segments.length == 3 && segments[2].equals("rank")) {
+                    return studentRank(student, query);
+                }
+                if (segments.length == 3 && segments[2].equals("trend")) {
+                    return trend(controller.getStudentTrend(student.getStudentId()));
+                }
+                break;
+            case "grades":
+                if (segments.length == 1) {
+                    return listGrades(query);
+                }
+                break;
+            case "leaderboard":
+                if (segments.length == 1) {
+                    return leaderboard(query);
+                }
+                break;
+            case "trend":
+                if (segments.length == 1) {
+                    return trend(controller.getCohortTrend(query.get("major")));
+                }
+                break;
+            default:
+                break;
+        }
+        throw new ApiException(404, "Not found: /api/" + path);
+    }
+
+    private JsonWriter listStudents(Map<String, String> query) throws ApiException {
+        int offset = intParam(query, "offset", 0);
+        int limit = pageSize(query);
+        String search = query.get("q");
+        // Fetch one extra row to tell whether another page exists
+        List<Student> students = search != null && !search.isBlank()
+                ? controller.searchStudentsFullText(search, offset, limit + 1)
+                : controller.getStudentsByMajor(query.get("major"), offset, limit + 1);
+
+        JsonWriter json = beginPage(offset, limit, students.size() > limit);
+        for (int i = 0; i < Math.min(limit, students.size()); i++) {
+            json.student(students.get(i));
+        }
+        return json.endArray().endObject();
+    }
+
+    private JsonWriter studentDetail(Student student) {
+        List<Grade> grades = student.getGrades();
+        JsonWriter json = new JsonWriter().beginObject();
+        json.name("student").student(student);
+        json.name("grades").beginArray();
+        for (Grade grade : grades) {
+            json.grade(grade);
+        }
+        return json.endArray().endObject();
+    }
+
+    private JsonWriter studentGrades(Student student) {
+        JsonWriter json = new JsonWriter().beginObject().name("items").beginArray();
+        for (Grade grade : student.getGrades()) {
+            json.grade(grade);
+        }
+        return json.endArray().endObject();
+    }
+
+    private JsonWriter studentResults(Student student) {
+        List<Grade> grades = student.getGrades();
+        JsonWriter json = new JsonWriter().beginObject();
+        json.name("student_id").value(student.getStudentId());
+        json.name("grade_count").value(grades.size());
+        json.name("results").beginArray();
+        GradeCalculationStrategy[] strategies = controller.getAvailableStrategies();
+        for (int i = 0; i < strategies.length; i++) {
+            json.beginObject()
+                .name("strategy").value(StudentController.STRATEGY_KEYS[i])
+                .name("name").value(strategies[i].getStrategyName())
+                .name("score").value(strategies[i].calculateScore(grades))
+                .name("result").value(strategies[i].calculateGrade(grades))
+                .endObject();
+        }
+        return json.endArray().endObject();
+    }
+
+    private JsonWriter studentRank(Student student, Map<String, String> query) throws ApiException {
+        String key = query.getOrDefault("strategy", StudentController.STRATEGY_KEYS[0]);
+        GradeCalculationStrategy strategy = controller.getStrategy(key);
+        if (strategy == null) {
+            throw new ApiException(400, "Unknown strategy: " + key);
+        }
+        String major = query.get("major");
+        LeaderboardEntry entry = controller.getStudentRank(student.getStudentId(), strategy, major);
+        if (entry == null) {
+            throw new ApiException(404, "Student not ranked: " + student.getStudentId());
+        }
+        return new JsonWriter().beginObject()
+                .name("strategy").value(key)
+                .name("major").value(major)
+                .name("student_id").value(student.getStudentId())
+                .name("rank").value(entry.getRank())
+                .name("percentile").value(entry.getPercentile())
+                .name("score").value(entry.getScore())
+                .name("result").value(entry.getResult())
+                .endObject();
+    }
+
+    private static JsonWriter trend(SemesterTrend trend) {
+        JsonWriter json = new JsonWriter().beginObject();
+        json.name("items").beginArray();
+        for (SemesterTrend.Point point : trend.getPoints()) {
+            json.beginObject()
+                .name("semester").value(point.getSemester())
+                .name("year").value(point.getYear())
+                .name("grade_count").value(point.getGradeCount())
+                .name("average").value(FixedPoint.toDouble(point.getAverageHundredths()))
+                .name("cumulative_average").value(FixedPoint.toDouble(point.getCumulativeAverageHundredths()))
+                .name("gpa").value(FixedPoint.toDouble(point.getGpaHundredths()))
+                .name("cumulative_gpa").value(FixedPoint.toDouble(point.getCumulativeGpaHundredths()))
+                .endObject();
+        }
+        return json.endArray().endObject();
+    }
+
+    private JsonWriter listGrades(Map<String, String> query) throws ApiException {
+        int offset = intParam(query, "offset", 0);
+        int limit = pageSize(query);
+        Integer year = query.containsKey("year") ? intParam(query, "year", 0) : null;
+        List<Grade> grades = controller.getGradesFiltered(query.get("semester"), year,
+                doubleParam(query, "min_score"), doubleParam(query, "max_score"), offset, limit + 1);
+
+        JsonWriter json = beginPage(offset, limit, grades.size() > limit);
+        for (int i = 0; i < Math.min(limit, grades.size()); i++) {
+            json.grade(grades.get(i));
+        }
+        return json.endArray().endObject();
+    }
+
+    private JsonWriter leaderboard(Map<String, String> query) throws ApiException {
+        String key = query.getOrDefault("strategy", StudentController.STRATEGY_KEYS[0]);
+        GradeCalculationStrategy strategy = controller.getStrategy(key);
+        if (strategy == null) {
+            throw new ApiException(400, "Unknown strategy: " + key);
+        }
+        Integer year = query.containsKey("year") ? intParam(query, "year", 0) : null;
+        int top = Math.min(intParam(query, "top", DEFAULT_PAGE_SIZE), MAX_PAGE_SIZE);
+        List<LeaderboardEntry> entries = controller.getLeaderboard(strategy, query.get("major"),
+                query.get("semester"), year, top);
+
+        JsonWriter json = new JsonWriter().beginObject();
+        json.name("strategy").value(key);
+        json.name("items").beginArray();
+        for (LeaderboardEntry entry : entries) {
+            json.beginObject()
+                .name("rank").value(entry.getRank())
+                .name("percentile").value(entry.getPercentile())
+                .name("student_id").value(entry.getStudent().getStudentId())
+                .name("full_name").value(entry.getStudent().getFullName())
+                .name("major").value(entry.getStudent().getMajor())
+                .name("grade_count").value(entry.getGradeCount())
+                .name("score").value(entry.getScore())
+                .name("result").value(entry.getResult())
+                .endObject();
+        }
+        return json.endArray().endObject();
+    }
+
+    private static JsonWriter beginPage(int offset, int limit, boolean hasMore) {
+        return new JsonWriter().beginObject()
+                .name("offset").value(offset)
+                .name("limit").value(limit)
+                .name("has_more").value(hasMore)
+                .name("items").beginArray();
+    }
+
+    // Versioning
+
+    /**
+     * The data version moves on every write made through the DAOs of this
+     * JVM, and on writes of other processes once the follower thread has
+     * replayed them, so computing the tag costs no query
+     */
+    private String currentEtag() {
+        return "W/\"" + startTag + "." + DataVersion.current() + "\"";
+    }
+
+    private static boolean etagMatches(Headers headers, String etag) {
+        String ifNoneMatch = headers.getFirst("If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaque = etag.substring(2);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void send(HttpExchange exchange, int status, String etag, byte[] body) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", CONTENT_TYPE);
+        if (etag != null) {
+            headers.set("ETag", etag);
+            // Clients may keep the body but must revalidate before using it
+            headers.set("Cache-Control", "no-cache");
+        }
+        boolean head = exchange.getRequestMethod().equals("HEAD");
+        exchange.sendResponseHeaders(status, head ? -1 : body.length);
+        if (!head) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    // Parameters
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            if (!value.isEmpty()) {
+                params.put(name, value);
+            }
+        }
+        return params;
+    }
+
+    private static int pageSize(Map<String, String> query) throws ApiException {
+        int limit = intParam(query, "limit", DEFAULT_PAGE_SIZE);
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ApiException(400, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return limit;
+    }
+
+    private static int intParam(Map<String, String> query, String name, int defaultValue) throws ApiException {
+        String value = query.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < 0) {
+                throw new ApiException(400, name + " must not be negative");
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, name + " must be a number: " + value);
+        }
+    }
+
+    private static Double doubleParam(Map<String, String> query, String name) throws ApiException {
+        String value = query.get(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, name + " must be a number: " + value);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        String host = DEFAULT_HOST;
+        int port = DEFAULT_PORT;
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--host=")) {
+                host = arg.substring("--host=".length());
+            }
+        }
+
+        DatabaseConnection.initializeDatabase();
+        ApiServer apiServer = new ApiServer(host, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            apiServer.stop();
+            DatabaseConnection.closeConnection();
+        }));
+        apiServer.start();
+    }
+}
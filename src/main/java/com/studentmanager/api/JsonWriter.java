@@ -0,0 +1,167 @@
+package com.studentmanager.api;
+
+import com.studentmanager.model.Grade;
+import com.studentmanager.model.Student;
+import java.util.Arrays;
+
+/**
+ * Small builder for the JSON documents served by {@link ApiServer}, also
+ * used for the timing line of the command-line batch mode.
+ * Commas between members and elements are inserted automatically.
+ * Not thread-safe: use one instance per response.
+ */
+public class JsonWriter {
+    private final StringBuilder json = new StringBuilder(1024);
+    // One flag per open object/array: true once it has a first member
+    private boolean[] hasMembers = new boolean[16];
+    private int depth = 0;
+    private boolean afterName = false;
+
+    public JsonWriter beginObject() {
+        separate();
+        json.append('{');
+        push();
+        return this;
+    }
+
+    public JsonWriter endObject() {
+        depth--;
+        json.append('}');
+        return this;
+    }
+
+    public JsonWriter beginArray() {
+        separate();
+        json.append('[');
+        push();
+        return this;
+    }
+
+    public JsonWriter endArray() {
+        depth--;
+        json.append(']');
+        return this;
+    }
+
+    public JsonWriter name(String name) {
+        separate();
+        appendString(name);
+        json.append(':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String value) {
+        separate();
+        if (value == null) {
+            json.append("null");
+        } else {
+            appendString(value);
+        }
+        return this;
+    }
+
+    public JsonWriter value(long value) {
+        separate();
+        json.append(value);
+        return this;
+    }
+
+    public JsonWriter value(double value) {
+        separate();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            json.append("null");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            json.append((long) value);
+        } else {
+            json.append(value);
+        }
+        return this;
+    }
+
+    public JsonWriter value(boolean value) {
+        separate();
+        json.append(value);
+        return this;
+    }
+
+    public JsonWriter student(Student student) {
+        return beginObject()
+                .name("id").value(student.getId())
+                .name("student_id").value(student.getStudentId())
+                .name("full_name").value(student.getFullName())
+                .name("email").value(student.getEmail())
+                .name("phone_number").value(student.getPhoneNumber())
+                .name("major").value(student.getMajor())
+                .endObject();
+    }
+
+    public JsonWriter grade(Grade grade) {
+        return beginObject()
+                .name("id").value(grade.getId())
+                .name("student_id").value(grade.getStudentId())
+                .name("subject").value(grade.getSubject())
+                .name("score").value(grade.getScore())
+                .name("coefficient").value(grade.getCoefficient())
+                .name("semester").value(grade.getSemester())
+                .name("year").value(grade.getYear())
+                .endObject();
+    }
+
+    @Override
+    public String toString() {
+        return json.toString();
+    }
+
+    private void push() {
+        if (depth == hasMembers.length) {
+            hasMembers = Arrays.copyOf(hasMembers, depth * 2);
+        }
+        hasMembers[depth++] = false;
+    }
+
+    private void separate() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (hasMembers[depth - 1]) {
+                json.append(',');
+            }
+            hasMembers[depth - 1] = true;
+        }
+    }
+
+    private void appendString(String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            switch (ch) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (ch < 0x20) {
+                        json.append(String.format("\\u%04x", (int) ch));
+                    } else {
+                        json.append(ch);
+                    }
+                    break;
+            }
+        }
+        json.append('"');
+    }
+}
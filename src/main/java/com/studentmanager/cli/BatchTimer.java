@@ -0,0 +1,93 @@
+package com.studentmanager.cli;
+
+import com.studentmanager.api.JsonWriter;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records how long each phase of a batch command takes and how many rows it
+ * handled, and renders the result as text or as one line of JSON so runs
+ * can be collected and compared over time.
+ */
+public class BatchTimer {
+    private final String command;
+    private final Instant startedAt = Instant.now();
+    private final long startNanos = System.nanoTime();
+    private long lastMarkNanos = startNanos;
+    private final List<String> phases = new ArrayList<>();
+    private final List<Long> durations = new ArrayList<>();
+    private final List<Long> rows = new ArrayList<>();
+
+    /**
+     * @param command Name of the command being timed
+     */
+    public BatchTimer(String command) {
+        this.command = command;
+    }
+
+    /**
+     * End the current phase
+     * @param phase Name of the phase that just finished
+     * @param rowCount Rows handled by the phase, or -1 if not applicable
+     */
+    public void mark(String phase, long rowCount) {
+        long now = System.nanoTime();
+        phases.add(phase);
+        durations.add(now - lastMarkNanos);
+        rows.add(rowCount);
+        lastMarkNanos = now;
+    }
+
+    /**
+     * Render the timings as a single-line JSON object
+     * @param status Outcome of the command, e.g. "ok" or "failed"
+     * @return JSON text
+     */
+    public String toJson(String status) {
+        JsonWriter json = new JsonWriter()
+                .beginObject()
+                .name("command").value(command)
+                .name("status").value(status)
+                .name("started_at").value(startedAt.toString())
+                .name("total_ms").value(millis(lastMarkNanos - startNanos))
+                .name("phases").beginArray();
+        for (int i = 0; i < phases.size(); i++) {
+            json.beginObject()
+                .name("name").value(phases.get(i))
+                .name("ms").value(millis(durations.get(i)));
+            if (rows.get(i) >= 0) {
+                json.name("rows").value(rows.get(i));
+                double seconds = durations.get(i) / 1e9;
+                if (seconds > 0) {
+                    json.name("rows_per_sec").value(Math.round(rows.get(i) / seconds));
+                }
+            }
+            json.endObject();
+        }
+        return json.endArray().endObject().toString();
+    }
+
+    /**
+     * Render the timings as an aligned table
+     * @param status Outcome of the command
+     * @return Text, one line per phase
+     */
+    public String toText(String status) {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("[timing] %s (%s)%n", command, status));
+        for (int i = 0; i < phases.size(); i++) {
+            text.append(String.format("[timing]   %-24s %10.1f ms", phases.get(i), durations.get(i) / 1_000_000.0));
+            if (rows.get(i) >= 0) {
+                text.append(String.format(" %12d rows", rows.get(i)));
+            }
+            text.append(System.lineSeparator());
+        }
+        text.append(String.format("[timing]   %-24s %10.1f ms%n", "total", (lastMarkNanos - startNanos) / 1_000_000.0));
+        return text.toString();
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
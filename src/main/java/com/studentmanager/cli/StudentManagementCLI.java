@@ -0,0 +1,822 @@
+package com.studentmanager.cli;
+
+import com.studentmanager.controller.StudentController;
+import com.studentmanager.dao.CohortIndex;
+import com.studentmanager.dao.CriteriaQuery;
+import com.studentmanager.dao.DatabaseConnection;
+import com.studentmanager.dao.GradeQuery;
+import com.studentmanager.dao.StudentQuery;
+import com.studentmanager.model.FixedPoint;
+import com.studentmanager.model.Grade;
+import com.studentmanager.model.GradeSlice;
+import com.studentmanager.model.LeaderboardEntry;
+import com.studentmanager.model.ScoreDistribution;
+import com.studentmanager.model.SemesterTrend;
+import com.studentmanager.model.Student;
+import com.studentmanager.model.StringDictionary;
+import com.studentmanager.snapshot.DataSnapshot;
+import com.studentmanager.snapshot.GradeSnapshot;
+import com.studentmanager.strategy.GradeCalculationStrategy;
+import com.studentmanager.util.CsvReader;
+import com.studentmanager.util.DataExporter;
+import com.studentmanager.util.HeapMeter;
+import com.studentmanager.util.ReportGenerator;
+import com.studentmanager.util.RoaringBitmap;
+import com.studentmanager.util.TranscriptBatchJob;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Command-line entry point for batch jobs on headless servers (cron etc.).
+ * Runs imports, exports, recomputation, statistics and transcripts through
+ * the same controller, DAOs and report classes as the GUI, without loading AWT.
+ */
+public class StudentManagementCLI {
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_FAILED = 1;
+    private static final int EXIT_USAGE = 2;
+    private static final int IMPORT_CHUNK_SIZE = 10_000;
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+        "Usage: java com.studentmanager.cli.StudentManagementCLI <command> [options]",
+        "",
+        "Commands:",
+        "  import students <file.csv[.gz]>       Columns: student_id, full_name, email, phone_number, major",
+        "  import grades <file.csv[.gz]>         Columns: student_code (MSSV) or student_id (database ID),",
+        "                                        subject, score, coefficient, semester, year",
+        "  export students|grades|results <file> [--format=csv|json|ndjson] [--gzip]",
+        "  export changes <directory> --consumer=<name> [--format=csv|json|ndjson] [--gzip]",
+        "  recompute [--strategy=average|letter|classification|gpa|all] [--top=10]",
+        "            [--major=<major>] [--semester=<semester>] [--year=<year>]",
+        "  stats [--out=<report.txt>] [--by=subject|semester|major|all]",
+        "                                        --by: mean, standard deviation and percentiles per slice",
+        "  summary <report.txt>                  Summary of every student with grade counts, streamed from",
+        "                                        the database in constant memory",
+        "  transcripts <directory|file.zip> [--zip] [--threads=N]",
+        "            [--major=<major>] [--semester=<semester>] [--year=<year>]",
+        "  memory                                Heap used by all grades, with and without shared strings,",
+        "                                        and by the off-heap grade snapshot",
+        "  snapshot <file>                       Open or create a snapshot file of all students and grades,",
+        "                                        replaying only the changes since it was written",
+        "  cohort [--major=<major>] [--subject=<subject>] [--semester=<semester>] [--year=<year>]",
+        "         [--band=fail|pass|excellent|good|fair|average]",
+        "                                        Students matching all criteria, from the bitmap indexes",
+        "  query grades|students [--major=<major>] [--subject=<subject>] [--semester=<semester>]",
+        "         [--year=<year> | --from-year=<year> --to-year=<year>] [--min-score=<n>] [--max-score=<n>]",
+        "         [--classification=excellent|good|fair|average|fail] [--sort=<order>]",
+        "         [--limit=N] [--offset=N] [--explain]",
+        "                                        Rows matching all criteria, filtered in SQL; --explain prints",
+        "                                        the query plan instead (grades: student|term|score_desc|score_asc,",
+        "                                        students: name|student_id)",
+        "  trend [<student_id>] [--major=<major>]",
+        "                                        Average and GPA of each semester and cumulative, for a student,",
+        "                                        a major or the whole school",
+        "",
+        "Options:",
+        "  --timing=text|json      Print phase timings on stderr; json prints one line",
+        "  --timing-file=<path>    Append the JSON timing line to a file");
+
+    private final StudentController controller = new StudentController();
+    private final List<String> arguments = new ArrayList<>();
+    private final Map<String, String> options = new HashMap<>();
+    private BatchTimer timer;
+
+    public static void main(String[] args) {
+        // Keep AWT from initializing a display on servers without one
+        System.setProperty("java.awt.headless", "true");
+
+        StudentManagementCLI cli = new StudentManagementCLI();
+        int exitCode = cli.run(args);
+        DatabaseConnection.closeConnection();
+        System.exit(exitCode);
+    }
+
+    /**
+     * Parse the arguments and run one command
+     * @param args Command line arguments
+     * @return Process exit code
+     */
+    public int run(String[] args) {
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                int equals = arg.indexOf('=');
+                if (equals < 0) {
+                    options.put(arg.substring(2), "true");
+                } else {
+                    options.put(arg.substring(2, equals), arg.substring(equals + 1));
+                }
+            } else {
+                arguments.add(arg);
+            }
+        }
+        if (arguments.isEmpty() || options.containsKey("help")) {
+            System.out.println(USAGE);
+            return arguments.isEmpty() && !options.containsKey("help") ? EXIT_USAGE : EXIT_OK;
+        }
+
+        String command = arguments.get(0);
+        timer = new BatchTimer(String.join(" ", arguments.subList(0, Math.min(2, arguments.size()))));
+        DatabaseConnection.initializeDatabase();
+        timer.mark("initialize", -1);
+
+        int exitCode;
+        try {
+            switch (command) {
+                case "import":
+                    exitCode = runImport();
+                    break;
+                case "export":
+                    exitCode = runExport();
+                    break;
+                case "recompute":
+                    exitCode = runRecompute();
+                    break;
+                case "stats":
+                    exitCode = runStats();
+                    break;
+                case "summary":
+                    exitCode = runSummary();
+                    break;
+                case "transcripts":
+                    exitCode = runTranscripts();
+                    break;
+                case "memory":
+                    exitCode = runMemory();
+                    break;
+                case "snapshot":
+                    exitCode = runSnapshot();
+                    break;
+                case "cohort":
+                    exitCode = runCohort();
+                    break;
+                case "query":
+                    exitCode = runQuery();
+                    break;
+                case "trend":
+                    exitCode = runTrend();
+                    break;
+                default:
+                    System.err.println("Unknown command: " + command);
+                    System.err.println(USAGE);
+                    exitCode = EXIT_USAGE;
+                    break;
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            exitCode = EXIT_USAGE;
+        } catch (IOException e) {
+            System.err.println("Error running " + command + ": " + e.getMessage());
+            exitCode = EXIT_FAILED;
+        }
+
+        reportTiming(exitCode == EXIT_OK ? "ok" : "failed");
+        return exitCode;
+    }
+
+    // Commands
+
+    private int runImport() throws IOException {
+        String target = argument(1, "import needs 'students' or 'grades'");
+        Path file = Paths.get(argument(2, "import needs an input file"));
+
+        try (CsvReader reader = openCsv(file)) {
+            String[] header = reader.readRecord();
+            if (header == null) {
+                System.err.println("Empty input file: " + file);
+                return EXIT_FAILED;
+            }
+            Map<String, Integer> columns = new HashMap<>();
+            for (int i = 0; i < header.length; i++) {
+                columns.put(header[i].trim().toLowerCase(Locale.ROOT), i);
+            }
+
+            switch (target) {
+                case "students":
+                    return importStudents(reader, columns);
+                case "grades":
+                    return importGrades(reader, columns);
+                default:
+                    throw new IllegalArgumentException("Unknown import target: " + target);
+            }
+        }
+    }
+
+    private int importStudents(CsvReader reader, Map<String, Integer> columns) throws IOException {
+        int studentIdColumn = requireColumn(columns, "student_id");
+        int fullNameColumn = requireColumn(columns, "full_name");
+        int emailColumn = columns.getOrDefault("email", -1);
+        int phoneColumn = columns.getOrDefault("phone_number", -1);
+        int majorColumn = columns.getOrDefault("major", -1);
+
+        long read = 0;
+        long inserted = 0;
+        List<Student> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        String[] record;
+        while ((record = reader.readRecord()) != null) {
+            chunk.add(new Student(field(record, studentIdColumn), field(record, fullNameColumn),
+                                  field(record, emailColumn), field(record, phoneColumn), field(record, majorColumn)));
+            read++;
+            if (chunk.size() == IMPORT_CHUNK_SIZE) {
+                int added = controller.importStudents(chunk);
+                if (added < 0) {
+                    return EXIT_FAILED;
+                }
+                inserted += added;
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            int added = controller.importStudents(chunk);
+            if (added < 0) {
+                return EXIT_FAILED;
+            }
+            inserted += added;
+        }
+        timer.mark("import students", read);
+        System.out.println("Đã nhập " + inserted + "/" + read + " sinh viên (bỏ qua " + (read - inserted) + ")");
+        return EXIT_OK;
+    }
+
+    private int importGrades(CsvReader reader, Map<String, Integer> columns) throws IOException {
+        Integer codeColumn = columns.get("student_code");
+        int studentColumn = codeColumn != null ? codeColumn : requireColumn(columns, "student_id");
+        int subjectColumn = requireColumn(columns, "subject");
+        int scoreColumn = requireColumn(columns, "score");
+        int coefficientColumn = columns.getOrDefault("coefficient", -1);
+        int semesterColumn = requireColumn(columns, "semester");
+        int yearColumn = requireColumn(columns, "year");
+
+        Map<String, Integer> idsByCode = controller.getStudentIdsByCode();
+        Set<Integer> knownIds = new HashSet<>(idsByCode.values());
+        timer.mark("load students", idsByCode.size());
+
+        long read = 0;
+        long inserted = 0;
+        long rejected = 0;
+        List<Grade> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        String[] record;
+        while ((record = reader.readRecord()) != null) {
+            read++;
+            Integer studentId;
+            double score;
+            double coefficient;
+            int year;
+            try {
+                studentId = codeColumn != null ? idsByCode.get(field(record, studentColumn))
+                                               : Integer.valueOf(numberField(record, studentColumn));
+                score = Double.parseDouble(numberField(record, scoreColumn));
+                coefficient = field(record, coefficientColumn) == null ? 1.0
+                            : Double.parseDouble(numberField(record, coefficientColumn));
+                year = Integer.parseInt(numberField(record, yearColumn));
+            } catch (NumberFormatException e) {
+                System.err.println("Line " + reader.getLineNumber() + ": invalid number, skipped");
+                rejected++;
+                continue;
+            }
+            if (studentId == null || !knownIds.contains(studentId)) {
+                System.err.println("Line " + reader.getLineNumber() + ": unknown student, skipped");
+                rejected++;
+                continue;
+            }
+            String subject = field(record, subjectColumn);
+            String semester = field(record, semesterColumn);
+            if (isBlank(subject) || isBlank(semester)) {
+                System.err.println("Line " + reader.getLineNumber() + ": missing subject or semester, skipped");
+                rejected++;
+                continue;
+            }
+            if (score < 0 || score > 10) {
+                System.err.println("Line " + reader.getLineNumber() + ": score outside 0-10, skipped");
+                rejected++;
+                continue;
+            }
+            chunk.add(new Grade(studentId, subject, score, coefficient, semester, year));
+            if (chunk.size() == IMPORT_CHUNK_SIZE) {
+                int added = controller.importGrades(chunk);
+                if (added < 0) {
+                    return EXIT_FAILED;
+                }
+                inserted += added;
+                // Rows the controller skipped as invalid
+                rejected += chunk.size() - added;
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            int added = controller.importGrades(chunk);
+            if (added < 0) {
+                return EXIT_FAILED;
+            }
+            inserted += added;
+            rejected += chunk.size() - added;
+        }
+        timer.mark("import grades", read);
+        System.out.println("Đã nhập " + inserted + "/" + read + " điểm (" + rejected + " dòng không hợp lệ)");
+        return EXIT_OK;
+    }
+
+    private int runExport() throws IOException {
+        String target = argument(1, "export needs 'students', 'grades', 'results' or 'changes'");
+        String output = argument(2, "export needs an output path");
+        boolean gzip = options.containsKey("gzip") || output.endsWith(".gz");
+        DataExporter.Format format = exportFormat(output);
+        Path path = Paths.get(output);
+        if (!target.equals("changes") && path.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+        }
+
+        long rows;
+        switch (target) {
+            case "students":
+                rows = DataExporter.exportStudents(path, format, gzip);
+                break;
+            case "grades":
+                rows = DataExporter.exportGrades(path, format, gzip);
+                break;
+            case "results":
+                rows = DataExporter.exportStrategyResults(path, format, gzip, selectedStrategies());
+                break;
+            case "changes":
+                String consumer = options.get("consumer");
+                if (consumer == null || consumer.isEmpty()) {
+                    throw new IllegalArgumentException("export changes needs --consumer=<name>");
+                }
+                rows = DataExporter.exportChanges(consumer, path, format, gzip);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown export target: " + target);
+        }
+        if (rows < 0) {
+            return EXIT_FAILED;
+        }
+        timer.mark("export " + target, rows);
+        System.out.println("Đã xuất " + rows + " dòng ra " + output);
+        return EXIT_OK;
+    }
+
+    private int runRecompute() {
+        String major = options.get("major");
+        String semester = options.get("semester");
+        Integer year = integerOption("year");
+        int topK = options.containsKey("top") ? Integer.parseInt(options.get("top")) : 10;
+
+        for (GradeCalculationStrategy strategy : selectedStrategies()) {
+            List<LeaderboardEntry> leaderboard = controller.getLeaderboard(strategy, major, semester, year, 0);
+            timer.mark("recompute " + strategy.getStrategyName(), leaderboard.size());
+
+            System.out.println(strategy.getStrategyName() + " - " + leaderboard.size() + " sinh viên");
+            for (LeaderboardEntry entry : leaderboard) {
+                if (topK > 0 && entry.getRank() > topK) {
+                    break;
+                }
+                System.out.printf("  %4d  %-15s %-30s %8.2f  %s%n", entry.getRank(),
+                        entry.getStudent().getStudentId(), entry.getStudent().getFullName(),
+                        entry.getScore(), entry.getResult());
+            }
+        }
+        return EXIT_OK;
+    }
+
+    private int runStats() {
+        String out = options.get("out");
+        if (options.containsKey("by")) {
+            return runDistributions(options.get("by"), out);
+        }
+        if (out != null) {
+            // Streams grades in student order instead of loading every student
+            if (!ReportGenerator.generateStatisticsReport(out)) {
+                return EXIT_FAILED;
+            }
+            timer.mark("write report", -1);
+            System.out.println("Đã ghi báo cáo thống kê ra " + out);
+            return EXIT_OK;
+        }
+
+        // Stream grades in student order and classify each student's weighted average
+        long[] totals = new long[2]; // students with grades, grades
+        // Fixed point: score sum (hundredths), current weighted sum (ten-thousandths), current weight sum (hundredths)
+        long[] sums = new long[3];
+        int[] classes = new int[5];
+        int[] currentStudent = {-1};
+        int gradeCount = controller.forEachGrade(grade -> {
+            if (grade.getStudentId() != currentStudent[0]) {
+                classify(sums, classes);
+                currentStudent[0] = grade.getStudentId();
+                totals[0]++;
+            }
+            totals[1]++;
+            sums[0] += grade.getScoreHundredths();
+            sums[1] += grade.getWeightedScoreTenThousandths();
+            sums[2] += grade.getCoefficientHundredths();
+        });
+        classify(sums, classes);
+        int studentCount = controller.forEachStudent(student -> { });
+        if (gradeCount < 0 || studentCount < 0) {
+            return EXIT_FAILED;
+        }
+        timer.mark("compute statistics", totals[1]);
+
+        System.out.println("Tổng số sinh viên: " + studentCount);
+        System.out.println("Sinh viên có điểm: " + totals[0]);
+        System.out.println("Tổng số bài kiểm tra: " + totals[1]);
+        if (totals[1] > 0) {
+            System.out.println("Điểm trung bình chung: " + FixedPoint.format(FixedPoint.average(sums[0], totals[1])));
+        }
+        System.out.println("Xuất sắc (≥ 8.5): " + classes[0]);
+        System.out.println("Giỏi (≥ 7.0): " + classes[1]);
+        System.out.println("Khá (≥ 5.5): " + classes[2]);
+        System.out.println("Trung bình (≥ 4.0): " + classes[3]);
+        System.out.println("Yếu (< 4.0): " + classes[4]);
+        return EXIT_OK;
+    }
+
+    private int runDistributions(String by, String out) {
+        Map<GradeSlice.Dimension, Map<GradeSlice, ScoreDistribution>> distributions = new LinkedHashMap<>();
+        for (GradeSlice.Dimension dimension : GradeSlice.Dimension.values()) {
+            if (by.equals("all") || by.equalsIgnoreCase(dimension.name())) {
+                distributions.put(dimension, controller.getScoreDistributions(dimension));
+            }
+        }
+        if (distributions.isEmpty()) {
+            throw new IllegalArgumentException("--by must be subject, semester, major or all: " + by);
+        }
+        ScoreDistribution overall = controller.getOverallScoreDistribution();
+        timer.mark("compute distributions", overall.getCount());
+
+        if (out != null) {
+            if (!ReportGenerator.generateDistributionReport(distributions, overall, out)) {
+                return EXIT_FAILED;
+            }
+            System.out.println("Đã ghi báo cáo phân bố điểm ra " + out);
+            return EXIT_OK;
+        }
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<GradeSlice.Dimension, Map<GradeSlice, ScoreDistribution>> entry : distributions.entrySet()) {
+            ReportGenerator.renderDistributions(entry.getKey().getDisplayName(), entry.getValue(), report);
+        }
+        System.out.print(report);
+        return EXIT_OK;
+    }
+
+    private int runSummary() {
+        String out = argument(1, "summary needs an output file");
+        if (!ReportGenerator.generateSummaryReport(out)) {
+            return EXIT_FAILED;
+        }
+        timer.mark("write report", -1);
+        System.out.println("Đã ghi báo cáo tổng quan ra " + out);
+        return EXIT_OK;
+    }
+
+    private int runTranscripts() throws IOException {
+        Path output = Paths.get(argument(1, "transcripts needs an output directory or ZIP file"));
+        boolean zip = options.containsKey("zip") || output.toString().toLowerCase(Locale.ROOT).endsWith(".zip");
+
+        TranscriptBatchJob job = new TranscriptBatchJob(options.get("major"), options.get("semester"), integerOption("year"));
+        if (options.containsKey("threads")) {
+            job.setThreads(Integer.parseInt(options.get("threads")));
+        }
+        job.setProgressListener((completed, total) -> {
+            if (completed % 1000 == 0 || completed == total) {
+                System.err.println("[transcripts] " + completed + "/" + total);
+            }
+        });
+
+        TranscriptBatchJob.Result result = job.run(output, zip ? TranscriptBatchJob.OutputMode.ZIP
+                                                               : TranscriptBatchJob.OutputMode.PER_STUDENT_FILES);
+        timer.mark("render transcripts", result.getCompleted());
+        System.out.println(result);
+        return result.isCancelled() ? EXIT_FAILED : EXIT_OK;
+    }
+
+    private int runMemory() {
+        int[] gradeCount = new int[1];
+        long shared = HeapMeter.retainedBytes(() -> {
+            List<Grade> grades = new ArrayList<>();
+            gradeCount[0] = controller.forEachGrade(grades::add);
+            return grades;
+        });
+        timer.mark("load grades (shared strings)", gradeCount[0]);
+
+        // Give every grade its own copies, as the mapping did before interning
+        long copied = HeapMeter.retainedBytes(() -> {
+            List<Grade> grades = new ArrayList<>();
+            controller.forEachGrade(grade -> {
+                // new String(String) shares the byte[]; copying the chars gives each its own
+                grade.setSubject(new String(grade.getSubject().toCharArray()));
+                grade.setSemester(new String(grade.getSemester().toCharArray()));
+                grades.add(grade);
+            });
+            return grades;
+        });
+        timer.mark("load grades (own strings)", gradeCount[0]);
+
+        int count = Math.max(1, gradeCount[0]);
+        System.out.println("Số điểm: " + gradeCount[0]);
+        System.out.println("Chuỗi dùng chung: " + HeapMeter.format(shared) + " (" + shared / count + " byte/điểm)");
+        System.out.println("Chuỗi riêng từng điểm: " + HeapMeter.format(copied) + " (" + copied / count + " byte/điểm)");
+        if (copied > 0) {
+            System.out.println(String.format("Tiết kiệm: %s (%.0f%%)",
+                    HeapMeter.format(copied - shared), 100.0 * (copied - shared) / copied));
+        }
+        GradeSnapshot[] snapshot = new GradeSnapshot[1];
+        long snapshotHeap = HeapMeter.retainedBytes(() -> snapshot[0] = controller.loadGradeSnapshot());
+        timer.mark("load off-heap snapshot", snapshot[0].getGradeCount());
+        System.out.println("Bản chụp ngoài heap: " + HeapMeter.format(snapshot[0].getOffHeapBytes())
+                + " ngoài heap, " + HeapMeter.format(snapshotHeap) + " trên heap");
+        System.out.println("Từ điển: " + StringDictionary.SUBJECTS.size() + " môn học, "
+                + StringDictionary.SEMESTERS.size() + " học kỳ, " + StringDictionary.MAJORS.size() + " ngành");
+        return EXIT_OK;
+    }
+
+    private int runSnapshot() {
+        Path file = Paths.get(argument(1, "snapshot needs a snapshot file"));
+        DataSnapshot snapshot = controller.openDataSnapshot(file);
+        timer.mark("open snapshot", snapshot.getGrades().getGradeCount());
+
+        System.out.println("Nguồn: " + snapshot.getSource());
+        System.out.println("Số thứ tự thay đổi: " + snapshot.getChangeSequence());
+        System.out.println("Số sinh viên: " + snapshot.getStudents().size());
+        System.out.println("Số điểm: " + snapshot.getGrades().getGradeCount()
+                + " (" + HeapMeter.format(snapshot.getGrades().getOffHeapBytes()) + " ngoài heap)");
+        return EXIT_OK;
+    }
+
+    private int runCohort() {
+        CohortIndex.Filter filter = new CohortIndex.Filter()
+            .major(options.get("major"))
+            .subject(options.get("subject"))
+            .semester(options.get("semester"))
+            .year(integerOption("year"))
+            .bands(bandOption("band"));
+        RoaringBitmap ids = controller.findStudentIds(filter);
+        timer.mark("bitmap query", ids.cardinality());
+
+        System.out.println("Số sinh viên: " + ids.cardinality());
+        for (Student student : controller.getAllStudents()) {
+            if (ids.contains(student.getId())) {
+                System.out.println(student.getStudentId() + "\t" + student.getFullName() + "\t" + student.getMajor());
+            }
+        }
+        timer.mark("list students", ids.cardinality());
+        return EXIT_OK;
+    }
+
+    private int runQuery() {
+        String target = argument(1, "query needs grades or students");
+        String sort = options.get("sort");
+        CriteriaQuery<?, ?> query;
+        switch (target) {
+            case "grades":
+                GradeQuery grades = controller.queryGrades();
+                if (sort != null) {
+                    grades.orderBy(enumOption(GradeQuery.Order.class, "sort"));
+                }
+                query = grades;
+                break;
+            case "students":
+                StudentQuery students = controller.queryStudents();
+                if (sort != null) {
+                    students.orderBy(enumOption(StudentQuery.Order.class, "sort"));
+                }
+                query = students;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown query target: " + target);
+        }
+
+        Integer year = integerOption("year");
+        query.major(options.get("major"))
+            .subject(options.get("subject"))
+            .semester(options.get("semester"))
+            .years(year != null ? year : integerOption("from-year"), year != null ? year : integerOption("to-year"))
+            .scoreBetween(doubleOption("min-score"), doubleOption("max-score"));
+        if (options.containsKey("classification")) {
+            query.classification(enumOption(CohortIndex.Band.class, "classification"));
+        }
+        Integer limit = integerOption("limit");
+        Integer offset = integerOption("offset");
+        query.limit(limit != null ? limit : -1).offset(offset != null ? offset : 0);
+
+        if (options.containsKey("explain")) {
+            for (String step : query.explain()) {
+                System.out.println(step);
+            }
+            timer.mark("explain", -1);
+            return EXIT_OK;
+        }
+        int rows = query.forEach(row -> {
+            if (row instanceof Grade) {
+                Grade grade = (Grade) row;
+                System.out.println(grade.getStudentId() + "\t" + grade.getSubject() + "\t" + grade.getSemester()
+                        + "\t" + grade.getYear() + "\t" + grade.getScore() + "\t" + grade.getCoefficient());
+            } else {
+                Student student = (Student) row;
+                System.out.println(student.getStudentId() + "\t" + student.getFullName() + "\t" + student.getMajor());
+            }
+        });
+        timer.mark("query " + target, rows);
+        return rows < 0 ? EXIT_FAILED : EXIT_OK;
+    }
+
+    private int runTrend() {
+        SemesterTrend trend;
+        if (arguments.size() > 1) {
+            trend = controller.getStudentTrend(arguments.get(1));
+            if (trend == null) {
+                System.err.println("Không tìm thấy sinh viên: " + arguments.get(1));
+                return EXIT_FAILED;
+            }
+        } else {
+            trend = controller.getCohortTrend(options.get("major"));
+        }
+        timer.mark("trend", trend.getPoints().size());
+
+        System.out.printf("%-12s %8s %8s %10s %8s %10s%n", "Học kỳ", "Số điểm", "TB", "TB tích lũy", "GPA", "GPA tích lũy");
+        for (SemesterTrend.Point point : trend.getPoints()) {
+            System.out.printf("%-12s %8d %8s %10s %8s %10s%n", point.getLabel(), point.getGradeCount(),
+                    FixedPoint.format(point.getAverageHundredths()),
+                    FixedPoint.format(point.getCumulativeAverageHundredths()),
+                    FixedPoint.format(point.getGpaHundredths()),
+                    FixedPoint.format(point.getCumulativeGpaHundredths()));
+        }
+        return EXIT_OK;
+    }
+
+    // Helpers
+
+    private static void classify(long[] sums, int[] classes) {
+        if (sums[2] > 0) {
+            long average = FixedPoint.weightedAverage(sums[1], sums[2]);
+            if (average >= 850) classes[0]++;
+            else if (average >= 700) classes[1]++;
+            else if (average >= 550) classes[2]++;
+            else if (average >= 400) classes[3]++;
+            else classes[4]++;
+        }
+        sums[1] = 0;
+        sums[2] = 0;
+    }
+
+    private void reportTiming(String status) {
+        String mode = options.get("timing");
+        if ("json".equals(mode)) {
+            // On stderr like the text form, so it never mixes with the command's output
+            System.err.println(timer.toJson(status));
+        } else if ("text".equals(mode) || "true".equals(mode)) {
+            System.err.print(timer.toText(status));
+        }
+        String timingFile = options.get("timing-file");
+        if (timingFile != null) {
+            try {
+                Files.write(Paths.get(timingFile),
+                            (timer.toJson(status) + System.lineSeparator()).getBytes(StandardCharsets.UTF_8),
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                System.err.println("Error writing timing file: " + e.getMessage());
+            }
+        }
+    }
+
+    private GradeCalculationStrategy[] selectedStrategies() {
+        String selected = options.getOrDefault("strategy", "all");
+        if (selected.equals("all")) {
+            return controller.getAvailableStrategies();
+        }
+        GradeCalculationStrategy strategy = controller.getStrategy(selected);
+        if (strategy == null) {
+            throw new IllegalArgumentException("Unknown strategy: " + selected);
+        }
+        return new GradeCalculationStrategy[] {strategy};
+    }
+
+    private DataExporter.Format exportFormat(String output) {
+        String format = options.get("format");
+        if (format == null) {
+            String name = output.toLowerCase(Locale.ROOT);
+            if (name.endsWith(".gz")) {
+                name = name.substring(0, name.length() - 3);
+            }
+            for (DataExporter.Format candidate : DataExporter.Format.values()) {
+                if (name.endsWith("." + candidate.getExtension())) {
+                    return candidate;
+                }
+            }
+            return DataExporter.Format.CSV;
+        }
+        try {
+            return DataExporter.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown format: " + format);
+        }
+    }
+
+    private static CsvReader openCsv(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        if (file.toString().endsWith(".gz")) {
+            in = new GZIPInputStream(in, 1 << 16);
+        }
+        return new CsvReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    private static int requireColumn(Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null) {
+            throw new IllegalArgumentException("Missing column: " + name);
+        }
+        return index;
+    }
+
+    private static String field(String[] record, int column) {
+        if (column < 0 || column >= record.length) {
+            return null;
+        }
+        String value = record[column];
+        return value.isEmpty() ? null : value;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static String numberField(String[] record, int column) {
+        String value = field(record, column);
+        if (value == null) {
+            throw new NumberFormatException("empty field");
+        }
+        return value.trim();
+    }
+
+    private String argument(int index, String message) {
+        if (index >= arguments.size()) {
+            throw new IllegalArgumentException(message);
+        }
+        return arguments.get(index);
+    }
+
+    private EnumSet<CohortIndex.Band> bandOption(String name) {
+        String value = options.get(name);
+        if (value == null) {
+            return null;
+        }
+        if ("pass".equalsIgnoreCase(value)) {
+            return CohortIndex.Band.passing();
+        }
+        try {
+            return EnumSet.of(CohortIndex.Band.valueOf(value.toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("--" + name + " must be fail, pass, excellent, good, fair or average: " + value);
+        }
+    }
+
+    private <E extends Enum<E>> E enumOption(Class<E> type, String name) {
+        String value = options.get(name);
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("--" + name + " must be one of "
+                    + EnumSet.allOf(type).toString().toLowerCase(Locale.ROOT) + ": " + value);
+        }
+    }
+
+    private Double doubleOption(String name) {
+        String value = options.get(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " must be a number: " + value);
+        }
+    }
+
+    private Integer integerOption(String name) {
+        String value = options.get(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " must be a number: " + value);
+        }
+    }
+}
@@ -1,25 +1,69 @@
 package com.studentmanager.controller;
 
+import com.studentmanager.dao.AsyncDAO;
+import com.studentmanager.dao.BatchGradeLoader;
+import com.studentmanager.dao.ChangeLogDAO;
+import com.studentmanager.dao.ChangeLogFollower;
+import com.studentmanager.dao.CohortIndex;
+import com.studentmanager.dao.DataVersion;
+import com.studentmanager.dao.DatabaseConnection;
+import com.studentmanager.dao.DistributionCache;
 import com.studentmanager.dao.StudentDAO;
 import com.studentmanager.dao.GradeDAO;
+import com.studentmanager.dao.GradeQuery;
+import com.studentmanager.dao.RankingIndex;
+import com.studentmanager.dao.StudentQuery;
+import com.studentmanager.dao.TrendCache;
 import com.studentmanager.model.Student;
+import com.studentmanager.model.CompactGradeList;
 import com.studentmanager.model.Grade;
+import com.studentmanager.model.GradeSlice;
+import com.studentmanager.model.LeaderboardEntry;
+import com.studentmanager.model.ScoreDistribution;
+import com.studentmanager.model.SemesterTrend;
+import com.studentmanager.model.StudentDashboard;
+import com.studentmanager.snapshot.DataSnapshot;
+import com.studentmanager.snapshot.GradeSnapshot;
 import com.studentmanager.strategy.*;
+import com.studentmanager.util.RoaringBitmap;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Controller class to manage student operations
  */
 public class StudentController {
+    /** Short keys of {@link #getAvailableStrategies()}, in the same order */
+    public static final String[] STRATEGY_KEYS = {"average", "letter", "classification", "gpa"};
+    // Snapshot file to open at startup, e.g. -Dstudentmanager.snapshot=/data/school.snap
+    private static final String SNAPSHOT_PROPERTY = "studentmanager.snapshot";
+
     private StudentDAO studentDAO;
     private GradeDAO gradeDAO;
+    private AsyncDAO asyncDAO;
     private GradeCalculator gradeCalculator;
+    private DistributionCache distributionCache;
+    private TrendCache trendCache;
 
     public StudentController() {
         this.studentDAO = new StudentDAO();
         this.gradeDAO = new GradeDAO();
+        this.asyncDAO = new AsyncDAO();
         this.gradeCalculator = new GradeCalculator();
+        this.distributionCache = new DistributionCache(gradeDAO);
+        this.trendCache = new TrendCache(gradeDAO);
     }
 
     // Student operations
@@ -50,34 +94,95 @@ public class StudentController {
     }
     
     /**
-     * Get student by student ID
+     * Add many students in one transaction, e.g. from an import file.
+     * Students without an ID or name, or whose ID already exists, are skipped.
+     * @param students Students to add
+     * @return Number of students added, or -1 if the import failed
+     */
+    public int importStudents(List<Student> students) {
+        List<Student> valid = new ArrayList<>(students.size());
+        for (Student student : students) {
+            if (student.getStudentId() == null || student.getStudentId().trim().isEmpty()
+                    || student.getFullName() == null || student.getFullName().trim().isEmpty()) {
+                System.err.println("Skipping student without ID or name: " + student);
+                continue;
+            }
+            valid.add(student);
+        }
+        return studentDAO.addStudents(valid);
+    }
+    
+    /**
+     * Get student by student ID. Grades are loaded when first read.
      * @param studentId Student ID
      * @return Student object or null if not found
      */
     public Student getStudentByStudentId(String studentId) {
+        return getStudentByStudentId(studentId, false);
+    }
+    
+    /**
+     * Get student by student ID
+     * @param studentId Student ID
+     * @param withGrades true to load the grades now, false to load them when first read
+     * @return Student object or null if not found
+     */
+    public Student getStudentByStudentId(String studentId, boolean withGrades) {
         Student student = studentDAO.getStudentByStudentId(studentId);
         if (student != null) {
-            // Load grades for this student
-            List<Grade> grades = gradeDAO.getGradesByStudentId(student.getId());
-            student.setGrades(grades);
+            attachGrades(Collections.singletonList(student), withGrades);
         }
         return student;
     }
     
     /**
-     * Get all students
+     * Get all students. Grades are loaded for all of them when the first
+     * student's grades are read, so listing names costs no grade queries.
      * @return List of all students
      */
     public List<Student> getAllStudents() {
+        return getAllStudents(false);
+    }
+    
+    /**
+     * Get all students
+     * @param withGrades true to load the grades now, false to load them when first read
+     * @return List of all students
+     */
+    public List<Student> getAllStudents(boolean withGrades) {
         List<Student> students = studentDAO.getAllStudents();
-        // Load grades for each student
-        for (Student student : students) {
-            List<Grade> grades = gradeDAO.getGradesByStudentId(student.getId());
-            student.setGrades(grades);
-        }
+        attachGrades(students, withGrades);
         return students;
     }
     
+    private void attachGrades(List<Student> students, boolean withGrades) {
+        BatchGradeLoader.attach(students, gradeDAO);
+        if (withGrades && !students.isEmpty()) {
+            // Reading one student's grades loads the whole batch
+            students.get(0).getGrades();
+        }
+    }
+    
+    /**
+     * Stream all students ordered by name, without loading their grades
+     * @param consumer Receives each student as it is read
+     * @return Number of students read, or -1 if the query failed
+     */
+    public int forEachStudent(Consumer<Student> consumer) {
+        return studentDAO.forEachStudent(consumer);
+    }
+    
+    /**
+     * Get one page of students in a major, ordered by name
+     * @param major Major to filter by, or null for all majors
+     * @param offset Number of rows to skip
+     * @param limit Maximum number of rows to return
+     * @return Page of students, without grades
+     */
+    public List<Student> getStudentsByMajor(String major, int offset, int limit) {
+        return studentDAO.getStudentsByMajor(major, offset, limit);
+    }
+    
     /**
      * Update student information
      * @param student Student with updated information
@@ -114,6 +219,17 @@ public class StudentController {
         return studentDAO.searchStudentsByName(name);
     }
 
+    /**
+     * Ranked, accent-insensitive full-text search over name, ID, email and major
+     * @param query Search terms
+     * @param offset Number of results to skip
+     * @param limit Maximum number of results
+     * @return Page of matching students, best match first
+     */
+    public List<Student> searchStudentsFullText(String query, int offset, int limit) {
+        return studentDAO.searchStudentsByName(query, offset, limit);
+    }
+
     // Grade operations
     
     /**
@@ -127,20 +243,68 @@ public class StudentController {
      * @return true if successful, false otherwise
      */
     public boolean addGrade(String studentId, String subject, double score, double coefficient, String semester, int year) {
+        return createGrade(studentId, subject, score, coefficient, semester, year) != null;
+    }
+
+    /**
+     * Add grade for a student and return it, e.g. to show it without reloading
+     * @param studentId Student ID
+     * @param subject Subject name
+     * @param score Score (0-10)
+     * @param coefficient Coefficient
+     * @param semester Semester
+     * @param year Year
+     * @return Added grade with its database ID set, or null if it failed
+     */
+    public Grade createGrade(String studentId, String subject, double score, double coefficient, String semester, int year) {
         Student student = studentDAO.getStudentByStudentId(studentId);
         if (student == null) {
             System.err.println("Student not found: " + studentId);
-            return false;
+            return null;
         }
         
         // Validate score
         if (score < 0 || score > 10) {
             System.err.println("Score must be between 0 and 10");
-            return false;
+            return null;
         }
         
         Grade grade = new Grade(student.getId(), subject, score, coefficient, semester, year);
-        return gradeDAO.addGrade(grade);
+        return gradeDAO.addGrade(grade) ? grade : null;
+    }
+    
+    /**
+     * Add many grades in one transaction, e.g. from an import file.
+     * Grades with a score outside 0-10 or without a subject or semester are
+     * skipped, so the number added may be less than the number given.
+     * @param grades Grades whose student ID is the student's database ID
+     * @return Number of grades added, or -1 if the import failed
+     */
+    public int importGrades(List<Grade> grades) {
+        List<Grade> valid = new ArrayList<>(grades.size());
+        for (Grade grade : grades) {
+            if (grade.getScore() < 0 || grade.getScore() > 10) {
+                System.err.println("Skipping grade with score outside 0-10: " + grade);
+                continue;
+            }
+            if (grade.getSubject() == null || grade.getSubject().trim().isEmpty()
+                    || grade.getSemester() == null || grade.getSemester().trim().isEmpty()) {
+                System.err.println("Skipping grade without subject or semester: " + grade);
+                continue;
+            }
+            valid.add(grade);
+        }
+        return gradeDAO.addGrades(valid);
+    }
+    
+    /**
+     * Map every student ID (MSSV) to the student's database ID
+     * @return Database IDs keyed by student ID
+     */
+    public Map<String, Integer> getStudentIdsByCode() {
+        Map<String, Integer> idsByCode = new HashMap<>();
+        studentDAO.forEachStudent(student -> idsByCode.put(student.getStudentId(), student.getId()));
+        return idsByCode;
     }
     
     /**
@@ -157,6 +321,160 @@ public class StudentController {
         return gradeDAO.getGradesByStudentId(student.getId());
     }
     
+    /**
+     * Get one page of grades matching the given filters. Null filters are ignored.
+     * @param semester Semester to match, or null
+     * @param year Year to match, or null
+     * @param minScore Minimum score (inclusive), or null
+     * @param maxScore Maximum score (inclusive), or null
+     * @param offset Number of rows to skip
+     * @param limit Maximum number of rows to return
+     * @return Page of matching grades
+     */
+    public List<Grade> getGradesFiltered(String semester, Integer year, Double minScore, Double maxScore,
+                                         int offset, int limit) {
+        return gradeDAO.getGradesFiltered(semester, year, minScore, maxScore, offset, limit);
+    }
+    
+    /**
+     * Find the students matching cohort criteria through the bitmap indexes,
+     * which are built on the first call and kept up to date afterwards
+     * @param filter Major, subject, semester, year and score bands to match
+     * @return Database IDs of the matching students
+     */
+    public RoaringBitmap findStudentIds(CohortIndex.Filter filter) {
+        return CohortIndex.getInstance().findStudents(filter);
+    }
+    
+    /**
+     * Start a multi-criteria grade query that filters in the database
+     * @return New query; set criteria on it, then call list() or forEach()
+     */
+    public GradeQuery queryGrades() {
+        return gradeDAO.query();
+    }
+    
+    /**
+     * Start a multi-criteria student query that filters in the database
+     * @return New query; set criteria on it, then call list() or forEach()
+     */
+    public StudentQuery queryStudents() {
+        return studentDAO.query();
+    }
+    
+    /**
+     * Copy every grade into an off-heap snapshot for analytics that scan
+     * the whole history without growing the heap
+     * @return New snapshot of the current grades
+     */
+    public GradeSnapshot loadGradeSnapshot() {
+        return GradeSnapshot.load(gradeDAO);
+    }
+    
+    /**
+     * Open all students and grades from a snapshot file, replaying only the
+     * changes made since it was written, and save it again if it changed
+     * @param file Snapshot file, created on first use
+     * @return Snapshot matching the database
+     */
+    public DataSnapshot openDataSnapshot(Path file) {
+        return DataSnapshot.open(file, studentDAO, gradeDAO, new ChangeLogDAO());
+    }
+    
+    /**
+     * Get the snapshot file opened at startup: the one set with
+     * -Dstudentmanager.snapshot, or one next to the database file
+     * @return Snapshot file, or null if set to empty to always load from the database
+     */
+    public static Path getSnapshotFile() {
+        String file = System.getProperty(SNAPSHOT_PROPERTY, DatabaseConnection.getDatabaseFile() + ".snap");
+        return file.isBlank() ? null : Paths.get(file);
+    }
+    
+    /**
+     * Open the startup snapshot file and fill the score distribution, cohort
+     * trend and ranking caches and the cohort index from it, instead of one
+     * query per dimension, major and strategy on first use. The file is
+     * brought up to date with the change log, or rebuilt from the database
+     * when it is missing or fails its check. Writes made meanwhile are
+     * counted again on the next call, as after any other load.
+     * @return Snapshot the caches were filled from, or null if the file could
+     *         not be used and they were filled from the database directly
+     */
+    public DataSnapshot warmUpCaches() {
+        // Writes of other processes from here on are replayed into the caches later
+        ChangeLogFollower.catchUp();
+        long version = DataVersion.current();
+        Path file = getSnapshotFile();
+        if (file != null) {
+            try {
+                DataSnapshot snapshot = openDataSnapshot(file);
+                warmUpCaches(snapshot.getStudents(), snapshot.getGrades(), version);
+                return snapshot;
+            } catch (RuntimeException e) {
+                System.err.println("Error opening snapshot file " + file + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+        warmUpCaches(studentDAO.getAllStudents(), GradeSnapshot.load(gradeDAO), version);
+        return null;
+    }
+    
+    private void warmUpCaches(List<Student> students, GradeSnapshot grades, long version) {
+        Map<Integer, String> majors = new HashMap<>();
+        for (Student student : students) {
+            majors.put(student.getId(), student.getMajor());
+        }
+        for (GradeSlice.Dimension dimension : GradeSlice.Dimension.values()) {
+            distributionCache.seed(dimension, grades.getScoreDistributions(dimension, majors::get), version);
+        }
+        trendCache.seedCohortTrend(null, version, rows -> grades.forEachTermScore(id -> true, rows));
+        for (String major : new HashSet<>(majors.values())) {
+            if (major != null) {
+                trendCache.seedCohortTrend(major, version,
+                        rows -> grades.forEachTermScore(id -> major.equals(majors.get(id)), rows));
+            }
+        }
+        for (GradeCalculationStrategy strategy : getAvailableStrategies()) {
+            RankingIndex.seed(strategy, students, grades::getGradesOfStudent, version);
+        }
+        CohortIndex.seed(students, grades::getGradesOfStudent, version);
+    }
+    
+    /**
+     * Load a student's dashboard without blocking the caller. The student is
+     * looked up first; their grades and semesters are then queried concurrently
+     * and strategy results are computed from the loaded grades.
+     * @param studentId Student ID
+     * @return Future of the dashboard, or of null if the student does not exist;
+     *         fails with a TimeoutException if the database does not answer in time
+     */
+    public CompletableFuture<StudentDashboard> loadStudentDashboard(String studentId) {
+        return asyncDAO.getStudentByStudentId(studentId).thenCompose(student -> {
+            if (student == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<List<Grade>> grades = asyncDAO.getGradesByStudentId(student.getId());
+            CompletableFuture<List<String>> semesters = asyncDAO.getDistinctSemestersForStudent(student.getId());
+            return grades.thenCombine(semesters, (studentGrades, studentSemesters) -> {
+                Map<String, String> results = new LinkedHashMap<>();
+                for (GradeCalculationStrategy strategy : getAvailableStrategies()) {
+                    results.put(strategy.getStrategyName(), strategy.calculateGrade(studentGrades));
+                }
+                return new StudentDashboard(student, studentGrades, studentSemesters, results);
+            });
+        });
+    }
+    
+    /**
+     * Stream all grades ordered by student
+     * @param consumer Receives each grade as it is read
+     * @return Number of grades read, or -1 if the query failed
+     */
+    public int forEachGrade(Consumer<Grade> consumer) {
+        return gradeDAO.forEachGrade(consumer);
+    }
+    
     /**
      * Update grade
      * @param grade Grade with updated information
@@ -234,6 +552,162 @@ public class StudentController {
         return gradeCalculator.calculateGrade(grades);
     }
     
+    /**
+     * Rank every student under a strategy. Rankings over all grades come from
+     * the {@link RankingIndex}, where scores equal to the hundredth tie. For a
+     * semester or year, grades are bulk-loaded in one query and each
+     * student's result is computed in parallel.
+     * @param strategy Strategy to rank by
+     * @param major Only rank students in this major, or null for all
+     * @param semester Only use grades from this semester, or null for all
+     * @param year Only use grades from this year, or null for all
+     * @param topK Return only entries ranked within the top K, or 0 for all
+     * @return Entries ordered by rank, best first
+     */
+    public List<LeaderboardEntry> getLeaderboard(GradeCalculationStrategy strategy, String major,
+                                                 String semester, Integer year, int topK) {
+        if (semester == null && year == null) {
+            return RankingIndex.getInstance(strategy).getTop(major, topK);
+        }
+        
+        Map<Integer, Student> studentsById = new HashMap<>();
+        for (Student student : studentDAO.getAllStudents()) {
+            if (major == null || major.equals(student.getMajor())) {
+                studentsById.put(student.getId(), student);
+            }
+        }
+        
+        // Filtered in SQL and held column-wise, so no Grade object is created per row
+        Map<Integer, CompactGradeList> gradesByStudent = gradeDAO.getCompactGradesForCohort(major, semester, year);
+        gradesByStudent.keySet().retainAll(studentsById.keySet());
+        
+        // Strategies are stateless, so one instance can be shared across workers
+        List<LeaderboardEntry> entries = gradesByStudent.entrySet().parallelStream()
+            .map(e -> new LeaderboardEntry(
+                studentsById.get(e.getKey()),
+                e.getValue().size(),
+                strategy.calculateScore(e.getValue()),
+                strategy.calculateGrade(e.getValue())))
+            .sorted(Comparator.comparingDouble(LeaderboardEntry::getScore).reversed()
+                .thenComparing(entry -> entry.getStudent().getFullName()))
+            .collect(Collectors.toList());
+        
+        assignRanks(entries);
+        
+        if (topK > 0) {
+            int end = 0;
+            while (end < entries.size() && entries.get(end).getRank() <= topK) {
+                end++;
+            }
+            entries = new ArrayList<>(entries.subList(0, end));
+        }
+        return entries;
+    }
+    
+    /**
+     * Rank of one student under a strategy, over all their grades
+     * @param studentId Student ID
+     * @param strategy Strategy to rank by
+     * @param major Rank within this major, or null for the whole school
+     * @return Entry with rank and percentile, or null if the student does
+     *         not exist, has no grades or is not in the major
+     */
+    public LeaderboardEntry getStudentRank(String studentId, GradeCalculationStrategy strategy, String major) {
+        Student student = studentDAO.getStudentByStudentId(studentId);
+        if (student == null) {
+            return null;
+        }
+        return RankingIndex.getInstance(strategy).getEntry(student.getId(), major);
+    }
+    
+    /**
+     * Assign competition ranks and percentiles to entries sorted best first
+     */
+    private void assignRanks(List<LeaderboardEntry> entries) {
+        int total = entries.size();
+        int groupStart = 0;
+        while (groupStart < total) {
+            double score = entries.get(groupStart).getScore();
+            int groupEnd = groupStart;
+            while (groupEnd < total && entries.get(groupEnd).getScore() == score) {
+                groupEnd++;
+            }
+            // Everyone after this tie group scored strictly lower
+            double percentile = 100.0 * (total - groupEnd) / total;
+            for (int i = groupStart; i < groupEnd; i++) {
+                entries.get(i).setRank(groupStart + 1);
+                entries.get(i).setPercentile(percentile);
+            }
+            groupStart = groupEnd;
+        }
+    }
+    
+    /**
+     * Count grades per score band for every slice of a dimension
+     * @param dimension Subject, semester or major
+     * @return Ten band counts per slice
+     */
+    public Map<GradeSlice, int[]> getScoreHistograms(GradeSlice.Dimension dimension) {
+        return gradeDAO.getScoreHistograms(dimension);
+    }
+    
+    /**
+     * Count grades per score band in one slice
+     * @param slice Slice to count
+     * @return Ten band counts
+     */
+    public int[] getScoreHistogram(GradeSlice slice) {
+        return gradeDAO.getScoreHistogram(slice);
+    }
+    
+    /**
+     * Exact score distribution (count, mean, standard deviation, percentiles)
+     * of every slice of a dimension; only slices written since the last call
+     * are counted again
+     * @param dimension Subject, semester or major
+     * @return Distribution per slice, ordered by slice
+     */
+    public Map<GradeSlice, ScoreDistribution> getScoreDistributions(GradeSlice.Dimension dimension) {
+        return distributionCache.getDistributions(dimension);
+    }
+    
+    /**
+     * Exact score distribution of one slice
+     * @param slice Slice to read
+     * @return Distribution, empty if the slice has no grades
+     */
+    public ScoreDistribution getScoreDistribution(GradeSlice slice) {
+        return distributionCache.getDistribution(slice);
+    }
+    
+    /**
+     * Semester-by-semester and cumulative average and GPA of a student
+     * @param studentId Student ID
+     * @return Trend, oldest semester first, or null if the student does not exist
+     */
+    public SemesterTrend getStudentTrend(String studentId) {
+        Student student = studentDAO.getStudentByStudentId(studentId);
+        return student != null ? trendCache.getStudentTrend(student.getId()) : null;
+    }
+    
+    /**
+     * Semester-by-semester and cumulative average and GPA over all grades of
+     * a major
+     * @param major Major, or null for the whole school
+     * @return Trend, oldest semester first
+     */
+    public SemesterTrend getCohortTrend(String major) {
+        return trendCache.getCohortTrend(major);
+    }
+    
+    /**
+     * Score distribution of every grade, merged from the subject slices
+     * @return Distribution of all grades
+     */
+    public ScoreDistribution getOverallScoreDistribution() {
+        return distributionCache.getMergedDistribution(GradeSlice.Dimension.SUBJECT);
+    }
+    
     /**
      * Get available calculation strategies
      * @return Array of available strategies
@@ -246,4 +720,19 @@ public class StudentController {
             new GPACalculationStrategy()
         };
     }
+    
+    /**
+     * Look up a strategy by its short key, as used on the command line and in the API
+     * @param key One of {@link #STRATEGY_KEYS}
+     * @return Strategy, or null if the key is unknown
+     */
+    public GradeCalculationStrategy getStrategy(String key) {
+        GradeCalculationStrategy[] strategies = getAvailableStrategies();
+        for (int i = 0; i < STRATEGY_KEYS.length; i++) {
+            if (STRATEGY_KEYS[i].equals(key)) {
+                return strategies[i];
+            }
+        }
+        return null;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,189 @@
+package com.studentmanager.dao;
+
+import com.studentmanager.model.Grade;
+import com.studentmanager.model.Student;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous facade over {@link StudentDAO} and {@link GradeDAO}.
+ * Every call runs on a shared executor with one thread per pooled connection,
+ * so independent queries overlap without queuing on the pool, and returns a
+ * CompletableFuture that can be composed. Reads fail with a TimeoutException
+ * if the query does not finish in time, and the statement still running is
+ * then cancelled so the thread and its connection are freed. Writes have no
+ * timeout: giving up on them would leave the caller unsure whether they
+ * happened.
+ */
+public class AsyncDAO {
+    private static final int MAX_QUEUED_CALLS = 1000;
+    private static final long DEFAULT_TIMEOUT_MS = 10_000;
+
+    private static final ThreadPoolExecutor executor = createExecutor();
+
+    private final StudentDAO studentDAO;
+    private final GradeDAO gradeDAO;
+    private final long timeoutMillis;
+
+    public AsyncDAO() {
+        this(new StudentDAO(), new GradeDAO(), DEFAULT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param studentDAO DAO used for student calls
+     * @param gradeDAO DAO used for grade calls
+     * @param timeout Time after which read futures fail with TimeoutException, or 0 for none
+     * @param unit Unit of the timeout
+     */
+    public AsyncDAO(StudentDAO studentDAO, GradeDAO gradeDAO, long timeout, TimeUnit unit) {
+        this.studentDAO = studentDAO;
+        this.gradeDAO = gradeDAO;
+        this.timeoutMillis = unit.toMillis(timeout);
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        int threads = DatabaseConnection.getPoolSize();
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED_CALLS), runnable -> {
+                    Thread thread = new Thread(runnable, "dao-async-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Executor the DAO calls run on, for callers that want to chain
+     * further blocking work with the *Async variants of CompletableFuture
+     * @return Shared DAO executor
+     */
+    public static Executor executor() {
+        return executor;
+    }
+
+    /**
+     * Run any read-only DAO work asynchronously
+     * @param query Blocking call to run on the DAO executor
+     * @return Future of the result; fails with RejectedExecutionException when
+     *         too many calls are queued, or TimeoutException when it takes too long,
+     *         in which case its running statement is cancelled
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> query) {
+        if (timeoutMillis <= 0) {
+            return submit(query);
+        }
+        DatabaseConnection.Cancellation cancellation = new DatabaseConnection.Cancellation();
+        CompletableFuture<T> future = submit(() -> DatabaseConnection.runCancellable(cancellation, query));
+        future.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).whenComplete((result, error) -> {
+            if (error instanceof TimeoutException) {
+                cancellation.cancel();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Run DAO work that changes data asynchronously, without a timeout
+     * @param update Blocking call to run on the DAO executor
+     * @return Future of the result; fails with RejectedExecutionException when
+     *         too many calls are queued
+     */
+    public <T> CompletableFuture<T> write(Supplier<T> update) {
+        return submit(update);
+    }
+
+    private static <T> CompletableFuture<T> submit(Supplier<T> work) {
+        try {
+            return CompletableFuture.supplyAsync(work, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // Student operations
+
+    public CompletableFuture<Student> getStudentById(int id) {
+        return supply(() -> studentDAO.getStudentById(id));
+    }
+
+    public CompletableFuture<Student> getStudentByStudentId(String studentId) {
+        return supply(() -> studentDAO.getStudentByStudentId(studentId));
+    }
+
+    public CompletableFuture<List<Student>> getAllStudents() {
+        return supply(studentDAO::getAllStudents);
+    }
+
+    public CompletableFuture<List<Student>> getStudentsByMajor(String major, int offset, int limit) {
+        return supply(() -> studentDAO.getStudentsByMajor(major, offset, limit));
+    }
+
+    public CompletableFuture<List<Student>> searchStudentsByName(String query, int offset, int limit) {
+        return supply(() -> studentDAO.searchStudentsByName(query, offset, limit));
+    }
+
+    public CompletableFuture<Integer> countStudents() {
+        return supply(studentDAO::countStudents);
+    }
+
+    public CompletableFuture<Boolean> addStudent(Student student) {
+        return write(() -> studentDAO.addStudent(student));
+    }
+
+    public CompletableFuture<Boolean> updateStudent(Student student) {
+        return write(() -> studentDAO.updateStudent(student));
+    }
+
+    public CompletableFuture<Boolean> deleteStudent(int id) {
+        return write(() -> studentDAO.deleteStudent(id));
+    }
+
+    // Grade operations
+
+    public CompletableFuture<Grade> getGradeById(int id) {
+        return supply(() -> gradeDAO.getGradeById(id));
+    }
+
+    public CompletableFuture<List<Grade>> getGradesByStudentId(int studentId) {
+        return supply(() -> gradeDAO.getGradesByStudentId(studentId));
+    }
+
+    public CompletableFuture<Map<Integer, List<Grade>>> getGradesByStudentIds(Collection<Integer> studentIds) {
+        return supply(() -> gradeDAO.getGradesByStudentIds(studentIds));
+    }
+
+    public CompletableFuture<List<Grade>> getGradesByStudentAndSemester(int studentId, String semester, int year) {
+        return supply(() -> gradeDAO.getGradesByStudentAndSemester(studentId, semester, year));
+    }
+
+    public CompletableFuture<List<String>> getDistinctSemestersForStudent(int studentId) {
+        return supply(() -> gradeDAO.getDistinctSemestersForStudent(studentId));
+    }
+
+    public CompletableFuture<List<Grade>> getGradesFiltered(String semester, Integer year, Double minScore,
+                                                            Double maxScore, int offset, int limit) {
+        return supply(() -> gradeDAO.getGradesFiltered(semester, year, minScore, maxScore, offset, limit));
+    }
+
+    public CompletableFuture<Boolean> addGrade(Grade grade) {
+        return write(() -> gradeDAO.addGrade(grade));
+    }
+
+    public CompletableFuture<Boolean> updateGrade(Grade grade) {
+        return write(() -> gradeDAO.updateGrade(grade));
+    }
+
+    public CompletableFuture<Boolean> deleteGrade(int id) {
+        return write(() -> gradeDAO.deleteGrade(id));
+    }
+}
@@ -0,0 +1,61 @@
+package com.studentmanager.dao;
+
+import com.studentmanager.model.Grade;
+import com.studentmanager.model.GradeLoader;
+import com.studentmanager.model.Student;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Grade loader shared by the students of one result set. The first student
+ * whose grades are read loads the grades of every student in the set that
+ * is still unloaded, with one query per 500 students, so iterating the set
+ * and reading grades costs about N/500 queries instead of N.
+ */
+public class BatchGradeLoader implements GradeLoader {
+    private final GradeDAO gradeDAO;
+    private List<Student> students;
+
+    private BatchGradeLoader(GradeDAO gradeDAO, List<Student> students) {
+        this.gradeDAO = gradeDAO;
+        this.students = students;
+    }
+
+    /**
+     * Make the grades of the given students load lazily, in one batch
+     * @param students Students of one result set
+     * @param gradeDAO DAO to load the grades with
+     */
+    public static void attach(List<Student> students, GradeDAO gradeDAO) {
+        BatchGradeLoader loader = new BatchGradeLoader(gradeDAO, new ArrayList<>(students));
+        for (Student student : students) {
+            student.setGradeLoader(loader);
+        }
+    }
+
+    @Override
+    public synchronized List<Grade> loadGrades(Student student) {
+        List<Student> batch = new ArrayList<>();
+        batch.add(student);
+        if (students != null) {
+            for (Student other : students) {
+                if (other != student && !other.isGradesLoaded()) {
+                    batch.add(other);
+                }
+            }
+            // Every student is loaded after this call, so the list is no longer needed
+            students = null;
+        }
+
+        List<Integer> ids = new ArrayList<>(batch.size());
+        for (Student member : batch) {
+            ids.add(member.getId());
+        }
+        Map<Integer, List<Grade>> gradesByStudent = gradeDAO.getGradesByStudentIds(ids);
+        for (int i = 1; i < batch.size(); i++) {
+            batch.get(i).setGrades(gradesByStudent.get(batch.get(i).getId()));
+        }
+        return gradesByStudent.get(student.getId());
+    }
+}
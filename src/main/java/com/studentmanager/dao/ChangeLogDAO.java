@@ -0,0 +1,373 @@
+package com.studentmanager.dao;
+
+import com.studentmanager.model.Grade;
+import com.studentmanager.model.Student;
+import java.sql.*;
+import java.util.function.Consumer;
+
+/**
+ * Data Access Object for the change log that triggers keep for the students
+ * and grades tables, and for the export watermarks stored alongside it.
+ * Changes are read as the net effect per row between two sequence numbers,
+ * so the cost depends on how many rows changed, not on the table size.
+ */
+public class ChangeLogDAO {
+    /** Row was inserted since the watermark */
+    public static final char INSERTED = 'I';
+    /** Row existed before the watermark and was updated */
+    public static final char UPDATED = 'U';
+    /** Row existed before the watermark and is now gone */
+    public static final char DELETED = 'D';
+    /** Watermarks not advanced for this many days are dropped when pruning */
+    public static final int STALE_WATERMARK_DAYS = 30;
+
+    /**
+     * Receives the net change of one row
+     * @param <T> Row type
+     */
+    public interface ChangeConsumer<T> {
+        /**
+         * @param operation {@link #INSERTED}, {@link #UPDATED} or {@link #DELETED}
+         * @param rowId Database ID of the row
+         * @param row Current row, or null when deleted
+         */
+        void accept(char operation, int rowId, T row);
+    }
+
+    /**
+     * One change log entry with the old values its trigger recorded
+     */
+    public static final class Entry {
+        private final String table;
+        private final char operation;
+        private final int rowId;
+        private final Integer oldStudentId;
+        private final String oldSubject;
+        private final String oldSemester;
+        private final Integer oldYear;
+        private final String oldMajor;
+
+        Entry(String table, char operation, int rowId, Integer oldStudentId, String oldSubject,
+              String oldSemester, Integer oldYear, String oldMajor) {
+            this.table = table;
+            this.operation = operation;
+            this.rowId = rowId;
+            this.oldStudentId = oldStudentId;
+            this.oldSubject = oldSubject;
+            this.oldSemester = oldSemester;
+            this.oldYear = oldYear;
+            this.oldMajor = oldMajor;
+        }
+
+        /** @return "students" or "grades" */
+        public String getTable() { return table; }
+        /** @return {@link #INSERTED}, {@link #UPDATED} or {@link #DELETED} */
+        public char getOperation() { return operation; }
+        /** @return Database ID of the row */
+        public int getRowId() { return rowId; }
+        /** @return Student the row belonged to before the write; for a student, its own ID */
+        public Integer getOldStudentId() { return oldStudentId; }
+        /** @return Subject of a grade before the write */
+        public String getOldSubject() { return oldSubject; }
+        /** @return Semester of a grade before the write */
+        public String getOldSemester() { return oldSemester; }
+        /** @return Year of a grade before the write */
+        public Integer getOldYear() { return oldYear; }
+        /** @return Major of a student before the write, may be null */
+        public String getOldMajor() { return oldMajor; }
+
+        /**
+         * @return true if the old values are known: always for inserts, and for
+         * updates and deletes logged since the old value columns were added
+         */
+        public boolean hasOldValues() {
+            return operation == INSERTED || oldStudentId != null;
+        }
+    }
+
+    /**
+     * Get the latest change log sequence number. Read from sqlite_sequence so it
+     * never goes back, even after the log is pruned, and it also moves when
+     * another process writes to the database. Buffered grade writes are not
+     * logged until {@link GradeDAO#flushWrites()}.
+     * @return Sequence number, 0 if nothing was logged yet
+     */
+    public long getCurrentSequence() {
+        String sql = "SELECT COALESCE((SELECT seq FROM sqlite_sequence WHERE name = 'change_log'), 0)";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error reading change log: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+        }
+        return 0;
+    }
+
+    /**
+     * Get the highest sequence number pruned from the log. A consumer whose
+     * watermark is below it has missed entries, deletes among them, and
+     * must start over from a full export.
+     * @return Sequence number, 0 if nothing was pruned, or -1 if the query failed
+     */
+    public long getPrunedSequence() {
+        // Pruning only deletes from the oldest end, so the log starts right after it
+        String sql = "SELECT COALESCE((SELECT MIN(seq) - 1 FROM change_log), " +
+                     "(SELECT seq FROM sqlite_sequence WHERE name = 'change_log'), 0)";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error reading change log: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+        }
+        return -1;
+    }
+
+    /**
+     * Get the stored watermark of an export consumer
+     * @param name Consumer name
+     * @return Last exported sequence number, or -1 if the consumer never exported
+     */
+    public long getWatermark(String name) {
+        String sql = "SELECT last_seq FROM export_watermarks WHERE name = ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, name);
+            ResultSet rs = pstmt.executeQuery();
+
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting export watermark: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+        }
+        return -1;
+    }
+
+    /**
+     * Store the watermark of an export consumer
+     * @param name Consumer name
+     * @param lastSeq Last sequence number included in the export
+     * @return true if successful, false otherwise
+     */
+    public boolean setWatermark(String name, long lastSeq) {
+        String sql = "INSERT INTO export_watermarks (name, last_seq) VALUES (?, ?) " +
+                     "ON CONFLICT(name) DO UPDATE SET last_seq = excluded.last_seq, " +
+                     "updated_at = strftime('%Y-%m-%dT%H:%M:%fZ', 'now')";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, name);
+            pstmt.setLong(2, lastSeq);
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.err.println("Error setting export watermark: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+            return false;
+        }
+    }
+
+    /**
+     * Delete change log entries every consumer has already exported. Consumers
+     * whose watermark has not moved for {@link #STALE_WATERMARK_DAYS} days are
+     * dropped first, so an abandoned consumer or snapshot file cannot keep the
+     * log growing forever. A dropped consumer's watermark is then below
+     * {@link #getPrunedSequence()}, so its next run starts over with a full
+     * export that tells it to discard what it has.
+     * @return Number of entries deleted, or -1 if pruning failed
+     */
+    public int pruneChangeLog() {
+        String dropStale = "DELETE FROM export_watermarks WHERE updated_at < " +
+                           "strftime('%Y-%m-%dT%H:%M:%fZ', 'now', '-" + STALE_WATERMARK_DAYS + " days')";
+        // Without any consumer nothing needs the log up to the current sequence
+        String prune = "DELETE FROM change_log WHERE seq <= COALESCE((SELECT MIN(last_seq) FROM export_watermarks), " +
+                       "(SELECT seq FROM sqlite_sequence WHERE name = 'change_log'), 0)";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+
+            conn.setAutoCommit(false);
+            try {
+                int dropped = stmt.executeUpdate(dropStale);
+                if (dropped > 0) {
+                    System.err.println("Dropped " + dropped + " export watermark(s) unused for "
+                            + STALE_WATERMARK_DAYS + " days");
+                }
+                int deleted = stmt.executeUpdate(prune);
+                conn.commit();
+                return deleted;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error pruning change log: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+            return -1;
+        }
+    }
+
+    /**
+     * Stream the students changed in (afterSeq, upToSeq], ordered by ID.
+     * Rows inserted and deleted inside the range are skipped.
+     * @param afterSeq Exclusive lower bound, usually a stored watermark
+     * @param upToSeq Inclusive upper bound
+     * @param consumer Receives each net change
+     * @return Number of changes read, or -1 if the query failed
+     */
+    public int forEachStudentChange(long afterSeq, long upToSeq, ChangeConsumer<Student> consumer) {
+        StudentDAO studentDAO = new StudentDAO();
+        String sql = changesSql("students");
+        int count = 0;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, afterSeq);
+            pstmt.setLong(2, upToSeq);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                int rowId = rs.getInt("row_id");
+                if (rs.getObject("id") == null) {
+                    consumer.accept(DELETED, rowId, null);
+                } else {
+                    consumer.accept(operationOf(rs), rowId, studentDAO.createStudentFromResultSet(rs));
+                }
+                count++;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error streaming student changes: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+            return -1;
+        }
+        return count;
+    }
+
+    /**
+     * Stream the grades changed in (afterSeq, upToSeq], ordered by ID.
+     * Rows inserted and deleted inside the range are skipped.
+     * @param afterSeq Exclusive lower bound, usually a stored watermark
+     * @param upToSeq Inclusive upper bound
+     * @param consumer Receives each net change
+     * @return Number of changes read, or -1 if the query failed
+     */
+    public int forEachGradeChange(long afterSeq, long upToSeq, ChangeConsumer<Grade> consumer) {
+        GradeDAO gradeDAO = new GradeDAO();
+        String sql = changesSql("grades");
+        int count = 0;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, afterSeq);
+            pstmt.setLong(2, upToSeq);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                int rowId = rs.getInt("row_id");
+                if (rs.getObject("id") == null) {
+                    consumer.accept(DELETED, rowId, null);
+                } else {
+                    consumer.accept(operationOf(rs), rowId, gradeDAO.createGradeFromResultSet(rs));
+                }
+                count++;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error streaming grade changes: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+            return -1;
+        }
+        return count;
+    }
+
+    /**
+     * Stream every log entry in (afterSeq, upToSeq], oldest first, without
+     * collapsing them per row. Fewer entries than upToSeq - afterSeq means
+     * part of the range was pruned.
+     * @param afterSeq Exclusive lower bound
+     * @param upToSeq Inclusive upper bound
+     * @param consumer Receives each entry
+     * @return Number of entries read, or -1 if the query failed
+     */
+    public int forEachEntry(long afterSeq, long upToSeq, Consumer<Entry> consumer) {
+        String sql = "SELECT table_name, row_id, operation, old_student_id, old_subject, old_semester, " +
+                     "old_year, old_major FROM change_log WHERE seq > ? AND seq <= ? ORDER BY seq";
+        int count = 0;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, afterSeq);
+            pstmt.setLong(2, upToSeq);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                consumer.accept(new Entry(
+                        rs.getString("table_name"),
+                        rs.getString("operation").charAt(0),
+                        rs.getInt("row_id"),
+                        nullableInt(rs, "old_student_id"),
+                        rs.getString("old_subject"),
+                        rs.getString("old_semester"),
+                        nullableInt(rs, "old_year"),
+                        rs.getString("old_major")));
+                count++;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error reading change log entries: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+            return -1;
+        }
+        return count;
+    }
+
+    /**
+     * Collapse the log range to one entry per row and join the current row.
+     * IDs are never reused (AUTOINCREMENT), so a logged insert means the row is
+     * new to the consumer; if it is also gone now, the consumer never saw it.
+     */
+    private static String changesSql(String table) {
+        return "SELECT c.row_id, c.inserted, t.* FROM (" +
+               "SELECT row_id, MAX(operation = 'I') AS inserted " +
+               "FROM change_log WHERE table_name = '" + table + "' AND seq > ? AND seq <= ? " +
+               "GROUP BY row_id) c " +
+               "LEFT JOIN " + table + " t ON t.id = c.row_id " +
+               "WHERE NOT (c.inserted AND t.id IS NULL) " +
+               "ORDER BY c.row_id";
+    }
+
+    private static char operationOf(ResultSet rs) throws SQLException {
+        return rs.getInt("inserted") == 1 ? INSERTED : UPDATED;
+    }
+
+    private static Integer nullableInt(ResultSet rs, String column) throws SQLException {
+        int value = rs.getInt(column);
+        return rs.wasNull() ? null : value;
+    }
+}
@@ -0,0 +1,256 @@
+package com.studentmanager.dao;
+
+import com.studentmanager.model.GradeSlice;
+import com.studentmanager.model.Student;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Replays the change log to the {@link DataChangeListener}s of this process.
+ * Writes through the DAOs reach the listeners directly, but writes from
+ * another process, such as the CLI while the API server runs, only reach the
+ * database. The caches call {@link #catchUp()} before answering; it passes on
+ * the entries logged since the last call, so every cache follows the same
+ * sequence number. The DAOs record the range of entries each of their own
+ * commits logged, see {@link #ownWrite}, and those ranges are skipped: the
+ * listeners were told about those writes when they were made.
+ */
+public final class ChangeLogFollower {
+    // Above this many entries rebuilding the caches is cheaper than replaying
+    private static final int MAX_REPLAY = 1000;
+    // Above this many unreplayed own ranges the oldest are forgotten and replayed like any other
+    private static final int MAX_OWN_RANGES = 1000;
+    // data_version only changes when another connection commits
+    private static final String POSITION_SQL = "SELECT (SELECT data_version FROM pragma_data_version), "
+            + "COALESCE((SELECT seq FROM sqlite_sequence WHERE name = 'change_log'), 0)";
+
+    private static final ChangeLogDAO changeLogDAO = new ChangeLogDAO();
+    private static final StudentDAO studentDAO = new StudentDAO();
+    private static final Object lock = new Object();
+    // Last sequence number passed on, -1 before the first call
+    private static volatile long appliedSeq = -1;
+    // Ranges (start, end] logged by this process's own commits, keyed by start
+    private static final TreeMap<Long, Long> ownWrites = new TreeMap<>();
+
+    private ChangeLogFollower() {}
+
+    /**
+     * Where the change log stood on one connection, read before it writes
+     */
+    static final class Position {
+        private final long dataVersion;
+        private final long sequence;
+
+        private Position(long dataVersion, long sequence) {
+            this.dataVersion = dataVersion;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Read the change log position of a connection before it writes
+     * @param conn Connection the write will use
+     * @return Position, or null if it could not be read; the write is then replayed like any other
+     */
+    static Position position(Connection conn) {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(POSITION_SQL)) {
+            return rs.next() ? new Position(rs.getLong(1), rs.getLong(2)) : null;
+        } catch (SQLException e) {
+            System.err.println("Error reading change log position: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+            return null;
+        }
+    }
+
+    /**
+     * Record the entries a committed write of this process logged, so
+     * {@link #catchUp()} does not pass them on a second time. Nothing is
+     * recorded when another connection committed in between, as some of the
+     * entries may then be its own.
+     * @param conn Connection the write committed on, back in auto-commit mode
+     * @param before Position read on it before the write
+     */
+    static void ownWrite(Connection conn, Position before) {
+        if (before == null) {
+            return;
+        }
+        Position after = position(conn);
+        if (after == null || after.dataVersion != before.dataVersion || after.sequence <= before.sequence) {
+            return;
+        }
+        synchronized (ownWrites) {
+            // Joins the range before it when nothing else was logged in between
+            Map.Entry<Long, Long> previous = ownWrites.lowerEntry(before.sequence);
+            if (previous != null && previous.getValue() == before.sequence) {
+                ownWrites.put(previous.getKey(), after.sequence);
+            } else {
+                ownWrites.put(before.sequence, after.sequence);
+                if (ownWrites.size() > MAX_OWN_RANGES) {
+                    ownWrites.pollFirstEntry();
+                }
+            }
+        }
+    }
+
+    /**
+     * Pass the change log entries written since the last call to the
+     * listeners. Costs one query when nothing was written.
+     */
+    public static void catchUp() {
+        long current = changeLogDAO.getCurrentSequence();
+        if (current == appliedSeq) {
+            return;
+        }
+        synchronized (lock) {
+            long from = appliedSeq;
+            if (from < 0) {
+                // Caches built from here on read everything up to this point
+                applied(current);
+                return;
+            }
+            if (current == from) {
+                return;
+            }
+            List<long[]> others = current > from ? othersWrites(from, current) : List.of();
+            long count = 0;
+            for (long[] range : others) {
+                count += range[1] - range[0];
+            }
+            if (current < from || count > MAX_REPLAY) {
+                // The database was replaced, or too much was written to replay
+                DataChanges.everythingChanged();
+                applied(current);
+                return;
+            }
+            for (long[] range : others) {
+                if (!replay(range[0], range[1])) {
+                    applied(range[0]);
+                    return;
+                }
+            }
+            applied(current);
+        }
+    }
+
+    /**
+     * Find the ranges in (from, to] not logged by this process
+     */
+    private static List<long[]> othersWrites(long from, long to) {
+        List<long[]> ranges = new ArrayList<>();
+        long position = from;
+        synchronized (ownWrites) {
+            // Ranges up to the last applied sequence were dropped, so there are few to walk
+            for (Map.Entry<Long, Long> own : ownWrites.entrySet()) {
+                if (own.getValue() <= position) {
+                    continue;
+                }
+                if (own.getKey() >= to) {
+                    break;
+                }
+                if (own.getKey() > position) {
+                    ranges.add(new long[] {position, own.getKey()});
+                }
+                position = Math.max(position, own.getValue());
+            }
+        }
+        if (position < to) {
+            ranges.add(new long[] {position, to});
+        }
+        return ranges;
+    }
+
+    private static void applied(long seq) {
+        appliedSeq = seq;
+        synchronized (ownWrites) {
+            ownWrites.values().removeIf(end -> end <= seq);
+        }
+    }
+
+    /**
+     * Pass on the entries in (from, to]
+     * @return false if reading the log failed and the range should be retried
+     */
+    private static boolean replay(long from, long to) {
+        List<ChangeLogDAO.Entry> entries = new ArrayList<>();
+        int count = changeLogDAO.forEachEntry(from, to, entries::add);
+        if (count < 0) {
+            return false;
+        }
+        boolean complete = count == to - from;
+        for (ChangeLogDAO.Entry entry : entries) {
+            complete &= entry.hasOldValues();
+        }
+        if (!complete) {
+            // Pruned past this process, or logged before old values were recorded
+            DataChanges.everythingChanged();
+            return true;
+        }
+
+        Set<Integer> studentIds = new HashSet<>();
+        Set<GradeSlice> slices = new HashSet<>();
+        // Students whose grades changed, to look up the major slice of
+        Set<Integer> gradeStudents = new HashSet<>();
+        // Majors of students deleted in the range, from their oldest entry
+        Map<Integer, String> oldMajors = new HashMap<>();
+        for (ChangeLogDAO.Entry entry : entries) {
+            if (entry.getOperation() == ChangeLogDAO.INSERTED) {
+                continue;
+            }
+            if ("students".equals(entry.getTable())) {
+                studentIds.add(entry.getRowId());
+                oldMajors.putIfAbsent(entry.getRowId(), entry.getOldMajor());
+                if (entry.getOldMajor() != null) {
+                    slices.add(GradeSlice.major(entry.getOldMajor()));
+                }
+            } else {
+                studentIds.add(entry.getOldStudentId());
+                gradeStudents.add(entry.getOldStudentId());
+                slices.add(GradeSlice.subject(entry.getOldSubject()));
+                slices.add(GradeSlice.semester(entry.getOldSemester(), entry.getOldYear()));
+            }
+        }
+
+        // Current values of the rows still there
+        Map<Integer, Student> students = new HashMap<>();
+        int read = changeLogDAO.forEachStudentChange(from, to, (operation, id, student) -> {
+            studentIds.add(id);
+            if (student != null) {
+                students.put(id, student);
+                if (student.getMajor() != null) {
+                    slices.add(GradeSlice.major(student.getMajor()));
+                }
+            }
+        });
+        if (read < 0 || changeLogDAO.forEachGradeChange(from, to, (operation, id, grade) -> {
+            if (grade != null) {
+                studentIds.add(grade.getStudentId());
+                gradeStudents.add(grade.getStudentId());
+                slices.add(GradeSlice.subject(grade.getSubject()));
+                slices.add(GradeSlice.semester(grade.getSemester(), grade.getYear()));
+            }
+        }) < 0) {
+            return false;
+        }
+
+        for (Integer id : gradeStudents) {
+            Student student = students.containsKey(id) ? students.get(id) : studentDAO.getStudentById(id);
+            String major = student != null ? student.getMajor() : oldMajors.get(id);
+            if (major != null) {
+                slices.add(GradeSlice.major(major));
+            }
+        }
+        DataChanges.changesLogged(studentIds, slices);
+        return true;
+    }
+}
@@ -0,0 +1,586 @@
+package com.studentmanager.dao;
+
+import com.studentmanager.model.CompactGrade;
+import com.studentmanager.model.CompactGradeList;
+import com.studentmanager.model.Grade;
+import com.studentmanager.model.GradeSlice;
+import com.studentmanager.model.StringDictionary;
+import com.studentmanager.model.Student;
+import com.studentmanager.util.RoaringBitmap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+
+/**
+ * In-memory bitmap indexes over student database IDs, for cohort questions
+ * such as "students of a major who failed a subject in a semester" without
+ * scanning the grades. There is one {@link RoaringBitmap} of students per
+ * major, per semester and year, per subject attempted, and per subject,
+ * semester, year and score band, so a filter is a few unions and one
+ * intersection.
+ *
+ * The DAOs report every student and grade they write. Those students are
+ * only marked here; the next query re-reads their grades in one batch and
+ * updates the bitmaps they were or are in, so writes never wait for the
+ * index. Each query first has {@link ChangeLogFollower} mark the students
+ * other processes wrote; as the log does not say what those were indexed
+ * under, they are taken out of every bitmap and added back. The index can
+ * also start from a snapshot instead of the database, see {@link #seed}.
+ */
+public final class CohortIndex {
+    /** Score band of a single grade, with the thresholds of ClassificationStrategy */
+    public enum Band {
+        EXCELLENT("Xuất sắc", 850),
+        GOOD("Giỏi", 700),
+        FAIR("Khá", 550),
+        AVERAGE("Trung bình", 400),
+        FAIL("Yếu", 0);
+
+        private final String label;
+        private final int minHundredths;
+
+        Band(String label, int minHundredths) {
+            this.label = label;
+            this.minHundredths = minHundredths;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * @return Lowest score of the band, in hundredths
+         */
+        public int getMinHundredths() {
+            return minHundredths;
+        }
+
+        /**
+         * @param scoreHundredths Score in hundredths of a point
+         * @return Band the score falls in
+         */
+        public static Band of(int scoreHundredths) {
+            for (Band band : values()) {
+                if (scoreHundredths >= band.minHundredths) {
+                    return band;
+                }
+            }
+            return FAIL;
+        }
+
+        /**
+         * @return Every band that passes, i.e. all but FAIL
+         */
+        public static EnumSet<Band> passing() {
+            return EnumSet.complementOf(EnumSet.of(FAIL));
+        }
+    }
+
+    /**
+     * Criteria of a cohort query; unset criteria match everything. The subject,
+     * semester, year and bands must all hold for the same grade.
+     */
+    public static final class Filter {
+        private String major;
+        private String subject;
+        private String semester;
+        private Integer year;
+        private EnumSet<Band> bands;
+
+        public Filter major(String major) {
+            this.major = major;
+            return this;
+        }
+
+        public Filter subject(String subject) {
+            this.subject = subject;
+            return this;
+        }
+
+        /**
+         * @param semester Semester, matched ignoring case like the other semester filters
+         */
+        public Filter semester(String semester) {
+            this.semester = semester;
+            return this;
+        }
+
+        public Filter year(Integer year) {
+            this.year = year;
+            return this;
+        }
+
+        public Filter bands(EnumSet<Band> bands) {
+            this.bands = bands == null || bands.isEmpty() ? null : EnumSet.copyOf(bands);
+            return this;
+        }
+
+        public Filter band(Band band) {
+            return bands(EnumSet.of(band));
+        }
+
+        boolean hasGradeCriteria() {
+            return subject != null || semester != null || year != null || bands != null;
+        }
+    }
+
+    // Student IDs whose index entries may be out of date, with what they were last indexed under
+    private static final ConcurrentHashMap<Integer, Dirty> dirty = new ConcurrentHashMap<>();
+    private static volatile boolean tracking = false;
+    private static volatile boolean stale = false;
+    private static CohortIndex instance;
+
+    // Marks the students a write touched, with what they were indexed under before it
+    static final DataChangeListener LISTENER = new DataChangeListener() {
+        @Override
+        public void gradeChanged(Grade previous, Grade current, String major) {
+            if (previous != null) {
+                CohortIndex.gradeChanged(previous);
+            }
+            if (current != null) {
+                CohortIndex.gradeChanged(current);
+            }
+        }
+
+        @Override
+        public void studentChanged(int id, Student previous, Student current) {
+            CohortIndex.studentChanged(id, previous != null ? previous.getMajor() : null,
+                    current != null ? current.getMajor() : null);
+        }
+
+        @Override
+        public void studentsAdded() {
+            // INSERT OR IGNORE does not say which rows were added
+            invalidate();
+        }
+
+        @Override
+        public void changesLogged(Set<Integer> studentIds, Set<GradeSlice> slices) {
+            for (int id : studentIds) {
+                CohortIndex.studentReindexed(id);
+            }
+        }
+
+        @Override
+        public void everythingChanged() {
+            invalidate();
+        }
+    };
+
+    private final StudentDAO studentDAO;
+    private final GradeDAO gradeDAO;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object refreshLock = new Object();
+
+    private final RoaringBitmap allStudents = new RoaringBitmap();
+    private final Map<String, RoaringBitmap> byMajor = new HashMap<>();
+    private final Map<Integer, RoaringBitmap> byTerm = new HashMap<>();
+    private final Map<Integer, RoaringBitmap> bySubject = new HashMap<>();
+    private final Map<Long, RoaringBitmap> byResult = new HashMap<>();
+
+    private CohortIndex(StudentDAO studentDAO, GradeDAO gradeDAO) {
+        this.studentDAO = studentDAO;
+        this.gradeDAO = gradeDAO;
+    }
+
+    /**
+     * Get the shared index, building it from the database on first use and
+     * after {@link #invalidate()}
+     * @return Index kept up to date with writes to the database
+     */
+    public static CohortIndex getInstance() {
+        // Before building, so writes of other processes during the build are replayed afterwards
+        ChangeLogFollower.catchUp();
+        synchronized (CohortIndex.class) {
+            return currentInstance();
+        }
+    }
+
+    private static CohortIndex currentInstance() {
+        if (instance == null || stale) {
+            // Track writes from now on, so rows changed during the build are refreshed afterwards
+            tracking = true;
+            stale = false;
+            CohortIndex index = new CohortIndex(new StudentDAO(), new GradeDAO());
+            index.load();
+            instance = index;
+        }
+        return instance;
+    }
+
+    /**
+     * Build the shared index from data already in memory, e.g. a snapshot,
+     * instead of reading it from the database on first use
+     * @param students Every student
+     * @param gradesOf Grades of a student database ID
+     * @param version {@link DataVersion#current()} read before the data was taken
+     * @return false if the index already existed or data was written since
+     *         the version was read; it is then built from the database as usual
+     */
+    public static synchronized boolean seed(List<Student> students, IntFunction<CompactGradeList> gradesOf,
+                                            long version) {
+        if (instance != null && !stale) {
+            return false;
+        }
+        // Tracking before checking the version: a write the check misses marks its student dirty
+        tracking = true;
+        if (DataVersion.current() != version) {
+            return false;
+        }
+        stale = false;
+        CohortIndex index = new CohortIndex(new StudentDAO(), new GradeDAO());
+        index.lock.writeLock().lock();
+        try {
+            for (Student student : students) {
+                index.addStudent(student);
+                CompactGradeList grades = gradesOf.apply(student.getId());
+                for (int i = 0; i < grades.size(); i++) {
+                    index.addGrade(student.getId(), resultKey(grades.getSubjectCode(i), grades.getTerm(i),
+                            grades.getScoreHundredths(i)));
+                }
+            }
+        } finally {
+            index.lock.writeLock().unlock();
+        }
+        instance = index;
+        return true;
+    }
+
+    /**
+     * Drop the shared index and stop tracking writes
+     */
+    public static synchronized void disable() {
+        tracking = false;
+        instance = null;
+        dirty.clear();
+    }
+
+    /**
+     * Rebuild the shared index on next use, for writes whose rows are not known
+     */
+    private static void invalidate() {
+        if (tracking) {
+            stale = true;
+        }
+    }
+
+    /**
+     * Record that a grade was added, changed or removed
+     * @param grade Grade values (old values for update/delete, new for insert/update)
+     */
+    private static void gradeChanged(Grade grade) {
+        if (tracking) {
+            long key = resultKey(grade);
+            dirty.compute(grade.getStudentId(), (id, entry) -> {
+                Dirty updated = entry != null ? entry : new Dirty();
+                updated.resultKeys.add(key);
+                return updated;
+            });
+        }
+    }
+
+    /**
+     * Record that a student was added, changed major or was deleted
+     * @param id Student database ID
+     * @param oldMajor Major before the write, null when added
+     * @param newMajor Major after the write, null when deleted
+     */
+    private static void studentChanged(int id, String oldMajor, String newMajor) {
+        if (tracking) {
+            dirty.compute(id, (key, entry) -> {
+                Dirty updated = entry != null ? entry : new Dirty();
+                updated.studentChanged = true;
+                updated.majors.add(oldMajor);
+                updated.majors.add(newMajor);
+                return updated;
+            });
+        }
+    }
+
+    /**
+     * Record that a student changed in ways not known, so every bitmap it
+     * may be in is checked
+     * @param id Student database ID
+     */
+    private static void studentReindexed(int id) {
+        if (tracking) {
+            dirty.compute(id, (key, entry) -> {
+                Dirty updated = entry != null ? entry : new Dirty();
+                updated.studentChanged = true;
+                updated.reindex = true;
+                return updated;
+            });
+        }
+    }
+
+    private void load() {
+        lock.writeLock().lock();
+        try {
+            studentDAO.forEachStudent(this::addStudent);
+            gradeDAO.forEachGrade(grade -> addGrade(grade.getStudentId(), resultKey(grade)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addStudent(Student student) {
+        allStudents.add(student.getId());
+        if (student.getMajor() != null) {
+            byMajor.computeIfAbsent(student.getMajor(), major -> new RoaringBitmap()).add(student.getId());
+        }
+    }
+
+    private void addGrade(int studentId, long key) {
+        byResult.computeIfAbsent(key, k -> new RoaringBitmap()).add(studentId);
+        bySubject.computeIfAbsent(subjectOf(key), k -> new RoaringBitmap()).add(studentId);
+        byTerm.computeIfAbsent(termOf(key), k -> new RoaringBitmap()).add(studentId);
+    }
+
+    /**
+     * Find the students matching a filter
+     * @param filter Criteria to match
+     * @return New bitmap of matching student database IDs
+     */
+    public RoaringBitmap findStudents(Filter filter) {
+        refresh();
+        lock.readLock().lock();
+        try {
+            RoaringBitmap result = filter.major != null
+                    ? byMajor.getOrDefault(filter.major, new RoaringBitmap())
+                    : allStudents;
+            if (filter.hasGradeCriteria()) {
+                result = result.and(gradeMatches(filter));
+            }
+            return result.copy();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Count the students matching a filter
+     * @param filter Criteria to match
+     * @return Number of matching students
+     */
+    public int countStudents(Filter filter) {
+        return findStudents(filter).cardinality();
+    }
+
+    /**
+     * @return Approximate bytes held by all bitmaps
+     */
+    public long getSizeInBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = allStudents.getSizeInBytes();
+            for (Map<?, RoaringBitmap> index : List.of(byMajor, byTerm, bySubject, byResult)) {
+                for (RoaringBitmap bitmap : index.values()) {
+                    bytes += bitmap.getSizeInBytes();
+                }
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Number of bitmaps kept
+     */
+    public int getBitmapCount() {
+        lock.readLock().lock();
+        try {
+            return 1 + byMajor.size() + byTerm.size() + bySubject.size() + byResult.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private RoaringBitmap gradeMatches(Filter filter) {
+        // Look filter values up without adding them, so user input cannot grow the dictionaries
+        int subjectCode = filter.subject != null ? StringDictionary.SUBJECTS.find(filter.subject) : -1;
+        int[] semesterCodes = filter.semester != null ? StringDictionary.SEMESTERS.findIgnoreCase(filter.semester) : null;
+        if ((filter.subject != null && subjectCode < 0) || (semesterCodes != null && semesterCodes.length == 0)) {
+            return new RoaringBitmap();
+        }
+        boolean exactTerm = filter.semester != null && filter.year != null;
+
+        // Single-criterion filters have a bitmap of their own
+        if (filter.bands == null && filter.subject != null && filter.semester == null && filter.year == null) {
+            return bySubject.getOrDefault(subjectCode, new RoaringBitmap());
+        }
+        if (filter.bands == null && filter.subject == null && exactTerm) {
+            if (semesterCodes.length == 1) {
+                return byTerm.getOrDefault((filter.year << 16) | semesterCodes[0], new RoaringBitmap());
+            }
+            RoaringBitmap union = new RoaringBitmap();
+            for (int semesterCode : semesterCodes) {
+                RoaringBitmap term = byTerm.get((filter.year << 16) | semesterCode);
+                if (term != null) {
+                    union.addAll(term);
+                }
+            }
+            return union;
+        }
+
+        RoaringBitmap union = new RoaringBitmap();
+        for (Map.Entry<Long, RoaringBitmap> entry : byResult.entrySet()) {
+            long key = entry.getKey();
+            int term = termOf(key);
+            if ((subjectCode < 0 || subjectOf(key) == subjectCode)
+                    && (semesterCodes == null || Arrays.binarySearch(semesterCodes, term & 0xFFFF) >= 0)
+                    && (filter.year == null || CompactGrade.yearOf(term) == filter.year)
+                    && (filter.bands == null || filter.bands.contains(bandOf(key)))) {
+                union.addAll(entry.getValue());
+            }
+        }
+        return union;
+    }
+
+    /**
+     * Re-read the grades and majors of the students written since the last
+     * query and update the bitmaps they were or are in
+     */
+    private void refresh() {
+        ChangeLogFollower.catchUp();
+        if (dirty.isEmpty()) {
+            return;
+        }
+        // One refresh at a time, so an older read never overwrites a newer one
+        synchronized (refreshLock) {
+            Map<Integer, Dirty> changes = new HashMap<>();
+            for (Integer id : new ArrayList<>(dirty.keySet())) {
+                Dirty entry = dirty.remove(id);
+                if (entry != null) {
+                    changes.put(id, entry);
+                }
+            }
+            if (changes.isEmpty()) {
+                return;
+            }
+            Map<Integer, List<Grade>> grades = gradeDAO.getGradesByStudentIds(changes.keySet());
+            Map<Integer, Student> students = new HashMap<>();
+            for (Map.Entry<Integer, Dirty> change : changes.entrySet()) {
+                if (change.getValue().studentChanged) {
+                    students.put(change.getKey(), studentDAO.getStudentById(change.getKey()));
+                }
+            }
+
+            lock.writeLock().lock();
+            try {
+                for (Map.Entry<Integer, Dirty> change : changes.entrySet()) {
+                    int id = change.getKey();
+                    Dirty entry = change.getValue();
+                    if (entry.reindex || (entry.studentChanged && students.get(id) == null)) {
+                        removeEverywhere(id);
+                    }
+                    if (entry.studentChanged && students.get(id) == null) {
+                        continue;
+                    }
+                    if (entry.studentChanged) {
+                        String major = students.get(id).getMajor();
+                        allStudents.add(id);
+                        for (String touched : entry.majors) {
+                            if (touched != null) {
+                                update(byMajor, touched, id, touched.equals(major));
+                            }
+                        }
+                        if (major != null) {
+                            update(byMajor, major, id, true);
+                        }
+                    }
+                    List<Grade> list = grades.getOrDefault(id, List.of());
+                    if (entry.reindex) {
+                        // Out of every bitmap now, so add the student to those of its current grades
+                        for (Grade grade : list) {
+                            entry.resultKeys.add(resultKey(grade));
+                        }
+                    }
+                    applyGrades(id, entry.resultKeys, list);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void applyGrades(int studentId, Set<Long> touchedKeys, List<Grade> grades) {
+        if (touchedKeys.isEmpty()) {
+            return;
+        }
+        Set<Long> currentKeys = new HashSet<>();
+        Set<Integer> currentSubjects = new HashSet<>();
+        Set<Integer> currentTerms = new HashSet<>();
+        for (Grade grade : grades) {
+            long key = resultKey(grade);
+            currentKeys.add(key);
+            currentSubjects.add(subjectOf(key));
+            currentTerms.add(termOf(key));
+        }
+        for (long key : touchedKeys) {
+            update(byResult, key, studentId, currentKeys.contains(key));
+            update(bySubject, subjectOf(key), studentId, currentSubjects.contains(subjectOf(key)));
+            update(byTerm, termOf(key), studentId, currentTerms.contains(termOf(key)));
+        }
+    }
+
+    private void removeEverywhere(int studentId) {
+        allStudents.remove(studentId);
+        for (Map<?, RoaringBitmap> index : List.of(byMajor, byTerm, bySubject, byResult)) {
+            index.values().removeIf(bitmap -> bitmap.remove(studentId) && bitmap.isEmpty());
+        }
+    }
+
+    private static <K> void update(Map<K, RoaringBitmap> index, K key, int studentId, boolean member) {
+        if (member) {
+            index.computeIfAbsent(key, k -> new RoaringBitmap()).add(studentId);
+        } else {
+            RoaringBitmap bitmap = index.get(key);
+            if (bitmap != null && bitmap.remove(studentId) && bitmap.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    // Result key: subject code in bits 40-55, term in bits 8-39, band in bits 0-7
+
+    private static long resultKey(Grade grade) {
+        return resultKey(StringDictionary.SUBJECTS.code(grade.getSubject()),
+                CompactGrade.packTerm(grade.getSemester(), grade.getYear()), grade.getScoreHundredths());
+    }
+
+    private static long resultKey(int subjectCode, int term, int scoreHundredths) {
+        return ((long) (subjectCode & 0xFFFF) << 40) | ((term & 0xFFFFFFFFL) << 8) | Band.of(scoreHundredths).ordinal();
+    }
+
+    private static int subjectOf(long key) {
+        return (int) (key >>> 40);
+    }
+
+    private static int termOf(long key) {
+        return (int) (key >>> 8);
+    }
+
+    private static Band bandOf(long key) {
+        return Band.values()[(int) (key & 0xFF)];
+    }
+
+    /**
+     * What a student was indexed under before the writes not yet applied
+     */
+    private static final class Dirty {
+        final Set<Long> resultKeys = new HashSet<>();
+        final Set<String> majors = new HashSet<>();
+        boolean studentChanged;
+        // Indexed under keys not known, as for writes of other processes
+        boolean reindex;
+    }
+}
@@ -0,0 +1,309 @@
+package com.studentmanager.dao;
+
+import com.studentmanager.model.FixedPoint;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Filter criteria shared by {@link GradeQuery} and {@link StudentQuery},
+ * turned into one parameterized SQL statement so the filtering happens in
+ * SQLite, on the composite indexes, instead of in Java. Unset criteria
+ * match everything. Results can be read as a list or streamed row by row.
+ *
+ * With -Dstudentmanager.logQueryPlans=true the plan SQLite chose for each
+ * query is printed to standard error.
+ *
+ * @param <T> Row type
+ * @param <Q> Concrete query type, returned by the fluent setters
+ */
+public abstract class CriteriaQuery<T, Q extends CriteriaQuery<T, Q>> {
+    private static final boolean LOG_PLANS = Boolean.getBoolean("studentmanager.logQueryPlans");
+
+    String major;
+    String subject;
+    String semester;
+    Integer fromYear;
+    Integer toYear;
+    Integer minScore;
+    Integer maxScore;
+    CohortIndex.Band classification;
+    int offset = 0;
+    int limit = -1;
+
+    CriteriaQuery() {
+    }
+
+    public Q major(String major) {
+        this.major = major;
+        return self();
+    }
+
+    public Q subject(String subject) {
+        this.subject = subject;
+        return self();
+    }
+
+    /**
+     * @param semester Semester, matched ignoring case like the leaderboard filter
+     * @return This query
+     */
+    public Q semester(String semester) {
+        this.semester = semester;
+        return self();
+    }
+
+    public Q year(Integer year) {
+        return years(year, year);
+    }
+
+    /**
+     * @param from First year, or null for no lower bound
+     * @param to Last year, or null for no upper bound
+     */
+    public Q years(Integer from, Integer to) {
+        this.fromYear = from;
+        this.toYear = to;
+        return self();
+    }
+
+    /**
+     * @param min Lowest score, or null for no lower bound
+     * @param max Highest score, or null for no upper bound
+     */
+    public Q scoreBetween(Double min, Double max) {
+        this.minScore = min != null ? FixedPoint.toHundredths(min) : null;
+        this.maxScore = max != null ? FixedPoint.toHundredths(max) : null;
+        return self();
+    }
+
+    /**
+     * Only students whose weighted average over the grades of the selected
+     * semester and years falls in a classification band, rounded like
+     * {@link com.studentmanager.strategy.ClassificationStrategy}
+     * @param band Band to match, or null for any
+     */
+    public Q classification(CohortIndex.Band band) {
+        this.classification = band;
+        return self();
+    }
+
+    public Q offset(int offset) {
+        this.offset = Math.max(0, offset);
+        return self();
+    }
+
+    /**
+     * @param limit Maximum number of rows, or a negative number for all
+     */
+    public Q limit(int limit) {
+        this.limit = limit;
+        return self();
+    }
+
+    abstract Q self();
+
+    /**
+     * Build the SELECT statement
+     * @param params Receives the parameter values in order
+     * @return SQL including ORDER BY, LIMIT and OFFSET
+     */
+    abstract String toSql(List<Object> params);
+
+    abstract T map(ResultSet rs) throws SQLException;
+
+    /**
+     * Read every matching row into a list
+     * @return Matching rows in query order, empty if the query failed
+     */
+    public List<T> list() {
+        List<T> rows = new ArrayList<>();
+        if (forEach(rows::add) < 0) {
+            rows.clear();
+        }
+        return rows;
+    }
+
+    /**
+     * Stream the matching rows without building a list
+     * @param consumer Receives each row as it is read
+     * @return Number of rows read, or -1 if the query failed
+     */
+    public int forEach(Consumer<T> consumer) {
+        GradeDAO.flushWrites();
+        List<Object> params = new ArrayList<>();
+        String sql = toSql(params);
+        if (LOG_PLANS) {
+            System.err.println("Query plan for " + sql);
+            for (String step : explain()) {
+                System.err.println("  " + step);
+            }
+        }
+        int count = 0;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = prepare(conn, sql, params);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                consumer.accept(map(rs));
+                count++;
+            }
+            return count;
+        } catch (SQLException e) {
+            System.err.println("Error running query: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+            return -1;
+        }
+    }
+
+    /**
+     * Count the matching rows, ignoring offset and limit
+     * @return Number of rows, or -1 if the query failed
+     */
+    public int count() {
+        GradeDAO.flushWrites();
+        int savedOffset = offset;
+        int savedLimit = limit;
+        offset = 0;
+        limit = -1;
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM (" + toSql(params) + ")";
+        offset = savedOffset;
+        limit = savedLimit;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = prepare(conn, sql, params);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            System.err.println("Error counting query rows: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+            return -1;
+        }
+    }
+
+    /**
+     * Ask SQLite how it would run the query
+     * @return One line per plan step, e.g. "SEARCH g USING INDEX idx_grades_term (year=?)"
+     */
+    public List<String> explain() {
+        List<Object> params = new ArrayList<>();
+        String sql = "EXPLAIN QUERY PLAN " + toSql(params);
+        List<String> steps = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = prepare(conn, sql, params);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                steps.add(rs.getString("detail"));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error explaining query: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+        }
+        return steps;
+    }
+
+    private static PreparedStatement prepare(Connection conn, String sql, List<Object> params) throws SQLException {
+        PreparedStatement pstmt = conn.prepareStatement(sql);
+        for (int i = 0; i < params.size(); i++) {
+            pstmt.setObject(i + 1, params.get(i));
+        }
+        return pstmt;
+    }
+
+    // SQL fragments
+
+    boolean hasGradeCriteria() {
+        return subject != null || hasTermCriteria() || minScore != null || maxScore != null;
+    }
+
+    boolean hasTermCriteria() {
+        return semester != null || fromYear != null || toYear != null;
+    }
+
+    /**
+     * Append the criteria on single grades; the columns are written so the
+     * composite indexes on (year, semester COLLATE NOCASE, score_x100) and
+     * (subject, year, semester) can serve them
+     */
+    void appendGradeCriteria(StringBuilder sql, List<Object> params, String alias) {
+        if (subject != null) {
+            sql.append(" AND ").append(alias).append("subject = ?");
+            params.add(subject);
+        }
+        appendTermCriteria(sql, params, alias);
+        if (minScore != null) {
+            sql.append(" AND ").append(alias).append("score_x100 >= ?");
+            params.add(minScore);
+        }
+        if (maxScore != null) {
+            sql.append(" AND ").append(alias).append("score_x100 <= ?");
+            params.add(maxScore);
+        }
+    }
+
+    void appendTermCriteria(StringBuilder sql, List<Object> params, String alias) {
+        if (fromYear != null && fromYear.equals(toYear)) {
+            sql.append(" AND ").append(alias).append("year = ?");
+            params.add(fromYear);
+        } else {
+            if (fromYear != null) {
+                sql.append(" AND ").append(alias).append("year >= ?");
+                params.add(fromYear);
+            }
+            if (toYear != null) {
+                sql.append(" AND ").append(alias).append("year <= ?");
+                params.add(toYear);
+            }
+        }
+        if (semester != null) {
+            sql.append(" AND ").append(alias).append("semester = ? COLLATE NOCASE");
+            params.add(semester);
+        }
+    }
+
+    /**
+     * Append the classification criterion as an IN over the students whose
+     * weighted average is in the band. round(W / C) >= T is tested as
+     * 2W >= (2T - 1)C to stay in integers, W being the sum of score times
+     * coefficient and C the sum of coefficients, all in hundredths.
+     */
+    void appendClassification(StringBuilder sql, List<Object> params, String studentColumn) {
+        if (classification == null) {
+            return;
+        }
+        sql.append(" AND ").append(studentColumn).append(" IN (SELECT student_id FROM grades WHERE 1 = 1");
+        appendTermCriteria(sql, params, "");
+        sql.append(" GROUP BY student_id HAVING SUM(coefficient_x100) > 0");
+        int lower = classification.getMinHundredths();
+        if (lower > 0) {
+            sql.append(" AND 2 * SUM(score_x100 * coefficient_x100) >= ? * SUM(coefficient_x100)");
+            params.add(2L * lower - 1);
+        }
+        if (classification.ordinal() > 0) {
+            int upper = CohortIndex.Band.values()[classification.ordinal() - 1].getMinHundredths();
+            sql.append(" AND 2 * SUM(score_x100 * coefficient_x100) < ? * SUM(coefficient_x100)");
+            params.add(2L * upper - 1);
+        }
+        sql.append(")");
+    }
+
+    void appendPage(StringBuilder sql, List<Object> params) {
+        if (limit >= 0 || offset > 0) {
+            sql.append(" LIMIT ? OFFSET ?");
+            params.add(limit);
+            params.add(offset);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.studentmanager.dao;
+
+import com.studentmanager.model.Grade;
+import com.studentmanager.model.GradeSlice;
+import com.studentmanager.model.Student;
+import java.util.Set;
+
+/**
+ * Told about every write made through the DAOs after it is committed, so
+ * caches and indexes of the data can follow it. Called on the writing
+ * thread; implementations should only record what changed. Writes of other
+ * processes arrive later, read back from the change log by
+ * {@link ChangeLogFollower}.
+ */
+public interface DataChangeListener {
+    /**
+     * A grade was added, changed or deleted
+     * @param previous Values before the write, null when added
+     * @param current Values after the write, null when deleted
+     * @param major Major of the grade's student, may be null
+     */
+    default void gradeChanged(Grade previous, Grade current, String major) {
+    }
+
+    /**
+     * A student was added, changed or deleted; a deleted student's grades
+     * are deleted with it
+     * @param id Student database ID
+     * @param previous Values before the write, null when added
+     * @param current Values after the write, null when deleted
+     */
+    default void studentChanged(int id, Student previous, Student current) {
+    }
+
+    /**
+     * Students were added in bulk without saying which ones
+     */
+    default void studentsAdded() {
+    }
+
+    /**
+     * Rows were written, as read back from the change log; these may be
+     * writes of another process or ones already reported by the methods above
+     * @param studentIds Students whose row or grades changed
+     * @param slices Grade slices whose grades may have changed
+     */
+    default void changesLogged(Set<Integer> studentIds, Set<GradeSlice> slices) {
+    }
+
+    /**
+     * Anything may have changed, as the change log cannot say what
+     */
+    default void everythingChanged() {
+    }
+}
@@ -0,0 +1,65 @@
+package com.studentmanager.dao;
+
+import com.studentmanager.model.Grade;
+import com.studentmanager.model.GradeSlice;
+import com.studentmanager.model.Student;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registry of {@link DataChangeListener}s. The DAOs report each committed
+ * write here once, and it is passed on to every listener: the data version
+ * counters, the cohort index and the ranking indexes, plus any added later.
+ * {@link ChangeLogFollower} reports the writes of other processes here too.
+ */
+public final class DataChanges {
+    private static final List<DataChangeListener> listeners = new CopyOnWriteArrayList<>(
+            List.of(DataVersion.LISTENER, CohortIndex.LISTENER, RankingIndex.LISTENER));
+
+    private DataChanges() {}
+
+    /**
+     * @param listener Listener to tell about every later write
+     */
+    public static void addListener(DataChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener Listener added before
+     */
+    public static void removeListener(DataChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    static void gradeChanged(Grade previous, Grade current, String major) {
+        for (DataChangeListener listener : listeners) {
+            listener.gradeChanged(previous, current, major);
+        }
+    }
+
+    static void studentChanged(int id, Student previous, Student current) {
+        for (DataChangeListener listener : listeners) {
+            listener.studentChanged(id, previous, current);
+        }
+    }
+
+    static void studentsAdded() {
+        for (DataChangeListener listener : listeners) {
+            listener.studentsAdded();
+        }
+    }
+
+    static void changesLogged(Set<Integer> studentIds, Set<GradeSlice> slices) {
+        for (DataChangeListener listener : listeners) {
+            listener.changesLogged(studentIds, slices);
+        }
+    }
+
+    static void everythingChanged() {
+        for (DataChangeListener listener : listeners) {
+            listener.everythingChanged();
+        }
+    }
+}
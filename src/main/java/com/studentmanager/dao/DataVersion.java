@@ -0,0 +1,159 @@
+package com.studentmanager.dao;
+
+import com.studentmanager.model.Grade;
+import com.studentmanager.model.GradeSlice;
+import com.studentmanager.model.Student;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version counters for cached views of the data. Every write through the DAOs
+ * bumps the global version; grade writes also bump the subject, semester and
+ * major slices they touch, so caches can invalidate only what changed.
+ * Writes of other processes count once {@link ChangeLogFollower#catchUp()}
+ * has read them.
+ */
+public final class DataVersion {
+    private static final AtomicLong globalVersion = new AtomicLong();
+    private static final ConcurrentHashMap<GradeSlice, Long> sliceVersions = new ConcurrentHashMap<>();
+    // Version of the last write that may have touched any slice
+    private static volatile long allSlicesVersion;
+
+    // Grade writes bump their slices; student writes bump the majors they move between
+    static final DataChangeListener LISTENER = new DataChangeListener() {
+        @Override
+        public void gradeChanged(Grade previous, Grade current, String major) {
+            if (previous != null) {
+                DataVersion.gradeChanged(previous, major);
+            }
+            if (current != null) {
+                DataVersion.gradeChanged(current, major);
+            }
+        }
+
+        @Override
+        public void studentChanged(int id, Student previous, Student current) {
+            if (current == null) {
+                // The student's grades are deleted with it, from whatever subjects and semesters they were in
+                allSlicesChanged();
+                return;
+            }
+            String oldMajor = previous != null ? previous.getMajor() : null;
+            if (previous != null && !Objects.equals(oldMajor, current.getMajor())) {
+                // The student's grades moved from one major slice to another
+                majorChanged(oldMajor);
+                majorChanged(current.getMajor());
+            } else {
+                changed();
+            }
+        }
+
+        @Override
+        public void studentsAdded() {
+            changed();
+        }
+
+        @Override
+        public void changesLogged(Set<Integer> studentIds, Set<GradeSlice> slices) {
+            slicesChanged(slices);
+        }
+
+        @Override
+        public void everythingChanged() {
+            allSlicesChanged();
+        }
+    };
+
+    private DataVersion() {}
+
+    /**
+     * Get the version of the whole database
+     * @return Version, increasing on every write
+     */
+    public static long current() {
+        return globalVersion.get();
+    }
+
+    /**
+     * Get the version of one slice of grades
+     * @param slice Slice to check
+     * @return Version, changes only when grades in the slice change
+     */
+    public static long of(GradeSlice slice) {
+        return Math.max(allSlicesVersion, sliceVersions.getOrDefault(slice, 0L));
+    }
+
+    /**
+     * Get the slices of a dimension written to after a version
+     * @param dimension Dimension to check
+     * @param version Version from {@link #current()}
+     * @return Changed slices, or null if any slice may have changed
+     */
+    public static Set<GradeSlice> changedSince(GradeSlice.Dimension dimension, long version) {
+        if (allSlicesVersion > version) {
+            return null;
+        }
+        Set<GradeSlice> changed = new HashSet<>();
+        for (Map.Entry<GradeSlice, Long> entry : sliceVersions.entrySet()) {
+            if (entry.getKey().getDimension() == dimension && entry.getValue() > version) {
+                changed.add(entry.getKey());
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Record that a grade was added, changed or removed
+     * @param grade Grade values (old values for update/delete, new for insert/update)
+     * @param major Major of the grade's student, may be null
+     */
+    private static void gradeChanged(Grade grade, String major) {
+        long version = globalVersion.incrementAndGet();
+        sliceVersions.put(GradeSlice.subject(grade.getSubject()), version);
+        sliceVersions.put(GradeSlice.semester(grade.getSemester(), grade.getYear()), version);
+        if (major != null) {
+            sliceVersions.put(GradeSlice.major(major), version);
+        }
+    }
+
+    /**
+     * Record a write to grades of the given slices
+     * @param slices Slices that may have changed
+     */
+    private static void slicesChanged(Set<GradeSlice> slices) {
+        long version = globalVersion.incrementAndGet();
+        for (GradeSlice slice : slices) {
+            sliceVersions.put(slice, version);
+        }
+    }
+
+    /**
+     * Record that every grade of a student moved in or out of a major slice
+     * @param major Major whose slice changed, may be null
+     */
+    private static void majorChanged(String major) {
+        long version = globalVersion.incrementAndGet();
+        if (major != null) {
+            sliceVersions.put(GradeSlice.major(major), version);
+        }
+    }
+
+    /**
+     * Record a write that removed grades of unknown slices, such as deleting
+     * a student together with their grades
+     */
+    private static void allSlicesChanged() {
+        allSlicesVersion = globalVersion.incrementAndGet();
+    }
+
+    /**
+     * Record a write that does not affect any grade slice
+     */
+    private static void changed() {
+        globalVersion.incrementAndGet();
+    }
+}
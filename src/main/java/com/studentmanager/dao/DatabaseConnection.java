@@ -1,30 +1,154 @@
 package com.studentmanager.dao;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
- * Database connection and initialization class
+ * Database connection and initialization class.
+ * Connections come from a small pool so background workers and the GUI can
+ * query at the same time. Closing a pooled connection returns it to the pool;
+ * nested getConnection() calls on one thread share the same connection.
  */
 public class DatabaseConnection {
     private static final String DATABASE_NAME = "student_management.db";
-    private static final String DATABASE_URL = "jdbc:sqlite:" + DATABASE_NAME;
-    private static Connection connection = null;
+    // Database file to use instead, e.g. -Dstudentmanager.database=/data/school.db
+    private static final String DATABASE_PROPERTY = "studentmanager.database";
+    private static final int POOL_SIZE = 4;
+    private static final int BUSY_TIMEOUT_MS = 5000;
+    // How long to wait for a pooled connection before giving up
+    private static final int POOL_WAIT_MS = 30000;
+    // Last one-time migration run, kept in PRAGMA user_version
+    private static final int SCHEMA_VERSION = 1;
+
+    private static final BlockingQueue<Connection> idleConnections = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final ThreadLocal<Lease> currentLease = new ThreadLocal<>();
+    // SQL errors the DAOs caught, on any thread, see countError()
+    private static final AtomicLong errorCount = new AtomicLong();
+    private static int openConnections = 0;
+
+    /**
+     * A physical connection borrowed by one thread
+     */
+    private static class Lease implements InvocationHandler {
+        private final Connection physical;
+        private final Connection proxy;
+        private int holds = 1;
+        // Set while runCancellable() work runs on this lease
+        private Cancellation cancellation;
+
+        Lease(Connection physical) {
+            this.physical = physical;
+            this.proxy = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[] {Connection.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    release(this);
+                    return null;
+                case "isClosed":
+                    return holds <= 0 || physical.isClosed();
+                default:
+                    Object result;
+                    try {
+                        result = method.invoke(physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    // Statements of a transaction are writes, which are never cut short
+                    if (cancellation != null && result instanceof Statement && physical.getAutoCommit()) {
+                        cancellation.register((Statement) result);
+                    }
+                    return result;
+            }
+        }
+    }
 
     /**
-     * Get database connection
+     * Lets another thread stop the statements of work run through
+     * {@link #runCancellable(Cancellation, Supplier)}, e.g. when its caller
+     * stopped waiting for it
+     */
+    public static class Cancellation {
+        private final List<Statement> statements = new ArrayList<>();
+        private boolean cancelled;
+        private boolean finished;
+
+        /**
+         * Stop the work: it fails before it starts, or its running statement
+         * is interrupted and later ones fail at once. No effect once it finished.
+         */
+        public synchronized void cancel() {
+            if (cancelled || finished) {
+                return;
+            }
+            cancelled = true;
+            for (Statement statement : statements) {
+                try {
+                    statement.cancel();
+                } catch (SQLException e) {
+                    // Closed meanwhile, nothing left to stop
+                }
+            }
+        }
+
+        private synchronized void register(Statement statement) throws SQLException {
+            if (cancelled) {
+                statement.close();
+                throw new SQLException("Query cancelled");
+            }
+            statements.add(statement);
+        }
+
+        private synchronized void start() {
+            if (cancelled) {
+                throw new CancellationException("Query cancelled before it started");
+            }
+        }
+
+        private synchronized void finish() {
+            finished = true;
+            statements.clear();
+        }
+    }
+
+    /**
+     * Get database connection. Callers close it when done, as before;
+     * closing hands it back to the pool instead of disconnecting.
      * @return Connection object
      */
     public static Connection getConnection() {
+        Lease lease = currentLease.get();
+        if (lease != null) {
+            lease.holds++;
+            return lease.proxy;
+        }
         try {
-            if (connection == null || connection.isClosed()) {
-                // Load SQLite JDBC driver
-                Class.forName("org.sqlite.JDBC");
-                connection = DriverManager.getConnection(DATABASE_URL);
-                System.out.println("Database connection established successfully!");
+            Connection physical = idleConnections.poll();
+            if (physical == null) {
+                physical = openOrWait();
             }
+            lease = new Lease(physical);
+            currentLease.set(lease);
+            return lease.proxy;
         } catch (ClassNotFoundException e) {
             System.err.println("SQLite JDBC driver not found!");
             System.err.println("Please add sqlite-jdbc jar to your classpath");
@@ -32,8 +156,135 @@ public class DatabaseConnection {
         } catch (SQLException e) {
             System.err.println("Failed to connect to database: " + e.getMessage());
             e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Interrupted while waiting for a database connection");
+        }
+        countError();
+        return null;
+    }
+
+    /**
+     * Run DAO work so that {@link Cancellation#cancel()} can stop it from
+     * another thread. The connection stays leased to this thread until the
+     * work ends, so a late cancel never interrupts a connection that was
+     * already handed to someone else. Read statements only: statements
+     * created inside a transaction are not interrupted.
+     * @param cancellation Handle the work can be stopped with
+     * @param work DAO calls to run on this thread
+     * @return Result of the work
+     */
+    public static <T> T runCancellable(Cancellation cancellation, Supplier<T> work) {
+        cancellation.start();
+        Connection held = getConnection();
+        Lease lease = currentLease.get();
+        if (held == null || lease == null) {
+            // No connection: the DAO calls fail and report it themselves
+            return work.get();
+        }
+        Cancellation outer = lease.cancellation;
+        lease.cancellation = cancellation;
+        try {
+            return work.get();
+        } finally {
+            cancellation.finish();
+            lease.cancellation = outer;
+            try {
+                held.close();
+            } catch (SQLException e) {
+                System.err.println("Failed to release database connection: " + e.getMessage());
+                e.printStackTrace();
+            }
         }
-        return connection;
+    }
+
+    /**
+     * Count an SQL error a DAO caught and reported. DAOs report errors by
+     * returning empty lists or null, so callers that must tell a failed query
+     * from an empty result (the API server) compare getErrorCount() before
+     * and after. Errors of every thread count, including the parallel streams
+     * and async DAO threads a request hands work to.
+     */
+    public static void countError() {
+        errorCount.incrementAndGet();
+    }
+
+    /**
+     * Get the number of SQL errors counted since startup
+     * @return Error count
+     */
+    public static long getErrorCount() {
+        return errorCount.get();
+    }
+
+    /**
+     * Get the database file new connections open
+     * @return Path of the SQLite file
+     */
+    public static String getDatabaseFile() {
+        return System.getProperty(DATABASE_PROPERTY, DATABASE_NAME);
+    }
+
+    /**
+     * Get the maximum number of connections the pool will open
+     * @return Pool size
+     */
+    public static int getPoolSize() {
+        return POOL_SIZE;
+    }
+
+    private static Connection openOrWait() throws ClassNotFoundException, SQLException, InterruptedException {
+        synchronized (DatabaseConnection.class) {
+            if (openConnections < POOL_SIZE) {
+                Connection physical = openPhysicalConnection();
+                openConnections++;
+                return physical;
+            }
+        }
+        // A leaked lease, or a thread needing a second connection while every one
+        // is held, would otherwise block here forever
+        Connection physical = idleConnections.poll(POOL_WAIT_MS, TimeUnit.MILLISECONDS);
+        if (physical == null) {
+            throw new SQLException("No database connection became free within " + POOL_WAIT_MS
+                    + " ms; all " + POOL_SIZE + " are in use");
+        }
+        return physical;
+    }
+
+    private static Connection openPhysicalConnection() throws ClassNotFoundException, SQLException {
+        // Load SQLite JDBC driver
+        Class.forName("org.sqlite.JDBC");
+        // Read on every open, so closeConnection() followed by a new setting switches files
+        Connection physical = DriverManager.getConnection("jdbc:sqlite:" + getDatabaseFile());
+        try (Statement stmt = physical.createStatement()) {
+            // WAL lets readers run while another connection writes
+            stmt.execute("PRAGMA journal_mode = WAL");
+            stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS);
+            // Off by default in SQLite, per connection; needed for ON DELETE CASCADE on grades
+            stmt.execute("PRAGMA foreign_keys = ON");
+        }
+        System.out.println("Database connection established successfully!");
+        return physical;
+    }
+
+    private static void release(Lease lease) throws SQLException {
+        if (lease.holds <= 0 || --lease.holds > 0) {
+            return;
+        }
+        currentLease.remove();
+        Connection physical = lease.physical;
+        if (physical.isClosed()) {
+            synchronized (DatabaseConnection.class) {
+                openConnections--;
+            }
+            return;
+        }
+        if (!physical.getAutoCommit()) {
+            // Never hand out a connection with a half-finished transaction
+            physical.rollback();
+            physical.setAutoCommit(true);
+        }
+        idleConnections.offer(physical);
     }
 
     /**
@@ -79,6 +330,8 @@ public class DatabaseConnection {
                 coefficient REAL NOT NULL DEFAULT 1.0,
                 semester VARCHAR(20) NOT NULL,
                 year INTEGER NOT NULL,
+                score_x100 INTEGER,
+                coefficient_x100 INTEGER,
                 FOREIGN KEY (student_id) REFERENCES students(id) ON DELETE CASCADE
             )
         """;
@@ -86,6 +339,367 @@ public class DatabaseConnection {
         try (Statement stmt = conn.createStatement()) {
             stmt.execute(createStudentsTable);
             stmt.execute(createGradesTable);
+            // Let name-ordered scans stream without a sort, and per-student grade lookups seek
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_students_full_name ON students(full_name)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_grades_student ON grades(student_id)");
+        }
+
+        createStudentSearchIndex(conn);
+        createChangeTracking(conn);
+        addFixedPointColumns(conn);
+        createQueryIndexes(conn);
+        migrate(conn);
+    }
+
+    /**
+     * Run the one-time checks a database has not had yet. PRAGMA user_version
+     * records the last one run, so later starts skip them.
+     * @param conn Database connection
+     * @throws SQLException
+     */
+    private static void migrate(Connection conn) throws SQLException {
+        int version;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            version = rs.next() ? rs.getInt(1) : 0;
+        }
+        if (version < 1) {
+            reportOrphanGrades(conn);
+        }
+        if (version < SCHEMA_VERSION) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("PRAGMA user_version = " + SCHEMA_VERSION);
+            }
+        }
+    }
+
+    /**
+     * Report grades whose student no longer exists. Students deleted while
+     * foreign keys were off, as they were before every connection turned
+     * them on, left their grades behind, and those still count in the
+     * statistics. They are left for the operator to review and delete.
+     * @param conn Database connection
+     * @throws SQLException
+     */
+    private static void reportOrphanGrades(Connection conn) throws SQLException {
+        String sql = "SELECT student_id, COUNT(*) FROM grades " +
+                     "WHERE student_id NOT IN (SELECT id FROM students) GROUP BY student_id";
+        StringJoiner studentIds = new StringJoiner(", ");
+        int grades = 0;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                studentIds.add(String.valueOf(rs.getInt(1)));
+                grades += rs.getInt(2);
+            }
+        }
+        if (grades > 0) {
+            System.err.println("Found " + grades + " grade(s) of students that no longer exist (student id "
+                    + studentIds + "). They still count in the statistics; review them and remove them with: "
+                    + "DELETE FROM grades WHERE student_id NOT IN (SELECT id FROM students)");
+        }
+    }
+
+    /**
+     * Create the composite indexes used by GradeQuery and StudentQuery:
+     * equality columns first, then the range column
+     * @param conn Database connection
+     * @throws SQLException
+     */
+    private static void createQueryIndexes(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // Year (equal or range), then semester, then score range; semester filters ignore case
+            stmt.execute("DROP INDEX IF EXISTS idx_grades_term");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_grades_term_nocase ON grades(year, semester COLLATE NOCASE, score_x100)");
+            // Subject, then year range and semester
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_grades_subject ON grades(subject, year, semester)");
+            // Major filter already in name order
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_students_major ON students(major, full_name)");
+            // Refreshes planner statistics only when they are missing or out of date
+            stmt.execute("PRAGMA optimize");
+        }
+    }
+
+    /**
+     * Add the fixed-point columns (score and coefficient in hundredths) to a
+     * grades table created before they existed, and fill them from the REAL
+     * columns. The backfill changes no visible value, so the change log
+     * entries its UPDATE triggers are removed in the same transaction.
+     * Triggers then keep the columns in sync for writers that only set the
+     * REAL columns, such as older builds of this application.
+     * @param conn Database connection
+     * @throws SQLException
+     */
+    private static void addFixedPointColumns(Connection conn) throws SQLException {
+        boolean hasColumns = false;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_info(grades)")) {
+            while (rs.next()) {
+                hasColumns |= "score_x100".equals(rs.getString("name"));
+            }
+        }
+        if (!hasColumns) {
+            try (Statement stmt = conn.createStatement()) {
+                conn.setAutoCommit(false);
+                stmt.execute("ALTER TABLE grades ADD COLUMN score_x100 INTEGER");
+                stmt.execute("ALTER TABLE grades ADD COLUMN coefficient_x100 INTEGER");
+                long lastSeq;
+                try (ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(seq), 0) FROM change_log")) {
+                    lastSeq = rs.next() ? rs.getLong(1) : 0;
+                }
+                stmt.executeUpdate("UPDATE grades SET score_x100 = " + hundredths("score") + ", " +
+                                   "coefficient_x100 = " + hundredths("coefficient"));
+                stmt.executeUpdate("DELETE FROM change_log WHERE seq > " + lastSeq);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        createFixedPointTriggers(conn);
+    }
+
+    /**
+     * Create the triggers that fill score_x100 and coefficient_x100 when an
+     * insert leaves them NULL, or an update changes a REAL column without them.
+     * The first time, rows such writers left behind are repaired as well.
+     * @param conn Database connection
+     * @throws SQLException
+     */
+    private static void createFixedPointTriggers(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT 1 FROM sqlite_master WHERE type = 'trigger' AND name = 'grades_fixed_point_ai'")) {
+            if (rs.next()) {
+                return;
+            }
+        }
+        String sync = "UPDATE grades SET score_x100 = " + hundredths("NEW.score") + ", " +
+                      "coefficient_x100 = " + hundredths("NEW.coefficient") + " WHERE id = NEW.id; ";
+        String createInsertTrigger =
+            "CREATE TRIGGER IF NOT EXISTS grades_fixed_point_ai AFTER INSERT ON grades " +
+            "WHEN NEW.score_x100 IS NULL OR NEW.coefficient_x100 IS NULL BEGIN " + sync + "END";
+        String createUpdateTrigger =
+            "CREATE TRIGGER IF NOT EXISTS grades_fixed_point_au AFTER UPDATE OF score, coefficient ON grades " +
+            "WHEN (NEW.score IS NOT OLD.score AND NEW.score_x100 IS OLD.score_x100) " +
+            "OR (NEW.coefficient IS NOT OLD.coefficient AND NEW.coefficient_x100 IS OLD.coefficient_x100) " +
+            "OR NEW.score_x100 IS NULL OR NEW.coefficient_x100 IS NULL BEGIN " + sync + "END";
+
+        try (Statement stmt = conn.createStatement()) {
+            conn.setAutoCommit(false);
+            stmt.execute(createInsertTrigger);
+            stmt.execute(createUpdateTrigger);
+            // Rows written without the columns before the triggers existed
+            stmt.executeUpdate("UPDATE grades SET score_x100 = " + hundredths("score") + ", " +
+                               "coefficient_x100 = " + hundredths("coefficient") + " " +
+                               "WHERE score_x100 IS NOT " + hundredths("score") + " " +
+                               "OR coefficient_x100 IS NOT " + hundredths("coefficient"));
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * SQL for a REAL column in hundredths, rounded like FixedPoint.toHundredths:
+     * 8.345 is stored as 834.4999..., so values just under a half round up
+     * @param column Column or expression
+     * @return SQL expression
+     */
+    private static String hundredths(String column) {
+        return "CAST(ROUND(" + column + " * 100 + 1e-6) AS INTEGER)";
+    }
+
+    /**
+     * Create the change log and the triggers that append to it on every
+     * insert, update and delete of students and grades, plus the table of
+     * export watermarks (the last change_log sequence each consumer has seen).
+     * Updates and deletes also record the old values that place a row in a
+     * grade slice, so another process can tell which cached slices it left.
+     * @param conn Database connection
+     * @throws SQLException
+     */
+    private static void createChangeTracking(Connection conn) throws SQLException {
+        String createChangeLogTable = """
+            CREATE TABLE IF NOT EXISTS change_log (
+                seq INTEGER PRIMARY KEY AUTOINCREMENT,
+                table_name VARCHAR(20) NOT NULL,
+                row_id INTEGER NOT NULL,
+                operation CHAR(1) NOT NULL CHECK(operation IN ('I', 'U', 'D')),
+                changed_at TEXT NOT NULL DEFAULT (strftime('%Y-%m-%dT%H:%M:%fZ', 'now')),
+                old_student_id INTEGER,
+                old_subject VARCHAR(100),
+                old_semester VARCHAR(20),
+                old_year INTEGER,
+                old_major VARCHAR(100)
+            )
+        """;
+
+        String createWatermarksTable = """
+            CREATE TABLE IF NOT EXISTS export_watermarks (
+                name VARCHAR(100) PRIMARY KEY,
+                last_seq INTEGER NOT NULL,
+                updated_at TEXT NOT NULL DEFAULT (strftime('%Y-%m-%dT%H:%M:%fZ', 'now'))
+            )
+        """;
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(createChangeLogTable);
+            stmt.execute(createWatermarksTable);
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_change_log_table_seq ON change_log(table_name, seq)");
+        }
+        addChangeLogOldValues(conn);
+
+        // The fixed-point triggers fill score_x100 and coefficient_x100 with a second
+        // UPDATE of the row just written; it changes no value a reader sees, so it
+        // must not log a second entry
+        String gradeUpdateFilter =
+            "NOT (new.student_id IS old.student_id AND new.subject IS old.subject " +
+            "AND new.score IS old.score AND new.coefficient IS old.coefficient " +
+            "AND new.semester IS old.semester AND new.year IS old.year " +
+            "AND new.score_x100 IS " + hundredths("new.score") + " " +
+            "AND new.coefficient_x100 IS " + hundredths("new.coefficient") + ")";
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT sql FROM sqlite_master WHERE type = 'trigger' AND name = 'grades_log_u'")) {
+            // Created before the filter existed
+            if (rs.next() && !rs.getString(1).contains("score_x100")) {
+                try (Statement drop = conn.createStatement()) {
+                    drop.execute("DROP TRIGGER grades_log_u");
+                }
+            }
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            // A student's own ID marks its entries as having old values, as the major may be NULL
+            String studentColumns = "old_student_id, old_major";
+            String studentValues = "old.id, old.major";
+            String gradeColumns = "old_student_id, old_subject, old_semester, old_year";
+            String gradeValues = "old.student_id, old.subject, old.semester, old.year";
+            stmt.execute(changeLogTrigger("students", "INSERT", "I", "new.id", "", "", null));
+            stmt.execute(changeLogTrigger("students", "UPDATE", "U", "new.id", studentColumns, studentValues, null));
+            stmt.execute(changeLogTrigger("students", "DELETE", "D", "old.id", studentColumns, studentValues, null));
+            stmt.execute(changeLogTrigger("grades", "INSERT", "I", "new.id", "", "", null));
+            stmt.execute(changeLogTrigger("grades", "UPDATE", "U", "new.id", gradeColumns, gradeValues,
+                                          gradeUpdateFilter));
+            stmt.execute(changeLogTrigger("grades", "DELETE", "D", "old.id", gradeColumns, gradeValues, null));
+        }
+    }
+
+    /**
+     * Add the old value columns to a change log created before they existed,
+     * and drop the update and delete triggers so they are recreated to fill them.
+     * Entries logged before have NULL old values; readers treat those as unknown.
+     * @param conn Database connection
+     * @throws SQLException
+     */
+    private static void addChangeLogOldValues(Connection conn) throws SQLException {
+        boolean hasColumns = false;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_info(change_log)")) {
+            while (rs.next()) {
+                hasColumns |= "old_student_id".equals(rs.getString("name"));
+            }
+        }
+        if (hasColumns) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            conn.setAutoCommit(false);
+            stmt.execute("ALTER TABLE change_log ADD COLUMN old_student_id INTEGER");
+            stmt.execute("ALTER TABLE change_log ADD COLUMN old_subject VARCHAR(100)");
+            stmt.execute("ALTER TABLE change_log ADD COLUMN old_semester VARCHAR(20)");
+            stmt.execute("ALTER TABLE change_log ADD COLUMN old_year INTEGER");
+            stmt.execute("ALTER TABLE change_log ADD COLUMN old_major VARCHAR(100)");
+            for (String table : new String[] {"students", "grades"}) {
+                stmt.execute("DROP TRIGGER IF EXISTS " + table + "_log_u");
+                stmt.execute("DROP TRIGGER IF EXISTS " + table + "_log_d");
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static String changeLogTrigger(String table, String event, String operation, String rowId,
+                                           String oldColumns, String oldValues, String when) {
+        String columns = oldColumns.isEmpty() ? "" : ", " + oldColumns;
+        String values = oldValues.isEmpty() ? "" : ", " + oldValues;
+        String condition = when == null ? "" : " WHEN " + when;
+        return "CREATE TRIGGER IF NOT EXISTS " + table + "_log_" + operation.toLowerCase() +
+               " AFTER " + event + " ON " + table + condition + " BEGIN " +
+               "INSERT INTO change_log (table_name, row_id, operation" + columns + ") " +
+               "VALUES ('" + table + "', " + rowId + ", '" + operation + "'" + values + "); " +
+               "END";
+    }
+
+    /**
+     * Create the FTS5 full-text index mirroring the students table.
+     * The unicode61 tokenizer strips Vietnamese tone marks; 'đ' has no
+     * decomposition so the triggers fold it to 'd' before indexing.
+     * @param conn Database connection
+     */
+    private static void createStudentSearchIndex(Connection conn) {
+        String createFtsTable = """
+            CREATE VIRTUAL TABLE IF NOT EXISTS students_fts USING fts5(
+                full_name, student_id, email, major,
+                tokenize = 'unicode61 remove_diacritics 2'
+            )
+        """;
+
+        String foldedValues = """
+            new.id,
+            replace(replace(new.full_name, 'đ', 'd'), 'Đ', 'D'),
+            new.student_id,
+            new.email,
+            replace(replace(new.major, 'đ', 'd'), 'Đ', 'D')
+        """;
+
+        String createInsertTrigger =
+            "CREATE TRIGGER IF NOT EXISTS students_fts_ai AFTER INSERT ON students BEGIN " +
+            "INSERT INTO students_fts (rowid, full_name, student_id, email, major) VALUES (" + foldedValues + "); " +
+            "END";
+
+        String createDeleteTrigger =
+            "CREATE TRIGGER IF NOT EXISTS students_fts_ad AFTER DELETE ON students BEGIN " +
+            "DELETE FROM students_fts WHERE rowid = old.id; " +
+            "END";
+
+        String createUpdateTrigger =
+            "CREATE TRIGGER IF NOT EXISTS students_fts_au AFTER UPDATE ON students BEGIN " +
+            "DELETE FROM students_fts WHERE rowid = old.id; " +
+            "INSERT INTO students_fts (rowid, full_name, student_id, email, major) VALUES (" + foldedValues + "); " +
+            "END";
+
+        // Index rows that existed before the FTS table was introduced
+        String backfill = """
+            INSERT INTO students_fts (rowid, full_name, student_id, email, major)
+            SELECT id,
+                   replace(replace(full_name, 'đ', 'd'), 'Đ', 'D'),
+                   student_id,
+                   email,
+                   replace(replace(major, 'đ', 'd'), 'Đ', 'D')
+            FROM students
+            WHERE id NOT IN (SELECT rowid FROM students_fts)
+        """;
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(createFtsTable);
+            stmt.execute(createInsertTrigger);
+            stmt.execute(createDeleteTrigger);
+            stmt.execute(createUpdateTrigger);
+            stmt.execute(backfill);
+        } catch (SQLException e) {
+            // SQLite builds without FTS5 still work, search falls back to LIKE
+            System.err.println("Full-text search index unavailable: " + e.getMessage());
         }
     }
 
@@ -93,14 +707,23 @@ public class DatabaseConnection {
      * Close database connection
      */
     public static void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Database connection closed.");
+        GradeDAO.flushWrites();
+        Connection physical;
+        boolean closedAny = false;
+        while ((physical = idleConnections.poll()) != null) {
+            try {
+                physical.close();
+                closedAny = true;
+            } catch (SQLException e) {
+                System.err.println("Failed to close database connection: " + e.getMessage());
+                e.printStackTrace();
             }
-        } catch (SQLException e) {
-            System.err.println("Failed to close database connection: " + e.getMessage());
-            e.printStackTrace();
+            synchronized (DatabaseConnection.class) {
+                openConnections--;
+            }
+        }
+        if (closedAny) {
+            System.out.println("Database connection closed.");
         }
     }
 }
\ No newline at end of file
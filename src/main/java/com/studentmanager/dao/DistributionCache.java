@@ -0,0 +1,133 @@
+package com.studentmanager.dao;
+
+import com.studentmanager.model.GradeSlice;
+import com.studentmanager.model.ScoreDistribution;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Score distributions of every subject, semester and major, kept between
+ * calls. The first call for a dimension reads all its slices with one
+ * aggregate query; later calls ask {@link DataVersion} which slices were
+ * written since and re-count only those, so a write costs one small
+ * GROUP BY on the slices it touched rather than a pass over all grades.
+ * Writes of other processes are read from the change log first, by
+ * {@link ChangeLogFollower}. A dimension can also start from distributions
+ * counted from a grade snapshot, see {@link #seed}.
+ */
+public class DistributionCache {
+    // Above this many changed slices one query for the whole dimension is cheaper
+    private static final int MAX_SLICE_QUERIES = 16;
+
+    private static final Comparator<GradeSlice> SLICE_ORDER = Comparator
+            .comparing(GradeSlice::getValue, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparingInt(GradeSlice::getYear);
+
+    private final GradeDAO gradeDAO;
+    private final Map<GradeSlice.Dimension, Loaded> dimensions = new EnumMap<>(GradeSlice.Dimension.class);
+
+    public DistributionCache(GradeDAO gradeDAO) {
+        this.gradeDAO = gradeDAO;
+    }
+
+    /**
+     * Get the distribution of every slice of a dimension
+     * @param dimension Subject, semester or major
+     * @return Copies of the distributions, ordered by slice
+     */
+    public synchronized Map<GradeSlice, ScoreDistribution> getDistributions(GradeSlice.Dimension dimension) {
+        Loaded loaded = refresh(dimension);
+        Map<GradeSlice, ScoreDistribution> copies = new LinkedHashMap<>();
+        for (Map.Entry<GradeSlice, ScoreDistribution> entry : loaded.slices.entrySet()) {
+            copies.put(entry.getKey(), entry.getValue().copy());
+        }
+        return copies;
+    }
+
+    /**
+     * Get the distribution of one slice
+     * @param slice Slice to read
+     * @return Copy of the distribution, empty if the slice has no grades
+     */
+    public synchronized ScoreDistribution getDistribution(GradeSlice slice) {
+        ScoreDistribution distribution = refresh(slice.getDimension()).slices.get(slice);
+        return distribution != null ? distribution.copy() : new ScoreDistribution();
+    }
+
+    /**
+     * Merge the slices of a dimension into one distribution, e.g. all
+     * subjects into the distribution of every grade
+     * @param dimension Dimension whose slices to merge
+     * @return New distribution
+     */
+    public synchronized ScoreDistribution getMergedDistribution(GradeSlice.Dimension dimension) {
+        ScoreDistribution merged = new ScoreDistribution();
+        for (ScoreDistribution distribution : refresh(dimension).slices.values()) {
+            merged.merge(distribution);
+        }
+        return merged;
+    }
+
+    /**
+     * Start a dimension from distributions counted elsewhere, e.g. from a
+     * grade snapshot, instead of querying them on the first call
+     * @param dimension Dimension the distributions belong to
+     * @param distributions Distribution of every slice
+     * @param version {@link DataVersion#current()} read before the grades were
+     *                taken; slices written since are re-counted on the next call
+     */
+    public synchronized void seed(GradeSlice.Dimension dimension, Map<GradeSlice, ScoreDistribution> distributions,
+                                  long version) {
+        Loaded loaded = dimensions.get(dimension);
+        if (loaded != null && loaded.version >= version) {
+            return;
+        }
+        loaded = new Loaded();
+        for (Map.Entry<GradeSlice, ScoreDistribution> entry : distributions.entrySet()) {
+            if (entry.getKey().getValue() != null && !entry.getValue().isEmpty()) {
+                loaded.slices.put(entry.getKey(), entry.getValue().copy());
+            }
+        }
+        loaded.version = version;
+        dimensions.put(dimension, loaded);
+    }
+
+    private Loaded refresh(GradeSlice.Dimension dimension) {
+        ChangeLogFollower.catchUp();
+        // Read the version first: a slice written during the queries is re-counted next time
+        long version = DataVersion.current();
+        Loaded loaded = dimensions.get(dimension);
+        Set<GradeSlice> changed = loaded != null ? DataVersion.changedSince(dimension, loaded.version) : null;
+
+        if (changed == null || changed.size() > MAX_SLICE_QUERIES) {
+            loaded = new Loaded();
+            for (Map.Entry<GradeSlice, ScoreDistribution> entry : gradeDAO.getScoreDistributions(dimension).entrySet()) {
+                // Grades of students without a major have no slice to version them by
+                if (entry.getKey().getValue() != null) {
+                    loaded.slices.put(entry.getKey(), entry.getValue());
+                }
+            }
+            dimensions.put(dimension, loaded);
+        } else {
+            for (GradeSlice slice : changed) {
+                ScoreDistribution distribution = gradeDAO.getScoreDistribution(slice);
+                if (distribution.isEmpty()) {
+                    loaded.slices.remove(slice);
+                } else {
+                    loaded.slices.put(slice, distribution);
+                }
+            }
+        }
+        loaded.version = version;
+        return loaded;
+    }
+
+    private static final class Loaded {
+        final Map<GradeSlice, ScoreDistribution> slices = new TreeMap<>(SLICE_ORDER);
+        long version;
+    }
+}
@@ -1,14 +1,113 @@
 package com.studentmanager.dao;
 
+import com.studentmanager.model.CompactGrade;
+import com.studentmanager.model.CompactGradeList;
+import com.studentmanager.model.FixedPoint;
 import com.studentmanager.model.Grade;
+import com.studentmanager.model.GradeSlice;
+import com.studentmanager.model.ScoreDistribution;
+import com.studentmanager.model.StringDictionary;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object for Grade operations
  */
 public class GradeDAO {
+    /**
+     * Receives the grades of one semester that share a score
+     */
+    public interface TermScoreConsumer {
+        /**
+         * @param semester Semester
+         * @param year Year
+         * @param scoreHundredths Score in hundredths
+         * @param coefficientSum Sum of the coefficients of those grades, in hundredths
+         * @param count Number of grades
+         */
+        void accept(String semester, int year, int scoreHundredths, long coefficientSum, int count);
+    }
+
+    private static final int HISTOGRAM_BANDS = 10;
+    // Stays well below SQLite's default limit of 999 host parameters per statement
+    static final int MAX_IN_LIST = 500;
+    // A perfect 10 falls into the top band; uses the same column as the score distributions
+    private static final String HISTOGRAM_BAND = "MIN(g.score_x100 / 100, 9)";
+    private static final Comparator<Grade> STUDENT_ORDER = Comparator.comparingInt(Grade::getYear).reversed()
+            .thenComparing(Grade::getSemester)
+            .thenComparing(Grade::getSubject);
+    private static final Comparator<Grade> ALL_ORDER = Comparator.comparingInt(Grade::getStudentId)
+            .thenComparing(STUDENT_ORDER);
+
+    // Shared by every GradeDAO so reads see writes made through any instance
+    private static volatile GradeWriteBuffer writeBuffer;
+    private static boolean shutdownHookAdded = false;
+
+    /**
+     * Buffer grade updates and deletes in memory and write them in batches.
+     * Repeated writes to one grade are coalesced; reads through this class
+     * see buffered writes, and queries that cannot apply them flush first.
+     * @param maxPending Number of distinct pending grades that triggers a flush
+     * @param maxDelayMillis Longest time a write may stay only in memory
+     */
+    public static synchronized void enableWriteBehind(int maxPending, long maxDelayMillis) {
+        if (writeBuffer != null) {
+            return;
+        }
+        writeBuffer = new GradeWriteBuffer(maxPending, maxDelayMillis);
+        if (!shutdownHookAdded) {
+            Runtime.getRuntime().addShutdownHook(new Thread(GradeDAO::disableWriteBehind, "grade-write-behind-shutdown"));
+            shutdownHookAdded = true;
+        }
+    }
+
+    /**
+     * Flush buffered writes and go back to writing through
+     * @return true if every buffered write reached the database
+     */
+    public static synchronized boolean disableWriteBehind() {
+        GradeWriteBuffer buffer = writeBuffer;
+        if (buffer == null) {
+            return true;
+        }
+        boolean flushed = buffer.close();
+        if (flushed) {
+            writeBuffer = null;
+        }
+        return flushed;
+    }
+
+    /**
+     * Write any buffered grade updates and deletes now
+     * @return true if nothing is left buffered
+     */
+    public static boolean flushWrites() {
+        GradeWriteBuffer buffer = writeBuffer;
+        return buffer == null || buffer.flush();
+    }
+
+    public static boolean isWriteBehindEnabled() {
+        return writeBuffer != null;
+    }
+
+    /**
+     * @return Summary of the write-behind counters, or null when it is off
+     */
+    public static String getWriteBehindStats() {
+        GradeWriteBuffer buffer = writeBuffer;
+        return buffer == null ? null : buffer.getStats();
+    }
     
     /**
      * Add a new grade to the database
@@ -16,7 +115,8 @@ public class GradeDAO {
      * @return true if successful, false otherwise
      */
     public boolean addGrade(Grade grade) {
-        String sql = "INSERT INTO grades (student_id, subject, score, coefficient, semester, year) VALUES (?, ?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO grades (student_id, subject, score, coefficient, semester, year, score_x100, coefficient_x100) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
         
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
@@ -27,7 +127,10 @@ public class GradeDAO {
             pstmt.setDouble(4, grade.getCoefficient());
             pstmt.setString(5, grade.getSemester());
             pstmt.setInt(6, grade.getYear());
+            pstmt.setInt(7, grade.getScoreHundredths());
+            pstmt.setInt(8, grade.getCoefficientHundredths());
             
+            ChangeLogFollower.Position logged = ChangeLogFollower.position(conn);
             int affectedRows = pstmt.executeUpdate();
             
             if (affectedRows > 0) {
@@ -38,21 +141,97 @@ public class GradeDAO {
                         grade.setId(rs.getInt(1));
                     }
                 }
+                ChangeLogFollower.ownWrite(conn, logged);
+                DataChanges.gradeChanged(null, grade, getMajorOfStudent(grade.getStudentId()));
                 return true;
             }
         } catch (SQLException e) {
             System.err.println("Error adding grade: " + e.getMessage());
             e.printStackTrace();
+            DatabaseConnection.countError();
         }
         return false;
     }
     
+    /**
+     * Add many grades in one transaction
+     * @param grades Grades to add; student IDs must refer to existing students.
+     *               Each gets its new ID set, as with addGrade
+     * @return Number of grades inserted, or -1 if the batch failed and was rolled back
+     */
+    public int addGrades(List<Grade> grades) {
+        String sql = "INSERT INTO grades (student_id, subject, score, coefficient, semester, year, score_x100, coefficient_x100) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        int inserted = 0;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             PreparedStatement lastId = conn.prepareStatement("SELECT last_insert_rowid()")) {
+
+            ChangeLogFollower.Position logged = ChangeLogFollower.position(conn);
+            conn.setAutoCommit(false);
+            int batchStart = 0;
+            for (int i = 0; i < grades.size(); i++) {
+                Grade grade = grades.get(i);
+                pstmt.setInt(1, grade.getStudentId());
+                pstmt.setString(2, grade.getSubject());
+                pstmt.setDouble(3, grade.getScore());
+                pstmt.setDouble(4, grade.getCoefficient());
+                pstmt.setString(5, grade.getSemester());
+                pstmt.setInt(6, grade.getYear());
+                pstmt.setInt(7, grade.getScoreHundredths());
+                pstmt.setInt(8, grade.getCoefficientHundredths());
+                pstmt.addBatch();
+                if ((i + 1) % StudentDAO.BATCH_SIZE == 0 || i == grades.size() - 1) {
+                    inserted += StudentDAO.countInserted(pstmt.executeBatch());
+                    // The driver returns no generated keys for a batch. Nothing else writes
+                    // while this transaction holds the lock, so the rows of the batch got
+                    // consecutive IDs ending at the last one inserted.
+                    try (ResultSet rs = lastId.executeQuery()) {
+                        long last = rs.next() ? rs.getLong(1) : 0;
+                        for (int k = batchStart; k <= i; k++) {
+                            grades.get(k).setId((int) (last - (i - k)));
+                        }
+                    }
+                    batchStart = i + 1;
+                }
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+            ChangeLogFollower.ownWrite(conn, logged);
+
+            Set<Integer> studentIds = new LinkedHashSet<>();
+            for (Grade grade : grades) {
+                studentIds.add(grade.getStudentId());
+            }
+            Map<Integer, String> majors = getMajorsOfStudents(studentIds);
+            for (Grade grade : grades) {
+                DataChanges.gradeChanged(null, grade, majors.get(grade.getStudentId()));
+            }
+            return inserted;
+        } catch (SQLException e) {
+            System.err.println("Error adding grades: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+            return -1;
+        }
+    }
+    
     /**
      * Get all grades for a specific student
      * @param studentId Student ID
      * @return List of grades for the student
      */
     public List<Grade> getGradesByStudentId(int studentId) {
+        GradeWriteBuffer buffer = writeBuffer;
+        if (buffer != null) {
+            return buffer.read(() -> queryGradesByStudentId(studentId),
+                    grade -> grade.getStudentId() == studentId, STUDENT_ORDER);
+        }
+        return queryGradesByStudentId(studentId);
+    }
+
+    private List<Grade> queryGradesByStudentId(int studentId) {
         List<Grade> grades = new ArrayList<>();
         String sql = "SELECT * FROM grades WHERE student_id = ? ORDER BY year DESC, semester, subject";
         
@@ -68,6 +247,7 @@ public class GradeDAO {
         } catch (SQLException e) {
             System.err.println("Error getting grades: " + e.getMessage());
             e.printStackTrace();
+            DatabaseConnection.countError();
         }
         return grades;
     }
@@ -75,13 +255,24 @@ public class GradeDAO {
     /**
      * Get grades by student ID and semester
      * @param studentId Student ID
-     * @param semester Semester
+     * @param semester Semester, matched ignoring case
      * @param year Year
      * @return List of grades for the student in specified semester
      */
     public List<Grade> getGradesByStudentAndSemester(int studentId, String semester, int year) {
+        GradeWriteBuffer buffer = writeBuffer;
+        if (buffer != null) {
+            return buffer.read(() -> queryGradesByStudentAndSemester(studentId, semester, year),
+                    grade -> grade.getStudentId() == studentId && grade.getYear() == year
+                            && semester.equalsIgnoreCase(grade.getSemester()),
+                    Comparator.comparing(Grade::getSubject));
+        }
+        return queryGradesByStudentAndSemester(studentId, semester, year);
+    }
+
+    private List<Grade> queryGradesByStudentAndSemester(int studentId, String semester, int year) {
         List<Grade> grades = new ArrayList<>();
-        String sql = "SELECT * FROM grades WHERE student_id = ? AND semester = ? AND year = ? ORDER BY subject";
+        String sql = "SELECT * FROM grades WHERE student_id = ? AND semester = ? COLLATE NOCASE AND year = ? ORDER BY subject";
         
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -97,6 +288,7 @@ public class GradeDAO {
         } catch (SQLException e) {
             System.err.println("Error getting grades by semester: " + e.getMessage());
             e.printStackTrace();
+            DatabaseConnection.countError();
         }
         return grades;
     }
@@ -107,6 +299,14 @@ public class GradeDAO {
      * @return Grade object or null if not found
      */
     public Grade getGradeById(int id) {
+        GradeWriteBuffer buffer = writeBuffer;
+        if (buffer != null) {
+            return buffer.read(id, () -> queryGradeById(id));
+        }
+        return queryGradeById(id);
+    }
+
+    private Grade queryGradeById(int id) {
         String sql = "SELECT * FROM grades WHERE id = ?";
         
         try (Connection conn = DatabaseConnection.getConnection();
@@ -121,6 +321,7 @@ public class GradeDAO {
         } catch (SQLException e) {
             System.err.println("Error getting grade: " + e.getMessage());
             e.printStackTrace();
+            DatabaseConnection.countError();
         }
         return null;
     }
@@ -131,7 +332,13 @@ public class GradeDAO {
      * @return true if successful, false otherwise
      */
     public boolean updateGrade(Grade grade) {
-        String sql = "UPDATE grades SET subject = ?, score = ?, coefficient = ?, semester = ?, year = ? WHERE id = ?";
+        String sql = "UPDATE grades SET subject = ?, score = ?, coefficient = ?, semester = ?, year = ?, " +
+                     "score_x100 = ?, coefficient_x100 = ? WHERE id = ?";
+        Grade previous = getGradeById(grade.getId());
+        GradeWriteBuffer buffer = writeBuffer;
+        if (buffer != null) {
+            return bufferUpdate(buffer, previous, grade);
+        }
         
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -141,12 +348,21 @@ public class GradeDAO {
             pstmt.setDouble(3, grade.getCoefficient());
             pstmt.setString(4, grade.getSemester());
             pstmt.setInt(5, grade.getYear());
-            pstmt.setInt(6, grade.getId());
+            pstmt.setInt(6, grade.getScoreHundredths());
+            pstmt.setInt(7, grade.getCoefficientHundredths());
+            pstmt.setInt(8, grade.getId());
             
-            return pstmt.executeUpdate() > 0;
+            ChangeLogFollower.Position logged = ChangeLogFollower.position(conn);
+            if (pstmt.executeUpdate() > 0) {
+                ChangeLogFollower.ownWrite(conn, logged);
+                String major = getMajorOfStudent(previous != null ? previous.getStudentId() : grade.getStudentId());
+                DataChanges.gradeChanged(previous, grade, major);
+                return true;
+            }
         } catch (SQLException e) {
             System.err.println("Error updating grade: " + e.getMessage());
             e.printStackTrace();
+            DatabaseConnection.countError();
         }
         return false;
     }
@@ -158,24 +374,66 @@ public class GradeDAO {
      */
     public boolean deleteGrade(int id) {
         String sql = "DELETE FROM grades WHERE id = ?";
+        Grade previous = getGradeById(id);
+        GradeWriteBuffer buffer = writeBuffer;
+        if (buffer != null) {
+            if (previous == null) {
+                return false;
+            }
+            buffer.delete(id);
+            DataChanges.gradeChanged(previous, null, getMajorOfStudent(previous.getStudentId()));
+            return true;
+        }
         
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, id);
-            return pstmt.executeUpdate() > 0;
+            ChangeLogFollower.Position logged = ChangeLogFollower.position(conn);
+            if (pstmt.executeUpdate() > 0) {
+                ChangeLogFollower.ownWrite(conn, logged);
+                if (previous != null) {
+                    DataChanges.gradeChanged(previous, null, getMajorOfStudent(previous.getStudentId()));
+                }
+                return true;
+            }
         } catch (SQLException e) {
             System.err.println("Error deleting grade: " + e.getMessage());
             e.printStackTrace();
+            DatabaseConnection.countError();
         }
         return false;
     }
     
+    /**
+     * Buffer an update, rejecting what the database would reject at flush time
+     */
+    private boolean bufferUpdate(GradeWriteBuffer buffer, Grade previous, Grade grade) {
+        if (previous == null || grade.getSubject() == null || grade.getSemester() == null
+                || !(grade.getScore() >= 0 && grade.getScore() <= 10)) {
+            return false;
+        }
+        // The student of a grade never changes through an update
+        Grade updated = new Grade(grade.getId(), previous.getStudentId(), grade.getSubject(), grade.getScore(),
+                grade.getCoefficient(), grade.getSemester(), grade.getYear());
+        buffer.update(updated);
+        DataChanges.gradeChanged(previous, updated, getMajorOfStudent(previous.getStudentId()));
+        return true;
+    }
+    
     /**
      * Get all grades for all students
      * @return List of all grades
      */
     public List<Grade> getAllGrades() {
+        GradeWriteBuffer buffer = writeBuffer;
+        if (buffer != null) {
+            return buffer.read(this::queryAllGrades, grade -> true, ALL_ORDER);
+        }
+        return queryAllGrades();
+    }
+
+    private List<Grade> queryAllGrades() {
         List<Grade> grades = new ArrayList<>();
         String sql = "SELECT * FROM grades ORDER BY student_id, year DESC, semester, subject";
         
@@ -189,6 +447,319 @@ public class GradeDAO {
         } catch (SQLException e) {
             System.err.println("Error getting all grades: " + e.getMessage());
             e.printStackTrace();
+            DatabaseConnection.countError();
+        }
+        return grades;
+    }
+    
+    /**
+     * Get the grades of many students with one query per 500 students
+     * @param studentIds Student IDs; duplicates are ignored
+     * @return Grades per student ID, ordered as in getGradesByStudentId;
+     *         every requested ID is present, with an empty list if it has no grades
+     */
+    public Map<Integer, List<Grade>> getGradesByStudentIds(Collection<Integer> studentIds) {
+        Set<Integer> idSet = new LinkedHashSet<>(studentIds);
+        List<Integer> ids = new ArrayList<>(idSet);
+        GradeWriteBuffer buffer = writeBuffer;
+        List<Grade> grades = buffer != null
+                ? buffer.read(() -> queryGradesByStudentIds(ids), grade -> idSet.contains(grade.getStudentId()), ALL_ORDER)
+                : queryGradesByStudentIds(ids);
+
+        Map<Integer, List<Grade>> gradesByStudent = new LinkedHashMap<>();
+        for (Integer id : ids) {
+            gradesByStudent.put(id, new ArrayList<>());
+        }
+        for (Grade grade : grades) {
+            gradesByStudent.get(grade.getStudentId()).add(grade);
+        }
+        return gradesByStudent;
+    }
+
+    private List<Grade> queryGradesByStudentIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Grade> grades = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (int from = 0; from < ids.size(); from += MAX_IN_LIST) {
+                List<Integer> chunk = ids.subList(from, Math.min(from + MAX_IN_LIST, ids.size()));
+                String sql = "SELECT * FROM grades WHERE student_id IN (" + placeholders(chunk.size()) + ") " +
+                             "ORDER BY student_id, year DESC, semester, subject";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setInt(i + 1, chunk.get(i));
+                    }
+                    ResultSet rs = pstmt.executeQuery();
+                    while (rs.next()) {
+                        grades.add(createGradeFromResultSet(rs));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting grades for students: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+        }
+        return grades;
+    }
+
+    static String placeholders(int count) {
+        StringBuilder marks = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            marks.append(i == 0 ? "?" : ",?");
+        }
+        return marks.toString();
+    }
+    
+    /**
+     * Start a query over grades with any combination of major, subject,
+     * semester, year range, score range and classification, run in SQL
+     * @return New query matching every grade until criteria are set
+     */
+    public GradeQuery query() {
+        return new GradeQuery(this);
+    }
+
+    /**
+     * Count all grades
+     * @return Number of grades
+     */
+    public int countGrades() {
+        flushWrites();
+        String sql = "SELECT COUNT(*) FROM grades";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error counting grades: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+        }
+        return 0;
+    }
+    
+    /**
+     * Stream all grades ordered by student without building a list
+     * @param consumer Receives each grade as its row is read
+     * @return Number of grades read, or -1 if the query failed part way
+     */
+    public int forEachGrade(Consumer<Grade> consumer) {
+        flushWrites();
+        String sql = "SELECT * FROM grades ORDER BY student_id, year DESC, semester, subject";
+        int count = 0;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                consumer.accept(createGradeFromResultSet(rs));
+                count++;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error streaming grades: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+            return -1;
+        }
+        return count;
+    }
+
+    /**
+     * Get one page of grades matching the given filters. Null filters are ignored.
+     * Used by paged views so filtering happens in SQL instead of in the table.
+     * @param semester Semester to match ignoring case, or null
+     * @param year Year to match, or null
+     * @param minScore Minimum score (inclusive), or null
+     * @param maxScore Maximum score (inclusive), or null
+     * @param offset Number of rows to skip
+     * @param limit Maximum number of rows to return
+     * @return Page of matching grades
+     */
+    public List<Grade> getGradesFiltered(String semester, Integer year, Double minScore, Double maxScore,
+                                         int offset, int limit) {
+        flushWrites();
+        List<Grade> grades = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT * FROM grades WHERE 1 = 1");
+
+        if (semester != null) {
+            sql.append(" AND semester = ? COLLATE NOCASE");
+            params.add(semester);
+        }
+        if (year != null) {
+            sql.append(" AND year = ?");
+            params.add(year);
+        }
+        if (minScore != null) {
+            sql.append(" AND score >= ?");
+            params.add(minScore);
+        }
+        if (maxScore != null) {
+            sql.append(" AND score <= ?");
+            params.add(maxScore);
+        }
+        sql.append(" ORDER BY student_id, year DESC, semester, subject LIMIT ? OFFSET ?");
+        params.add(limit);
+        params.add(offset);
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                grades.add(createGradeFromResultSet(rs));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting filtered grades: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+        }
+        return grades;
+    }
+    
+    /**
+     * Load the grades of a whole cohort in one query, grouped by student.
+     * Null filters are ignored.
+     * @param major Major of the students, or null
+     * @param semester Semester to match ignoring case, or null
+     * @param year Year to match, or null
+     * @return Grades keyed by student database ID, each list ordered like
+     *         {@link #getGradesByStudentId(int)}; students without matching grades are absent
+     */
+    public Map<Integer, List<Grade>> getGradesForCohort(String major, String semester, Integer year) {
+        flushWrites();
+        Map<Integer, List<Grade>> gradesByStudent = new HashMap<>();
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT g.* FROM grades g");
+
+        if (major != null) {
+            sql.append(" JOIN students s ON s.id = g.student_id WHERE s.major = ?");
+            params.add(major);
+        } else {
+            sql.append(" WHERE 1 = 1");
+        }
+        if (semester != null) {
+            sql.append(" AND g.semester = ? COLLATE NOCASE");
+            params.add(semester);
+        }
+        if (year != null) {
+            sql.append(" AND g.year = ?");
+            params.add(year);
+        }
+        sql.append(" ORDER BY g.student_id, g.year DESC, g.semester, g.subject");
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                Grade grade = createGradeFromResultSet(rs);
+                gradesByStudent.computeIfAbsent(grade.getStudentId(), id -> new ArrayList<>()).add(grade);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting cohort grades: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+        }
+        return gradesByStudent;
+    }
+    
+    /**
+     * Load the grades of a whole cohort as compact columnar lists, without
+     * creating a Grade per row. Null filters are ignored.
+     * @param major Major of the students, or null
+     * @param semester Semester to match ignoring case, or null
+     * @param year Year to match, or null
+     * @return Grades keyed by student database ID; students without matching grades are absent
+     */
+    public Map<Integer, CompactGradeList> getCompactGradesForCohort(String major, String semester, Integer year) {
+        flushWrites();
+        Map<Integer, CompactGradeList> gradesByStudent = new HashMap<>();
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT g.* FROM grades g");
+
+        if (major != null) {
+            sql.append(" JOIN students s ON s.id = g.student_id WHERE s.major = ?");
+            params.add(major);
+        } else {
+            sql.append(" WHERE 1 = 1");
+        }
+        if (semester != null) {
+            sql.append(" AND g.semester = ? COLLATE NOCASE");
+            params.add(semester);
+        }
+        if (year != null) {
+            sql.append(" AND g.year = ?");
+            params.add(year);
+        }
+        sql.append(" ORDER BY g.student_id, g.year DESC, g.semester, g.subject");
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            ResultSet rs = pstmt.executeQuery();
+
+            // Rows arrive grouped by student, so only a change of student needs a lookup
+            int currentStudent = -1;
+            CompactGradeList current = null;
+            while (rs.next()) {
+                int studentId = rs.getInt("student_id");
+                if (current == null || studentId != currentStudent) {
+                    currentStudent = studentId;
+                    current = gradesByStudent.computeIfAbsent(studentId, id -> new CompactGradeList());
+                }
+                addCompactGradeFromResultSet(current, rs);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting compact cohort grades: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+        }
+        return gradesByStudent;
+    }
+    
+    /**
+     * Get all grades for a specific student as a compact columnar list
+     * @param studentId Student ID
+     * @return Grades ordered like {@link #getGradesByStudentId(int)}
+     */
+    public CompactGradeList getCompactGradesByStudentId(int studentId) {
+        flushWrites();
+        CompactGradeList grades = new CompactGradeList();
+        String sql = "SELECT * FROM grades WHERE student_id = ? ORDER BY year DESC, semester, subject";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, studentId);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                addCompactGradeFromResultSet(grades, rs);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting compact grades: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
         }
         return grades;
     }
@@ -199,6 +770,7 @@ public class GradeDAO {
      * @return List of semesters
      */
     public List<String> getDistinctSemestersForStudent(int studentId) {
+        flushWrites();
         List<String> semesters = new ArrayList<>();
         String sql = "SELECT DISTINCT semester, year FROM grades WHERE student_id = ? ORDER BY year DESC, semester";
         
@@ -214,25 +786,326 @@ public class GradeDAO {
         } catch (SQLException e) {
             System.err.println("Error getting semesters: " + e.getMessage());
             e.printStackTrace();
+            DatabaseConnection.countError();
         }
         return semesters;
     }
     
     /**
-     * Create Grade object from ResultSet
+     * Stream grades grouped by semester and exact score, oldest semester
+     * first, so per-semester and running sums take one ordered pass over at
+     * most 1001 rows per semester instead of one query per semester
+     * @param studentId Only this student's grades, or null
+     * @param major Only grades of students in this major, or null
+     * @param terms Only these semester slices, or null for all
+     * @param consumer Receives each group in year and semester order
+     * @return Number of groups read, or -1 if the query failed
+     */
+    public int forEachTermScore(Integer studentId, String major, Collection<GradeSlice> terms,
+                                TermScoreConsumer consumer) {
+        flushWrites();
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT g.semester, g.year, g.score_x100, " +
+                "SUM(g.coefficient_x100) AS coefficient_sum, COUNT(*) AS total FROM grades g");
+        if (major != null) {
+            sql.append(" JOIN students s ON s.id = g.student_id WHERE s.major = ?");
+            params.add(major);
+        } else {
+            sql.append(" WHERE 1 = 1");
+        }
+        if (studentId != null) {
+            sql.append(" AND g.student_id = ?");
+            params.add(studentId);
+        }
+        if (terms != null) {
+            if (terms.isEmpty()) {
+                return 0;
+            }
+            StringJoiner any = new StringJoiner(" OR ", " AND (", ")");
+            for (GradeSlice term : terms) {
+                any.add("(g.year = ? AND g.semester = ?)");
+                params.add(term.getYear());
+                params.add(term.getValue());
+            }
+            sql.append(any);
+        }
+        sql.append(" GROUP BY g.year, g.semester, g.score_x100 ORDER BY g.year, g.semester");
+        int count = 0;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                consumer.accept(rs.getString("semester"), rs.getInt("year"), rs.getInt("score_x100"),
+                                rs.getLong("coefficient_sum"), rs.getInt("total"));
+                count++;
+            }
+            return count;
+        } catch (SQLException e) {
+            System.err.println("Error getting semester scores: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+            return -1;
+        }
+    }
+    
+    /**
+     * Count grades per score band (0-1, 1-2, ..., 9-10) for every slice of a dimension.
+     * Aggregation happens in SQLite, so only the counts cross into Java.
+     * @param dimension Dimension to group by
+     * @return Ten band counts per slice, ordered by slice
+     */
+    public Map<GradeSlice, int[]> getScoreHistograms(GradeSlice.Dimension dimension) {
+        flushWrites();
+        Map<GradeSlice, int[]> histograms = new LinkedHashMap<>();
+        String sql = "SELECT " + sliceColumns(dimension) + ", " + HISTOGRAM_BAND + " AS band, COUNT(*) AS total " +
+                     sliceSource(dimension) +
+                     " GROUP BY " + sliceColumns(dimension) + ", band ORDER BY " + sliceColumns(dimension);
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                GradeSlice slice = createSliceFromResultSet(dimension, rs);
+                histograms.computeIfAbsent(slice, k -> new int[HISTOGRAM_BANDS])[rs.getInt("band")] = rs.getInt("total");
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting score histograms: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+        }
+        return histograms;
+    }
+
+    /**
+     * Count grades per score band (0-1, 1-2, ..., 9-10) in one slice
+     * @param slice Slice to count
+     * @return Ten band counts
+     */
+    public int[] getScoreHistogram(GradeSlice slice) {
+        flushWrites();
+        int[] bands = new int[HISTOGRAM_BANDS];
+        GradeSlice.Dimension dimension = slice.getDimension();
+        String where = dimension == GradeSlice.Dimension.SEMESTER
+                ? " WHERE g.semester = ? AND g.year = ?"
+                : " WHERE " + sliceColumns(dimension) + " = ?";
+        String sql = "SELECT " + HISTOGRAM_BAND + " AS band, COUNT(*) AS total " +
+                     sliceSource(dimension) + where + " GROUP BY band";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, slice.getValue());
+            if (dimension == GradeSlice.Dimension.SEMESTER) {
+                pstmt.setInt(2, slice.getYear());
+            }
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                bands[rs.getInt("band")] = rs.getInt("total");
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting score histogram: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+        }
+        return bands;
+    }
+
+    /**
+     * Count grades per exact score for every slice of a dimension. SQLite
+     * groups the rows, so at most 1001 counts per slice cross into Java.
+     * @param dimension Dimension to group by
+     * @return Distribution per slice, ordered by slice
+     */
+    public Map<GradeSlice, ScoreDistribution> getScoreDistributions(GradeSlice.Dimension dimension) {
+        flushWrites();
+        Map<GradeSlice, ScoreDistribution> distributions = new LinkedHashMap<>();
+        String sql = "SELECT " + sliceColumns(dimension) + ", g.score_x100 AS score_x100, COUNT(*) AS total " +
+                     sliceSource(dimension) +
+                     " GROUP BY " + sliceColumns(dimension) + ", g.score_x100 ORDER BY " + sliceColumns(dimension);
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                GradeSlice slice = createSliceFromResultSet(dimension, rs);
+                distributions.computeIfAbsent(slice, k -> new ScoreDistribution())
+                             .add(rs.getInt("score_x100"), rs.getInt("total"));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting score distributions: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+        }
+        return distributions;
+    }
+
+    /**
+     * Count grades per exact score in one slice
+     * @param slice Slice to count
+     * @return Distribution of the slice, empty if it has no grades
+     */
+    public ScoreDistribution getScoreDistribution(GradeSlice slice) {
+        flushWrites();
+        ScoreDistribution distribution = new ScoreDistribution();
+        GradeSlice.Dimension dimension = slice.getDimension();
+        String where = dimension == GradeSlice.Dimension.SEMESTER
+                ? " WHERE g.year = ? AND g.semester = ?"
+                : " WHERE " + sliceColumns(dimension) + " = ?";
+        String sql = "SELECT g.score_x100 AS score_x100, COUNT(*) AS total " +
+                     sliceSource(dimension) + where + " GROUP BY g.score_x100";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            if (dimension == GradeSlice.Dimension.SEMESTER) {
+                pstmt.setInt(1, slice.getYear());
+                pstmt.setString(2, slice.getValue());
+            } else {
+                pstmt.setString(1, slice.getValue());
+            }
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                distribution.add(rs.getInt("score_x100"), rs.getInt("total"));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting score distribution: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+        }
+        return distribution;
+    }
+
+    private static String sliceColumns(GradeSlice.Dimension dimension) {
+        switch (dimension) {
+            case SUBJECT:
+                return "g.subject";
+            case SEMESTER:
+                return "g.semester, g.year";
+            default:
+                return "s.major";
+        }
+    }
+
+    private static String sliceSource(GradeSlice.Dimension dimension) {
+        return dimension == GradeSlice.Dimension.MAJOR
+                ? "FROM grades g JOIN students s ON s.id = g.student_id"
+                : "FROM grades g";
+    }
+
+    private static GradeSlice createSliceFromResultSet(GradeSlice.Dimension dimension, ResultSet rs) throws SQLException {
+        switch (dimension) {
+            case SUBJECT:
+                return GradeSlice.subject(rs.getString("subject"));
+            case SEMESTER:
+                return GradeSlice.semester(rs.getString("semester"), rs.getInt("year"));
+            default:
+                return GradeSlice.major(rs.getString("major"));
+        }
+    }
+
+    /**
+     * Look up the major of a student, used to version major slices
+     */
+    private String getMajorOfStudent(int studentId) {
+        String sql = "SELECT major FROM students WHERE id = ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, studentId);
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next()) {
+                return rs.getString("major");
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting student major: " + e.getMessage());
+            DatabaseConnection.countError();
+        }
+        return null;
+    }
+    
+    private Map<Integer, String> getMajorsOfStudents(Collection<Integer> studentIds) {
+        Map<Integer, String> majors = new HashMap<>();
+        List<Integer> ids = new ArrayList<>(studentIds);
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (int from = 0; from < ids.size(); from += MAX_IN_LIST) {
+                List<Integer> chunk = ids.subList(from, Math.min(from + MAX_IN_LIST, ids.size()));
+                String sql = "SELECT id, major FROM students WHERE id IN (" + placeholders(chunk.size()) + ")";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setInt(i + 1, chunk.get(i));
+                    }
+                    ResultSet rs = pstmt.executeQuery();
+                    while (rs.next()) {
+                        majors.put(rs.getInt("id"), rs.getString("major"));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting student majors: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+        }
+        return majors;
+    }
+
+    /**
+     * Create Grade object from ResultSet. Subject and semester are interned,
+     * so all grades with equal values share one String.
      * @param rs ResultSet from database query
      * @return Grade object
      * @throws SQLException
      */
-    private Grade createGradeFromResultSet(ResultSet rs) throws SQLException {
+    Grade createGradeFromResultSet(ResultSet rs) throws SQLException {
         return new Grade(
             rs.getInt("id"),
             rs.getInt("student_id"),
-            rs.getString("subject"),
-            rs.getDouble("score"),
-            rs.getDouble("coefficient"),
-            rs.getString("semester"),
+            StringDictionary.SUBJECTS.intern(rs.getString("subject")),
+            FixedPoint.toDouble(getHundredths(rs, "score")),
+            FixedPoint.toDouble(getHundredths(rs, "coefficient")),
+            StringDictionary.SEMESTERS.intern(rs.getString("semester")),
             rs.getInt("year")
         );
     }
-}
\ No newline at end of file
+    
+    /**
+     * Append the current row to a compact list without creating a Grade
+     * @param grades List to append to
+     * @param rs ResultSet positioned on a grades row
+     * @throws SQLException
+     */
+    void addCompactGradeFromResultSet(CompactGradeList grades, ResultSet rs) throws SQLException {
+        grades.add(
+            rs.getInt("id"),
+            rs.getInt("student_id"),
+            StringDictionary.SUBJECTS.code(rs.getString("subject")),
+            getHundredths(rs, "score"),
+            getHundredths(rs, "coefficient"),
+            CompactGrade.packTerm(rs.getString("semester"), rs.getInt("year"))
+        );
+    }
+    
+    /**
+     * Read a score or coefficient from its fixed-point column, falling back to
+     * the REAL column for rows written by versions without the fixed-point columns
+     * @param rs ResultSet positioned on a grades row
+     * @param column "score" or "coefficient"
+     * @return Value in hundredths
+     * @throws SQLException
+     */
+    static int getHundredths(ResultSet rs, String column) throws SQLException {
+        int hundredths = rs.getInt(column + "_x100");
+        return rs.wasNull() ? FixedPoint.toHundredths(rs.getDouble(column)) : hundredths;
+    }
+}
@@ -0,0 +1,73 @@
+package com.studentmanager.dao;
+
+import com.studentmanager.model.Grade;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Query over grades, e.g.
+ * <pre>
+ *   gradeDAO.query().major("CNTT").subject("Toán").years(2022, 2024)
+ *           .scoreBetween(null, 3.99).orderBy(GradeQuery.Order.SCORE_ASC).limit(100).list();
+ * </pre>
+ * The major is matched through a join on students; the classification
+ * keeps the grades of students whose average is in the band.
+ */
+public final class GradeQuery extends CriteriaQuery<Grade, GradeQuery> {
+    /** Result orders */
+    public enum Order {
+        /** By student, then newest term first, like {@link GradeDAO#getAllGrades()} */
+        STUDENT("g.student_id, g.year DESC, g.semester, g.subject"),
+        /** Newest term first */
+        TERM("g.year DESC, g.semester, g.subject, g.student_id"),
+        /** Highest score first */
+        SCORE_DESC("g.score_x100 DESC, g.id"),
+        /** Lowest score first */
+        SCORE_ASC("g.score_x100, g.id");
+
+        private final String sql;
+
+        Order(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    private final GradeDAO gradeDAO;
+    private Order order = Order.STUDENT;
+
+    GradeQuery(GradeDAO gradeDAO) {
+        this.gradeDAO = gradeDAO;
+    }
+
+    public GradeQuery orderBy(Order order) {
+        this.order = order;
+        return this;
+    }
+
+    @Override
+    GradeQuery self() {
+        return this;
+    }
+
+    @Override
+    String toSql(List<Object> params) {
+        StringBuilder sql = new StringBuilder("SELECT g.* FROM grades g");
+        if (major != null) {
+            sql.append(" JOIN students s ON s.id = g.student_id WHERE s.major = ?");
+            params.add(major);
+        } else {
+            sql.append(" WHERE 1 = 1");
+        }
+        appendGradeCriteria(sql, params, "g.");
+        appendClassification(sql, params, "g.student_id");
+        sql.append(" ORDER BY ").append(order.sql);
+        appendPage(sql, params);
+        return sql.toString();
+    }
+
+    @Override
+    Grade map(ResultSet rs) throws SQLException {
+        return gradeDAO.createGradeFromResultSet(rs);
+    }
+}
@@ -0,0 +1,283 @@
+package com.studentmanager.dao;
+
+import com.studentmanager.model.Grade;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Write-behind buffer for grade updates and deletes. Repeated writes to the
+ * same grade id are coalesced in memory and written in a single transaction
+ * once enough grades are pending or the oldest pending write is old enough.
+ *
+ * Reads through {@link GradeDAO} hold the read lock while they query and
+ * overlay the pending writes on the rows; a flush holds the write lock, so a
+ * reader never sees a row between leaving the buffer and reaching the disk.
+ */
+class GradeWriteBuffer {
+    // Marks a pending delete in the pending map
+    private static final Grade DELETED = new Grade();
+
+    private final int maxPending;
+    private final long maxDelayMillis;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Grade> pending = new LinkedHashMap<>();
+    private final ScheduledExecutorService timer;
+    private long oldestPendingNanos;
+
+    private long bufferedWrites;
+    private long flushedRows;
+    private long commits;
+
+    /**
+     * @param maxPending Number of distinct pending grades that triggers a flush
+     * @param maxDelayMillis Longest time a write may stay only in memory
+     */
+    GradeWriteBuffer(int maxPending, long maxDelayMillis) {
+        this.maxPending = Math.max(1, maxPending);
+        this.maxDelayMillis = Math.max(1, maxDelayMillis);
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "grade-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, this.maxDelayMillis / 2);
+        timer.scheduleWithFixedDelay(this::flushIfDue, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Buffer an update; the previous value is what reads currently return
+     * @param grade New values, copied so later changes by the caller are not seen
+     */
+    void update(Grade grade) {
+        lock.writeLock().lock();
+        try {
+            put(grade.getId(), copy(grade));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Buffer a delete
+     * @param id Grade ID to delete
+     */
+    void delete(int id) {
+        lock.writeLock().lock();
+        try {
+            put(id, DELETED);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(int id, Grade value) {
+        if (pending.isEmpty()) {
+            oldestPendingNanos = System.nanoTime();
+        }
+        pending.remove(id);
+        pending.put(id, value);
+        bufferedWrites++;
+        if (pending.size() >= maxPending) {
+            flushLocked();
+        }
+    }
+
+    /**
+     * Read one grade, preferring its pending value
+     * @param id Grade ID
+     * @param query Reads the grade from the database
+     * @return Grade, or null if missing or deleted
+     */
+    Grade read(int id, Supplier<Grade> query) {
+        lock.readLock().lock();
+        try {
+            Grade value = pending.get(id);
+            if (value != null) {
+                return value == DELETED ? null : copy(value);
+            }
+            return query.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Read rows from the database with the pending writes applied
+     * @param query Reads the rows from the database
+     * @param filter Full condition of the query, checked on every pending grade
+     *               so an update can move a grade into or out of the result
+     * @param order Order of the query, restored if an update changed the rows
+     * @return Rows as they will be once the buffer is flushed
+     */
+    List<Grade> read(Supplier<List<Grade>> query, Predicate<Grade> filter, Comparator<Grade> order) {
+        lock.readLock().lock();
+        try {
+            List<Grade> rows = query.get();
+            if (pending.isEmpty()) {
+                return rows;
+            }
+            List<Grade> merged = new ArrayList<>(rows.size());
+            Set<Integer> returned = new HashSet<>();
+            boolean changed = false;
+            for (Grade row : rows) {
+                returned.add(row.getId());
+                Grade value = pending.get(row.getId());
+                if (value == null) {
+                    merged.add(row);
+                } else if (value != DELETED && filter.test(value)) {
+                    merged.add(copy(value));
+                    changed = true;
+                }
+            }
+            // Updated grades the query did not return because their old values did not match
+            for (Map.Entry<Integer, Grade> entry : pending.entrySet()) {
+                Grade value = entry.getValue();
+                if (value != DELETED && !returned.contains(entry.getKey()) && filter.test(value)) {
+                    merged.add(copy(value));
+                    changed = true;
+                }
+            }
+            if (changed) {
+                merged.sort(order);
+            }
+            return merged;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write all pending grades to the database
+     * @return true if the buffer is empty afterwards
+     */
+    boolean flush() {
+        lock.writeLock().lock();
+        try {
+            return flushLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void flushIfDue() {
+        lock.writeLock().lock();
+        try {
+            if (!pending.isEmpty()
+                    && System.nanoTime() - oldestPendingNanos >= TimeUnit.MILLISECONDS.toNanos(maxDelayMillis)) {
+                flushLocked();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean flushLocked() {
+        if (pending.isEmpty()) {
+            return true;
+        }
+        String updateSql = "UPDATE grades SET subject = ?, score = ?, coefficient = ?, semester = ?, year = ?, " +
+                           "score_x100 = ?, coefficient_x100 = ? WHERE id = ?";
+        String deleteSql = "DELETE FROM grades WHERE id = ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement update = conn.prepareStatement(updateSql);
+             PreparedStatement delete = conn.prepareStatement(deleteSql)) {
+
+            ChangeLogFollower.Position logged = ChangeLogFollower.position(conn);
+            conn.setAutoCommit(false);
+            boolean hasUpdates = false;
+            boolean hasDeletes = false;
+            for (Map.Entry<Integer, Grade> entry : pending.entrySet()) {
+                Grade grade = entry.getValue();
+                if (grade == DELETED) {
+                    delete.setInt(1, entry.getKey());
+                    delete.addBatch();
+                    hasDeletes = true;
+                } else {
+                    update.setString(1, grade.getSubject());
+                    update.setDouble(2, grade.getScore());
+                    update.setDouble(3, grade.getCoefficient());
+                    update.setString(4, grade.getSemester());
+                    update.setInt(5, grade.getYear());
+                    update.setInt(6, grade.getScoreHundredths());
+                    update.setInt(7, grade.getCoefficientHundredths());
+                    update.setInt(8, grade.getId());
+                    update.addBatch();
+                    hasUpdates = true;
+                }
+            }
+            if (hasUpdates) {
+                update.executeBatch();
+            }
+            if (hasDeletes) {
+                delete.executeBatch();
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+            // Told to the listeners when they were buffered
+            ChangeLogFollower.ownWrite(conn, logged);
+
+            flushedRows += pending.size();
+            commits++;
+            pending.clear();
+            return true;
+        } catch (SQLException e) {
+            // Keep the writes buffered and retry on the next flush
+            System.err.println("Error flushing buffered grades: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+            oldestPendingNanos = System.nanoTime();
+            return false;
+        }
+    }
+
+    /**
+     * Flush and stop the timer
+     * @return true if every pending write reached the database
+     */
+    boolean close() {
+        timer.shutdown();
+        return flush();
+    }
+
+    int getPendingCount() {
+        lock.readLock().lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Writes accepted, rows written and transactions committed so far
+     */
+    String getStats() {
+        lock.readLock().lock();
+        try {
+            return String.format("%d writes buffered, %d rows flushed in %d commits, %d pending",
+                    bufferedWrites, flushedRows, commits, pending.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Grade copy(Grade grade) {
+        return new Grade(grade.getId(), grade.getStudentId(), grade.getSubject(), grade.getScore(),
+                grade.getCoefficient(), grade.getSemester(), grade.getYear());
+    }
+}
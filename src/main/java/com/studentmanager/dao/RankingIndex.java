@@ -0,0 +1,435 @@
+package com.studentmanager.dao;
+
+import com.studentmanager.model.CompactGradeList;
+import com.studentmanager.model.FixedPoint;
+import com.studentmanager.model.Grade;
+import com.studentmanager.model.GradeSlice;
+import com.studentmanager.model.LeaderboardEntry;
+import com.studentmanager.model.Student;
+import com.studentmanager.strategy.GradeCalculationStrategy;
+import com.studentmanager.util.FenwickTree;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Students ranked by the value of one strategy over all their grades, for
+ * the whole school and per major. Each ranking counts students per score
+ * bucket of 0.01 in a {@link FenwickTree}, so the rank and percentile of a
+ * student cost O(log buckets) and the top K cost O(K) plus O(log buckets)
+ * per distinct score, instead of sorting every student on each request.
+ * Scores equal to the hundredth, as the leaderboard displays them, tie.
+ *
+ * Like {@link CohortIndex}, writes through the DAOs only mark the students
+ * they touch; the next query re-reads those students' grades in one batch.
+ * Each query first has {@link ChangeLogFollower} mark the students other
+ * processes wrote. A ranking can also start from a grade snapshot, see
+ * {@link #seed}.
+ */
+public final class RankingIndex {
+    // Scores 0.00 to 10.00 in hundredths; GPA values use the lower part
+    private static final int BUCKETS = 10 * FixedPoint.SCALE + 1;
+
+    private static final Comparator<Ranked> TIE_ORDER = Comparator
+            .comparing((Ranked ranked) -> ranked.student.getFullName(), Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparingInt(ranked -> ranked.student.getId());
+
+    // One index per strategy name, all receiving the write notifications
+    private static final Map<String, RankingIndex> instances = new ConcurrentHashMap<>();
+
+    // Marks the students a write touched in every ranking
+    static final DataChangeListener LISTENER = new DataChangeListener() {
+        @Override
+        public void gradeChanged(Grade previous, Grade current, String major) {
+            if (previous != null) {
+                RankingIndex.gradeChanged(previous.getStudentId());
+            }
+            if (current != null) {
+                RankingIndex.gradeChanged(current.getStudentId());
+            }
+        }
+
+        @Override
+        public void studentChanged(int id, Student previous, Student current) {
+            RankingIndex.studentChanged(id);
+        }
+
+        @Override
+        public void changesLogged(Set<Integer> studentIds, Set<GradeSlice> slices) {
+            for (int id : studentIds) {
+                RankingIndex.studentChanged(id);
+            }
+        }
+
+        @Override
+        public void everythingChanged() {
+            // Not through clear(), which would wait for a ranking being built
+            instances.clear();
+        }
+    };
+
+    private final GradeCalculationStrategy strategy;
+    private final StudentDAO studentDAO;
+    private final GradeDAO gradeDAO;
+    // Student IDs to re-read; true when the student row itself changed
+    private final ConcurrentHashMap<Integer, Boolean> dirty = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object refreshLock = new Object();
+
+    private final Map<Integer, Ranked> byStudent = new HashMap<>();
+    private final Ranking school = new Ranking();
+    private final Map<String, Ranking> byMajor = new HashMap<>();
+
+    private RankingIndex(GradeCalculationStrategy strategy, StudentDAO studentDAO, GradeDAO gradeDAO) {
+        this.strategy = strategy;
+        this.studentDAO = studentDAO;
+        this.gradeDAO = gradeDAO;
+    }
+
+    /**
+     * Get the shared ranking of a strategy, building it from the database on
+     * first use
+     * @param strategy Strategy whose score ranks the students
+     * @return Index kept up to date with writes to the database
+     */
+    public static RankingIndex getInstance(GradeCalculationStrategy strategy) {
+        // Before building, so writes of other processes during the build are replayed afterwards
+        ChangeLogFollower.catchUp();
+        synchronized (RankingIndex.class) {
+            return instanceOf(strategy);
+        }
+    }
+
+    private static RankingIndex instanceOf(GradeCalculationStrategy strategy) {
+        RankingIndex index = instances.get(strategy.getStrategyName());
+        if (index == null) {
+            index = new RankingIndex(strategy, new StudentDAO(), new GradeDAO());
+            // Registered before loading, so rows changed during the build are refreshed afterwards
+            instances.put(strategy.getStrategyName(), index);
+            index.load();
+        }
+        return index;
+    }
+
+    /**
+     * Build the ranking of a strategy from grades already in memory, e.g. a
+     * grade snapshot, instead of reading them from the database on first use
+     * @param strategy Strategy whose score ranks the students
+     * @param students Every student
+     * @param gradesOf Grades of a student database ID
+     * @param version {@link DataVersion#current()} read before the grades were taken
+     * @return false if the ranking already existed or data was written since
+     *         the version was read; it is then built from the database as usual
+     */
+    public static boolean seed(GradeCalculationStrategy strategy, List<Student> students,
+                               IntFunction<CompactGradeList> gradesOf, long version) {
+        RankingIndex index;
+        synchronized (RankingIndex.class) {
+            if (instances.containsKey(strategy.getStrategyName())) {
+                return false;
+            }
+            index = new RankingIndex(strategy, new StudentDAO(), new GradeDAO());
+            // Registered before checking the version: a write the check misses
+            // notifies after this and marks its students dirty
+            instances.put(strategy.getStrategyName(), index);
+            if (DataVersion.current() != version) {
+                instances.remove(strategy.getStrategyName());
+                return false;
+            }
+            List<Ranked> entries = students.parallelStream()
+                    .map(student -> {
+                        CompactGradeList grades = gradesOf.apply(student.getId());
+                        return grades.isEmpty() ? null : index.rank(student, grades);
+                    })
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            index.lock.writeLock().lock();
+            try {
+                for (Ranked ranked : entries) {
+                    index.add(ranked);
+                }
+            } finally {
+                index.lock.writeLock().unlock();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Drop every ranking; they are rebuilt on next use
+     */
+    public static synchronized void clear() {
+        instances.clear();
+    }
+
+    /**
+     * Record that a student's grades were added, changed or removed
+     * @param studentId Student database ID
+     */
+    private static void gradeChanged(int studentId) {
+        for (RankingIndex index : instances.values()) {
+            index.dirty.merge(studentId, false, Boolean::logicalOr);
+        }
+    }
+
+    /**
+     * Record that a student's name or major changed, or that it was deleted
+     * @param studentId Student database ID
+     */
+    private static void studentChanged(int studentId) {
+        for (RankingIndex index : instances.values()) {
+            index.dirty.put(studentId, true);
+        }
+    }
+
+    private void load() {
+        Map<Integer, CompactGradeList> grades = gradeDAO.getCompactGradesForCohort(null, null, null);
+        List<Student> students = studentDAO.getAllStudents();
+        // Strategies are stateless, so the scores are computed in parallel like the leaderboard
+        List<Ranked> entries = students.parallelStream()
+                .filter(student -> grades.containsKey(student.getId()))
+                .map(student -> rank(student, grades.get(student.getId())))
+                .collect(Collectors.toList());
+
+        lock.writeLock().lock();
+        try {
+            for (Ranked ranked : entries) {
+                add(ranked);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Students ranked within the top K, best first; students tied at the
+     * K-th place are all included
+     * @param major Rank within this major, or null for the whole school
+     * @param k Number of places, or 0 for every student
+     * @return Entries with rank and percentile set
+     */
+    public List<LeaderboardEntry> getTop(String major, int k) {
+        refresh();
+        lock.readLock().lock();
+        try {
+            Ranking ranking = ranking(major);
+            return ranking != null ? ranking.top(k) : new ArrayList<>();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rank of one student
+     * @param studentId Student database ID
+     * @param major Rank within this major, or null for the whole school
+     * @return Entry with rank and percentile set, or null if the student has
+     *         no grades or is not in the major
+     */
+    public LeaderboardEntry getEntry(int studentId, String major) {
+        refresh();
+        lock.readLock().lock();
+        try {
+            Ranked ranked = byStudent.get(studentId);
+            Ranking ranking = ranking(major);
+            if (ranked == null || ranking == null || (major != null && !major.equals(ranked.student.getMajor()))) {
+                return null;
+            }
+            return ranked.toEntry(ranking.rank(ranked.bucket), ranking.percentile(ranked.bucket));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param major Major, or null for the whole school
+     * @return Number of ranked students, i.e. those with at least one grade
+     */
+    public int size(String major) {
+        refresh();
+        lock.readLock().lock();
+        try {
+            Ranking ranking = ranking(major);
+            return ranking != null ? (int) ranking.counts.total() : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Ranking ranking(String major) {
+        return major == null ? school : byMajor.get(major);
+    }
+
+    /**
+     * Re-read the students written since the last query and move them to
+     * their new buckets
+     */
+    private void refresh() {
+        ChangeLogFollower.catchUp();
+        if (dirty.isEmpty()) {
+            return;
+        }
+        // One refresh at a time, so an older read never overwrites a newer one
+        synchronized (refreshLock) {
+            Map<Integer, Boolean> changes = new HashMap<>();
+            for (Integer id : new ArrayList<>(dirty.keySet())) {
+                Boolean studentChanged = dirty.remove(id);
+                if (studentChanged != null) {
+                    changes.put(id, studentChanged);
+                }
+            }
+            if (changes.isEmpty()) {
+                return;
+            }
+
+            Set<Integer> unknown = new HashSet<>();
+            lock.readLock().lock();
+            try {
+                for (Map.Entry<Integer, Boolean> change : changes.entrySet()) {
+                    if (change.getValue() || !byStudent.containsKey(change.getKey())) {
+                        unknown.add(change.getKey());
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            Map<Integer, List<Grade>> grades = gradeDAO.getGradesByStudentIds(changes.keySet());
+            Map<Integer, Student> students = new HashMap<>();
+            for (Integer id : unknown) {
+                students.put(id, studentDAO.getStudentById(id));
+            }
+
+            lock.writeLock().lock();
+            try {
+                for (Integer id : changes.keySet()) {
+                    Ranked previous = byStudent.get(id);
+                    Student student = unknown.contains(id) ? students.get(id)
+                            : previous != null ? previous.student : null;
+                    if (previous != null) {
+                        remove(previous);
+                    }
+                    List<Grade> list = grades.get(id);
+                    if (student != null && list != null && !list.isEmpty()) {
+                        add(rank(student, CompactGradeList.of(list)));
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private Ranked rank(Student student, CompactGradeList grades) {
+        return new Ranked(student, grades.size(), strategy.calculateScore(grades), strategy.calculateGrade(grades));
+    }
+
+    private void add(Ranked ranked) {
+        byStudent.put(ranked.student.getId(), ranked);
+        school.add(ranked);
+        if (ranked.student.getMajor() != null) {
+            byMajor.computeIfAbsent(ranked.student.getMajor(), major -> new Ranking()).add(ranked);
+        }
+    }
+
+    private void remove(Ranked ranked) {
+        byStudent.remove(ranked.student.getId());
+        school.remove(ranked);
+        Ranking major = ranked.student.getMajor() != null ? byMajor.get(ranked.student.getMajor()) : null;
+        if (major != null) {
+            major.remove(ranked);
+            if (major.counts.total() == 0) {
+                byMajor.remove(ranked.student.getMajor());
+            }
+        }
+    }
+
+    /**
+     * Counts per score bucket, with the students of each bucket in name order.
+     * Package-private for tests.
+     */
+    static final class Ranking {
+        final FenwickTree counts = new FenwickTree(BUCKETS);
+        final Map<Integer, TreeSet<Ranked>> students = new HashMap<>();
+
+        void add(Ranked ranked) {
+            students.computeIfAbsent(ranked.bucket, bucket -> new TreeSet<>(TIE_ORDER)).add(ranked);
+            counts.add(ranked.bucket, 1);
+        }
+
+        void remove(Ranked ranked) {
+            TreeSet<Ranked> bucket = students.get(ranked.bucket);
+            if (bucket != null && bucket.remove(ranked)) {
+                counts.add(ranked.bucket, -1);
+                if (bucket.isEmpty()) {
+                    students.remove(ranked.bucket);
+                }
+            }
+        }
+
+        /**
+         * Competition rank: one more than the number of students in higher buckets
+         */
+        int rank(int bucket) {
+            return (int) (counts.total() - counts.prefixSum(bucket)) + 1;
+        }
+
+        /**
+         * Percentage of ranked students in lower buckets
+         */
+        double percentile(int bucket) {
+            long total = counts.total();
+            return total == 0 ? 0.0 : 100.0 * counts.prefixSum(bucket - 1) / total;
+        }
+
+        List<LeaderboardEntry> top(int k) {
+            List<LeaderboardEntry> entries = new ArrayList<>();
+            for (int bucket = counts.previousNonEmpty(BUCKETS); bucket >= 0; bucket = counts.previousNonEmpty(bucket)) {
+                int rank = entries.size() + 1;
+                if (k > 0 && rank > k) {
+                    break;
+                }
+                double percentile = percentile(bucket);
+                for (Ranked ranked : students.get(bucket)) {
+                    entries.add(ranked.toEntry(rank, percentile));
+                }
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * A student's strategy result as last computed
+     */
+    static final class Ranked {
+        final Student student;
+        final int gradeCount;
+        final double score;
+        final String result;
+        final int bucket;
+
+        Ranked(Student student, int gradeCount, double score, String result) {
+            this.student = student;
+            this.gradeCount = gradeCount;
+            this.score = score;
+            this.result = result;
+            this.bucket = Math.max(0, Math.min(BUCKETS - 1, FixedPoint.toHundredths(score)));
+        }
+
+        LeaderboardEntry toEntry(int rank, double percentile) {
+            LeaderboardEntry entry = new LeaderboardEntry(student, gradeCount, score, result);
+            entry.setRank(rank);
+            entry.setPercentile(percentile);
+            return entry;
+        }
+    }
+}
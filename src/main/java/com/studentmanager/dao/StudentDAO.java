@@ -1,14 +1,19 @@
 package com.studentmanager.dao;
 
 import com.studentmanager.model.Student;
+import com.studentmanager.model.StringDictionary;
 import java.sql.*;
+import java.text.Normalizer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
 
 /**
  * Data Access Object for Student operations
  */
 public class StudentDAO {
+    static final int BATCH_SIZE = 1000;
     
     /**
      * Add a new student to the database
@@ -27,6 +32,7 @@ public class StudentDAO {
             pstmt.setString(4, student.getPhoneNumber());
             pstmt.setString(5, student.getMajor());
             
+            ChangeLogFollower.Position logged = ChangeLogFollower.position(conn);
             int affectedRows = pstmt.executeUpdate();
             
             if (affectedRows > 0) {
@@ -37,15 +43,73 @@ public class StudentDAO {
                         student.setId(rs.getInt(1));
                     }
                 }
+                ChangeLogFollower.ownWrite(conn, logged);
+                DataChanges.studentChanged(student.getId(), null, student);
                 return true;
             }
         } catch (SQLException e) {
             System.err.println("Error adding student: " + e.getMessage());
             e.printStackTrace();
+            DatabaseConnection.countError();
         }
         return false;
     }
     
+    /**
+     * Add many students in one transaction. Students whose student ID
+     * already exists are skipped.
+     * @param students Students to add
+     * @return Number of students inserted, or -1 if the batch failed and was rolled back
+     */
+    public int addStudents(List<Student> students) {
+        String sql = "INSERT OR IGNORE INTO students (student_id, full_name, email, phone_number, major) VALUES (?, ?, ?, ?, ?)";
+        int inserted = 0;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            ChangeLogFollower.Position logged = ChangeLogFollower.position(conn);
+            conn.setAutoCommit(false);
+            for (int i = 0; i < students.size(); i++) {
+                Student student = students.get(i);
+                pstmt.setString(1, student.getStudentId());
+                pstmt.setString(2, student.getFullName());
+                pstmt.setString(3, student.getEmail());
+                pstmt.setString(4, student.getPhoneNumber());
+                pstmt.setString(5, student.getMajor());
+                pstmt.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0 || i == students.size() - 1) {
+                    inserted += countInserted(pstmt.executeBatch());
+                }
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+            ChangeLogFollower.ownWrite(conn, logged);
+            if (inserted > 0) {
+                DataChanges.studentsAdded();
+            }
+            return inserted;
+        } catch (SQLException e) {
+            System.err.println("Error adding students: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+            return -1;
+        }
+    }
+
+    /**
+     * Count rows affected by a batch (ignored rows report 0)
+     */
+    static int countInserted(int[] results) {
+        int inserted = 0;
+        for (int result : results) {
+            if (result > 0 || result == Statement.SUCCESS_NO_INFO) {
+                inserted++;
+            }
+        }
+        return inserted;
+    }
+    
     /**
      * Get student by student ID
      * @param studentId Student ID
@@ -66,6 +130,7 @@ public class StudentDAO {
         } catch (SQLException e) {
             System.err.println("Error getting student: " + e.getMessage());
             e.printStackTrace();
+            DatabaseConnection.countError();
         }
         return null;
     }
@@ -90,6 +155,7 @@ public class StudentDAO {
         } catch (SQLException e) {
             System.err.println("Error getting student: " + e.getMessage());
             e.printStackTrace();
+            DatabaseConnection.countError();
         }
         return null;
     }
@@ -112,6 +178,124 @@ public class StudentDAO {
         } catch (SQLException e) {
             System.err.println("Error getting all students: " + e.getMessage());
             e.printStackTrace();
+            DatabaseConnection.countError();
+        }
+        return students;
+    }
+    
+    /**
+     * Stream all students ordered by name without building a list
+     * @param consumer Receives each student as its row is read
+     * @return Number of students read, or -1 if the query failed part way
+     */
+    public int forEachStudent(Consumer<Student> consumer) {
+        String sql = "SELECT * FROM students ORDER BY full_name";
+        int count = 0;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                consumer.accept(createStudentFromResultSet(rs));
+                count++;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error streaming students: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+            return -1;
+        }
+        return count;
+    }
+
+    /**
+     * Stream all students ordered by name together with their number of grades.
+     * Grades are counted in SQL, so neither students nor grades are held in memory.
+     * @param consumer Receives each student and its grade count
+     * @return Number of students read, or -1 if the query failed part way
+     */
+    public int forEachStudentWithGradeCount(ObjIntConsumer<Student> consumer) {
+        GradeDAO.flushWrites();
+        String sql = "SELECT s.*, (SELECT COUNT(*) FROM grades g WHERE g.student_id = s.id) AS grade_count " +
+                     "FROM students s ORDER BY s.full_name";
+        int count = 0;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                consumer.accept(createStudentFromResultSet(rs), rs.getInt("grade_count"));
+                count++;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error streaming students: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+            return -1;
+        }
+        return count;
+    }
+
+    /**
+     * Start a query over students with any combination of major, grade
+     * criteria and classification, run in SQL
+     * @return New query matching every student until criteria are set
+     */
+    public StudentQuery query() {
+        return new StudentQuery(this);
+    }
+
+    /**
+     * Count all students
+     * @return Number of students
+     */
+    public int countStudents() {
+        String sql = "SELECT COUNT(*) FROM students";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error counting students: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+        }
+        return 0;
+    }
+
+    /**
+     * Get one page of students in a major, ordered by name
+     * @param major Major to filter by, or null for all majors
+     * @param offset Number of rows to skip
+     * @param limit Maximum number of rows to return
+     * @return Page of students
+     */
+    public List<Student> getStudentsByMajor(String major, int offset, int limit) {
+        List<Student> students = new ArrayList<>();
+        String sql = "SELECT * FROM students WHERE (? IS NULL OR major = ?) ORDER BY full_name LIMIT ? OFFSET ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, major);
+            pstmt.setString(2, major);
+            pstmt.setInt(3, limit);
+            pstmt.setInt(4, offset);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                students.add(createStudentFromResultSet(rs));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting students by major: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
         }
         return students;
     }
@@ -123,6 +307,7 @@ public class StudentDAO {
      */
     public boolean updateStudent(Student student) {
         String sql = "UPDATE students SET student_id = ?, full_name = ?, email = ?, phone_number = ?, major = ? WHERE id = ?";
+        Student previous = getStudentById(student.getId());
         
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -134,30 +319,54 @@ public class StudentDAO {
             pstmt.setString(5, student.getMajor());
             pstmt.setInt(6, student.getId());
             
-            return pstmt.executeUpdate() > 0;
+            ChangeLogFollower.Position logged = ChangeLogFollower.position(conn);
+            if (pstmt.executeUpdate() > 0) {
+                ChangeLogFollower.ownWrite(conn, logged);
+                DataChanges.studentChanged(student.getId(), previous, student);
+                return true;
+            }
         } catch (SQLException e) {
             System.err.println("Error updating student: " + e.getMessage());
             e.printStackTrace();
+            DatabaseConnection.countError();
         }
         return false;
     }
     
     /**
-     * Delete student by ID
+     * Delete student by ID, together with their grades
      * @param id Student ID to delete
      * @return true if successful, false otherwise
      */
     public boolean deleteStudent(int id) {
+        String deleteGrades = "DELETE FROM grades WHERE student_id = ?";
         String sql = "DELETE FROM students WHERE id = ?";
+        Student previous = getStudentById(id);
+        // Buffered writes to the student's grades would otherwise be read back after they are gone
+        GradeDAO.flushWrites();
         
         try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement gradesStmt = conn.prepareStatement(deleteGrades);
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
+            ChangeLogFollower.Position logged = ChangeLogFollower.position(conn);
+            conn.setAutoCommit(false);
+            // ON DELETE CASCADE does the same, but only on connections with foreign keys on
+            gradesStmt.setInt(1, id);
+            gradesStmt.executeUpdate();
             pstmt.setInt(1, id);
-            return pstmt.executeUpdate() > 0;
+            boolean deleted = pstmt.executeUpdate() > 0;
+            conn.commit();
+            conn.setAutoCommit(true);
+            ChangeLogFollower.ownWrite(conn, logged);
+            if (deleted) {
+                DataChanges.studentChanged(id, previous, null);
+                return true;
+            }
         } catch (SQLException e) {
             System.err.println("Error deleting student: " + e.getMessage());
             e.printStackTrace();
+            DatabaseConnection.countError();
         }
         return false;
     }
@@ -183,24 +392,126 @@ public class StudentDAO {
         } catch (SQLException e) {
             System.err.println("Error searching students: " + e.getMessage());
             e.printStackTrace();
+            DatabaseConnection.countError();
         }
         return students;
     }
-    
+
+    /**
+     * Search students using the FTS5 index, ranked by relevance.
+     * Matches name, student ID, email and major; accents are ignored, so
+     * "nguyen van duc" finds "Nguyễn Văn Đức". Every word is a prefix match.
+     * Falls back to a LIKE scan on name when the index is unavailable.
+     * @param query Search terms
+     * @param offset Number of ranked results to skip
+     * @param limit Maximum number of results to return
+     * @return Page of matching students, best match first
+     */
+    public List<Student> searchStudentsByName(String query, int offset, int limit) {
+        List<Student> students = new ArrayList<>();
+        String matchExpression = buildMatchExpression(query);
+        if (matchExpression.isEmpty()) {
+            return students;
+        }
+
+        // Column weights: full_name, student_id, email, major
+        String sql = "SELECT s.* FROM students_fts f JOIN students s ON s.id = f.rowid " +
+                     "WHERE students_fts MATCH ? " +
+                     "ORDER BY bm25(students_fts, 10.0, 5.0, 1.0, 2.0), s.full_name " +
+                     "LIMIT ? OFFSET ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, matchExpression);
+            pstmt.setInt(2, limit);
+            pstmt.setInt(3, offset);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                students.add(createStudentFromResultSet(rs));
+            }
+            return students;
+        } catch (SQLException e) {
+            System.err.println("Full-text search failed, using LIKE scan: " + e.getMessage());
+        }
+        return searchStudentsByNameLike(query, offset, limit);
+    }
+
+    /**
+     * Paginated LIKE search used when the FTS5 index cannot be queried
+     */
+    private List<Student> searchStudentsByNameLike(String name, int offset, int limit) {
+        List<Student> students = new ArrayList<>();
+        String sql = "SELECT * FROM students WHERE full_name LIKE ? ORDER BY full_name LIMIT ? OFFSET ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, "%" + name + "%");
+            pstmt.setInt(2, limit);
+            pstmt.setInt(3, offset);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                students.add(createStudentFromResultSet(rs));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error searching students: " + e.getMessage());
+            e.printStackTrace();
+            DatabaseConnection.countError();
+        }
+        return students;
+    }
+
+    /**
+     * Turn free text into an FTS5 MATCH expression of quoted prefix terms
+     * @param query Raw user input
+     * @return MATCH expression, empty if the input has no searchable words
+     */
+    private static String buildMatchExpression(String query) {
+        if (query == null) {
+            return "";
+        }
+        StringBuilder expression = new StringBuilder();
+        for (String term : foldDiacritics(query).split("[^\\p{L}\\p{Nd}@._-]+")) {
+            if (term.isEmpty()) {
+                continue;
+            }
+            if (expression.length() > 0) {
+                expression.append(' ');
+            }
+            expression.append('"').append(term.replace("\"", "\"\"")).append("\"*");
+        }
+        return expression.toString();
+    }
+
+    /**
+     * Strip Vietnamese diacritics the same way the index does
+     * @param text Text to fold
+     * @return Text without tone marks, with 'đ' folded to 'd'
+     */
+    static String foldDiacritics(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return decomposed.replaceAll("\\p{M}+", "")
+                         .replace('đ', 'd')
+                         .replace('Đ', 'D');
+    }
+
     /**
      * Create Student object from ResultSet
      * @param rs ResultSet from database query
      * @return Student object
      * @throws SQLException
      */
-    private Student createStudentFromResultSet(ResultSet rs) throws SQLException {
+    Student createStudentFromResultSet(ResultSet rs) throws SQLException {
         return new Student(
             rs.getInt("id"),
             rs.getString("student_id"),
             rs.getString("full_name"),
             rs.getString("email"),
             rs.getString("phone_number"),
-            rs.getString("major")
+            StringDictionary.MAJORS.intern(rs.getString("major"))
         );
     }
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.studentmanager.dao;
+
+import com.studentmanager.model.Student;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Query over students, e.g.
+ * <pre>
+ *   studentDAO.query().major("CNTT").semester("HK1").year(2024)
+ *             .classification(CohortIndex.Band.EXCELLENT).list();
+ * </pre>
+ * Grade criteria keep the students with at least one grade matching all of
+ * them; the classification keeps the students whose average is in the band.
+ */
+public final class StudentQuery extends CriteriaQuery<Student, StudentQuery> {
+    /** Result orders */
+    public enum Order {
+        /** By name, like {@link StudentDAO#getAllStudents()} */
+        NAME("s.full_name, s.id"),
+        /** By student code */
+        STUDENT_ID("s.student_id");
+
+        private final String sql;
+
+        Order(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    private final StudentDAO studentDAO;
+    private Order order = Order.NAME;
+
+    StudentQuery(StudentDAO studentDAO) {
+        this.studentDAO = studentDAO;
+    }
+
+    public StudentQuery orderBy(Order order) {
+        this.order = order;
+        return this;
+    }
+
+    @Override
+    StudentQuery self() {
+        return this;
+    }
+
+    @Override
+    String toSql(List<Object> params) {
+        StringBuilder sql = new StringBuilder("SELECT s.* FROM students s WHERE 1 = 1");
+        if (major != null) {
+            sql.append(" AND s.major = ?");
+            params.add(major);
+        }
+        if (hasGradeCriteria()) {
+            // IN rather than EXISTS, so the grade criteria can drive a composite index
+            sql.append(" AND s.id IN (SELECT g.student_id FROM grades g WHERE 1 = 1");
+            appendGradeCriteria(sql, params, "g.");
+            sql.append(")");
+        }
+        appendClassification(sql, params, "s.id");
+        sql.append(" ORDER BY ").append(order.sql);
+        appendPage(sql, params);
+        return sql.toString();
+    }
+
+    @Override
+    Student map(ResultSet rs) throws SQLException {
+        return studentDAO.createStudentFromResultSet(rs);
+    }
+}
@@ -0,0 +1,240 @@
+package com.studentmanager.dao;
+
+import com.studentmanager.model.GradeSlice;
+import com.studentmanager.model.SemesterTrend;
+import com.studentmanager.strategy.GPACalculationStrategy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Per-semester and cumulative averages and GPA of students and cohorts,
+ * kept between calls. A trend is built from one query that returns the
+ * grades grouped by semester and score in chronological order, so all
+ * semesters and running sums come out of a single pass. The sums of each
+ * semester are kept; when {@link DataVersion} reports that grades of some
+ * semesters changed, only those semesters are read again and the running
+ * sums are recomputed from the kept ones. Writes of other processes are
+ * read from the change log first, by {@link ChangeLogFollower}.
+ *
+ * Queries run without holding the cache's lock, so a slow trend does not
+ * block the others; threads asking for the same trend wait for one load.
+ */
+public class TrendCache {
+    // Least recently used trends beyond this many are dropped
+    private static final int MAX_TRENDS = 256;
+    // Above this many changed semesters one query for all of them is cheaper
+    private static final int MAX_TERM_QUERIES = 16;
+
+    private static final Comparator<GradeSlice> TERM_ORDER = Comparator.comparingInt(GradeSlice::getYear)
+            .thenComparing(GradeSlice::getValue, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final GradeDAO gradeDAO;
+    // Guarded by itself; held only to look up and swap entries, never while querying
+    private final Map<String, CompletableFuture<Series>> trends = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<Series>> eldest) {
+            return size() > MAX_TRENDS;
+        }
+    };
+
+    public TrendCache(GradeDAO gradeDAO) {
+        this.gradeDAO = gradeDAO;
+    }
+
+    /**
+     * Get the trend of one student
+     * @param studentId Student database ID
+     * @return Trend, empty if the student has no grades
+     */
+    public SemesterTrend getStudentTrend(int studentId) {
+        return get("student:" + studentId, studentId, null);
+    }
+
+    /**
+     * Get the trend of all grades of a major, or of the whole school
+     * @param major Major, or null for every student
+     * @return Trend, empty if there are no grades
+     */
+    public SemesterTrend getCohortTrend(String major) {
+        return get(major != null ? "major:" + major : "all", null, major);
+    }
+
+    /**
+     * Return the kept trend if nothing changed since it was read, wait for a
+     * load another thread has started, or load it here. Only one thread loads
+     * a key at a time; other keys are served meanwhile.
+     */
+    private SemesterTrend get(String key, Integer studentId, String major) {
+        ChangeLogFollower.catchUp();
+        while (true) {
+            // Read the version first: a semester written during the query is read again next time
+            long version = DataVersion.current();
+            CompletableFuture<Series> kept;
+            CompletableFuture<Series> loading = null;
+            synchronized (trends) {
+                kept = trends.get(key);
+                Series series = kept != null && kept.isDone() ? kept.join() : null;
+                if (kept == null || (kept.isDone() && (series == null || !isFresh(series, major)))) {
+                    loading = new CompletableFuture<>();
+                    trends.put(key, loading);
+                }
+            }
+
+            if (loading == null) {
+                Series series = kept.join();
+                if (series != null && isFresh(series, major)) {
+                    return series.toTrend();
+                }
+                // Failed, or written to since that load read the version
+                continue;
+            }
+
+            Series base = kept != null ? kept.join() : null;
+            Series series = null;
+            try {
+                series = refresh(base, version, studentId, major);
+            } finally {
+                if (series == null) {
+                    synchronized (trends) {
+                        trends.remove(key, loading);
+                    }
+                }
+                loading.complete(series);
+            }
+            return series != null ? series.toTrend() : new SemesterTrend(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Start the trend of a major, or of the whole school, from grades summed
+     * elsewhere, e.g. from a grade snapshot, instead of querying it on first use
+     * @param major Major, or null for every student
+     * @param version {@link DataVersion#current()} read before the grades were
+     *                taken; semesters written since are read again on the next call
+     * @param termScores Feeds the sums per semester and score, as
+     *                   {@link GradeDAO#forEachTermScore} returns them
+     */
+    public void seedCohortTrend(String major, long version, Consumer<GradeDAO.TermScoreConsumer> termScores) {
+        Series series = new Series(version);
+        termScores.accept(collector(series));
+        String key = major != null ? "major:" + major : "all";
+        synchronized (trends) {
+            // A trend already kept was read from the database, at least as recently
+            trends.putIfAbsent(key, CompletableFuture.completedFuture(series));
+        }
+    }
+
+    private static boolean isFresh(Series series, String major) {
+        Set<GradeSlice> changed = changedTerms(series, major);
+        return changed != null && changed.isEmpty();
+    }
+
+    /**
+     * @return Semesters written since the series was read, or null if it must be read again in full
+     */
+    private static Set<GradeSlice> changedTerms(Series series, String major) {
+        Set<GradeSlice> changed = DataVersion.changedSince(GradeSlice.Dimension.SEMESTER, series.version);
+        if (changed != null && major != null) {
+            // A student may have moved in or out of the major with all their semesters
+            Set<GradeSlice> majors = DataVersion.changedSince(GradeSlice.Dimension.MAJOR, series.version);
+            if (majors == null || majors.contains(GradeSlice.major(major))) {
+                return null;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Build a new series from a kept one, reading only the semesters changed
+     * since; the kept one is left as it is, as other threads may be reading it
+     * @return New series, or null if the query failed
+     */
+    private Series refresh(Series base, long version, Integer studentId, String major) {
+        Set<GradeSlice> changed = base != null ? changedTerms(base, major) : null;
+        Series series = new Series(version);
+        if (changed == null || changed.size() > MAX_TERM_QUERIES) {
+            return load(series, studentId, major, null) < 0 ? null : series;
+        }
+        series.terms.putAll(base.terms);
+        if (!changed.isEmpty()) {
+            // Semesters read again get new sums; the others are shared with the kept series
+            series.terms.keySet().removeAll(changed);
+            if (load(series, studentId, major, changed) < 0) {
+                return null;
+            }
+        }
+        return series;
+    }
+
+    private int load(Series series, Integer studentId, String major, Set<GradeSlice> terms) {
+        return gradeDAO.forEachTermScore(studentId, major, terms, collector(series));
+    }
+
+    private static GradeDAO.TermScoreConsumer collector(Series series) {
+        TermSums[] current = {null};
+        GradeSlice[] currentTerm = {null};
+        return (semester, year, score, coefficientSum, count) -> {
+            // Rows arrive grouped by semester, so only a change of semester needs a lookup
+            if (current[0] == null || currentTerm[0].getYear() != year || !currentTerm[0].getValue().equals(semester)) {
+                currentTerm[0] = GradeSlice.semester(semester, year);
+                current[0] = series.terms.computeIfAbsent(currentTerm[0], term -> new TermSums());
+            }
+            current[0].add(score, coefficientSum, count);
+        };
+    }
+
+    /**
+     * Sums of the grades of one semester
+     */
+    private static final class TermSums {
+        int gradeCount;
+        long weightedScoreSum;
+        long coefficientSum;
+        long gradePointSum;
+
+        void add(int scoreHundredths, long coefficientSum, int count) {
+            this.gradeCount += count;
+            this.weightedScoreSum += scoreHundredths * coefficientSum;
+            this.coefficientSum += coefficientSum;
+            this.gradePointSum += GPACalculationStrategy.convertToGradePoint(scoreHundredths) * coefficientSum;
+        }
+    }
+
+    /**
+     * Sums per semester as of one data version; not changed once published
+     */
+    private static final class Series {
+        final TreeMap<GradeSlice, TermSums> terms = new TreeMap<>(TERM_ORDER);
+        final long version;
+
+        Series(long version) {
+            this.version = version;
+        }
+
+        SemesterTrend toTrend() {
+            List<SemesterTrend.Point> points = new ArrayList<>(terms.size());
+            int gradeCount = 0;
+            long weightedScoreSum = 0;
+            long coefficientSum = 0;
+            long gradePointSum = 0;
+            for (Map.Entry<GradeSlice, TermSums> entry : terms.entrySet()) {
+                TermSums term = entry.getValue();
+                gradeCount += term.gradeCount;
+                weightedScoreSum += term.weightedScoreSum;
+                coefficientSum += term.coefficientSum;
+                gradePointSum += term.gradePointSum;
+                points.add(new SemesterTrend.Point(entry.getKey().getValue(), entry.getKey().getYear(),
+                        term.gradeCount, term.weightedScoreSum, term.coefficientSum, term.gradePointSum,
+                        gradeCount, weightedScoreSum, coefficientSum, gradePointSum));
+            }
+            return new SemesterTrend(points);
+        }
+    }
+}
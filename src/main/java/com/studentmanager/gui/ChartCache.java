@@ -0,0 +1,108 @@
+package com.studentmanager.gui;
+
+import com.studentmanager.controller.StudentController;
+import com.studentmanager.dao.DataVersion;
+import com.studentmanager.model.GradeSlice;
+import javax.swing.SwingUtilities;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Cache of rendered histogram images, one per grade slice. Each image is
+ * tagged with the slice's {@link DataVersion} at the time its data was read,
+ * so it is re-rendered only after grades in that slice change. Querying and
+ * drawing happen on a background thread; callbacks run on the EDT.
+ */
+public class ChartCache {
+    public static final int CHART_WIDTH = 760;
+    public static final int CHART_HEIGHT = 380;
+
+    private static class CachedChart {
+        final long version;
+        final BufferedImage image;
+
+        CachedChart(long version, BufferedImage image) {
+            this.version = version;
+            this.image = image;
+        }
+    }
+
+    private final StudentController controller;
+    private final Map<String, CachedChart> charts = new ConcurrentHashMap<>();
+    private final ExecutorService renderer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "chart-renderer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ChartCache(StudentController controller) {
+        this.controller = controller;
+    }
+
+    /**
+     * Get a chart without any I/O or drawing
+     * @param slice Slice to look up
+     * @return Up-to-date image, or null if missing or stale
+     */
+    public BufferedImage getIfFresh(GradeSlice slice) {
+        CachedChart cached = charts.get(slice.getKey());
+        if (cached != null && cached.version == DataVersion.of(slice)) {
+            return cached.image;
+        }
+        return null;
+    }
+
+    /**
+     * Get a chart, rendering it in the background if needed
+     * @param slice Slice to draw
+     * @param onReady Receives the image on the EDT
+     */
+    public void request(GradeSlice slice, Consumer<BufferedImage> onReady) {
+        BufferedImage fresh = getIfFresh(slice);
+        if (fresh != null) {
+            onReady.accept(fresh);
+            return;
+        }
+        renderer.submit(() -> {
+            // Read the version first so a write during rendering leaves the entry stale
+            long version = DataVersion.of(slice);
+            BufferedImage image = draw(slice, controller.getScoreHistogram(slice));
+            charts.put(slice.getKey(), new CachedChart(version, image));
+            SwingUtilities.invokeLater(() -> onReady.accept(image));
+        });
+    }
+
+    /**
+     * Load every slice of a dimension with one aggregate query and render the
+     * stale ones in the background, so switching between them is instant
+     * @param dimension Dimension to prepare
+     * @param onSlices Receives the list of slices on the EDT, before drawing finishes
+     */
+    public void prefetch(GradeSlice.Dimension dimension, Consumer<List<GradeSlice>> onSlices) {
+        renderer.submit(() -> {
+            long versionBeforeQuery = DataVersion.current();
+            Map<GradeSlice, int[]> histograms = controller.getScoreHistograms(dimension);
+            List<GradeSlice> slices = new ArrayList<>(histograms.keySet());
+            SwingUtilities.invokeLater(() -> onSlices.accept(slices));
+
+            for (GradeSlice slice : slices) {
+                long version = DataVersion.of(slice);
+                // Skip slices written to while the query ran; request() will redraw them
+                if (version <= versionBeforeQuery && getIfFresh(slice) == null) {
+                    charts.put(slice.getKey(), new CachedChart(version, draw(slice, histograms.get(slice))));
+                }
+            }
+        });
+    }
+
+    private static BufferedImage draw(GradeSlice slice, int[] bands) {
+        String title = slice.getDimension().getDisplayName() + ": " + slice.getLabel();
+        return GradeHistogramRenderer.render(title, bands, CHART_WIDTH, CHART_HEIGHT);
+    }
+}
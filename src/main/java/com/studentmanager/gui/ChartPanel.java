@@ -0,0 +1,47 @@
+package com.studentmanager.gui;
+
+import javax.swing.JComponent;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Displays a pre-rendered chart image, centered. Painting only blits the image.
+ */
+public class ChartPanel extends JComponent {
+    private static final long serialVersionUID = 1L;
+
+    private BufferedImage image;
+    private String message = "Chọn một nhóm để xem biểu đồ";
+
+    public ChartPanel() {
+        setPreferredSize(new Dimension(ChartCache.CHART_WIDTH, ChartCache.CHART_HEIGHT));
+    }
+
+    public void setImage(BufferedImage image) {
+        this.image = image;
+        repaint();
+    }
+
+    /**
+     * Show a text message instead of a chart
+     */
+    public void setMessage(String message) {
+        this.image = null;
+        this.message = message;
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, getWidth(), getHeight());
+        if (image != null) {
+            g.drawImage(image, Math.max(0, (getWidth() - image.getWidth()) / 2),
+                        Math.max(0, (getHeight() - image.getHeight()) / 2), null);
+        } else if (message != null) {
+            g.setColor(Color.GRAY);
+            FontMetrics metrics = g.getFontMetrics();
+            g.drawString(message, (getWidth() - metrics.stringWidth(message)) / 2, getHeight() / 2);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.studentmanager.gui;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws score distribution histograms into images with Java2D.
+ * Safe to call from any thread; it never touches Swing components.
+ */
+public class GradeHistogramRenderer {
+    private static final Color BACKGROUND = Color.WHITE;
+    private static final Color AXIS = new Color(80, 80, 80);
+    private static final Color GRID = new Color(225, 225, 225);
+    private static final Color FAIL = new Color(214, 69, 65);       // 0 - 3.9
+    private static final Color PASS = new Color(240, 173, 78);      // 4.0 - 6.9
+    private static final Color GOOD = new Color(92, 184, 92);       // 7.0 - 8.9
+    private static final Color EXCELLENT = new Color(51, 122, 183); // 9.0 - 10
+
+    private GradeHistogramRenderer() {}
+
+    /**
+     * Render a histogram of ten one-point score bands
+     * @param title Chart title
+     * @param bands Grade count per band, index i covers scores [i, i+1)
+     * @param width Image width in pixels
+     * @param height Image height in pixels
+     * @return Rendered chart
+     */
+    public static BufferedImage render(String title, int[] bands, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setColor(BACKGROUND);
+            g.fillRect(0, 0, width, height);
+
+            int total = 0;
+            int max = 0;
+            for (int count : bands) {
+                total += count;
+                max = Math.max(max, count);
+            }
+
+            int left = 60, right = 20, top = 50, bottom = 45;
+            int plotWidth = width - left - right;
+            int plotHeight = height - top - bottom;
+
+            // Title
+            g.setColor(AXIS);
+            g.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 15));
+            g.drawString(title + " (" + total + " điểm)", left, 28);
+
+            // Horizontal grid lines with count labels
+            g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 11));
+            FontMetrics metrics = g.getFontMetrics();
+            int gridLines = 5;
+            for (int i = 0; i <= gridLines; i++) {
+                int y = top + plotHeight - plotHeight * i / gridLines;
+                g.setColor(GRID);
+                g.drawLine(left, y, left + plotWidth, y);
+                String label = String.valueOf((long) max * i / gridLines);
+                g.setColor(AXIS);
+                g.drawString(label, left - 8 - metrics.stringWidth(label), y + metrics.getAscent() / 2);
+            }
+
+            // Bars
+            int slot = plotWidth / bands.length;
+            int barWidth = Math.max(1, slot * 3 / 4);
+            for (int i = 0; i < bands.length; i++) {
+                int barHeight = max == 0 ? 0 : (int) ((long) plotHeight * bands[i] / max);
+                int x = left + i * slot + (slot - barWidth) / 2;
+                int y = top + plotHeight - barHeight;
+                g.setColor(bandColor(i));
+                g.fillRect(x, y, barWidth, barHeight);
+
+                g.setColor(AXIS);
+                if (bands[i] > 0) {
+                    String count = String.valueOf(bands[i]);
+                    g.drawString(count, x + (barWidth - metrics.stringWidth(count)) / 2, y - 4);
+                }
+                String label = i + "-" + (i + 1);
+                g.drawString(label, x + (barWidth - metrics.stringWidth(label)) / 2,
+                             top + plotHeight + metrics.getHeight() + 2);
+            }
+
+            // Axes
+            g.setColor(AXIS);
+            g.drawLine(left, top, left, top + plotHeight);
+            g.drawLine(left, top + plotHeight, left + plotWidth, top + plotHeight);
+            g.drawString("Điểm", left + plotWidth / 2 - 12, height - 8);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    private static Color bandColor(int band) {
+        if (band < 4) return FAIL;
+        if (band < 7) return PASS;
+        if (band < 9) return GOOD;
+        return EXCELLENT;
+    }
+}
@@ -0,0 +1,193 @@
+package com.studentmanager.gui;
+
+import com.studentmanager.model.Grade;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Table model for the grades table
+ */
+public class GradeTableModel extends PrimitiveTableModel {
+    private static final long serialVersionUID = 1L;
+
+    public static final int COL_ID = 0;
+    public static final int COL_STUDENT_ID = 1;
+    public static final int COL_SUBJECT = 2;
+    public static final int COL_SCORE = 3;
+    public static final int COL_COEFFICIENT = 4;
+    public static final int COL_SEMESTER = 5;
+    public static final int COL_YEAR = 6;
+
+    private List<Grade> grades = new ArrayList<>();
+    private List<String> studentCodes = new ArrayList<>();
+
+    public GradeTableModel() {
+        super(new String[] {"ID", "Mã SV", "Môn Học", "Điểm", "Hệ Số", "Học Kỳ", "Năm"},
+              new ColumnKind[] {ColumnKind.INT, ColumnKind.STRING, ColumnKind.STRING, ColumnKind.DOUBLE,
+                                ColumnKind.DOUBLE, ColumnKind.STRING, ColumnKind.INT});
+    }
+
+    /**
+     * Replace all rows
+     * @param grades Grades to display
+     * @param studentCodes Student code (Mã SV) for each grade, same order
+     */
+    public void setGrades(List<Grade> grades, List<String> studentCodes) {
+        this.grades = new ArrayList<>(grades);
+        this.studentCodes = new ArrayList<>(studentCodes);
+        fireTableDataChanged();
+    }
+
+    /**
+     * Append rows, e.g. while data is still streaming in
+     * @param more Grades to append
+     * @param moreStudentCodes Student code for each appended grade, same order
+     */
+    public void addGrades(List<Grade> more, List<String> moreStudentCodes) {
+        if (more.isEmpty()) {
+            return;
+        }
+        int first = grades.size();
+        grades.addAll(more);
+        studentCodes.addAll(moreStudentCodes);
+        fireTableRowsInserted(first, grades.size() - 1);
+    }
+
+    /**
+     * Append one grade, e.g. after it was added
+     * @param grade Grade to display
+     * @param studentCode Student code (Mã SV) of the grade
+     */
+    public void addGrade(Grade grade, String studentCode) {
+        grades.add(grade);
+        studentCodes.add(studentCode);
+        fireTableRowsInserted(grades.size() - 1, grades.size() - 1);
+    }
+
+    /**
+     * Replace the row of a grade after it was updated
+     * @param grade Updated grade, matched by database ID
+     * @param studentCode Student code of the grade
+     */
+    public void updateGrade(Grade grade, String studentCode) {
+        int row = indexOfGrade(grade.getId());
+        if (row >= 0) {
+            grades.set(row, grade);
+            studentCodes.set(row, studentCode);
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    /**
+     * Remove the row of a deleted grade
+     * @param id Grade database ID
+     */
+    public void removeGrade(int id) {
+        int row = indexOfGrade(id);
+        if (row >= 0) {
+            grades.remove(row);
+            studentCodes.remove(row);
+            fireTableRowsDeleted(row, row);
+        }
+    }
+
+    /**
+     * Remove the grades of a deleted student
+     * @param studentId Student database ID
+     */
+    public void removeGradesOfStudent(int studentId) {
+        List<Grade> keptGrades = new ArrayList<>(grades.size());
+        List<String> keptCodes = new ArrayList<>(grades.size());
+        for (int row = 0; row < grades.size(); row++) {
+            if (grades.get(row).getStudentId() != studentId) {
+                keptGrades.add(grades.get(row));
+                keptCodes.add(studentCodes.get(row));
+            }
+        }
+        if (keptGrades.size() < grades.size()) {
+            grades = keptGrades;
+            studentCodes = keptCodes;
+            fireTableDataChanged();
+        }
+    }
+
+    /**
+     * Show a new student code on every grade of a student
+     * @param studentId Student database ID
+     * @param studentCode New student code
+     */
+    public void setStudentCode(int studentId, String studentCode) {
+        int first = -1;
+        int last = -1;
+        for (int row = 0; row < grades.size(); row++) {
+            if (grades.get(row).getStudentId() == studentId) {
+                studentCodes.set(row, studentCode);
+                first = first < 0 ? row : first;
+                last = row;
+            }
+        }
+        if (first >= 0) {
+            fireTableRowsUpdated(first, last);
+        }
+    }
+
+    private int indexOfGrade(int id) {
+        for (int row = 0; row < grades.size(); row++) {
+            if (grades.get(row).getId() == id) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    public Grade getGradeAt(int row) {
+        return grades.get(row);
+    }
+
+    public String getStudentCodeAt(int row) {
+        return studentCodes.get(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return grades.size();
+    }
+
+    @Override
+    public int getIntAt(int row, int column) {
+        Grade grade = grades.get(row);
+        if (column == COL_ID) {
+            return grade.getId();
+        }
+        if (column == COL_YEAR) {
+            return grade.getYear();
+        }
+        throw new IllegalArgumentException("Not an int column: " + column);
+    }
+
+    @Override
+    public double getDoubleAt(int row, int column) {
+        Grade grade = grades.get(row);
+        if (column == COL_SCORE) {
+            return grade.getScore();
+        }
+        if (column == COL_COEFFICIENT) {
+            return grade.getCoefficient();
+        }
+        throw new IllegalArgumentException("Not a double column: " + column);
+    }
+
+    @Override
+    public String getStringAt(int row, int column) {
+        switch (column) {
+            case COL_STUDENT_ID:
+                return studentCodes.get(row);
+            case COL_SUBJECT:
+                return grades.get(row).getSubject();
+            case COL_SEMESTER:
+                return grades.get(row).getSemester();
+            default:
+                throw new IllegalArgumentException("Not a string column: " + column);
+        }
+    }
+}
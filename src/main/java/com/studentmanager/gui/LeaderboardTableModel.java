@@ -0,0 +1,89 @@
+package com.studentmanager.gui;
+
+import com.studentmanager.model.LeaderboardEntry;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Table model for the strategy leaderboard
+ */
+public class LeaderboardTableModel extends PrimitiveTableModel {
+    private static final long serialVersionUID = 1L;
+
+    public static final int COL_RANK = 0;
+    public static final int COL_STUDENT_ID = 1;
+    public static final int COL_FULL_NAME = 2;
+    public static final int COL_MAJOR = 3;
+    public static final int COL_GRADE_COUNT = 4;
+    public static final int COL_SCORE = 5;
+    public static final int COL_RESULT = 6;
+    public static final int COL_PERCENTILE = 7;
+
+    private List<LeaderboardEntry> entries = new ArrayList<>();
+
+    public LeaderboardTableModel() {
+        super(new String[] {"Hạng", "Mã SV", "Họ Tên", "Ngành", "Số Môn", "Điểm Xếp Hạng", "Kết Quả", "Phân Vị (%)"},
+              new ColumnKind[] {ColumnKind.INT, ColumnKind.STRING, ColumnKind.STRING, ColumnKind.STRING,
+                                ColumnKind.INT, ColumnKind.DOUBLE, ColumnKind.STRING, ColumnKind.DOUBLE});
+    }
+
+    /**
+     * Replace all rows
+     * @param entries Ranked entries to display
+     */
+    public void setEntries(List<LeaderboardEntry> entries) {
+        this.entries = new ArrayList<>(entries);
+        fireTableDataChanged();
+    }
+
+    public LeaderboardEntry getEntryAt(int row) {
+        return entries.get(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return entries.size();
+    }
+
+    @Override
+    public int getIntAt(int row, int column) {
+        LeaderboardEntry entry = entries.get(row);
+        if (column == COL_RANK) {
+            return entry.getRank();
+        }
+        if (column == COL_GRADE_COUNT) {
+            return entry.getGradeCount();
+        }
+        throw new IllegalArgumentException("Not an int column: " + column);
+    }
+
+    @Override
+    public double getDoubleAt(int row, int column) {
+        LeaderboardEntry entry = entries.get(row);
+        if (column == COL_SCORE) {
+            // Rounded for display; ranking already used the exact value
+            return Math.round(entry.getScore() * 100) / 100.0;
+        }
+        if (column == COL_PERCENTILE) {
+            return Math.round(entry.getPercentile() * 10) / 10.0;
+        }
+        throw new IllegalArgumentException("Not a double column: " + column);
+    }
+
+    @Override
+    public String getStringAt(int row, int column) {
+        LeaderboardEntry entry = entries.get(row);
+        switch (column) {
+            case COL_STUDENT_ID:
+                return entry.getStudent().getStudentId();
+            case COL_FULL_NAME:
+                return entry.getStudent().getFullName();
+            case COL_MAJOR:
+                return entry.getStudent().getMajor();
+            case COL_RESULT:
+                return entry.getResult();
+            default:
+                throw new IllegalArgumentException("Not a string column: " + column);
+        }
+    }
+}
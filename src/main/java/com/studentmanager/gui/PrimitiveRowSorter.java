@@ -0,0 +1,448 @@
+package com.studentmanager.gui;
+
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * RowSorter for {@link PrimitiveTableModel}. Sort columns are extracted once
+ * into int[]/double[] arrays (text columns as Vietnamese collation ranks) and row
+ * indexes are merge sorted against them, so values are compared as primitives
+ * rather than boxed Objects. Supports multi-column sort keys and a row filter.
+ */
+public class PrimitiveRowSorter extends RowSorter<PrimitiveTableModel> {
+    private static final int MAX_SORT_KEYS = 3;
+
+    private final PrimitiveTableModel model;
+    private List<SortKey> sortKeys = Collections.emptyList();
+    private IntPredicate rowFilter;
+    // While set, appended rows are shown unsorted until endBulkInsert sorts once
+    private boolean bulkInsert;
+    private boolean unsortedRows;
+    // Collation keys survive re-sorts until the model data is replaced
+    private final Map<String, String> collationKeyCache = new HashMap<>();
+
+    // null when the view is the model in natural order
+    private int[] viewToModel;
+    private int[] modelToView;
+
+    /**
+     * Compares two model rows
+     */
+    private interface RowComparator {
+        int compare(int row1, int row2);
+    }
+
+    public PrimitiveRowSorter(PrimitiveTableModel model) {
+        this.model = model;
+    }
+
+    /**
+     * Set the row filter, evaluated against model row indexes
+     * @param rowFilter Predicate accepting rows to show, or null to show all
+     */
+    public void setRowFilter(IntPredicate rowFilter) {
+        this.rowFilter = rowFilter;
+        sort();
+    }
+
+    public IntPredicate getRowFilter() {
+        return rowFilter;
+    }
+
+    /**
+     * Start appending rows in many chunks, e.g. while data streams in. The
+     * appended rows are shown after the sorted ones in model order, and the
+     * view is sorted once by {@link #endBulkInsert()}.
+     */
+    public void beginBulkInsert() {
+        bulkInsert = true;
+    }
+
+    /**
+     * Sort the rows appended since {@link #beginBulkInsert()} into place
+     */
+    public void endBulkInsert() {
+        bulkInsert = false;
+        if (unsortedRows) {
+            sort();
+        }
+    }
+
+    @Override
+    public PrimitiveTableModel getModel() {
+        return model;
+    }
+
+    @Override
+    public void toggleSortOrder(int column) {
+        List<SortKey> keys = new ArrayList<>(sortKeys);
+        SortOrder order = SortOrder.ASCENDING;
+        for (int i = 0; i < keys.size(); i++) {
+            if (keys.get(i).getColumn() == column) {
+                if (i == 0) {
+                    order = keys.get(i).getSortOrder() == SortOrder.ASCENDING
+                            ? SortOrder.DESCENDING : SortOrder.ASCENDING;
+                }
+                keys.remove(i);
+                break;
+            }
+        }
+        // Most recently clicked column is the primary key, earlier ones break ties
+        keys.add(0, new SortKey(column, order));
+        if (keys.size() > MAX_SORT_KEYS) {
+            keys = keys.subList(0, MAX_SORT_KEYS);
+        }
+        setSortKeys(keys);
+    }
+
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys) {
+        List<SortKey> newKeys = keys == null ? Collections.emptyList()
+                                             : Collections.unmodifiableList(new ArrayList<>(keys));
+        if (!newKeys.equals(sortKeys)) {
+            sortKeys = newKeys;
+            fireSortOrderChanged();
+            sort();
+        }
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        return sortKeys;
+    }
+
+    @Override
+    public int convertRowIndexToModel(int index) {
+        if (viewToModel == null) {
+            if (index < 0 || index >= model.getRowCount()) {
+                throw new IndexOutOfBoundsException("Invalid view index: " + index);
+            }
+            return index;
+        }
+        return viewToModel[index];
+    }
+
+    @Override
+    public int convertRowIndexToView(int index) {
+        if (modelToView == null) {
+            if (index < 0 || index >= model.getRowCount()) {
+                throw new IndexOutOfBoundsException("Invalid model index: " + index);
+            }
+            return index;
+        }
+        return modelToView[index];
+    }
+
+    @Override
+    public int getViewRowCount() {
+        return viewToModel == null ? model.getRowCount() : viewToModel.length;
+    }
+
+    @Override
+    public int getModelRowCount() {
+        return model.getRowCount();
+    }
+
+    @Override
+    public void modelStructureChanged() {
+        sortKeys = Collections.emptyList();
+        collationKeyCache.clear();
+        sort();
+    }
+
+    @Override
+    public void allRowsChanged() {
+        collationKeyCache.clear();
+        sort();
+    }
+
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+        if (viewToModel != null && firstRow == modelToView.length) {
+            appendRows(firstRow, endRow);
+        } else {
+            sort();
+        }
+    }
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+        sort();
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+        sort();
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {
+        sort();
+    }
+
+    /**
+     * Rebuild the view to model mapping from the current filter and sort keys
+     */
+    public void sort() {
+        int[] previous = getViewToModelSnapshot();
+        int rowCount = model.getRowCount();
+        unsortedRows = false;
+
+        if (rowFilter == null && sortKeys.isEmpty()) {
+            viewToModel = null;
+            modelToView = null;
+            fireRowSorterChanged(previous);
+            return;
+        }
+
+        int[] rows = new int[rowCount];
+        int visible = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (rowFilter == null || rowFilter.test(row)) {
+                rows[visible++] = row;
+            }
+        }
+        if (visible < rowCount) {
+            int[] trimmed = new int[visible];
+            System.arraycopy(rows, 0, trimmed, 0, visible);
+            rows = trimmed;
+        }
+
+        RowComparator comparator = buildComparator(rows);
+        if (comparator != null) {
+            mergeSort(rows, new int[rows.length], 0, rows.length, comparator);
+        }
+
+        int[] inverse = new int[rowCount];
+        Arrays.fill(inverse, -1);
+        for (int view = 0; view < rows.length; view++) {
+            inverse[rows[view]] = view;
+        }
+        viewToModel = rows;
+        modelToView = inverse;
+        fireRowSorterChanged(previous);
+    }
+
+    /**
+     * Add rows appended to the model to the view without re-sorting the rows
+     * already there: the new rows are sorted on their own and merged in, or
+     * left in model order during a bulk insert
+     */
+    private void appendRows(int firstRow, int endRow) {
+        int[] previous = viewToModel;
+        int[] rows = Arrays.copyOf(previous, previous.length + endRow - firstRow + 1);
+        int visible = previous.length;
+        for (int row = firstRow; row <= endRow; row++) {
+            if (rowFilter == null || rowFilter.test(row)) {
+                rows[visible++] = row;
+            }
+        }
+        if (visible < rows.length) {
+            rows = Arrays.copyOf(rows, visible);
+        }
+
+        RowComparator comparator = null;
+        if (bulkInsert) {
+            unsortedRows |= visible > previous.length;
+        } else if (visible > previous.length) {
+            comparator = buildComparator(rows);
+        }
+        if (comparator != null) {
+            int[] buffer = new int[rows.length];
+            mergeSort(rows, buffer, previous.length, rows.length, comparator);
+            merge(rows, buffer, 0, previous.length, rows.length, comparator);
+        }
+
+        int[] inverse = Arrays.copyOf(modelToView, model.getRowCount());
+        Arrays.fill(inverse, modelToView.length, inverse.length, -1);
+        for (int view = 0; view < rows.length; view++) {
+            inverse[rows[view]] = view;
+        }
+        viewToModel = rows;
+        modelToView = inverse;
+        fireRowSorterChanged(previous);
+    }
+
+    private int[] getViewToModelSnapshot() {
+        if (viewToModel != null) {
+            return viewToModel.clone();
+        }
+        return null;
+    }
+
+    /**
+     * Extract the sort columns for the visible rows into primitive arrays
+     * indexed by model row and chain one comparator per sort key
+     */
+    private RowComparator buildComparator(int[] rows) {
+        RowComparator chained = null;
+        for (int k = sortKeys.size() - 1; k >= 0; k--) {
+            SortKey key = sortKeys.get(k);
+            if (key.getSortOrder() == SortOrder.UNSORTED) {
+                continue;
+            }
+            RowComparator column = columnComparator(key.getColumn(), rows);
+            RowComparator ordered = key.getSortOrder() == SortOrder.DESCENDING
+                    ? (a, b) -> column.compare(b, a) : column;
+            RowComparator next = chained;
+            chained = next == null ? ordered : (a, b) -> {
+                int result = ordered.compare(a, b);
+                return result != 0 ? result : next.compare(a, b);
+            };
+        }
+        return chained;
+    }
+
+    private RowComparator columnComparator(int column, int[] rows) {
+        int rowCount = model.getRowCount();
+        switch (model.getColumnKind(column)) {
+            case INT: {
+                int[] values = new int[rowCount];
+                for (int row : rows) {
+                    values[row] = model.getIntAt(row, column);
+                }
+                return (a, b) -> Integer.compare(values[a], values[b]);
+            }
+            case DOUBLE: {
+                double[] values = new double[rowCount];
+                for (int row : rows) {
+                    values[row] = model.getDoubleAt(row, column);
+                }
+                return (a, b) -> Double.compare(values[a], values[b]);
+            }
+            default: {
+                // Rank each distinct value once, then compare ranks as ints
+                Map<String, Integer> ranks = new HashMap<>();
+                for (int row : rows) {
+                    String text = model.getStringAt(row, column);
+                    ranks.putIfAbsent(text == null ? "" : text, 0);
+                }
+                String[] keys = new String[ranks.size()];
+                Map<String, String> sourceByKey = new HashMap<>(keys.length * 2);
+                int next = 0;
+                for (String text : ranks.keySet()) {
+                    String key = collationKeyCache.computeIfAbsent(text, PrimitiveRowSorter::sortKey);
+                    keys[next++] = key;
+                    sourceByKey.put(key, text);
+                }
+                Arrays.sort(keys);
+                for (int rank = 0; rank < keys.length; rank++) {
+                    ranks.put(sourceByKey.get(keys[rank]), rank);
+                }
+                int[] values = new int[rowCount];
+                for (int row : rows) {
+                    String text = model.getStringAt(row, column);
+                    values[row] = ranks.get(text == null ? "" : text);
+                }
+                return (a, b) -> Integer.compare(values[a], values[b]);
+            }
+        }
+    }
+
+    /**
+     * Build a key whose String order follows Vietnamese alphabetical order:
+     * letters first (ă, â after a; đ after d; ê after e; ô, ơ after o; ư after u),
+     * then tones (ngang, huyền, hỏi, ngã, sắc, nặng), then the original text.
+     * java.text.Collator gives the same order but is far too slow for 100k+ rows.
+     */
+    static String sortKey(String text) {
+        String decomposed = Normalizer.isNormalized(text, Normalizer.Form.NFD)
+                ? text : Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder letters = new StringBuilder(decomposed.length());
+        StringBuilder tones = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char ch = decomposed.charAt(i);
+            int last = letters.length() - 1;
+            switch (ch) {
+                case '\u0306': // breve
+                    if (last >= 0) letters.setCharAt(last, (char) (letters.charAt(last) + 1));
+                    break;
+                case '\u0302': // circumflex
+                    if (last >= 0) letters.setCharAt(last, (char) (letters.charAt(last) + 2));
+                    break;
+                case '\u031B': // horn
+                    if (last >= 0) letters.setCharAt(last, (char) (letters.charAt(last) + 3));
+                    break;
+                case '\u0300': // huyền
+                    if (last >= 0) tones.setCharAt(last, '1');
+                    break;
+                case '\u0309': // hỏi
+                    if (last >= 0) tones.setCharAt(last, '2');
+                    break;
+                case '\u0303': // ngã
+                    if (last >= 0) tones.setCharAt(last, '3');
+                    break;
+                case '\u0301': // sắc
+                    if (last >= 0) tones.setCharAt(last, '4');
+                    break;
+                case '\u0323': // nặng
+                    if (last >= 0) tones.setCharAt(last, '5');
+                    break;
+                default:
+                    char lower = Character.toLowerCase(ch);
+                    if (lower == '\u0111') { // đ
+                        letters.append((char) (0x100 + 'd' * 4 + 1));
+                    } else if (lower < 0x3FC0) {
+                        letters.append((char) (0x100 + lower * 4));
+                    } else {
+                        letters.append(lower);
+                    }
+                    tones.append('0');
+                    break;
+            }
+        }
+        return letters.append('\u0001').append(tones).append('\u0001').append(text).toString();
+    }
+
+    /**
+     * Stable top-down merge sort of row indexes in [from, to)
+     */
+    private static void mergeSort(int[] rows, int[] buffer, int from, int to, RowComparator comparator) {
+        int length = to - from;
+        if (length < 16) {
+            // Insertion sort for short runs
+            for (int i = from + 1; i < to; i++) {
+                int row = rows[i];
+                int j = i - 1;
+                while (j >= from && comparator.compare(rows[j], row) > 0) {
+                    rows[j + 1] = rows[j];
+                    j--;
+                }
+                rows[j + 1] = row;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(rows, buffer, from, mid, comparator);
+        mergeSort(rows, buffer, mid, to, comparator);
+        merge(rows, buffer, from, mid, to, comparator);
+    }
+
+    /**
+     * Merge the sorted runs [from, mid) and [mid, to), keeping ties in run order
+     */
+    private static void merge(int[] rows, int[] buffer, int from, int mid, int to, RowComparator comparator) {
+        if (from == mid || mid == to || comparator.compare(rows[mid - 1], rows[mid]) <= 0) {
+            return; // Already in order
+        }
+        System.arraycopy(rows, from, buffer, from, to - from);
+        int left = from, right = mid, out = from;
+        while (left < mid && right < to) {
+            rows[out++] = comparator.compare(buffer[right], buffer[left]) < 0 ? buffer[right++] : buffer[left++];
+        }
+        while (left < mid) {
+            rows[out++] = buffer[left++];
+        }
+        while (right < to) {
+            rows[out++] = buffer[right++];
+        }
+    }
+}
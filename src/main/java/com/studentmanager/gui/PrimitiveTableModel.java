@@ -0,0 +1,84 @@
+package com.studentmanager.gui;
+
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Table model that exposes numeric columns as primitives so that
+ * sorting and filtering never box cell values
+ */
+public abstract class PrimitiveTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+
+    /**
+     * Kind of value stored in a column
+     */
+    public enum ColumnKind { INT, DOUBLE, STRING }
+
+    private final String[] columnNames;
+    private final ColumnKind[] columnKinds;
+
+    protected PrimitiveTableModel(String[] columnNames, ColumnKind[] columnKinds) {
+        this.columnNames = columnNames;
+        this.columnKinds = columnKinds;
+    }
+
+    /**
+     * Get the int value of a cell in an INT column
+     */
+    public abstract int getIntAt(int row, int column);
+
+    /**
+     * Get the double value of a cell in a DOUBLE column
+     */
+    public abstract double getDoubleAt(int row, int column);
+
+    /**
+     * Get the text of a cell in a STRING column
+     */
+    public abstract String getStringAt(int row, int column);
+
+    public ColumnKind getColumnKind(int column) {
+        return columnKinds[column];
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        switch (columnKinds[column]) {
+            case INT:
+                return Integer.class;
+            case DOUBLE:
+                return Double.class;
+            default:
+                return String.class;
+        }
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        // Boxing only happens here, for the handful of rows being painted
+        switch (columnKinds[column]) {
+            case INT:
+                return getIntAt(row, column);
+            case DOUBLE:
+                return getDoubleAt(row, column);
+            default:
+                return getStringAt(row, column);
+        }
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+}
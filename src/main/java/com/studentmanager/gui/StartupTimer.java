@@ -0,0 +1,41 @@
+package com.studentmanager.gui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records how long each startup phase takes and prints a breakdown
+ */
+public class StartupTimer {
+    private final long startNanos = System.nanoTime();
+    private long lastMarkNanos = startNanos;
+    private final List<String> phases = new ArrayList<>();
+    private final List<Long> durations = new ArrayList<>();
+    private boolean logged = false;
+
+    /**
+     * End the current phase
+     * @param phase Name of the phase that just finished
+     */
+    public synchronized void mark(String phase) {
+        long now = System.nanoTime();
+        phases.add(phase);
+        durations.add(now - lastMarkNanos);
+        lastMarkNanos = now;
+    }
+
+    /**
+     * Print every phase and the total time since construction. Only the first call prints.
+     */
+    public synchronized void log() {
+        if (logged) {
+            return;
+        }
+        logged = true;
+        System.out.println("[startup] Phase breakdown:");
+        for (int i = 0; i < phases.size(); i++) {
+            System.out.printf("[startup]   %-28s %8.1f ms%n", phases.get(i), durations.get(i) / 1_000_000.0);
+        }
+        System.out.printf("[startup]   %-28s %8.1f ms%n", "total", (lastMarkNanos - startNanos) / 1_000_000.0);
+    }
+}
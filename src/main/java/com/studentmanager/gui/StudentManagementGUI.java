@@ -5,14 +5,31 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
 
 import com.studentmanager.controller.StudentController;
+import com.studentmanager.dao.CohortIndex;
 import com.studentmanager.dao.DatabaseConnection;
+import com.studentmanager.dao.GradeDAO;
+import com.studentmanager.model.FixedPoint;
 import com.studentmanager.model.Student;
 import com.studentmanager.model.Grade;
+import com.studentmanager.model.GradeSlice;
+import com.studentmanager.model.LeaderboardEntry;
+import com.studentmanager.model.ScoreDistribution;
+import com.studentmanager.model.StudentDashboard;
+import com.studentmanager.snapshot.DataSnapshot;
+import com.studentmanager.snapshot.GradeSnapshot;
 import com.studentmanager.strategy.*;
 import com.studentmanager.util.ReportGenerator;
+import com.studentmanager.util.RoaringBitmap;
 
 /**
  * Main GUI application for Student Management System
@@ -23,13 +40,18 @@ public class StudentManagementGUI extends JFrame {
     
     // Student Management Tab
     private JTable studentsTable;
-    private DefaultTableModel studentsTableModel;
+    private StudentTableModel studentsTableModel;
+    private PrimitiveRowSorter studentsSorter;
     private JTextField txtStudentId, txtFullName, txtEmail, txtPhone;
     private JComboBox<String> cmbMajor;
+    private JComboBox<String> cmbFilterMajor;
+    private JCheckBox chkFilterFailed;
     
     // Grade Management Tab
     private JTable gradesTable;
-    private DefaultTableModel gradesTableModel;
+    private GradeTableModel gradesTableModel;
+    private PrimitiveRowSorter gradesSorter;
+    private JTextField txtFilterSemester, txtFilterYear, txtFilterMinScore, txtFilterMaxScore;
     private JTextField txtScore, txtSemester, txtYear;
     private JComboBox<String> cmbCoefficient;
     private JComboBox<String> cmbSubject;
@@ -42,26 +64,52 @@ public class StudentManagementGUI extends JFrame {
     private JTable strategyTable;
     private DefaultTableModel strategyTableModel;
     
+    // Leaderboard Tab
+    private JComboBox<String> cmbLeaderboardStrategy;
+    private JComboBox<String> cmbLeaderboardMajor;
+    private JTextField txtLeaderboardSemester, txtLeaderboardYear;
+    private JSpinner spnLeaderboardTopK;
+    private JTable leaderboardTable;
+    private LeaderboardTableModel leaderboardTableModel;
+    private JLabel lblLeaderboardStatus;
+    
     // Reports Tab
     private JComboBox<String> cmbReportStudent;
     private JTextArea txtReportArea;
+    private JComboBox<GradeSlice.Dimension> cmbChartDimension;
+    private JComboBox<GradeSlice> cmbChartSlice;
+    private ChartPanel chartPanel;
+    private ChartCache chartCache;
+    // Bumped per transcript request so a slow earlier load cannot overwrite a newer one
+    private int transcriptRequest;
+    
+    // Maximum number of ranked search results shown in the students table
+    private static final int SEARCH_PAGE_SIZE = 500;
+    private static final String FILTER_ALL = "Tất cả";
+    
+    // Rows handed to the EDT per progressive update while data streams in
+    private static final int LOAD_CHUNK_SIZE = 500;
+    
+    // Lazily built tabs: tab index -> panel factory, removed once built
+    private final Map<Integer, Supplier<JPanel>> pendingTabs = new HashMap<>();
+    private SwingWorker<Void, Runnable> dataLoader;
+    private volatile boolean databaseInitialized = false;
     
     public StudentManagementGUI() {
+        StartupTimer timer = new StartupTimer();
         setTitle("Hệ Thống Quản Lý Điểm Sinh Viên");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setSize(1200, 800);
         setLocationRelativeTo(null);
         
-        // Initialize controller and database
-        DatabaseConnection.initializeDatabase();
+        // Database is initialized by the background loader, after first paint
         controller = new StudentController();
         
         // Setup GUI components
         initializeComponents();
+        timer.mark("components");
         setupTabbedPane();
-        
-        // Load initial data
-        refreshAllData();
+        timer.mark("tabs (first tab only)");
         
         // Set icon if available
         try {
@@ -71,18 +119,21 @@ public class StudentManagementGUI extends JFrame {
         }
         
         setVisible(true);
+        timer.mark("window shown");
+        
+        // Start loading once the empty window has painted
+        SwingUtilities.invokeLater(() -> {
+            timer.mark("first paint");
+            loadDataInBackground(timer);
+        });
     }
     
     private void initializeComponents() {
         // Students Table
-        String[] studentColumns = {"ID", "Mã SV", "Họ Tên", "Email", "SĐT", "Ngành", "Số Môn"};
-        studentsTableModel = new DefaultTableModel(studentColumns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        studentsTableModel = new StudentTableModel();
         studentsTable = new JTable(studentsTableModel);
+        studentsSorter = new PrimitiveRowSorter(studentsTableModel);
+        studentsTable.setRowSorter(studentsSorter);
         studentsTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         studentsTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
@@ -91,14 +142,10 @@ public class StudentManagementGUI extends JFrame {
         });
         
         // Grades Table
-        String[] gradeColumns = {"ID", "Mã SV", "Môn Học", "Điểm", "Hệ Số", "Học Kỳ", "Năm"};
-        gradesTableModel = new DefaultTableModel(gradeColumns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        gradesTableModel = new GradeTableModel();
         gradesTable = new JTable(gradesTableModel);
+        gradesSorter = new PrimitiveRowSorter(gradesTableModel);
+        gradesTable.setRowSorter(gradesSorter);
         gradesTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         gradesTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
@@ -116,6 +163,11 @@ public class StudentManagementGUI extends JFrame {
         };
         strategyTable = new JTable(strategyTableModel);
         
+        // Leaderboard Table
+        leaderboardTableModel = new LeaderboardTableModel();
+        leaderboardTable = new JTable(leaderboardTableModel);
+        leaderboardTable.setRowSorter(new PrimitiveRowSorter(leaderboardTableModel));
+        
         // Text fields
         txtStudentId = new JTextField(15);
         txtFullName = new JTextField(20);
@@ -126,6 +178,16 @@ public class StudentManagementGUI extends JFrame {
         txtSemester = new JTextField(10);
         txtYear = new JTextField(10);
         
+        txtFilterSemester = new JTextField(6);
+        txtFilterYear = new JTextField(5);
+        txtFilterMinScore = new JTextField(4);
+        txtFilterMaxScore = new JTextField(4);
+        
+        txtLeaderboardSemester = new JTextField(6);
+        txtLeaderboardYear = new JTextField(5);
+        spnLeaderboardTopK = new JSpinner(new SpinnerNumberModel(0, 0, Integer.MAX_VALUE, 10));
+        lblLeaderboardStatus = new JLabel(" ");
+        
         // Initialize combo boxes with predefined options
         String[] majors = {
             "Công Nghệ Thông Tin", "Kỹ Thuật Phần Mềm", "Hệ Thống Thông Tin", 
@@ -135,6 +197,21 @@ public class StudentManagementGUI extends JFrame {
         cmbMajor = new JComboBox<>(majors);
         cmbMajor.setEditable(true); // Cho phép nhập thêm nếu cần
         
+        cmbFilterMajor = new JComboBox<>();
+        cmbFilterMajor.addItem(FILTER_ALL);
+        for (String major : majors) {
+            cmbFilterMajor.addItem(major);
+        }
+        cmbFilterMajor.addActionListener(e -> applyStudentFilter());
+        chkFilterFailed = new JCheckBox("Có môn trượt");
+        chkFilterFailed.addActionListener(e -> applyStudentFilter());
+        
+        cmbLeaderboardMajor = new JComboBox<>();
+        cmbLeaderboardMajor.addItem(FILTER_ALL);
+        for (String major : majors) {
+            cmbLeaderboardMajor.addItem(major);
+        }
+        
         String[] subjects = {
             "Lập Trình Java", "Cơ Sở Dữ Liệu", "Cấu Trúc Dữ Liệu", "Thuật Toán",
             "Lập Trình Web", "Mạng Máy Tính", "Hệ Điều Hành", "Công Nghệ Phần Mềm",
@@ -153,6 +230,7 @@ public class StudentManagementGUI extends JFrame {
         cmbStudentSelect = new JComboBox<>();
         cmbStrategyStudent = new JComboBox<>();
         cmbStrategy = new JComboBox<>();
+        cmbLeaderboardStrategy = new JComboBox<>();
         cmbReportStudent = new JComboBox<>();
         
         // Text areas
@@ -168,23 +246,22 @@ public class StudentManagementGUI extends JFrame {
         GradeCalculationStrategy[] strategies = controller.getAvailableStrategies();
         for (GradeCalculationStrategy strategy : strategies) {
             cmbStrategy.addItem(strategy.getStrategyName());
+            cmbLeaderboardStrategy.addItem(strategy.getStrategyName());
         }
     }
     
     private void setupTabbedPane() {
         tabbedPane = new JTabbedPane();
         
-        // Students Management Tab
+        // Students Management Tab is visible at startup, so build it now
         tabbedPane.addTab("Quản Lý Sinh Viên", createStudentManagementPanel());
         
-        // Grades Management Tab
-        tabbedPane.addTab("Quản Lý Điểm", createGradeManagementPanel());
-        
-        // Strategy Pattern Tab
-        tabbedPane.addTab("Tính Điểm (Strategy)", createStrategyPanel());
-        
-        // Reports Tab
-        tabbedPane.addTab("Báo Cáo", createReportsPanel());
+        // Other tabs are built the first time they are selected
+        addLazyTab("Quản Lý Điểm", this::createGradeManagementPanel);
+        addLazyTab("Tính Điểm (Strategy)", this::createStrategyPanel);
+        addLazyTab("Bảng Xếp Hạng", this::createLeaderboardPanel);
+        addLazyTab("Báo Cáo", this::createReportsPanel);
+        tabbedPane.addChangeListener(e -> buildTabIfNeeded(tabbedPane.getSelectedIndex()));
         
         add(tabbedPane, BorderLayout.CENTER);
         
@@ -194,6 +271,24 @@ public class StudentManagementGUI extends JFrame {
         add(statusBar, BorderLayout.SOUTH);
     }
     
+    private void addLazyTab(String title, Supplier<JPanel> factory) {
+        tabbedPane.addTab(title, new JPanel(new BorderLayout()));
+        pendingTabs.put(tabbedPane.getTabCount() - 1, factory);
+    }
+    
+    private void buildTabIfNeeded(int index) {
+        Supplier<JPanel> factory = pendingTabs.remove(index);
+        if (factory == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        JPanel holder = (JPanel) tabbedPane.getComponentAt(index);
+        holder.add(factory.get(), BorderLayout.CENTER);
+        holder.revalidate();
+        System.out.printf("[startup] Tab '%s' built on first use in %.1f ms%n",
+                          tabbedPane.getTitleAt(index), (System.nanoTime() - start) / 1_000_000.0);
+    }
+    
     private JPanel createStudentManagementPanel() {
         JPanel panel = new JPanel(new BorderLayout());
         
@@ -253,12 +348,23 @@ public class StudentManagementGUI extends JFrame {
         gbc.gridwidth = 4;
         inputPanel.add(buttonPanel, gbc);
         
+        // Filter panel
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filterPanel.setBorder(BorderFactory.createTitledBorder("Lọc"));
+        filterPanel.add(new JLabel("Ngành:"));
+        filterPanel.add(cmbFilterMajor);
+        filterPanel.add(chkFilterFailed);
+        
         // Table panel
         JScrollPane scrollPane = new JScrollPane(studentsTable);
         scrollPane.setPreferredSize(new Dimension(0, 400));
         
+        JPanel tablePanel = new JPanel(new BorderLayout());
+        tablePanel.add(filterPanel, BorderLayout.NORTH);
+        tablePanel.add(scrollPane, BorderLayout.CENTER);
+        
         panel.add(inputPanel, BorderLayout.NORTH);
-        panel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(tablePanel, BorderLayout.CENTER);
         
         return panel;
     }
@@ -323,12 +429,35 @@ public class StudentManagementGUI extends JFrame {
         gbc.gridwidth = 4;
         inputPanel.add(buttonPanel, gbc);
         
+        // Filter panel
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filterPanel.setBorder(BorderFactory.createTitledBorder("Lọc"));
+        filterPanel.add(new JLabel("Học Kỳ:"));
+        filterPanel.add(txtFilterSemester);
+        filterPanel.add(new JLabel("Năm:"));
+        filterPanel.add(txtFilterYear);
+        filterPanel.add(new JLabel("Điểm từ:"));
+        filterPanel.add(txtFilterMinScore);
+        filterPanel.add(new JLabel("đến:"));
+        filterPanel.add(txtFilterMaxScore);
+        
+        JButton btnApplyFilter = new JButton("Lọc");
+        JButton btnClearFilter = new JButton("Bỏ Lọc");
+        btnApplyFilter.addActionListener(e -> applyGradeFilter());
+        btnClearFilter.addActionListener(e -> clearGradeFilter());
+        filterPanel.add(btnApplyFilter);
+        filterPanel.add(btnClearFilter);
+        
         // Table
         JScrollPane scrollPane = new JScrollPane(gradesTable);
         scrollPane.setPreferredSize(new Dimension(0, 400));
         
+        JPanel tablePanel = new JPanel(new BorderLayout());
+        tablePanel.add(filterPanel, BorderLayout.NORTH);
+        tablePanel.add(scrollPane, BorderLayout.CENTER);
+        
         panel.add(inputPanel, BorderLayout.NORTH);
-        panel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(tablePanel, BorderLayout.CENTER);
         
         return panel;
     }
@@ -383,6 +512,33 @@ public class StudentManagementGUI extends JFrame {
         return panel;
     }
     
+    private JPanel createLeaderboardPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+        
+        JPanel controlPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        controlPanel.setBorder(BorderFactory.createTitledBorder("Xếp Hạng Toàn Trường"));
+        controlPanel.add(new JLabel("Strategy:"));
+        controlPanel.add(cmbLeaderboardStrategy);
+        controlPanel.add(new JLabel("Ngành:"));
+        controlPanel.add(cmbLeaderboardMajor);
+        controlPanel.add(new JLabel("Học Kỳ:"));
+        controlPanel.add(txtLeaderboardSemester);
+        controlPanel.add(new JLabel("Năm:"));
+        controlPanel.add(txtLeaderboardYear);
+        controlPanel.add(new JLabel("Top K (0 = tất cả):"));
+        controlPanel.add(spnLeaderboardTopK);
+        
+        JButton btnRank = new JButton("Xếp Hạng");
+        btnRank.addActionListener(e -> computeLeaderboard(btnRank));
+        controlPanel.add(btnRank);
+        
+        panel.add(controlPanel, BorderLayout.NORTH);
+        panel.add(new JScrollPane(leaderboardTable), BorderLayout.CENTER);
+        panel.add(lblLeaderboardStatus, BorderLayout.SOUTH);
+        
+        return panel;
+    }
+    
     private JPanel createReportsPanel() {
         JPanel panel = new JPanel(new BorderLayout());
         
@@ -408,12 +564,38 @@ public class StudentManagementGUI extends JFrame {
         // Report display area
         JScrollPane scrollPane = new JScrollPane(txtReportArea);
         
+        JTabbedPane reportViews = new JTabbedPane();
+        reportViews.addTab("Văn Bản", scrollPane);
+        reportViews.addTab("Biểu Đồ Phân Bố Điểm", createChartsPanel());
+        
         panel.add(controlPanel, BorderLayout.NORTH);
-        panel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(reportViews, BorderLayout.CENTER);
         
         return panel;
     }
     
+    private JPanel createChartsPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+        chartCache = new ChartCache(controller);
+        chartPanel = new ChartPanel();
+        cmbChartDimension = new JComboBox<>(GradeSlice.Dimension.values());
+        cmbChartSlice = new JComboBox<>();
+        
+        cmbChartDimension.addActionListener(e -> loadChartSlices());
+        cmbChartSlice.addActionListener(e -> showSelectedChart());
+        
+        JPanel controlPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        controlPanel.add(new JLabel("Theo:"));
+        controlPanel.add(cmbChartDimension);
+        controlPanel.add(cmbChartSlice);
+        
+        panel.add(controlPanel, BorderLayout.NORTH);
+        panel.add(chartPanel, BorderLayout.CENTER);
+        
+        loadChartSlices();
+        return panel;
+    }
+    
     // Student Management Methods
     private void addStudent() {
         try {
@@ -436,7 +618,7 @@ public class StudentManagementGUI extends JFrame {
             if (controller.addStudent(student)) {
                 JOptionPane.showMessageDialog(this, "Thêm sinh viên thành công!");
                 clearStudentFields();
-                refreshAllData();
+                studentAdded(student);
             } else {
                 JOptionPane.showMessageDialog(this, "Thêm sinh viên thất bại! (Có thể mã SV đã tồn tại)", "Lỗi", JOptionPane.ERROR_MESSAGE);
             }
@@ -453,7 +635,8 @@ public class StudentManagementGUI extends JFrame {
         }
         
         try {
-            int id = (Integer) studentsTableModel.getValueAt(selectedRow, 0);
+            Student previous = studentsTableModel.getStudentAt(studentsTable.convertRowIndexToModel(selectedRow));
+            int id = previous.getId();
             String studentId = txtStudentId.getText().trim();
             String fullName = txtFullName.getText().trim();
             String email = txtEmail.getText().trim();
@@ -473,7 +656,7 @@ public class StudentManagementGUI extends JFrame {
             if (controller.updateStudent(student)) {
                 JOptionPane.showMessageDialog(this, "Cập nhật thành công!");
                 clearStudentFields();
-                refreshAllData();
+                studentUpdated(previous, student);
             } else {
                 JOptionPane.showMessageDialog(this, "Cập nhật thất bại!", "Lỗi", JOptionPane.ERROR_MESSAGE);
             }
@@ -489,8 +672,9 @@ public class StudentManagementGUI extends JFrame {
             return;
         }
         
-        String studentId = (String) studentsTableModel.getValueAt(selectedRow, 1);
-        String fullName = (String) studentsTableModel.getValueAt(selectedRow, 2);
+        Student selected = studentsTableModel.getStudentAt(studentsTable.convertRowIndexToModel(selectedRow));
+        String studentId = selected.getStudentId();
+        String fullName = selected.getFullName();
         
         int confirm = JOptionPane.showConfirmDialog(this, 
             "Bạn có chắc chắn muốn xóa sinh viên:\n" + fullName + " (" + studentId + ")?",
@@ -500,7 +684,7 @@ public class StudentManagementGUI extends JFrame {
             if (controller.deleteStudent(studentId)) {
                 JOptionPane.showMessageDialog(this, "Xóa thành công!");
                 clearStudentFields();
-                refreshAllData();
+                studentDeleted(selected);
             } else {
                 JOptionPane.showMessageDialog(this, "Xóa thất bại!", "Lỗi", JOptionPane.ERROR_MESSAGE);
             }
@@ -518,21 +702,10 @@ public class StudentManagementGUI extends JFrame {
     private void searchStudents() {
         String searchTerm = JOptionPane.showInputDialog(this, "Nhập tên sinh viên cần tìm:");
         if (searchTerm != null && !searchTerm.trim().isEmpty()) {
-            List<Student> results = controller.searchStudentsByName(searchTerm.trim());
-            
-            // Clear and populate table with search results
-            studentsTableModel.setRowCount(0);
-            for (Student student : results) {
-                studentsTableModel.addRow(new Object[] {
-                    student.getId(),
-                    student.getStudentId(),
-                    student.getFullName(),
-                    student.getEmail(),
-                    student.getPhoneNumber(),
-                    student.getMajor(),
-                    student.getGrades().size()
-                });
-            }
+            List<Student> results = controller.searchStudentsFullText(searchTerm.trim(), 0, SEARCH_PAGE_SIZE);
+            
+            // Replace table contents with search results
+            studentsTableModel.setStudents(results);
             
             JOptionPane.showMessageDialog(this, "Tìm thấy " + results.size() + " kết quả.");
         }
@@ -541,16 +714,17 @@ public class StudentManagementGUI extends JFrame {
     private void loadSelectedStudentData() {
         int selectedRow = studentsTable.getSelectedRow();
         if (selectedRow >= 0) {
-            txtStudentId.setText((String) studentsTableModel.getValueAt(selectedRow, 1));
-            txtFullName.setText((String) studentsTableModel.getValueAt(selectedRow, 2));
+            Student student = studentsTableModel.getStudentAt(studentsTable.convertRowIndexToModel(selectedRow));
+            txtStudentId.setText(student.getStudentId());
+            txtFullName.setText(student.getFullName());
             
-            String email = (String) studentsTableModel.getValueAt(selectedRow, 3);
+            String email = student.getEmail();
             txtEmail.setText(email != null ? email : "");
             
-            String phone = (String) studentsTableModel.getValueAt(selectedRow, 4);
+            String phone = student.getPhoneNumber();
             txtPhone.setText(phone != null ? phone : "");
             
-            String major = (String) studentsTableModel.getValueAt(selectedRow, 5);
+            String major = student.getMajor();
             cmbMajor.setSelectedItem(major != null ? major : "");
         }
     }
@@ -586,10 +760,11 @@ public class StudentManagementGUI extends JFrame {
                 return;
             }
             
-            if (controller.addGrade(studentId, subject, score, coefficient, semester, year)) {
+            Grade added = controller.createGrade(studentId, subject, score, coefficient, semester, year);
+            if (added != null) {
                 JOptionPane.showMessageDialog(this, "Thêm điểm thành công!");
                 clearGradeFields();
-                refreshGradesData();
+                gradeAdded(added, studentId);
             } else {
                 JOptionPane.showMessageDialog(this, "Thêm điểm thất bại!", "Lỗi", JOptionPane.ERROR_MESSAGE);
             }
@@ -609,7 +784,8 @@ public class StudentManagementGUI extends JFrame {
         
         try {
             // Get grade ID from selected row
-            int gradeId = (Integer) gradesTableModel.getValueAt(selectedRow, 0);
+            Grade previous = gradesTableModel.getGradeAt(gradesTable.convertRowIndexToModel(selectedRow));
+            int gradeId = previous.getId();
             
             // Get input data
             String studentInfo = (String) cmbStudentSelect.getSelectedItem();
@@ -661,7 +837,7 @@ public class StudentManagementGUI extends JFrame {
             if (controller.updateGrade(grade)) {
                 JOptionPane.showMessageDialog(this, "Cập nhật điểm thành công!");
                 clearGradeFields();
-                refreshGradesData();
+                gradeUpdated(previous, grade, studentId);
             } else {
                 JOptionPane.showMessageDialog(this, "Cập nhật điểm thất bại!", "Lỗi", JOptionPane.ERROR_MESSAGE);
             }
@@ -681,11 +857,13 @@ public class StudentManagementGUI extends JFrame {
         
         try {
             // Get grade information for confirmation
-            String studentId = (String) gradesTableModel.getValueAt(selectedRow, 1);
-            String subject = (String) gradesTableModel.getValueAt(selectedRow, 2);
-            String score = gradesTableModel.getValueAt(selectedRow, 3).toString();
-            String semester = (String) gradesTableModel.getValueAt(selectedRow, 5);
-            String year = gradesTableModel.getValueAt(selectedRow, 6).toString();
+            int modelRow = gradesTable.convertRowIndexToModel(selectedRow);
+            Grade selected = gradesTableModel.getGradeAt(modelRow);
+            String studentId = gradesTableModel.getStudentCodeAt(modelRow);
+            String subject = selected.getSubject();
+            String score = String.valueOf(selected.getScore());
+            String semester = selected.getSemester();
+            String year = String.valueOf(selected.getYear());
             
             // Confirm deletion
             String message = String.format("Bạn có chắc chắn muốn xóa điểm này?\n\n" +
@@ -702,13 +880,13 @@ public class StudentManagementGUI extends JFrame {
             
             if (confirm == JOptionPane.YES_OPTION) {
                 // Get grade ID
-                int gradeId = (Integer) gradesTableModel.getValueAt(selectedRow, 0);
+                int gradeId = selected.getId();
                 
                 // Delete from database
                 if (controller.deleteGrade(gradeId)) {
                     JOptionPane.showMessageDialog(this, "Xóa điểm thành công!");
                     clearGradeFields();
-                    refreshGradesData();
+                    gradeDeleted(selected);
                 } else {
                     JOptionPane.showMessageDialog(this, "Xóa điểm thất bại!", "Lỗi", JOptionPane.ERROR_MESSAGE);
                 }
@@ -730,12 +908,14 @@ public class StudentManagementGUI extends JFrame {
         int selectedRow = gradesTable.getSelectedRow();
         if (selectedRow >= 0) {
             // Get data from selected row
-            String studentId = (String) gradesTableModel.getValueAt(selectedRow, 1);
-            String subject = (String) gradesTableModel.getValueAt(selectedRow, 2);
-            String score = gradesTableModel.getValueAt(selectedRow, 3).toString();
-            String coefficient = gradesTableModel.getValueAt(selectedRow, 4).toString();
-            String semester = (String) gradesTableModel.getValueAt(selectedRow, 5);
-            String year = gradesTableModel.getValueAt(selectedRow, 6).toString();
+            int modelRow = gradesTable.convertRowIndexToModel(selectedRow);
+            Grade selected = gradesTableModel.getGradeAt(modelRow);
+            String studentId = gradesTableModel.getStudentCodeAt(modelRow);
+            String subject = selected.getSubject();
+            String score = String.valueOf(selected.getScore());
+            String coefficient = String.valueOf(selected.getCoefficient());
+            String semester = selected.getSemester();
+            String year = String.valueOf(selected.getYear());
             
             // Load student into combo box
             List<Student> students = controller.getAllStudents();
@@ -810,6 +990,107 @@ public class StudentManagementGUI extends JFrame {
         txtStrategyResult.setText(resultText.toString());
     }
     
+    // Leaderboard Methods
+    private void computeLeaderboard(JButton trigger) {
+        String strategyName = (String) cmbLeaderboardStrategy.getSelectedItem();
+        GradeCalculationStrategy selectedStrategy = null;
+        for (GradeCalculationStrategy strategy : controller.getAvailableStrategies()) {
+            if (strategy.getStrategyName().equals(strategyName)) {
+                selectedStrategy = strategy;
+                break;
+            }
+        }
+        if (selectedStrategy == null) {
+            JOptionPane.showMessageDialog(this, "Vui lòng chọn strategy!");
+            return;
+        }
+        
+        String majorItem = (String) cmbLeaderboardMajor.getSelectedItem();
+        String major = (majorItem == null || FILTER_ALL.equals(majorItem)) ? null : majorItem;
+        String semesterText = txtLeaderboardSemester.getText().trim();
+        String semester = semesterText.isEmpty() ? null : semesterText;
+        String yearText = txtLeaderboardYear.getText().trim();
+        Integer year;
+        try {
+            year = yearText.isEmpty() ? null : Integer.valueOf(yearText);
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Vui lòng nhập đúng định dạng số!", "Lỗi", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        int topK = (Integer) spnLeaderboardTopK.getValue();
+        GradeCalculationStrategy strategy = selectedStrategy;
+        
+        trigger.setEnabled(false);
+        lblLeaderboardStatus.setText("Đang tính toán...");
+        long start = System.nanoTime();
+        
+        // Compute off the EDT so the window stays responsive on large classes
+        new SwingWorker<List<LeaderboardEntry>, Void>() {
+            @Override
+            protected List<LeaderboardEntry> doInBackground() {
+                return controller.getLeaderboard(strategy, major, semester, year, topK);
+            }
+            
+            @Override
+            protected void done() {
+                trigger.setEnabled(true);
+                try {
+                    List<LeaderboardEntry> entries = get();
+                    leaderboardTableModel.setEntries(entries);
+                    long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+                    lblLeaderboardStatus.setText(entries.size() + " sinh viên | " + strategy.getStrategyName()
+                                                 + " | " + elapsedMs + " ms");
+                } catch (Exception e) {
+                    lblLeaderboardStatus.setText(" ");
+                    JOptionPane.showMessageDialog(StudentManagementGUI.this, "Lỗi: " + e.getMessage(),
+                                                  "Lỗi", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+    
+    // Chart Methods
+    private void loadChartSlices() {
+        GradeSlice.Dimension dimension = (GradeSlice.Dimension) cmbChartDimension.getSelectedItem();
+        if (dimension == null) {
+            return;
+        }
+        chartPanel.setMessage("Đang tải...");
+        chartCache.prefetch(dimension, slices -> {
+            if (dimension != cmbChartDimension.getSelectedItem()) {
+                return; // User already switched to another dimension
+            }
+            GradeSlice previous = (GradeSlice) cmbChartSlice.getSelectedItem();
+            cmbChartSlice.removeAllItems();
+            for (GradeSlice slice : slices) {
+                cmbChartSlice.addItem(slice);
+            }
+            if (slices.isEmpty()) {
+                chartPanel.setMessage("Chưa có điểm nào được ghi nhận.");
+            } else if (previous != null && slices.contains(previous)) {
+                cmbChartSlice.setSelectedItem(previous);
+            }
+        });
+    }
+    
+    private void showSelectedChart() {
+        GradeSlice slice = (GradeSlice) cmbChartSlice.getSelectedItem();
+        if (slice == null) {
+            return;
+        }
+        BufferedImage cached = chartCache.getIfFresh(slice);
+        if (cached != null) {
+            chartPanel.setImage(cached);
+            return;
+        }
+        chartPanel.setMessage("Đang vẽ biểu đồ...");
+        chartCache.request(slice, image -> {
+            if (slice.equals(cmbChartSlice.getSelectedItem())) {
+                chartPanel.setImage(image);
+            }
+        });
+    }
+    
     // Report Methods
     private void generateTranscript() {
         String studentInfo = (String) cmbReportStudent.getSelectedItem();
@@ -819,46 +1100,65 @@ public class StudentManagementGUI extends JFrame {
         }
         
         String studentId = studentInfo.split(" - ")[0];
-        Student student = controller.getStudentByStudentId(studentId);
-        List<Grade> grades = controller.getGradesByStudentId(studentId);
+        int request = ++transcriptRequest;
+        txtReportArea.setText("Đang tải bảng điểm...");
         
-        if (student != null) {
-            // Display in text area
-            StringBuilder report = new StringBuilder();
-            report.append("BẢNG ĐIỂM SINH VIÊN\n");
-            report.append("================\n\n");
-            report.append("Mã SV: ").append(student.getStudentId()).append("\n");
-            report.append("Họ tên: ").append(student.getFullName()).append("\n");
-            report.append("Email: ").append(student.getEmail() != null ? student.getEmail() : "N/A").append("\n");
-            report.append("Ngành: ").append(student.getMajor() != null ? student.getMajor() : "N/A").append("\n\n");
-            
-            if (grades != null && !grades.isEmpty()) {
-                report.append("CHI TIẾT ĐIỂM:\n");
-                report.append(String.format("%-20s %-8s %-8s %-10s %-8s%n", "Môn học", "Điểm", "Hệ số", "Học kỳ", "Năm"));
-                report.append("-".repeat(60)).append("\n");
-                
-                for (Grade grade : grades) {
-                    report.append(String.format("%-20s %-8.2f %-8.1f %-10s %-8d%n",
-                        grade.getSubject(), grade.getScore(), grade.getCoefficient(),
-                        grade.getSemester(), grade.getYear()));
-                }
-                
-                // Add strategy calculations
-                report.append("\nKẾT QUẢ TÍNH ĐIỂM:\n");
-                report.append("-".repeat(30)).append("\n");
-                GradeCalculationStrategy[] strategies = controller.getAvailableStrategies();
-                for (GradeCalculationStrategy strategy : strategies) {
-                    String result = controller.calculateGradeWithStrategy(studentId, strategy);
-                    report.append(strategy.getStrategyName()).append(": ").append(result).append("\n");
-                }
+        // Student, grades and semesters load off the EDT; the grade and semester queries run concurrently
+        controller.loadStudentDashboard(studentId).whenComplete((dashboard, error) -> SwingUtilities.invokeLater(() -> {
+            if (request != transcriptRequest) {
+                return;
+            }
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                txtReportArea.setText("Không thể tải bảng điểm: " + cause);
+            } else if (dashboard != null) {
+                txtReportArea.setText(formatTranscript(dashboard));
+            } else {
+                txtReportArea.setText("Không tìm thấy sinh viên " + studentId + ".");
             }
+        }));
+    }
+    
+    private String formatTranscript(StudentDashboard dashboard) {
+        Student student = dashboard.getStudent();
+        List<Grade> grades = dashboard.getGrades();
+        
+        StringBuilder report = new StringBuilder();
+        report.append("BẢNG ĐIỂM SINH VIÊN\n");
+        report.append("================\n\n");
+        report.append("Mã SV: ").append(student.getStudentId()).append("\n");
+        report.append("Họ tên: ").append(student.getFullName()).append("\n");
+        report.append("Email: ").append(student.getEmail() != null ? student.getEmail() : "N/A").append("\n");
+        report.append("Ngành: ").append(student.getMajor() != null ? student.getMajor() : "N/A").append("\n");
+        if (!dashboard.getSemesters().isEmpty()) {
+            report.append("Học kỳ: ").append(String.join(", ", dashboard.getSemesters())).append("\n");
+        }
+        report.append("\n");
+        
+        if (!grades.isEmpty()) {
+            report.append("CHI TIẾT ĐIỂM:\n");
+            report.append(String.format("%-20s %-8s %-8s %-10s %-8s%n", "Môn học", "Điểm", "Hệ số", "Học kỳ", "Năm"));
+            report.append("-".repeat(60)).append("\n");
             
-            txtReportArea.setText(report.toString());
+            for (Grade grade : grades) {
+                report.append(String.format("%-20s %-8.2f %-8.1f %-10s %-8d%n",
+                    grade.getSubject(), grade.getScore(), grade.getCoefficient(),
+                    grade.getSemester(), grade.getYear()));
+            }
+            
+            // Add strategy calculations
+            report.append("\nKẾT QUẢ TÍNH ĐIỂM:\n");
+            report.append("-".repeat(30)).append("\n");
+            for (Map.Entry<String, String> result : dashboard.getStrategyResults().entrySet()) {
+                report.append(result.getKey()).append(": ").append(result.getValue()).append("\n");
+            }
         }
+        
+        return report.toString();
     }
     
     private void generateSummary() {
-        List<Student> students = controller.getAllStudents();
+        List<Student> students = controller.getAllStudents(true);
         
         StringBuilder report = new StringBuilder();
         report.append("BÁO CÁO TỔNG QUAN\n");
@@ -881,7 +1181,7 @@ public class StudentManagementGUI extends JFrame {
     }
     
     private void generateStatistics() {
-        List<Student> students = controller.getAllStudents();
+        List<Student> students = controller.getAllStudents(true);
         
         int totalStudents = students.size();
         int studentsWithGrades = 0;
@@ -926,69 +1226,385 @@ public class StudentManagementGUI extends JFrame {
             report.append(String.format("- Yếu: %.1f%%\n", (double)poor/studentsWithGrades*100));
         }
         
+        ScoreDistribution overall = controller.getOverallScoreDistribution();
+        if (!overall.isEmpty()) {
+            report.append("\nPHÂN BỐ ĐIỂM:\n");
+            report.append("- Trung vị: ").append(FixedPoint.format(overall.getMedianHundredths()))
+                  .append(", P10: ").append(FixedPoint.format(overall.getQuantileHundredths(0.10)))
+                  .append(", P90: ").append(FixedPoint.format(overall.getQuantileHundredths(0.90)))
+                  .append(String.format(", độ lệch chuẩn: %.2f\n\n", overall.getStandardDeviation()));
+            ReportGenerator.renderDistributions("THEO MÔN HỌC",
+                    controller.getScoreDistributions(GradeSlice.Dimension.SUBJECT), report);
+            ReportGenerator.renderDistributions("THEO NGÀNH",
+                    controller.getScoreDistributions(GradeSlice.Dimension.MAJOR), report);
+        }
+        
         txtReportArea.setText(report.toString());
     }
     
     // Data refresh methods
     private void refreshAllData() {
-        refreshStudentsData();
-        refreshGradesData();
-        refreshComboBoxes();
+        loadDataInBackground(null);
     }
     
-    private void refreshStudentsData() {
-        studentsTableModel.setRowCount(0);
-        List<Student> students = controller.getAllStudents();
-        
-        for (Student student : students) {
-            studentsTableModel.addRow(new Object[] {
-                student.getId(),
-                student.getStudentId(),
-                student.getFullName(),
-                student.getEmail(),
-                student.getPhoneNumber(),
-                student.getMajor(),
-                student.getGrades().size()
-            });
+    // After a write only the changed rows are updated, so the tables keep their
+    // sort, filter and scroll position. While a load is still streaming rows
+    // in, the written row may or may not be among them, so it is restarted.
+    private boolean isLoadingData() {
+        return dataLoader != null && !dataLoader.isDone();
+    }
+    
+    private void studentAdded(Student student) {
+        if (isLoadingData()) {
+            refreshAllData();
+            return;
         }
+        student.setGrades(new ArrayList<>());
+        studentsTableModel.addStudent(student);
+        updateStudentItems(null, studentItem(student));
     }
     
-    private void refreshGradesData() {
-        gradesTableModel.setRowCount(0);
-        List<Student> students = controller.getAllStudents();
-        
-        for (Student student : students) {
-            List<Grade> grades = controller.getGradesByStudentId(student.getStudentId());
-            for (Grade grade : grades) {
-                gradesTableModel.addRow(new Object[] {
-                    grade.getId(),
-                    student.getStudentId(),
-                    grade.getSubject(),
-                    grade.getScore(),
-                    grade.getCoefficient(),
-                    grade.getSemester(),
-                    grade.getYear()
-                });
+    private void studentUpdated(Student previous, Student student) {
+        if (isLoadingData()) {
+            refreshAllData();
+            return;
+        }
+        student.setGrades(previous.getGrades());
+        studentsTableModel.updateStudent(student);
+        if (!student.getStudentId().equals(previous.getStudentId())) {
+            gradesTableModel.setStudentCode(student.getId(), student.getStudentId());
+        }
+        updateStudentItems(studentItem(previous), studentItem(student));
+    }
+    
+    private void studentDeleted(Student student) {
+        if (isLoadingData()) {
+            refreshAllData();
+            return;
+        }
+        studentsTableModel.removeStudent(student.getId());
+        gradesTableModel.removeGradesOfStudent(student.getId());
+        updateStudentItems(studentItem(student), null);
+        gradesChanged();
+    }
+    
+    private void gradeAdded(Grade grade, String studentCode) {
+        if (isLoadingData()) {
+            refreshAllData();
+            return;
+        }
+        gradesTableModel.addGrade(grade, studentCode);
+        Student student = studentsTableModel.getStudentById(grade.getStudentId());
+        if (student != null) {
+            student.addGrade(grade);
+            studentsTableModel.fireStudentChanged(student.getId());
+        }
+        gradesChanged();
+    }
+    
+    private void gradeUpdated(Grade previous, Grade grade, String studentCode) {
+        if (isLoadingData()) {
+            refreshAllData();
+            return;
+        }
+        gradesTableModel.updateGrade(grade, studentCode);
+        removeFromStudent(previous);
+        Student student = studentsTableModel.getStudentById(grade.getStudentId());
+        if (student != null) {
+            student.addGrade(grade);
+            studentsTableModel.fireStudentChanged(student.getId());
+        }
+        gradesChanged();
+    }
+    
+    private void gradeDeleted(Grade grade) {
+        if (isLoadingData()) {
+            refreshAllData();
+            return;
+        }
+        gradesTableModel.removeGrade(grade.getId());
+        removeFromStudent(grade);
+        gradesChanged();
+    }
+    
+    private void removeFromStudent(Grade grade) {
+        Student student = studentsTableModel.getStudentById(grade.getStudentId());
+        if (student != null) {
+            student.getGrades().removeIf(g -> g.getId() == grade.getId());
+            studentsTableModel.fireStudentChanged(student.getId());
+        }
+    }
+    
+    private void gradesChanged() {
+        if (chartCache != null) {
+            // Redraws only if grades in the shown slice changed
+            showSelectedChart();
+        }
+    }
+    
+    private static String studentItem(Student student) {
+        return student.getStudentId() + " - " + student.getFullName();
+    }
+    
+    /**
+     * Add, rename or remove a student in the three student pickers
+     * @param previous Item to replace or remove, or null to add
+     * @param item New item, or null to remove
+     */
+    private void updateStudentItems(String previous, String item) {
+        for (JComboBox<String> combo : List.of(cmbStudentSelect, cmbStrategyStudent, cmbReportStudent)) {
+            int index = -1;
+            for (int i = 0; previous != null && i < combo.getItemCount(); i++) {
+                if (previous.equals(combo.getItemAt(i))) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index >= 0) {
+                combo.removeItemAt(index);
+            }
+            if (item != null) {
+                if (index >= 0) {
+                    combo.insertItemAt(item, index);
+                } else {
+                    combo.addItem(item);
+                }
             }
         }
     }
     
-    private void refreshComboBoxes() {
-        // Clear combo boxes
+    /**
+     * Reload students, grades and student pickers off the EDT. One query streams
+     * students and one streams grades; rows reach the tables in chunks so the
+     * first ones show up before the whole database has been read.
+     * @param timer Startup timer to report phases to, or null on later refreshes
+     */
+    private void loadDataInBackground(StartupTimer timer) {
+        if (dataLoader != null && !dataLoader.isDone()) {
+            dataLoader.cancel(true);
+        }
+        
+        studentsTableModel.setStudents(new ArrayList<>());
+        gradesTableModel.setGrades(new ArrayList<>(), new ArrayList<>());
+        // Rows arrive in chunks; sort them once when the last one is in
+        studentsSorter.beginBulkInsert();
+        gradesSorter.beginBulkInsert();
         cmbStudentSelect.removeAllItems();
         cmbStrategyStudent.removeAllItems();
         cmbReportStudent.removeAllItems();
         
-        // Populate with current students
-        List<Student> students = controller.getAllStudents();
-        for (Student student : students) {
-            String item = student.getStudentId() + " - " + student.getFullName();
-            cmbStudentSelect.addItem(item);
-            cmbStrategyStudent.addItem(item);
-            cmbReportStudent.addItem(item);
+        // Only touched from EDT callbacks
+        Map<Integer, Student> studentsById = new HashMap<>();
+        
+        dataLoader = new SwingWorker<Void, Runnable>() {
+            private boolean addGradesToStudents = true;
+            
+            @Override
+            protected Void doInBackground() {
+                if (!databaseInitialized) {
+                    DatabaseConnection.initializeDatabase();
+                    databaseInitialized = true;
+                    if (timer != null) timer.mark("database init");
+                }
+                
+                // At startup rows come from the snapshot file, which also fills the caches;
+                // refreshes read the database
+                DataSnapshot snapshot = null;
+                if (timer != null) {
+                    snapshot = controller.warmUpCaches();
+                    timer.mark(snapshot != null ? "snapshot opened (" + snapshot.getSource() + ")" : "caches warmed up");
+                }
+                // Snapshot students load their own grades from it
+                addGradesToStudents = snapshot == null;
+                
+                Map<Integer, String> studentCodes = new HashMap<>();
+                List<Student> studentChunk = new ArrayList<>();
+                Consumer<Student> studentSink = student -> {
+                    if (isCancelled()) {
+                        return;
+                    }
+                    studentCodes.put(student.getId(), student.getStudentId());
+                    studentChunk.add(student);
+                    if (studentChunk.size() == LOAD_CHUNK_SIZE) {
+                        publishStudents(new ArrayList<>(studentChunk));
+                        studentChunk.clear();
+                    }
+                };
+                if (snapshot != null) {
+                    snapshot.getStudents().forEach(studentSink);
+                } else {
+                    controller.forEachStudent(studentSink);
+                }
+                publishStudents(new ArrayList<>(studentChunk));
+                if (timer != null) timer.mark("students loaded (" + studentCodes.size() + ")");
+                
+                List<Grade> gradeChunk = new ArrayList<>();
+                List<String> codeChunk = new ArrayList<>();
+                Consumer<Grade> gradeSink = grade -> {
+                    if (isCancelled()) {
+                        return;
+                    }
+                    gradeChunk.add(grade);
+                    codeChunk.add(studentCodes.get(grade.getStudentId()));
+                    if (gradeChunk.size() == LOAD_CHUNK_SIZE) {
+                        publishGrades(new ArrayList<>(gradeChunk), new ArrayList<>(codeChunk));
+                        gradeChunk.clear();
+                        codeChunk.clear();
+                    }
+                };
+                int gradeCount;
+                if (snapshot != null) {
+                    GradeSnapshot grades = snapshot.getGrades();
+                    gradeCount = grades.getGradeCount();
+                    for (int record = 0; record < gradeCount; record++) {
+                        gradeSink.accept(grades.getGrade(record).toGrade());
+                    }
+                } else {
+                    gradeCount = controller.forEachGrade(gradeSink);
+                }
+                publishGrades(new ArrayList<>(gradeChunk), new ArrayList<>(codeChunk));
+                if (timer != null) timer.mark("grades loaded (" + gradeCount + ")");
+                return null;
+            }
+            
+            private void publishStudents(List<Student> chunk) {
+                publish(() -> {
+                    studentsTableModel.addStudents(chunk);
+                    for (Student student : chunk) {
+                        studentsById.put(student.getId(), student);
+                        String item = studentItem(student);
+                        cmbStudentSelect.addItem(item);
+                        cmbStrategyStudent.addItem(item);
+                        cmbReportStudent.addItem(item);
+                    }
+                });
+            }
+            
+            private void publishGrades(List<Grade> chunk, List<String> codes) {
+                boolean addToStudents = addGradesToStudents;
+                publish(() -> {
+                    gradesTableModel.addGrades(chunk, codes);
+                    if (!addToStudents) {
+                        return;
+                    }
+                    for (Grade grade : chunk) {
+                        Student student = studentsById.get(grade.getStudentId());
+                        if (student != null) {
+                            student.addGrade(grade);
+                        }
+                    }
+                });
+            }
+            
+            @Override
+            protected void process(List<Runnable> updates) {
+                if (isCancelled()) {
+                    return;
+                }
+                for (Runnable update : updates) {
+                    update.run();
+                }
+            }
+            
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                studentsTableModel.fireGradeCountsChanged();
+                studentsSorter.endBulkInsert();
+                gradesSorter.endBulkInsert();
+                if (chartCache != null) {
+                    // Redraws only if grades in the shown slice changed
+                    showSelectedChart();
+                }
+                if (timer != null) {
+                    timer.mark("tables populated");
+                    timer.log();
+                }
+            }
+        };
+        dataLoader.execute();
+    }
+    
+    // Filter methods
+    private void applyStudentFilter() {
+        String selected = (String) cmbFilterMajor.getSelectedItem();
+        String major = selected == null || FILTER_ALL.equals(selected) ? null : selected;
+        if (chkFilterFailed.isSelected()) {
+            // The bitmap index is built on first use, so look it up off the EDT
+            CohortIndex.Filter filter = new CohortIndex.Filter().major(major).band(CohortIndex.Band.FAIL);
+            new SwingWorker<RoaringBitmap, Void>() {
+                @Override
+                protected RoaringBitmap doInBackground() {
+                    return controller.findStudentIds(filter);
+                }
+                
+                @Override
+                protected void done() {
+                    try {
+                        RoaringBitmap ids = get();
+                        studentsSorter.setRowFilter(row -> ids.contains(
+                            studentsTableModel.getIntAt(row, StudentTableModel.COL_ID)));
+                    } catch (Exception e) {
+                        JOptionPane.showMessageDialog(StudentManagementGUI.this, "Lỗi: " + e.getMessage(),
+                                                      "Lỗi", JOptionPane.ERROR_MESSAGE);
+                    }
+                }
+            }.execute();
+            return;
+        }
+        if (major == null) {
+            studentsSorter.setRowFilter(null);
+            return;
+        }
+        studentsSorter.setRowFilter(row -> major.equals(
+            studentsTableModel.getStringAt(row, StudentTableModel.COL_MAJOR)));
+    }
+    
+    private void applyGradeFilter() {
+        try {
+            String semester = txtFilterSemester.getText().trim();
+            String yearText = txtFilterYear.getText().trim();
+            String minText = txtFilterMinScore.getText().trim();
+            String maxText = txtFilterMaxScore.getText().trim();
+            
+            int year = yearText.isEmpty() ? -1 : Integer.parseInt(yearText);
+            double minScore = minText.isEmpty() ? Double.NEGATIVE_INFINITY : Double.parseDouble(minText);
+            double maxScore = maxText.isEmpty() ? Double.POSITIVE_INFINITY : Double.parseDouble(maxText);
+            
+            IntPredicate filter = null;
+            if (!semester.isEmpty()) {
+                filter = and(filter, row -> semester.equalsIgnoreCase(
+                    gradesTableModel.getStringAt(row, GradeTableModel.COL_SEMESTER)));
+            }
+            if (year >= 0) {
+                filter = and(filter, row -> gradesTableModel.getIntAt(row, GradeTableModel.COL_YEAR) == year);
+            }
+            if (!minText.isEmpty() || !maxText.isEmpty()) {
+                filter = and(filter, row -> {
+                    double score = gradesTableModel.getDoubleAt(row, GradeTableModel.COL_SCORE);
+                    return score >= minScore && score <= maxScore;
+                });
+            }
+            gradesSorter.setRowFilter(filter);
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Vui lòng nhập đúng định dạng số!", "Lỗi", JOptionPane.ERROR_MESSAGE);
         }
     }
     
+    private void clearGradeFilter() {
+        txtFilterSemester.setText("");
+        txtFilterYear.setText("");
+        txtFilterMinScore.setText("");
+        txtFilterMaxScore.setText("");
+        gradesSorter.setRowFilter(null);
+    }
+    
+    private static IntPredicate and(IntPredicate first, IntPredicate second) {
+        return first == null ? second : first.and(second);
+    }
+    
     public static void main(String[] args) {
         // Set Look and Feel
         try {
@@ -997,6 +1613,11 @@ public class StudentManagementGUI extends JFrame {
             e.printStackTrace();
         }
         
+        // -Dstudentmanager.gradeWriteBehind=true batches bursts of grade corrections
+        if (Boolean.getBoolean("studentmanager.gradeWriteBehind")) {
+            GradeDAO.enableWriteBehind(500, 5000);
+        }
+        
         SwingUtilities.invokeLater(new Runnable() {
             @Override
             public void run() {
@@ -0,0 +1,166 @@
+package com.studentmanager.gui;
+
+import com.studentmanager.model.Student;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Table model for the students table
+ */
+public class StudentTableModel extends PrimitiveTableModel {
+    private static final long serialVersionUID = 1L;
+
+    public static final int COL_ID = 0;
+    public static final int COL_STUDENT_ID = 1;
+    public static final int COL_FULL_NAME = 2;
+    public static final int COL_EMAIL = 3;
+    public static final int COL_PHONE = 4;
+    public static final int COL_MAJOR = 5;
+    public static final int COL_GRADE_COUNT = 6;
+
+    private List<Student> students = new ArrayList<>();
+
+    public StudentTableModel() {
+        super(new String[] {"ID", "Mã SV", "Họ Tên", "Email", "SĐT", "Ngành", "Số Môn"},
+              new ColumnKind[] {ColumnKind.INT, ColumnKind.STRING, ColumnKind.STRING, ColumnKind.STRING,
+                                ColumnKind.STRING, ColumnKind.STRING, ColumnKind.INT});
+    }
+
+    /**
+     * Replace all rows
+     * @param students Students to display
+     */
+    public void setStudents(List<Student> students) {
+        this.students = new ArrayList<>(students);
+        fireTableDataChanged();
+    }
+
+    /**
+     * Append rows, e.g. while data is still streaming in
+     * @param more Students to append
+     */
+    public void addStudents(List<Student> more) {
+        if (more.isEmpty()) {
+            return;
+        }
+        int first = students.size();
+        students.addAll(more);
+        fireTableRowsInserted(first, students.size() - 1);
+    }
+
+    /**
+     * Append one student, e.g. after it was added
+     * @param student Student to display
+     */
+    public void addStudent(Student student) {
+        students.add(student);
+        fireTableRowsInserted(students.size() - 1, students.size() - 1);
+    }
+
+    /**
+     * Replace the row of a student after it was updated
+     * @param student Updated student, matched by database ID
+     */
+    public void updateStudent(Student student) {
+        int row = indexOfStudent(student.getId());
+        if (row >= 0) {
+            students.set(row, student);
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    /**
+     * Remove the row of a deleted student
+     * @param id Student database ID
+     */
+    public void removeStudent(int id) {
+        int row = indexOfStudent(id);
+        if (row >= 0) {
+            students.remove(row);
+            fireTableRowsDeleted(row, row);
+        }
+    }
+
+    /**
+     * Repaint one student's row, e.g. after its grades changed
+     * @param id Student database ID
+     */
+    public void fireStudentChanged(int id) {
+        int row = indexOfStudent(id);
+        if (row >= 0) {
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    /**
+     * @param id Student database ID
+     * @return Displayed student with that ID, or null if it is not shown
+     */
+    public Student getStudentById(int id) {
+        int row = indexOfStudent(id);
+        return row >= 0 ? students.get(row) : null;
+    }
+
+    private int indexOfStudent(int id) {
+        for (int row = 0; row < students.size(); row++) {
+            if (students.get(row).getId() == id) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Repaint the grade count column after grades were attached to students
+     */
+    public void fireGradeCountsChanged() {
+        if (!students.isEmpty()) {
+            fireTableRowsUpdated(0, students.size() - 1);
+        }
+    }
+
+    public Student getStudentAt(int row) {
+        return students.get(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return students.size();
+    }
+
+    @Override
+    public int getIntAt(int row, int column) {
+        Student student = students.get(row);
+        if (column == COL_ID) {
+            return student.getId();
+        }
+        if (column == COL_GRADE_COUNT) {
+            return student.getGrades().size();
+        }
+        throw new IllegalArgumentException("Not an int column: " + column);
+    }
+
+    @Override
+    public double getDoubleAt(int row, int column) {
+        throw new IllegalArgumentException("Not a double column: " + column);
+    }
+
+    @Override
+    public String getStringAt(int row, int column) {
+        Student student = students.get(row);
+        switch (column) {
+            case COL_STUDENT_ID:
+                return student.getStudentId();
+            case COL_FULL_NAME:
+                return student.getFullName();
+            case COL_EMAIL:
+                return student.getEmail();
+            case COL_PHONE:
+                return student.getPhoneNumber();
+            case COL_MAJOR:
+                return student.getMajor();
+            default:
+                throw new IllegalArgumentException("Not a string column: " + column);
+        }
+    }
+}
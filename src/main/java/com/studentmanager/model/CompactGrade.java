@@ -0,0 +1,173 @@
+package com.studentmanager.model;
+
+/**
+ * Immutable, compact form of a {@link Grade}. Score and coefficient are held
+ * in hundredths as shorts, the subject as a dictionary code, and semester and
+ * year are packed into one int term, so an instance takes 32 bytes and
+ * shares no mutable state. Use {@link #of(Grade)} and {@link #toGrade()} to
+ * convert from and to the bean.
+ */
+public final class CompactGrade {
+    private final int id;
+    private final int studentId;
+    // (year << 16) | semester code
+    private final int term;
+    private final short scoreHundredths;
+    private final short coefficientHundredths;
+    private final char subjectCode;
+
+    /**
+     * @param id Grade ID
+     * @param studentId Database ID of the student
+     * @param subjectCode Code in {@link StringDictionary#SUBJECTS}
+     * @param scoreHundredths Score times 100
+     * @param coefficientHundredths Coefficient times 100
+     * @param term Semester and year packed by {@link #packTerm(String, int)}
+     */
+    public CompactGrade(int id, int studentId, int subjectCode, int scoreHundredths,
+                        int coefficientHundredths, int term) {
+        this.id = id;
+        this.studentId = studentId;
+        this.subjectCode = (char) subjectCode;
+        this.scoreHundredths = checkedShort(scoreHundredths, "score");
+        this.coefficientHundredths = checkedShort(coefficientHundredths, "coefficient");
+        this.term = term;
+    }
+
+    /**
+     * Convert a grade bean
+     * @param grade Grade to convert; score and coefficient are rounded to 0.01
+     * @return Compact grade with the same values
+     */
+    public static CompactGrade of(Grade grade) {
+        return new CompactGrade(grade.getId(), grade.getStudentId(),
+                StringDictionary.SUBJECTS.code(grade.getSubject()),
+                FixedPoint.toHundredths(grade.getScore()), FixedPoint.toHundredths(grade.getCoefficient()),
+                packTerm(grade.getSemester(), grade.getYear()));
+    }
+
+    /**
+     * @return New mutable bean with the same values
+     */
+    public Grade toGrade() {
+        return new Grade(id, studentId, getSubject(), getScore(), getCoefficient(), getSemester(), getYear());
+    }
+
+    /**
+     * Pack a semester and year into one int. Terms of the same year compare
+     * by semester code, which follows first use rather than alphabetical order.
+     * @param semester Semester name
+     * @param year Year, 0 to 65535
+     * @return Packed term
+     */
+    public static int packTerm(String semester, int year) {
+        if (year < 0 || year > 0xFFFF) {
+            throw new IllegalArgumentException("Year out of range: " + year);
+        }
+        return (year << 16) | StringDictionary.SEMESTERS.code(semester);
+    }
+
+    public static int yearOf(int term) {
+        return term >>> 16;
+    }
+
+    public static String semesterOf(int term) {
+        return StringDictionary.SEMESTERS.value(term & 0xFFFF);
+    }
+
+    /**
+     * Narrow a value in hundredths to the 16-bit field compact grades store it in
+     * @param value Value in hundredths
+     * @param field Field name for the error message
+     * @return Same value as a short
+     * @throws IllegalArgumentException if the value does not fit
+     */
+    public static short checkedShort(int value, String field) {
+        if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+            throw new IllegalArgumentException(field + " out of range: " + FixedPoint.format(value));
+        }
+        return (short) value;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getStudentId() {
+        return studentId;
+    }
+
+    public int getSubjectCode() {
+        return subjectCode;
+    }
+
+    public String getSubject() {
+        return StringDictionary.SUBJECTS.value(subjectCode);
+    }
+
+    public int getScoreHundredths() {
+        return scoreHundredths;
+    }
+
+    public double getScore() {
+        return FixedPoint.toDouble(scoreHundredths);
+    }
+
+    public int getCoefficientHundredths() {
+        return coefficientHundredths;
+    }
+
+    public double getCoefficient() {
+        return FixedPoint.toDouble(coefficientHundredths);
+    }
+
+    public int getTerm() {
+        return term;
+    }
+
+    public String getSemester() {
+        return semesterOf(term);
+    }
+
+    public int getYear() {
+        return yearOf(term);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof CompactGrade)) {
+            return false;
+        }
+        CompactGrade grade = (CompactGrade) other;
+        return id == grade.id && studentId == grade.studentId && term == grade.term
+                && scoreHundredths == grade.scoreHundredths
+                && coefficientHundredths == grade.coefficientHundredths
+                && subjectCode == grade.subjectCode;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = id;
+        hash = 31 * hash + studentId;
+        hash = 31 * hash + term;
+        hash = 31 * hash + scoreHundredths;
+        hash = 31 * hash + coefficientHundredths;
+        return 31 * hash + subjectCode;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactGrade{" +
+                "id=" + id +
+                ", studentId=" + studentId +
+                ", subject='" + getSubject() + '\'' +
+                ", score=" + getScore() +
+                ", coefficient=" + getCoefficient() +
+                ", semester='" + getSemester() + '\'' +
+                ", year=" + getYear() +
+                '}';
+    }
+}
@@ -0,0 +1,196 @@
+package com.studentmanager.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Growable list of grades stored column by column in primitive arrays,
+ * about 18 bytes per grade instead of roughly 50 for a list of {@link Grade}
+ * beans. Aggregations read the score and coefficient columns directly
+ * without creating objects; {@link #get(int)} creates a {@link CompactGrade}
+ * on demand. Not thread-safe while being filled.
+ */
+public final class CompactGradeList implements Iterable<CompactGrade> {
+    private int[] ids;
+    private int[] studentIds;
+    private int[] terms;
+    private short[] scores;
+    private short[] coefficients;
+    private char[] subjects;
+    private int size;
+
+    public CompactGradeList() {
+        this(16);
+    }
+
+    /**
+     * @param capacity Number of grades to allocate room for
+     */
+    public CompactGradeList(int capacity) {
+        capacity = Math.max(1, capacity);
+        ids = new int[capacity];
+        studentIds = new int[capacity];
+        terms = new int[capacity];
+        scores = new short[capacity];
+        coefficients = new short[capacity];
+        subjects = new char[capacity];
+    }
+
+    /**
+     * Convert a list of grade beans
+     * @param grades Grades to convert
+     * @return Columnar copy of the grades
+     */
+    public static CompactGradeList of(List<Grade> grades) {
+        CompactGradeList list = new CompactGradeList(grades.size());
+        for (Grade grade : grades) {
+            list.add(CompactGrade.of(grade));
+        }
+        return list;
+    }
+
+    public void add(CompactGrade grade) {
+        add(grade.getId(), grade.getStudentId(), grade.getSubjectCode(), grade.getScoreHundredths(),
+                grade.getCoefficientHundredths(), grade.getTerm());
+    }
+
+    /**
+     * Append a grade without creating an object
+     * @param id Grade ID
+     * @param studentId Database ID of the student
+     * @param subjectCode Code in {@link StringDictionary#SUBJECTS}
+     * @param scoreHundredths Score times 100
+     * @param coefficientHundredths Coefficient times 100
+     * @param term Packed term, see {@link CompactGrade#packTerm(String, int)}
+     */
+    public void add(int id, int studentId, int subjectCode, int scoreHundredths, int coefficientHundredths, int term) {
+        if (size == ids.length) {
+            grow();
+        }
+        ids[size] = id;
+        studentIds[size] = studentId;
+        terms[size] = term;
+        scores[size] = CompactGrade.checkedShort(scoreHundredths, "score");
+        coefficients[size] = CompactGrade.checkedShort(coefficientHundredths, "coefficient");
+        subjects[size] = (char) subjectCode;
+        size++;
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        studentIds = Arrays.copyOf(studentIds, capacity);
+        terms = Arrays.copyOf(terms, capacity);
+        scores = Arrays.copyOf(scores, capacity);
+        coefficients = Arrays.copyOf(coefficients, capacity);
+        subjects = Arrays.copyOf(subjects, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public CompactGrade get(int index) {
+        checkIndex(index);
+        return new CompactGrade(ids[index], studentIds[index], subjects[index], scores[index],
+                coefficients[index], terms[index]);
+    }
+
+    public int getId(int index) {
+        checkIndex(index);
+        return ids[index];
+    }
+
+    public int getStudentId(int index) {
+        checkIndex(index);
+        return studentIds[index];
+    }
+
+    public int getScoreHundredths(int index) {
+        checkIndex(index);
+        return scores[index];
+    }
+
+    public int getCoefficientHundredths(int index) {
+        checkIndex(index);
+        return coefficients[index];
+    }
+
+    public int getTerm(int index) {
+        checkIndex(index);
+        return terms[index];
+    }
+
+    public int getSubjectCode(int index) {
+        checkIndex(index);
+        return subjects[index];
+    }
+
+    /**
+     * Sum of score times coefficient, in ten-thousandths
+     * @return Exact weighted sum
+     */
+    public long weightedScoreSum() {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += scores[i] * coefficients[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Sum of coefficients, in hundredths
+     * @return Exact coefficient sum
+     */
+    public long coefficientSum() {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += coefficients[i];
+        }
+        return sum;
+    }
+
+    /**
+     * @return Mutable beans with the same values, in list order
+     */
+    public List<Grade> toGrades() {
+        List<Grade> grades = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            grades.add(get(i).toGrade());
+        }
+        return grades;
+    }
+
+    @Override
+    public Iterator<CompactGrade> iterator() {
+        return new Iterator<CompactGrade>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public CompactGrade next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.studentmanager.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Scores and coefficients as integers in hundredths (8.5 is 850). Sums of
+ * integers are exact, so averages no longer depend on the order in which
+ * grades are added, and a threshold like 8.5 is compared on the exact value
+ * rather than on a double that may land just below it.
+ */
+public final class FixedPoint {
+    public static final int SCALE = 100;
+
+    private FixedPoint() {}
+
+    /**
+     * Convert a decimal value, rounding half up on its decimal digits
+     * @param value Score or coefficient
+     * @return Value in hundredths
+     */
+    public static int toHundredths(double value) {
+        double scaled = value * SCALE;
+        long rounded = Math.round(scaled);
+        // 8.345 * 100 is 834.4999..., so values near a half are rounded on their decimal form
+        if (Math.abs(Math.abs(scaled - Math.floor(scaled)) - 0.5) < 1e-6) {
+            rounded = BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+        }
+        return Math.toIntExact(rounded);
+    }
+
+    /**
+     * @param hundredths Value in hundredths
+     * @return Value as a double
+     */
+    public static double toDouble(long hundredths) {
+        return hundredths / (double) SCALE;
+    }
+
+    /**
+     * Weighted average rounded half up to hundredths
+     * @param weightedSum Sum of score times coefficient, in ten-thousandths
+     * @param coefficientSum Sum of coefficients, in hundredths; must be positive
+     * @return Average in hundredths
+     */
+    public static long weightedAverage(long weightedSum, long coefficientSum) {
+        return divideHalfUp(weightedSum, coefficientSum);
+    }
+
+    /**
+     * Plain average rounded half up
+     * @param sum Sum of values in hundredths
+     * @param count Number of values; must be positive
+     * @return Average in hundredths
+     */
+    public static long average(long sum, long count) {
+        return divideHalfUp(sum, count);
+    }
+
+    /**
+     * Format with exactly two decimals and a dot, independent of locale
+     * @param hundredths Value in hundredths
+     * @return Text such as "8.50"
+     */
+    public static String format(long hundredths) {
+        StringBuilder text = new StringBuilder(8);
+        if (hundredths < 0) {
+            text.append('-');
+            hundredths = -hundredths;
+        }
+        long fraction = hundredths % SCALE;
+        text.append(hundredths / SCALE).append('.');
+        if (fraction < 10) {
+            text.append('0');
+        }
+        return text.append(fraction).toString();
+    }
+
+    private static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (Math.abs(remainder) * 2 >= Math.abs(divisor)) {
+            quotient += (dividend < 0) == (divisor < 0) ? 1 : -1;
+        }
+        return quotient;
+    }
+}
@@ -1,14 +1,15 @@
 package com.studentmanager.model;
 
 /**
- * Model class representing a Grade/Score
+ * Model class representing a Grade/Score. Score and coefficient are kept in
+ * fixed point (hundredths, see {@link FixedPoint}) and exposed as doubles.
  */
 public class Grade {
     private int id;
     private int studentId;
     private String subject;
-    private double score;
-    private double coefficient; // Hệ số môn học
+    private int scoreHundredths;
+    private int coefficientHundredths; // Hệ số môn học
     private String semester;
     private int year;
 
@@ -18,8 +19,8 @@ public class Grade {
     public Grade(int studentId, String subject, double score, double coefficient, String semester, int year) {
         this.studentId = studentId;
         this.subject = subject;
-        this.score = score;
-        this.coefficient = coefficient;
+        this.scoreHundredths = FixedPoint.toHundredths(score);
+        this.coefficientHundredths = FixedPoint.toHundredths(coefficient);
         this.semester = semester;
         this.year = year;
     }
@@ -55,19 +56,33 @@ public class Grade {
     }
 
     public double getScore() {
-        return score;
+        return FixedPoint.toDouble(scoreHundredths);
     }
 
+    /**
+     * @param score Score, rounded half up to two decimals
+     */
     public void setScore(double score) {
-        this.score = score;
+        this.scoreHundredths = FixedPoint.toHundredths(score);
+    }
+
+    public int getScoreHundredths() {
+        return scoreHundredths;
     }
 
     public double getCoefficient() {
-        return coefficient;
+        return FixedPoint.toDouble(coefficientHundredths);
     }
 
+    /**
+     * @param coefficient Coefficient, rounded half up to two decimals
+     */
     public void setCoefficient(double coefficient) {
-        this.coefficient = coefficient;
+        this.coefficientHundredths = FixedPoint.toHundredths(coefficient);
+    }
+
+    public int getCoefficientHundredths() {
+        return coefficientHundredths;
     }
 
     public String getSemester() {
@@ -87,7 +102,14 @@ public class Grade {
     }
 
     public double getWeightedScore() {
-        return score * coefficient;
+        return getWeightedScoreTenThousandths() / (double) (FixedPoint.SCALE * FixedPoint.SCALE);
+    }
+
+    /**
+     * @return Score times coefficient, exact, in ten-thousandths
+     */
+    public long getWeightedScoreTenThousandths() {
+        return (long) scoreHundredths * coefficientHundredths;
     }
 
     @Override
@@ -96,8 +118,8 @@ public class Grade {
                 "id=" + id +
                 ", studentId=" + studentId +
                 ", subject='" + subject + '\'' +
-                ", score=" + score +
-                ", coefficient=" + coefficient +
+                ", score=" + getScore() +
+                ", coefficient=" + getCoefficient() +
                 ", semester='" + semester + '\'' +
                 ", year=" + year +
                 '}';
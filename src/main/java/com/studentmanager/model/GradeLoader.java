@@ -0,0 +1,16 @@
+package com.studentmanager.model;
+
+import java.util.List;
+
+/**
+ * Loads a student's grades the first time {@link Student#getGrades()} is called
+ */
+public interface GradeLoader {
+    /**
+     * Load the grades of a student. Implementations may load the grades of
+     * other students in the same batch and hand them over with setGrades.
+     * @param student Student whose grades are needed
+     * @return The student's grades, never null
+     */
+    List<Grade> loadGrades(Student student);
+}
@@ -0,0 +1,101 @@
+package com.studentmanager.model;
+
+import java.util.Objects;
+
+/**
+ * A subset of grades identified by one subject, one semester of a year, or one major
+ */
+public class GradeSlice {
+
+    /**
+     * Attribute a slice groups grades by
+     */
+    public enum Dimension {
+        SUBJECT("Môn học"),
+        SEMESTER("Học kỳ"),
+        MAJOR("Ngành");
+
+        private final String displayName;
+
+        Dimension(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+
+    private final Dimension dimension;
+    private final String value;
+    private final int year; // only used by SEMESTER slices
+
+    private GradeSlice(Dimension dimension, String value, int year) {
+        this.dimension = dimension;
+        this.value = value;
+        this.year = year;
+    }
+
+    public static GradeSlice subject(String subject) {
+        return new GradeSlice(Dimension.SUBJECT, subject, 0);
+    }
+
+    public static GradeSlice semester(String semester, int year) {
+        return new GradeSlice(Dimension.SEMESTER, semester, year);
+    }
+
+    public static GradeSlice major(String major) {
+        return new GradeSlice(Dimension.MAJOR, major, 0);
+    }
+
+    public Dimension getDimension() {
+        return dimension;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    /**
+     * Stable identifier, used for version tracking and caching
+     */
+    public String getKey() {
+        return dimension == Dimension.SEMESTER
+                ? dimension.name() + ":" + value + ":" + year
+                : dimension.name() + ":" + value;
+    }
+
+    /**
+     * Human readable name, e.g. "HK1 2024"
+     */
+    public String getLabel() {
+        return dimension == Dimension.SEMESTER ? value + " " + year : value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof GradeSlice)) return false;
+        GradeSlice other = (GradeSlice) o;
+        return year == other.year && dimension == other.dimension && Objects.equals(value, other.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(dimension, value, year);
+    }
+
+    @Override
+    public String toString() {
+        return getLabel();
+    }
+}
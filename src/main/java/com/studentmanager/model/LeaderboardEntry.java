@@ -0,0 +1,75 @@
+package com.studentmanager.model;
+
+/**
+ * One row of a class-wide strategy leaderboard
+ */
+public class LeaderboardEntry {
+    private final Student student;
+    private final int gradeCount;
+    private final double score;
+    private final String result;
+    private int rank;
+    private double percentile;
+
+    public LeaderboardEntry(Student student, int gradeCount, double score, String result) {
+        this.student = student;
+        this.gradeCount = gradeCount;
+        this.score = score;
+        this.result = result;
+    }
+
+    public Student getStudent() {
+        return student;
+    }
+
+    public int getGradeCount() {
+        return gradeCount;
+    }
+
+    /**
+     * Numeric value the entry is ranked by
+     */
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * Strategy result as displayed to the user
+     */
+    public String getResult() {
+        return result;
+    }
+
+    /**
+     * Competition rank: tied scores share a rank, the next rank is skipped
+     */
+    public int getRank() {
+        return rank;
+    }
+
+    public void setRank(int rank) {
+        this.rank = rank;
+    }
+
+    /**
+     * Percentage of ranked students with a strictly lower score
+     */
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public void setPercentile(double percentile) {
+        this.percentile = percentile;
+    }
+
+    @Override
+    public String toString() {
+        return "LeaderboardEntry{" +
+                "rank=" + rank +
+                ", studentId='" + student.getStudentId() + '\'' +
+                ", score=" + score +
+                ", result='" + result + '\'' +
+                ", percentile=" + percentile +
+                '}';
+    }
+}
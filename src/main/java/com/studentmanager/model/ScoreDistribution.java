@@ -0,0 +1,196 @@
+package com.studentmanager.model;
+
+import java.util.Arrays;
+
+/**
+ * Distribution of the scores of a set of grades, as a count per possible
+ * score. Scores are stored in hundredths from 0.00 to 10.00, so 1001 counters
+ * describe any number of grades exactly: quantiles, mean and standard
+ * deviation are those of the full data, memory stays at about 4 KB, and
+ * distributions of disjoint sets are merged by adding their counters.
+ *
+ * Not thread-safe.
+ */
+public final class ScoreDistribution {
+    /** Number of possible scores, 0.00 to 10.00 in hundredths */
+    public static final int BUCKETS = 10 * FixedPoint.SCALE + 1;
+
+    private final int[] counts = new int[BUCKETS];
+    private long count;
+    private long sum; // hundredths
+
+    /**
+     * Record grades with one score
+     * @param scoreHundredths Score in hundredths, clamped to 0.00-10.00
+     * @param grades Number of grades, negative to remove them
+     */
+    public void add(int scoreHundredths, int grades) {
+        int bucket = Math.max(0, Math.min(BUCKETS - 1, scoreHundredths));
+        counts[bucket] += grades;
+        count += grades;
+        sum += (long) bucket * grades;
+    }
+
+    public void add(int scoreHundredths) {
+        add(scoreHundredths, 1);
+    }
+
+    public void remove(int scoreHundredths) {
+        add(scoreHundredths, -1);
+    }
+
+    /**
+     * Add the grades of another distribution, e.g. to combine semesters
+     * @param other Distribution of a disjoint set of grades
+     * @return this distribution
+     */
+    public ScoreDistribution merge(ScoreDistribution other) {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts[bucket] += other.counts[bucket];
+        }
+        count += other.count;
+        sum += other.sum;
+        return this;
+    }
+
+    public ScoreDistribution copy() {
+        return new ScoreDistribution().merge(this);
+    }
+
+    /**
+     * @return Number of grades
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @return Mean score rounded half up to hundredths, or 0 if empty
+     */
+    public long getMeanHundredths() {
+        return count == 0 ? 0 : FixedPoint.average(sum, count);
+    }
+
+    /**
+     * @return Mean score, or 0 if empty
+     */
+    public double getMean() {
+        return count == 0 ? 0.0 : FixedPoint.toDouble(sum) / count;
+    }
+
+    /**
+     * Population standard deviation, summed around the exact mean so it does
+     * not lose precision the way sum-of-squares formulas do
+     * @return Standard deviation in points, or 0 if empty
+     */
+    public double getStandardDeviation() {
+        if (count == 0) {
+            return 0.0;
+        }
+        double mean = (double) sum / count;
+        double squares = 0.0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            if (counts[bucket] != 0) {
+                double deviation = bucket - mean;
+                squares += deviation * deviation * counts[bucket];
+            }
+        }
+        return Math.sqrt(squares / count) / FixedPoint.SCALE;
+    }
+
+    /**
+     * Nearest-rank quantile: the lowest score that at least the fraction q
+     * of the grades are at or below
+     * @param q Fraction between 0 and 1, e.g. 0.5 for the median
+     * @return Score in hundredths, or -1 if empty
+     */
+    public int getQuantileHundredths(double q) {
+        if (count == 0) {
+            return -1;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(1.0, Math.max(0.0, q)) * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return bucket;
+            }
+        }
+        return BUCKETS - 1;
+    }
+
+    /**
+     * @return Median score in hundredths, or -1 if empty
+     */
+    public int getMedianHundredths() {
+        return getQuantileHundredths(0.5);
+    }
+
+    /**
+     * @return Lowest score in hundredths, or -1 if empty
+     */
+    public int getMinHundredths() {
+        return getQuantileHundredths(0.0);
+    }
+
+    /**
+     * @return Highest score in hundredths, or -1 if empty
+     */
+    public int getMaxHundredths() {
+        if (count == 0) {
+            return -1;
+        }
+        for (int bucket = BUCKETS - 1; bucket > 0; bucket--) {
+            if (counts[bucket] != 0) {
+                return bucket;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Count grades per one-point band, the last band including 10
+     * @return Ten band counts, index i covers scores [i, i+1)
+     */
+    public int[] getBands() {
+        int[] bands = new int[10];
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            bands[Math.min(bucket / FixedPoint.SCALE, 9)] += counts[bucket];
+        }
+        return bands;
+    }
+
+    /**
+     * @param scoreHundredths Score in hundredths
+     * @return Number of grades with exactly that score
+     */
+    public int getCountAt(int scoreHundredths) {
+        return scoreHundredths < 0 || scoreHundredths >= BUCKETS ? 0 : counts[scoreHundredths];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ScoreDistribution)) return false;
+        return Arrays.equals(counts, ((ScoreDistribution) o).counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(counts);
+    }
+
+    @Override
+    public String toString() {
+        return "ScoreDistribution{" +
+                "count=" + count +
+                ", mean=" + FixedPoint.format(getMeanHundredths()) +
+                ", median=" + (count == 0 ? "-" : FixedPoint.format(getMedianHundredths())) +
+                ", stddev=" + String.format("%.2f", getStandardDeviation()) +
+                '}';
+    }
+}
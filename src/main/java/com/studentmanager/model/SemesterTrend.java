@@ -0,0 +1,125 @@
+package com.studentmanager.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Semester-by-semester results of a student or cohort, oldest first: the
+ * weighted average and GPA of each semester and of all semesters up to it
+ */
+public class SemesterTrend {
+
+    /**
+     * Results of one semester. Sums are exact fixed-point integers, so the
+     * averages match those of the strategies over the same grades.
+     */
+    public static class Point {
+        private final String semester;
+        private final int year;
+        private final int gradeCount;
+        private final long weightedScoreSum;   // ten-thousandths
+        private final long coefficientSum;     // hundredths
+        private final long gradePointSum;      // grade points times hundredths of coefficient
+        private final int cumulativeGradeCount;
+        private final long cumulativeWeightedScoreSum;
+        private final long cumulativeCoefficientSum;
+        private final long cumulativeGradePointSum;
+
+        public Point(String semester, int year, int gradeCount, long weightedScoreSum, long coefficientSum,
+                     long gradePointSum, int cumulativeGradeCount, long cumulativeWeightedScoreSum,
+                     long cumulativeCoefficientSum, long cumulativeGradePointSum) {
+            this.semester = semester;
+            this.year = year;
+            this.gradeCount = gradeCount;
+            this.weightedScoreSum = weightedScoreSum;
+            this.coefficientSum = coefficientSum;
+            this.gradePointSum = gradePointSum;
+            this.cumulativeGradeCount = cumulativeGradeCount;
+            this.cumulativeWeightedScoreSum = cumulativeWeightedScoreSum;
+            this.cumulativeCoefficientSum = cumulativeCoefficientSum;
+            this.cumulativeGradePointSum = cumulativeGradePointSum;
+        }
+
+        public String getSemester() {
+            return semester;
+        }
+
+        public int getYear() {
+            return year;
+        }
+
+        /**
+         * Human readable name, e.g. "HK1 2024"
+         */
+        public String getLabel() {
+            return semester + " " + year;
+        }
+
+        public int getGradeCount() {
+            return gradeCount;
+        }
+
+        public int getCumulativeGradeCount() {
+            return cumulativeGradeCount;
+        }
+
+        /**
+         * @return Weighted average of the semester in hundredths, rounded half up
+         */
+        public long getAverageHundredths() {
+            return coefficientSum == 0 ? 0 : FixedPoint.weightedAverage(weightedScoreSum, coefficientSum);
+        }
+
+        /**
+         * @return Weighted average of this and all earlier semesters in hundredths
+         */
+        public long getCumulativeAverageHundredths() {
+            return cumulativeCoefficientSum == 0 ? 0
+                    : FixedPoint.weightedAverage(cumulativeWeightedScoreSum, cumulativeCoefficientSum);
+        }
+
+        /**
+         * @return GPA of the semester on the 4.0 scale, in hundredths
+         */
+        public long getGpaHundredths() {
+            return coefficientSum == 0 ? 0 : FixedPoint.average(gradePointSum * FixedPoint.SCALE, coefficientSum);
+        }
+
+        /**
+         * @return GPA of this and all earlier semesters, in hundredths
+         */
+        public long getCumulativeGpaHundredths() {
+            return cumulativeCoefficientSum == 0 ? 0
+                    : FixedPoint.average(cumulativeGradePointSum * FixedPoint.SCALE, cumulativeCoefficientSum);
+        }
+
+        @Override
+        public String toString() {
+            return "Point{" +
+                    "term='" + getLabel() + '\'' +
+                    ", grades=" + gradeCount +
+                    ", average=" + FixedPoint.format(getAverageHundredths()) +
+                    ", cumulativeAverage=" + FixedPoint.format(getCumulativeAverageHundredths()) +
+                    ", gpa=" + FixedPoint.format(getGpaHundredths()) +
+                    ", cumulativeGpa=" + FixedPoint.format(getCumulativeGpaHundredths()) +
+                    '}';
+        }
+    }
+
+    private final List<Point> points;
+
+    public SemesterTrend(List<Point> points) {
+        this.points = Collections.unmodifiableList(points);
+    }
+
+    /**
+     * @return One point per semester with grades, oldest first
+     */
+    public List<Point> getPoints() {
+        return points;
+    }
+
+    public boolean isEmpty() {
+        return points.isEmpty();
+    }
+}
@@ -0,0 +1,132 @@
+package com.studentmanager.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary of the few distinct values of a text column, such as subjects or
+ * semesters. Rows mapped through it share one String instance per value, and
+ * each value has a small integer code for compact representations.
+ * Codes are assigned in order of first use and never change while running.
+ */
+public final class StringDictionary {
+    // Codes must fit in an unsigned 16-bit field
+    public static final int MAX_CODES = 1 << 16;
+
+    public static final StringDictionary SUBJECTS = new StringDictionary("subject");
+    public static final StringDictionary SEMESTERS = new StringDictionary("semester");
+    public static final StringDictionary MAJORS = new StringDictionary("major");
+
+    private final String name;
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[16];
+    private int size = 0;
+
+    private StringDictionary(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the shared instance of a value
+     * @param value Value read from the database, may be null
+     * @return Equal String shared by every row, or the value itself if the dictionary is full
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        int code = lookup(value);
+        return code < 0 ? value : values[code];
+    }
+
+    /**
+     * Get the code of a value, adding it if it is new
+     * @param value Value to encode
+     * @return Code in [0, MAX_CODES), or -1 for null
+     * @throws IllegalStateException if the dictionary already holds MAX_CODES values
+     */
+    public int code(String value) {
+        if (value == null) {
+            return -1;
+        }
+        int code = lookup(value);
+        if (code < 0) {
+            throw new IllegalStateException("Too many distinct " + name + " values");
+        }
+        return code;
+    }
+
+    /**
+     * Get the code of a value without adding it, for values that come from
+     * users rather than from stored rows
+     * @param value Value to look up
+     * @return Code in [0, MAX_CODES), or -1 for null or a value never encoded
+     */
+    public int find(String value) {
+        if (value == null) {
+            return -1;
+        }
+        Integer code = codes.get(value);
+        return code != null ? code : -1;
+    }
+
+    /**
+     * Get the codes of every value equal to one ignoring case, without adding it
+     * @param value Value to look up
+     * @return Codes in ascending order, empty for null or when nothing matches
+     */
+    public int[] findIgnoreCase(String value) {
+        if (value == null) {
+            return new int[0];
+        }
+        // Values are published before their codes, so every counted code has its value
+        int size = codes.size();
+        String[] current = values;
+        int[] found = new int[size];
+        int count = 0;
+        for (int code = 0; code < size; code++) {
+            if (value.equalsIgnoreCase(current[code])) {
+                found[count++] = code;
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Get the value of a code
+     * @param code Code returned by code(), or -1
+     * @return Shared value, or null for -1
+     */
+    public String value(int code) {
+        return code < 0 ? null : values[code];
+    }
+
+    public int size() {
+        return codes.size();
+    }
+
+    private int lookup(String value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        synchronized (this) {
+            code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            if (size == MAX_CODES) {
+                return -1;
+            }
+            String[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, Math.min(MAX_CODES, size * 2));
+            }
+            current[size] = value;
+            // Publish the array before the code so readers never see a code without its value
+            values = current;
+            codes.put(value, size);
+            return size++;
+        }
+    }
+}
@@ -13,7 +13,9 @@ public class Student {
     private String email;
     private String phoneNumber;
     private String major;
+    // Null until loaded when a grade loader is set
     private List<Grade> grades;
+    private GradeLoader gradeLoader;
 
     // Constructors
     public Student() {
@@ -83,16 +85,42 @@ public class Student {
         this.major = major;
     }
 
+    /**
+     * Get the student's grades, loading them first if they are loaded lazily
+     * @return Grades of the student
+     */
     public List<Grade> getGrades() {
+        if (grades == null) {
+            GradeLoader loader = gradeLoader;
+            gradeLoader = null;
+            grades = loader != null ? loader.loadGrades(this) : new ArrayList<>();
+        }
         return grades;
     }
 
     public void setGrades(List<Grade> grades) {
         this.grades = grades;
+        this.gradeLoader = null;
+    }
+
+    /**
+     * Load grades on the first call to getGrades instead of now
+     * @param gradeLoader Loader to use, possibly shared with other students
+     */
+    public void setGradeLoader(GradeLoader gradeLoader) {
+        this.grades = null;
+        this.gradeLoader = gradeLoader;
+    }
+
+    /**
+     * @return true if getGrades will not need to query the database
+     */
+    public boolean isGradesLoaded() {
+        return grades != null;
     }
 
     public void addGrade(Grade grade) {
-        this.grades.add(grade);
+        getGrades().add(grade);
     }
 
     @Override
@@ -104,7 +132,7 @@ public class Student {
                 ", email='" + email + '\'' +
                 ", phoneNumber='" + phoneNumber + '\'' +
                 ", major='" + major + '\'' +
-                ", grades=" + grades.size() + " grades" +
+                ", grades=" + (grades != null ? grades.size() + " grades" : "not loaded") +
                 '}';
     }
 }
\ No newline at end of file
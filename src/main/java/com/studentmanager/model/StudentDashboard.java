@@ -0,0 +1,44 @@
+package com.studentmanager.model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything shown about one student at a glance: the student, their grades,
+ * the semesters they studied and the result of each calculation strategy
+ */
+public class StudentDashboard {
+    private final Student student;
+    private final List<Grade> grades;
+    private final List<String> semesters;
+    private final Map<String, String> strategyResults;
+
+    public StudentDashboard(Student student, List<Grade> grades, List<String> semesters,
+                            Map<String, String> strategyResults) {
+        this.student = student;
+        this.grades = grades;
+        this.semesters = semesters;
+        this.strategyResults = strategyResults;
+    }
+
+    public Student getStudent() {
+        return student;
+    }
+
+    public List<Grade> getGrades() {
+        return Collections.unmodifiableList(grades);
+    }
+
+    public List<String> getSemesters() {
+        return Collections.unmodifiableList(semesters);
+    }
+
+    /**
+     * Results keyed by strategy name, in the order of the available strategies
+     * @return Strategy results
+     */
+    public Map<String, String> getStrategyResults() {
+        return Collections.unmodifiableMap(strategyResults);
+    }
+}
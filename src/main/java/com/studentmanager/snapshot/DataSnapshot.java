@@ -0,0 +1,255 @@
+package com.studentmanager.snapshot;
+
+import com.studentmanager.dao.ChangeLogDAO;
+import com.studentmanager.dao.GradeDAO;
+import com.studentmanager.dao.StudentDAO;
+import com.studentmanager.model.Grade;
+import com.studentmanager.model.GradeLoader;
+import com.studentmanager.model.Student;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * All students and grades as of one change log sequence number. Students
+ * are ordered by name like {@link StudentDAO#getAllStudents()} and load
+ * their grades from the off-heap {@link GradeSnapshot} instead of the
+ * database.
+ *
+ * {@link #open} starts from a {@link SnapshotFile} when one exists and
+ * replays only the rows changed since it was written, so startup on an
+ * unchanged database costs one file mapping instead of a full table scan.
+ */
+public final class DataSnapshot {
+    /** Prefix of the export watermark that keeps the change log a snapshot file still needs */
+    public static final String WATERMARK_PREFIX = "snapshot:";
+
+    // Above this many log entries per row, reloading is cheaper than replaying
+    private static final double MAX_DELTA_RATIO = 0.25;
+
+    private static final Comparator<Student> NAME_ORDER = Comparator.comparing(Student::getFullName,
+            Comparator.nullsFirst(Comparator.naturalOrder()));
+    private static final Comparator<Grade> GRADE_ORDER = Comparator.comparingInt(Grade::getYear).reversed()
+            .thenComparing(Grade::getSemester, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Grade::getSubject, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    /** Where the data of a snapshot came from */
+    public enum Source {
+        /** Snapshot file only, the database had not changed */
+        FILE,
+        /** Snapshot file plus the changes logged since it was written */
+        FILE_WITH_DELTA,
+        /** Full load from the database */
+        DATABASE
+    }
+
+    private final List<Student> students;
+    private final GradeSnapshot grades;
+    private final long changeSequence;
+    private final Source source;
+
+    DataSnapshot(List<Student> students, GradeSnapshot grades, long changeSequence, Source source) {
+        this.students = Collections.unmodifiableList(students);
+        this.grades = grades;
+        this.changeSequence = changeSequence;
+        this.source = source;
+
+        GradeLoader loader = student -> grades.getGradesOfStudent(student.getId()).toGrades();
+        for (Student student : students) {
+            student.setGradeLoader(loader);
+        }
+    }
+
+    /**
+     * Load every student and grade from the database
+     * @param studentDAO DAO to read the students from
+     * @param gradeDAO DAO to read the grades from
+     * @param changeLogDAO DAO to read the change log sequence from
+     * @return New snapshot
+     */
+    public static DataSnapshot load(StudentDAO studentDAO, GradeDAO gradeDAO, ChangeLogDAO changeLogDAO) {
+        // Read the sequence first: a change made during the load is replayed
+        // again later, which is harmless since replaying a row is idempotent
+        GradeDAO.flushWrites();
+        long sequence = changeLogDAO.getCurrentSequence();
+        List<Student> students = studentDAO.getAllStudents();
+        GradeSnapshot grades = GradeSnapshot.load(gradeDAO);
+        return new DataSnapshot(students, grades, sequence, Source.DATABASE);
+    }
+
+    /**
+     * Open the snapshot file, bring it up to date with the change log and
+     * write it back if anything changed. Falls back to a full load when the
+     * file is missing or damaged, when the change log no longer covers it,
+     * or when so much changed that replaying would be slower.
+     * @param file Snapshot file, created if missing
+     * @param studentDAO DAO to read the students from
+     * @param gradeDAO DAO to read the grades from
+     * @param changeLogDAO DAO to read changes and watermarks from
+     * @return Snapshot matching the database
+     */
+    public static DataSnapshot open(Path file, StudentDAO studentDAO, GradeDAO gradeDAO,
+                                    ChangeLogDAO changeLogDAO) {
+        String watermarkName = WATERMARK_PREFIX + file.toAbsolutePath().normalize();
+        // Buffered grade writes are only in the log once flushed
+        GradeDAO.flushWrites();
+        long current = changeLogDAO.getCurrentSequence();
+        DataSnapshot snapshot = null;
+
+        try {
+            if (SnapshotFile.exists(file)) {
+                snapshot = SnapshotFile.read(file);
+            }
+        } catch (IOException e) {
+            System.err.println("Ignoring snapshot file: " + e.getMessage());
+        }
+        if (snapshot != null && snapshot.changeSequence != current) {
+            // The log entries after the file are only guaranteed to exist while
+            // the watermark registered for it has not moved past it
+            long watermark = changeLogDAO.getWatermark(watermarkName);
+            long delta = current - snapshot.changeSequence;
+            long rows = (long) snapshot.students.size() + snapshot.grades.getGradeCount();
+            if (delta < 0 || watermark < 0 || watermark > snapshot.changeSequence
+                    || delta > Math.max(1000, rows * MAX_DELTA_RATIO)) {
+                snapshot = null;
+            } else {
+                snapshot = snapshot.applyChanges(changeLogDAO, current);
+            }
+        }
+        if (snapshot == null) {
+            snapshot = load(studentDAO, gradeDAO, changeLogDAO);
+        }
+
+        if (snapshot.source != Source.FILE) {
+            try {
+                SnapshotFile.write(snapshot, file);
+                if (changeLogDAO.setWatermark(watermarkName, snapshot.changeSequence)) {
+                    changeLogDAO.pruneChangeLog();
+                }
+            } catch (IOException e) {
+                System.err.println("Error writing snapshot file: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Apply the changes logged after this snapshot
+     * @param changeLogDAO DAO to read the changes from
+     * @param upToSeq Last sequence number to apply
+     * @return Updated snapshot, or null if the changes could not be read
+     */
+    DataSnapshot applyChanges(ChangeLogDAO changeLogDAO, long upToSeq) {
+        Map<Integer, Student> byId = new LinkedHashMap<>();
+        for (Student student : students) {
+            byId.put(student.getId(), student);
+        }
+        int studentChanges = changeLogDAO.forEachStudentChange(changeSequence, upToSeq, (operation, id, student) -> {
+            if (student == null) {
+                byId.remove(id);
+            } else {
+                byId.put(id, student);
+            }
+        });
+
+        Set<Integer> changedGrades = new HashSet<>();
+        TreeMap<Integer, List<Grade>> upserts = new TreeMap<>();
+        int gradeChanges = changeLogDAO.forEachGradeChange(changeSequence, upToSeq, (operation, id, grade) -> {
+            changedGrades.add(id);
+            if (grade != null) {
+                upserts.computeIfAbsent(grade.getStudentId(), studentId -> new ArrayList<>()).add(grade);
+            }
+        });
+        if (studentChanges < 0 || gradeChanges < 0) {
+            return null;
+        }
+
+        List<Student> updatedStudents = new ArrayList<>(byId.values());
+        updatedStudents.sort(NAME_ORDER);
+        GradeSnapshot updatedGrades = changedGrades.isEmpty() ? grades : merge(grades, changedGrades, upserts);
+        return new DataSnapshot(updatedStudents, updatedGrades, upToSeq, Source.FILE_WITH_DELTA);
+    }
+
+    /**
+     * Copy the base grades into a new snapshot, without the changed ones and
+     * with the current rows of the changed ones added in database order
+     */
+    static GradeSnapshot merge(GradeSnapshot base, Set<Integer> changedIds, TreeMap<Integer, List<Grade>> upserts) {
+        int added = 0;
+        for (List<Grade> list : upserts.values()) {
+            added += list.size();
+        }
+        GradeSnapshot.Builder builder = new GradeSnapshot.Builder(base.getGradeCount() + added);
+        Iterator<Map.Entry<Integer, List<Grade>>> pending = upserts.entrySet().iterator();
+        Map.Entry<Integer, List<Grade>> next = pending.hasNext() ? pending.next() : null;
+        int entry = 0;
+
+        while (entry < base.getStudentCount() || next != null) {
+            boolean fromBase = entry < base.getStudentCount()
+                    && (next == null || base.getIndexedStudentId(entry) <= next.getKey());
+            boolean fromChanges = next != null
+                    && (entry >= base.getStudentCount() || next.getKey() <= base.getIndexedStudentId(entry));
+            int first = fromBase ? base.getFirstRecord(entry) : 0;
+            int count = fromBase ? base.getRecordCount(entry) : 0;
+
+            if (!fromChanges) {
+                // Untouched student: copy the records as they are
+                for (int record = first; record < first + count; record++) {
+                    if (!changedIds.contains(base.getId(record))) {
+                        builder.add(base.getId(record), base.getStudentId(record), base.getTerm(record),
+                                base.getScoreHundredths(record), base.getCoefficientHundredths(record),
+                                base.getSubjectCode(record));
+                    }
+                }
+            } else {
+                List<Grade> grades = new ArrayList<>(next.getValue());
+                for (int record = first; record < first + count; record++) {
+                    if (!changedIds.contains(base.getId(record))) {
+                        grades.add(base.getGrade(record).toGrade());
+                    }
+                }
+                grades.sort(GRADE_ORDER);
+                for (Grade grade : grades) {
+                    builder.add(grade);
+                }
+                next = pending.hasNext() ? pending.next() : null;
+            }
+            if (fromBase) {
+                entry++;
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return Students ordered by name; their grades load from the snapshot
+     */
+    public List<Student> getStudents() {
+        return students;
+    }
+
+    public GradeSnapshot getGrades() {
+        return grades;
+    }
+
+    /**
+     * @return Change log sequence number the data is current up to
+     */
+    public long getChangeSequence() {
+        return changeSequence;
+    }
+
+    public Source getSource() {
+        return source;
+    }
+}
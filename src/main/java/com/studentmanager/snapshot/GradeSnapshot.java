@@ -0,0 +1,445 @@
+package com.studentmanager.snapshot;
+
+import com.studentmanager.dao.GradeDAO;
+import com.studentmanager.model.CompactGrade;
+import com.studentmanager.model.CompactGradeList;
+import com.studentmanager.model.Grade;
+import com.studentmanager.model.GradeSlice;
+import com.studentmanager.model.ScoreDistribution;
+import com.studentmanager.model.StringDictionary;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Read-only copy of all grades held outside the Java heap, so a JVM that
+ * keeps the whole grade history adds neither heap nor GC work per grade.
+ * The heap only holds this object and the string dictionaries.
+ *
+ * Grades are fixed-size records in a direct buffer, grouped by student:
+ * <pre>
+ *   offset  0  int    grade id
+ *           4  int    student database id
+ *           8  int    term (year &lt;&lt; 16 | semester code)
+ *          12  short  score in hundredths
+ *          14  short  coefficient in hundredths
+ *          16  char   subject code
+ *          18  -      padding
+ * </pre>
+ * A second buffer indexes students: 12-byte entries of student id, first
+ * record and record count, sorted by student id for binary search.
+ * Codes refer to {@link StringDictionary#SUBJECTS} and
+ * {@link StringDictionary#SEMESTERS}. Reads never modify the buffers, so a
+ * snapshot can be shared between threads.
+ */
+public final class GradeSnapshot {
+    public static final int RECORD_SIZE = 20;
+    public static final int INDEX_ENTRY_SIZE = 12;
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private static final int ID = 0;
+    private static final int STUDENT_ID = 4;
+    private static final int TERM = 8;
+    private static final int SCORE = 12;
+    private static final int COEFFICIENT = 14;
+    private static final int SUBJECT = 16;
+
+    private final ByteBuffer records;
+    private final int gradeCount;
+    private final ByteBuffer index;
+    private final int studentCount;
+
+    GradeSnapshot(ByteBuffer records, int gradeCount, ByteBuffer index, int studentCount) {
+        this.records = records.order(BYTE_ORDER);
+        this.gradeCount = gradeCount;
+        this.index = index.order(BYTE_ORDER);
+        this.studentCount = studentCount;
+    }
+
+    /**
+     * Load every grade from the database
+     * @param gradeDAO DAO to stream the grades from
+     * @return New snapshot
+     */
+    public static GradeSnapshot load(GradeDAO gradeDAO) {
+        Builder builder = new Builder(gradeDAO.countGrades());
+        gradeDAO.forEachGrade(builder::add);
+        return builder.build();
+    }
+
+    public int getGradeCount() {
+        return gradeCount;
+    }
+
+    public int getStudentCount() {
+        return studentCount;
+    }
+
+    /**
+     * @return Bytes held outside the heap by the records and the index
+     */
+    public long getOffHeapBytes() {
+        return (long) records.capacity() + index.capacity();
+    }
+
+    /**
+     * @return Read-only view of the used part of the record buffer
+     */
+    ByteBuffer records() {
+        ByteBuffer view = records.asReadOnlyBuffer();
+        view.position(0).limit(gradeCount * RECORD_SIZE);
+        return view.order(BYTE_ORDER);
+    }
+
+    /**
+     * @return Read-only view of the used part of the index buffer
+     */
+    ByteBuffer index() {
+        ByteBuffer view = index.asReadOnlyBuffer();
+        view.position(0).limit(studentCount * INDEX_ENTRY_SIZE);
+        return view.order(BYTE_ORDER);
+    }
+
+    // Index access by entry number, 0 to getStudentCount() - 1, in ascending student ID
+
+    int getIndexedStudentId(int entry) {
+        return index.getInt(entry * INDEX_ENTRY_SIZE);
+    }
+
+    int getFirstRecord(int entry) {
+        return index.getInt(entry * INDEX_ENTRY_SIZE + 4);
+    }
+
+    int getRecordCount(int entry) {
+        return index.getInt(entry * INDEX_ENTRY_SIZE + 8);
+    }
+
+    // Field access by record number, 0 to getGradeCount() - 1
+
+    public int getId(int record) {
+        return records.getInt(offset(record) + ID);
+    }
+
+    public int getStudentId(int record) {
+        return records.getInt(offset(record) + STUDENT_ID);
+    }
+
+    public int getTerm(int record) {
+        return records.getInt(offset(record) + TERM);
+    }
+
+    public int getScoreHundredths(int record) {
+        return records.getShort(offset(record) + SCORE);
+    }
+
+    public int getCoefficientHundredths(int record) {
+        return records.getShort(offset(record) + COEFFICIENT);
+    }
+
+    public int getSubjectCode(int record) {
+        return records.getChar(offset(record) + SUBJECT);
+    }
+
+    public CompactGrade getGrade(int record) {
+        return new CompactGrade(getId(record), getStudentId(record), getSubjectCode(record),
+                getScoreHundredths(record), getCoefficientHundredths(record), getTerm(record));
+    }
+
+    private int offset(int record) {
+        if (record < 0 || record >= gradeCount) {
+            throw new IndexOutOfBoundsException("Record: " + record + ", grades: " + gradeCount);
+        }
+        return record * RECORD_SIZE;
+    }
+
+    // Scans
+
+    /**
+     * Visit the grades of one student, found through the index
+     * @param studentId Student database ID
+     * @param visitor Receives each record number
+     * @return Number of grades visited
+     */
+    public int forEachGradeOfStudent(int studentId, IntConsumer visitor) {
+        int entry = findStudent(studentId);
+        if (entry < 0) {
+            return 0;
+        }
+        int first = index.getInt(entry * INDEX_ENTRY_SIZE + 4);
+        int count = index.getInt(entry * INDEX_ENTRY_SIZE + 8);
+        for (int record = first; record < first + count; record++) {
+            visitor.accept(record);
+        }
+        return count;
+    }
+
+    /**
+     * Visit all grades of a subject
+     * @param subject Subject name
+     * @param visitor Receives each record number
+     * @return Number of grades visited
+     */
+    public int forEachGradeInSubject(String subject, IntConsumer visitor) {
+        int code = StringDictionary.SUBJECTS.find(subject);
+        if (code < 0) {
+            // No stored grade has this subject
+            return 0;
+        }
+        int visited = 0;
+        for (int record = 0, offset = SUBJECT; record < gradeCount; record++, offset += RECORD_SIZE) {
+            if (records.getChar(offset) == code) {
+                visitor.accept(record);
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Visit all grades of a semester
+     * @param semester Semester name
+     * @param year Year
+     * @param visitor Receives each record number
+     * @return Number of grades visited
+     */
+    public int forEachGradeInTerm(String semester, int year, IntConsumer visitor) {
+        int semesterCode = StringDictionary.SEMESTERS.find(semester);
+        if (semesterCode < 0 || year < 0 || year > 0xFFFF) {
+            return 0;
+        }
+        int term = (year << 16) | semesterCode;
+        int visited = 0;
+        for (int record = 0, offset = TERM; record < gradeCount; record++, offset += RECORD_SIZE) {
+            if (records.getInt(offset) == term) {
+                visitor.accept(record);
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Copy one student's grades into a list any strategy accepts
+     * @param studentId Student database ID
+     * @return Grades of the student, empty if none
+     */
+    public CompactGradeList getGradesOfStudent(int studentId) {
+        int entry = findStudent(studentId);
+        if (entry < 0) {
+            return new CompactGradeList(1);
+        }
+        return copy(index.getInt(entry * INDEX_ENTRY_SIZE + 4), index.getInt(entry * INDEX_ENTRY_SIZE + 8));
+    }
+
+    /**
+     * Hand each student's grades to a consumer, e.g. to run a strategy over
+     * every student. Each list is a fresh copy of one student's records.
+     * @param consumer Receives the grades and the student database ID
+     */
+    public void forEachStudent(ObjIntConsumer<CompactGradeList> consumer) {
+        for (int entry = 0; entry < studentCount; entry++) {
+            int position = entry * INDEX_ENTRY_SIZE;
+            consumer.accept(copy(index.getInt(position + 4), index.getInt(position + 8)), index.getInt(position));
+        }
+    }
+
+    // Aggregates, as the GROUP BY queries of GradeDAO return them
+
+    /**
+     * Count grades per exact score in every slice of a dimension, like
+     * {@link GradeDAO#getScoreDistributions} but without a query
+     * @param dimension Subject, semester or major
+     * @param majorOf Major of a student database ID, or null; only used for majors
+     * @return Distribution of every slice; grades of students without a major are left out
+     */
+    public Map<GradeSlice, ScoreDistribution> getScoreDistributions(GradeSlice.Dimension dimension,
+                                                                   IntFunction<String> majorOf) {
+        Map<GradeSlice, ScoreDistribution> distributions = new HashMap<>();
+        if (dimension == GradeSlice.Dimension.MAJOR) {
+            for (int entry = 0; entry < studentCount; entry++) {
+                String major = majorOf.apply(getIndexedStudentId(entry));
+                if (major == null) {
+                    continue;
+                }
+                ScoreDistribution distribution = distributions.computeIfAbsent(GradeSlice.major(major),
+                        slice -> new ScoreDistribution());
+                int first = getFirstRecord(entry);
+                for (int record = first; record < first + getRecordCount(entry); record++) {
+                    distribution.add(getScoreHundredths(record));
+                }
+            }
+            return distributions;
+        }
+
+        // Slices keyed by subject code or term while scanning, named once at the end
+        Map<Integer, ScoreDistribution> byCode = new HashMap<>();
+        boolean subjects = dimension == GradeSlice.Dimension.SUBJECT;
+        for (int record = 0; record < gradeCount; record++) {
+            int code = subjects ? getSubjectCode(record) : getTerm(record);
+            byCode.computeIfAbsent(code, key -> new ScoreDistribution()).add(getScoreHundredths(record));
+        }
+        for (Map.Entry<Integer, ScoreDistribution> entry : byCode.entrySet()) {
+            int code = entry.getKey();
+            GradeSlice slice = subjects
+                    ? GradeSlice.subject(StringDictionary.SUBJECTS.value(code))
+                    : GradeSlice.semester(CompactGrade.semesterOf(code), CompactGrade.yearOf(code));
+            distributions.put(slice, entry.getValue());
+        }
+        return distributions;
+    }
+
+    /**
+     * Sum the grades of some students per semester and score, like
+     * {@link GradeDAO#forEachTermScore} over all semesters
+     * @param students Which student database IDs to count
+     * @param consumer Receives one call per semester and score, semesters in chronological order
+     */
+    public void forEachTermScore(IntPredicate students, GradeDAO.TermScoreConsumer consumer) {
+        Map<Integer, long[]> coefficientSums = new HashMap<>();
+        Map<Integer, int[]> counts = new HashMap<>();
+        for (int entry = 0; entry < studentCount; entry++) {
+            if (!students.test(getIndexedStudentId(entry))) {
+                continue;
+            }
+            int first = getFirstRecord(entry);
+            for (int record = first; record < first + getRecordCount(entry); record++) {
+                int term = getTerm(record);
+                // Clamped like ScoreDistribution; the table only holds 0.00 to 10.00
+                int score = Math.max(0, Math.min(ScoreDistribution.BUCKETS - 1, getScoreHundredths(record)));
+                coefficientSums.computeIfAbsent(term, key -> new long[ScoreDistribution.BUCKETS])[score]
+                        += getCoefficientHundredths(record);
+                counts.computeIfAbsent(term, key -> new int[ScoreDistribution.BUCKETS])[score]++;
+            }
+        }
+
+        List<Integer> terms = new ArrayList<>(counts.keySet());
+        terms.sort(Comparator.comparingInt(CompactGrade::yearOf).thenComparing(CompactGrade::semesterOf));
+        for (int term : terms) {
+            String semester = CompactGrade.semesterOf(term);
+            int year = CompactGrade.yearOf(term);
+            long[] sums = coefficientSums.get(term);
+            int[] termCounts = counts.get(term);
+            for (int score = 0; score < termCounts.length; score++) {
+                if (termCounts[score] > 0) {
+                    consumer.accept(semester, year, score, sums[score], termCounts[score]);
+                }
+            }
+        }
+    }
+
+    private CompactGradeList copy(int first, int count) {
+        CompactGradeList grades = new CompactGradeList(count);
+        for (int record = first; record < first + count; record++) {
+            grades.add(getId(record), getStudentId(record), getSubjectCode(record),
+                    getScoreHundredths(record), getCoefficientHundredths(record), getTerm(record));
+        }
+        return grades;
+    }
+
+    private int findStudent(int studentId) {
+        int low = 0;
+        int high = studentCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int id = index.getInt(middle * INDEX_ENTRY_SIZE);
+            if (id < studentId) {
+                low = middle + 1;
+            } else if (id > studentId) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Appends grades, which must arrive grouped by ascending student ID,
+     * into direct buffers and builds the student index along the way
+     */
+    static final class Builder {
+        private ByteBuffer records;
+        private ByteBuffer index;
+        private int gradeCount;
+        private int studentCount;
+        private int lastStudentId = Integer.MIN_VALUE;
+
+        /**
+         * @param expectedGrades Number of grades to allocate room for; more are allowed
+         */
+        Builder(int expectedGrades) {
+            records = allocate(Math.max(1, expectedGrades) * (long) RECORD_SIZE);
+            index = allocate(Math.max(16, expectedGrades / 8) * (long) INDEX_ENTRY_SIZE);
+        }
+
+        void add(Grade grade) {
+            add(grade.getId(), grade.getStudentId(), CompactGrade.packTerm(grade.getSemester(), grade.getYear()),
+                    grade.getScoreHundredths(), grade.getCoefficientHundredths(),
+                    StringDictionary.SUBJECTS.code(grade.getSubject()));
+        }
+
+        void add(int id, int studentId, int term, int scoreHundredths, int coefficientHundredths, int subjectCode) {
+            if (studentId < lastStudentId) {
+                throw new IllegalArgumentException("Grades must be ordered by student, got " + studentId
+                        + " after " + lastStudentId);
+            }
+            // Check before writing anything so a rejected grade leaves the builder unchanged
+            short score = CompactGrade.checkedShort(scoreHundredths, "score");
+            short coefficient = CompactGrade.checkedShort(coefficientHundredths, "coefficient");
+            if (studentId != lastStudentId) {
+                if ((studentCount + 1) * INDEX_ENTRY_SIZE > index.capacity()) {
+                    index = grow(index, studentCount * INDEX_ENTRY_SIZE);
+                }
+                int position = studentCount * INDEX_ENTRY_SIZE;
+                index.putInt(position, studentId);
+                index.putInt(position + 4, gradeCount);
+                index.putInt(position + 8, 0);
+                studentCount++;
+                lastStudentId = studentId;
+            }
+            if ((gradeCount + 1) * (long) RECORD_SIZE > records.capacity()) {
+                records = grow(records, gradeCount * RECORD_SIZE);
+            }
+            int offset = gradeCount * RECORD_SIZE;
+            records.putInt(offset + ID, id);
+            records.putInt(offset + STUDENT_ID, studentId);
+            records.putInt(offset + TERM, term);
+            records.putShort(offset + SCORE, score);
+            records.putShort(offset + COEFFICIENT, coefficient);
+            records.putChar(offset + SUBJECT, (char) subjectCode);
+            records.putChar(offset + SUBJECT + 2, (char) 0);
+            gradeCount++;
+
+            int countPosition = (studentCount - 1) * INDEX_ENTRY_SIZE + 8;
+            index.putInt(countPosition, index.getInt(countPosition) + 1);
+        }
+
+        GradeSnapshot build() {
+            return new GradeSnapshot(records, gradeCount, index, studentCount);
+        }
+
+        private static ByteBuffer grow(ByteBuffer buffer, int usedBytes) {
+            ByteBuffer larger = allocate(buffer.capacity() * 2L);
+            ByteBuffer used = buffer.duplicate();
+            used.position(0).limit(usedBytes);
+            larger.put(used);
+            larger.clear();
+            return larger;
+        }
+
+        private static ByteBuffer allocate(long bytes) {
+            if (bytes > Integer.MAX_VALUE - RECORD_SIZE) {
+                throw new IllegalStateException("Snapshot larger than 2 GiB: " + bytes + " bytes");
+            }
+            return ByteBuffer.allocateDirect((int) bytes).order(BYTE_ORDER);
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package com.studentmanager.snapshot;
+
+import com.studentmanager.model.Student;
+import com.studentmanager.model.StringDictionary;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary file holding a {@link DataSnapshot}, read back by mapping it into
+ * memory so the grade records are used in place instead of being parsed.
+ *
+ * Layout, little-endian:
+ * <pre>
+ *   offset  0  int    magic "SMSF"
+ *           4  int    format version
+ *           8  long   change log sequence the data is current up to
+ *          16  int    student count
+ *          20  int    grade count
+ *          24  int    grade index entry count
+ *          28  int    reserved
+ *          32  long   offset of the dictionaries
+ *          40  long   offset of the students
+ *          48  long   offset of the grade records, followed by the grade index
+ *          56  long   CRC32C of everything after the header, then of the
+ *                     header with this field zeroed
+ * </pre>
+ * Dictionaries are subjects, semesters and majors, each a count followed by
+ * its values in code order. Strings are an int byte length, -1 for null,
+ * followed by UTF-8 bytes. Students are an int id, four strings and an int
+ * major code. Grade records and index entries are those of {@link GradeSnapshot}.
+ *
+ * A snapshot is never rewritten in place: a reader may still have the old
+ * one mapped, and a mapped file cannot be replaced or deleted on Windows.
+ * Each write creates the next generation, {@code <name>.<n>}, and readers
+ * open the newest one. Older generations are deleted once nothing maps them.
+ */
+public final class SnapshotFile {
+    public static final int VERSION = 2;
+
+    private static final int MAGIC = 0x46534D53; // "SMSF" read little-endian
+    private static final int HEADER_SIZE = 64;
+    private static final int CHECKSUM = 56;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Write a snapshot to a temporary file next to the target, then move it
+     * into place as the next generation so readers never see a partly
+     * written file, and delete the older generations that are not in use
+     * @param snapshot Snapshot to write
+     * @param file Target file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(DataSnapshot snapshot, Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        TreeMap<Long, Path> generations = generations(file);
+        long next = generations.isEmpty() ? 1 : generations.lastKey() + 1;
+        Path target = file.resolveSibling(file.getFileName() + "." + next);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                writeTo(snapshot, channel);
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        // Files written before generations existed used the plain name
+        generations.put(0L, file);
+        for (Path old : generations.values()) {
+            try {
+                Files.deleteIfExists(old);
+            } catch (IOException e) {
+                // Still mapped by a reader on Windows; the next write retries
+            }
+        }
+    }
+
+    /**
+     * Check whether any generation of a snapshot file exists
+     * @param file Snapshot file as passed to {@link #write}
+     * @return true if {@link #read} has a file to open
+     * @throws IOException if the directory cannot be listed
+     */
+    public static boolean exists(Path file) throws IOException {
+        return !generations(file).isEmpty() || Files.isRegularFile(file);
+    }
+
+    /**
+     * Find the generations of a snapshot file
+     * @param file Snapshot file as passed to {@link #write}
+     * @return Generation number to path, oldest first
+     * @throws IOException if the directory cannot be listed
+     */
+    private static TreeMap<Long, Path> generations(Path file) throws IOException {
+        TreeMap<Long, Path> generations = new TreeMap<>();
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory == null || !Files.isDirectory(directory)) {
+            return generations;
+        }
+        String prefix = file.getFileName() + ".";
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path entry : entries) {
+                String suffix = entry.getFileName().toString().substring(prefix.length());
+                if (!suffix.isEmpty() && suffix.length() < 19 && suffix.chars().allMatch(Character::isDigit)) {
+                    generations.put(Long.parseLong(suffix), entry);
+                }
+            }
+        }
+        return generations;
+    }
+
+    private static void writeTo(DataSnapshot snapshot, FileChannel channel) throws IOException {
+        GradeSnapshot grades = snapshot.getGrades();
+        List<Student> students = snapshot.getStudents();
+        Output out = new Output(channel, HEADER_SIZE);
+
+        // Encode the majors first so the dictionary written below holds them all
+        int[] majorCodes = new int[students.size()];
+        for (int i = 0; i < majorCodes.length; i++) {
+            majorCodes[i] = StringDictionary.MAJORS.code(students.get(i).getMajor());
+        }
+
+        long dictionariesOffset = out.position();
+        writeDictionary(out, StringDictionary.SUBJECTS);
+        writeDictionary(out, StringDictionary.SEMESTERS);
+        writeDictionary(out, StringDictionary.MAJORS);
+
+        long studentsOffset = out.position();
+        for (int i = 0; i < majorCodes.length; i++) {
+            Student student = students.get(i);
+            out.putInt(student.getId());
+            out.putString(student.getStudentId());
+            out.putString(student.getFullName());
+            out.putString(student.getEmail());
+            out.putString(student.getPhoneNumber());
+            out.putInt(majorCodes[i]);
+        }
+
+        // Align the records so they can be read in place
+        while (out.position() % 8 != 0) {
+            out.putByte(0);
+        }
+        long gradesOffset = out.position();
+        out.put(grades.records());
+        out.put(grades.index());
+        out.flush();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(GradeSnapshot.BYTE_ORDER);
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putLong(8, snapshot.getChangeSequence());
+        header.putInt(16, students.size());
+        header.putInt(20, grades.getGradeCount());
+        header.putInt(24, grades.getStudentCount());
+        header.putLong(32, dictionariesOffset);
+        header.putLong(40, studentsOffset);
+        header.putLong(48, gradesOffset);
+        header.putLong(CHECKSUM, out.checksum(header));
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    private static void writeDictionary(Output out, StringDictionary dictionary) throws IOException {
+        // Values are only ever added, so the codes in use are all below this size
+        int size = dictionary.size();
+        out.putInt(size);
+        for (int code = 0; code < size; code++) {
+            out.putString(dictionary.value(code));
+        }
+    }
+
+    /**
+     * Map the newest generation of a snapshot file and check that it is complete. Dictionary values
+     * are added to the process dictionaries; if this gives them other codes
+     * than in the file, the grade records are copied and recoded, otherwise
+     * they are used straight from the mapping.
+     * @param file File passed to {@link #write}
+     * @return Snapshot as it was written
+     * @throws IOException if the file cannot be read, is not a snapshot of
+     *         this version or fails the checksum
+     */
+    public static DataSnapshot read(Path file) throws IOException {
+        TreeMap<Long, Path> generations = generations(file);
+        if (!generations.isEmpty()) {
+            file = generations.lastEntry().getValue();
+        }
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Not a snapshot file: " + file);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot file larger than 2 GiB: " + file);
+            }
+            // The mapping stays valid after the channel is closed
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        ByteBuffer in = mapped.order(GradeSnapshot.BYTE_ORDER);
+
+        if (in.getInt(0) != MAGIC) {
+            throw new IOException("Not a snapshot file: " + file);
+        }
+        if (in.getInt(4) != VERSION) {
+            throw new IOException("Unsupported snapshot version " + in.getInt(4) + ": " + file);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(in.duplicate().position(HEADER_SIZE));
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(GradeSnapshot.BYTE_ORDER);
+        header.put(in.duplicate().position(0).limit(HEADER_SIZE)).putLong(CHECKSUM, 0).flip();
+        crc.update(header);
+        if (crc.getValue() != in.getLong(CHECKSUM)) {
+            throw new IOException("Snapshot checksum mismatch: " + file);
+        }
+
+        long changeSequence = in.getLong(8);
+        int studentCount = in.getInt(16);
+        int gradeCount = in.getInt(20);
+        int indexCount = in.getInt(24);
+
+        in.position((int) in.getLong(32));
+        int[] subjectCodes = readDictionary(in, StringDictionary.SUBJECTS);
+        int[] semesterCodes = readDictionary(in, StringDictionary.SEMESTERS);
+        int[] majorCodes = readDictionary(in, StringDictionary.MAJORS);
+
+        in.position((int) in.getLong(40));
+        List<Student> students = new ArrayList<>(studentCount);
+        for (int i = 0; i < studentCount; i++) {
+            int id = in.getInt();
+            String studentId = getString(in);
+            String fullName = getString(in);
+            String email = getString(in);
+            String phoneNumber = getString(in);
+            int majorCode = in.getInt();
+            String major = majorCode < 0 ? null : StringDictionary.MAJORS.value(majorCodes[majorCode]);
+            students.add(new Student(id, studentId, fullName, email, phoneNumber, major));
+        }
+
+        int recordsOffset = (int) in.getLong(48);
+        int indexOffset = recordsOffset + gradeCount * GradeSnapshot.RECORD_SIZE;
+        ByteBuffer records = in.duplicate().position(recordsOffset).limit(indexOffset).slice();
+        ByteBuffer index = in.duplicate().position(indexOffset)
+                .limit(indexOffset + indexCount * GradeSnapshot.INDEX_ENTRY_SIZE).slice();
+        if (!isIdentity(subjectCodes) || !isIdentity(semesterCodes)) {
+            records = recode(records, gradeCount, subjectCodes, semesterCodes);
+        }
+        GradeSnapshot grades = new GradeSnapshot(records, gradeCount, index, indexCount);
+        return new DataSnapshot(students, grades, changeSequence, DataSnapshot.Source.FILE);
+    }
+
+    private static int[] readDictionary(ByteBuffer in, StringDictionary dictionary) {
+        int[] codes = new int[in.getInt()];
+        for (int code = 0; code < codes.length; code++) {
+            codes[code] = dictionary.code(getString(in));
+        }
+        return codes;
+    }
+
+    private static boolean isIdentity(int[] codes) {
+        for (int code = 0; code < codes.length; code++) {
+            if (codes[code] != code) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ByteBuffer recode(ByteBuffer records, int gradeCount, int[] subjectCodes, int[] semesterCodes) {
+        ByteBuffer copy = ByteBuffer.allocateDirect(records.remaining()).order(GradeSnapshot.BYTE_ORDER);
+        copy.put(records.duplicate()).clear();
+        for (int record = 0, offset = 0; record < gradeCount; record++, offset += GradeSnapshot.RECORD_SIZE) {
+            int subject = copy.getChar(offset + 16);
+            if (subject < subjectCodes.length) {
+                copy.putChar(offset + 16, (char) subjectCodes[subject]);
+            }
+            int term = copy.getInt(offset + 8);
+            int semester = term & 0xFFFF;
+            if (semester < semesterCodes.length) {
+                copy.putInt(offset + 8, (term & 0xFFFF0000) | semesterCodes[semester]);
+            }
+        }
+        return copy;
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Buffered sequential writer that keeps the checksum of what it wrote
+     */
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(GradeSnapshot.BYTE_ORDER);
+        private final CRC32C crc = new CRC32C();
+        private long position;
+
+        Output(FileChannel channel, long start) {
+            this.channel = channel;
+            this.position = start;
+        }
+
+        long position() {
+            return position + buffer.position();
+        }
+
+        void putByte(int value) throws IOException {
+            ensure(1);
+            buffer.put((byte) value);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putString(String value) throws IOException {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            put(ByteBuffer.wrap(bytes));
+        }
+
+        void put(ByteBuffer source) throws IOException {
+            if (source.remaining() <= buffer.remaining()) {
+                buffer.put(source);
+                return;
+            }
+            flush();
+            crc.update(source.duplicate());
+            while (source.hasRemaining()) {
+                position += channel.write(source, position);
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * @param header Header with the checksum field still zero
+         * @return CRC32C of everything written, then of the header
+         */
+        long checksum(ByteBuffer header) {
+            crc.update(header.duplicate().clear());
+            return crc.getValue();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+}
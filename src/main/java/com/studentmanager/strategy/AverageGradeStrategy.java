@@ -1,5 +1,7 @@
 package com.studentmanager.strategy;
 
+import com.studentmanager.model.CompactGradeList;
+import com.studentmanager.model.FixedPoint;
 import com.studentmanager.model.Grade;
 import java.util.List;
 
@@ -14,20 +16,28 @@ public class AverageGradeStrategy implements GradeCalculationStrategy {
             return "0.0";
         }
         
-        double totalWeightedScore = 0.0;
-        double totalCoefficient = 0.0;
+        // Exact integer sums, rounded half up only once at the end
+        long totalWeightedScore = 0;
+        long totalCoefficient = 0;
         
         for (Grade grade : grades) {
-            totalWeightedScore += grade.getWeightedScore();
-            totalCoefficient += grade.getCoefficient();
+            totalWeightedScore += grade.getWeightedScoreTenThousandths();
+            totalCoefficient += grade.getCoefficientHundredths();
         }
         
         if (totalCoefficient == 0) {
             return "0.0";
         }
         
-        double average = totalWeightedScore / totalCoefficient;
-        return String.format("%.2f", average);
+        return FixedPoint.format(FixedPoint.weightedAverage(totalWeightedScore, totalCoefficient));
+    }
+    
+    @Override
+    public String calculateGrade(CompactGradeList grades) {
+        if (grades == null || grades.isEmpty() || grades.coefficientSum() == 0) {
+            return "0.0";
+        }
+        return FixedPoint.format(FixedPoint.weightedAverage(grades.weightedScoreSum(), grades.coefficientSum()));
     }
     
     @Override
@@ -1,5 +1,6 @@
 package com.studentmanager.strategy;
 
+import com.studentmanager.model.CompactGradeList;
 import com.studentmanager.model.Grade;
 import java.util.List;
 
@@ -23,6 +24,16 @@ public class ClassificationStrategy implements GradeCalculationStrategy {
         return classifyGrade(average);
     }
     
+    @Override
+    public String calculateGrade(CompactGradeList grades) {
+        if (grades == null || grades.isEmpty()) {
+            return "Không xếp loại";
+        }
+        
+        String avgString = new AverageGradeStrategy().calculateGrade(grades);
+        return classifyGrade(Double.parseDouble(avgString));
+    }
+    
     private String classifyGrade(double score) {
         if (score >= 8.5) {
             return "Xuất sắc";
@@ -1,5 +1,7 @@
 package com.studentmanager.strategy;
 
+import com.studentmanager.model.CompactGradeList;
+import com.studentmanager.model.FixedPoint;
 import com.studentmanager.model.Grade;
 import java.util.List;
 
@@ -14,37 +16,96 @@ public class GPACalculationStrategy implements GradeCalculationStrategy {
             return "0.00";
         }
         
-        double totalGradePoints = 0.0;
-        double totalCreditHours = 0.0;
+        long totalGradePoints = 0;
+        long totalCreditHours = 0;
+        for (Grade grade : grades) {
+            totalGradePoints += convertToGradePoint(grade.getScoreHundredths()) * grade.getCoefficientHundredths();
+            totalCreditHours += grade.getCoefficientHundredths();
+        }
+        return format(totalGradePoints, totalCreditHours);
+    }
+    
+    @Override
+    public double calculateScore(List<Grade> grades) {
+        if (grades == null || grades.isEmpty()) {
+            return 0.0;
+        }
+        
+        long totalGradePoints = 0;
+        long totalCreditHours = 0;
         
         for (Grade grade : grades) {
-            double gradePoint = convertToGradePoint(grade.getScore());
-            totalGradePoints += gradePoint * grade.getCoefficient();
-            totalCreditHours += grade.getCoefficient();
+            int coefficient = grade.getCoefficientHundredths();
+            totalGradePoints += convertToGradePoint(grade.getScoreHundredths()) * coefficient;
+            totalCreditHours += coefficient;
         }
         
         if (totalCreditHours == 0) {
+            return 0.0;
+        }
+        
+        return (double) totalGradePoints / totalCreditHours;
+    }
+    
+    @Override
+    public String calculateGrade(CompactGradeList grades) {
+        if (grades == null || grades.isEmpty()) {
             return "0.00";
         }
         
-        double gpa = totalGradePoints / totalCreditHours;
-        return String.format("%.2f", gpa);
+        long totalGradePoints = 0;
+        for (int i = 0; i < grades.size(); i++) {
+            totalGradePoints += convertToGradePoint(grades.getScoreHundredths(i)) * grades.getCoefficientHundredths(i);
+        }
+        return format(totalGradePoints, grades.coefficientSum());
+    }
+    
+    @Override
+    public double calculateScore(CompactGradeList grades) {
+        if (grades == null || grades.isEmpty()) {
+            return 0.0;
+        }
+        
+        long totalGradePoints = 0;
+        long totalCreditHours = 0;
+        
+        for (int i = 0; i < grades.size(); i++) {
+            int coefficient = grades.getCoefficientHundredths(i);
+            totalGradePoints += convertToGradePoint(grades.getScoreHundredths(i)) * coefficient;
+            totalCreditHours += coefficient;
+        }
+        
+        if (totalCreditHours == 0) {
+            return 0.0;
+        }
+        
+        return (double) totalGradePoints / totalCreditHours;
+    }
+    
+    /**
+     * Round the exact GPA half up to two decimals
+     */
+    private String format(long totalGradePoints, long totalCreditHours) {
+        if (totalCreditHours == 0) {
+            return "0.00";
+        }
+        return FixedPoint.format(FixedPoint.average(totalGradePoints * FixedPoint.SCALE, totalCreditHours));
     }
     
     /**
-     * Convert Vietnamese 10-point scale to 4.0 GPA scale
+     * Convert Vietnamese 10-point scale (in hundredths) to 4.0 GPA scale
      */
-    private double convertToGradePoint(double score) {
-        if (score >= 8.5) {
-            return 4.0; // A
-        } else if (score >= 7.0) {
-            return 3.0; // B
-        } else if (score >= 5.5) {
-            return 2.0; // C
-        } else if (score >= 4.0) {
-            return 1.0; // D
+    public static int convertToGradePoint(int scoreHundredths) {
+        if (scoreHundredths >= 850) {
+            return 4; // A
+        } else if (scoreHundredths >= 700) {
+            return 3; // B
+        } else if (scoreHundredths >= 550) {
+            return 2; // C
+        } else if (scoreHundredths >= 400) {
+            return 1; // D
         } else {
-            return 0.0; // F
+            return 0; // F
         }
     }
     
@@ -52,4 +113,4 @@ public class GPACalculationStrategy implements GradeCalculationStrategy {
     public String getStrategyName() {
         return "GPA (4.0 Scale)";
     }
-}
\ No newline at end of file
+}
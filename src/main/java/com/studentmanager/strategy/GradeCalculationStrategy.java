@@ -1,5 +1,7 @@
 package com.studentmanager.strategy;
 
+import com.studentmanager.model.CompactGradeList;
+import com.studentmanager.model.FixedPoint;
 import com.studentmanager.model.Grade;
 import java.util.List;
 
@@ -14,6 +16,51 @@ public interface GradeCalculationStrategy {
      */
     String calculateGrade(List<Grade> grades);
     
+    /**
+     * Calculate result based on compact grades. Defaults to converting them
+     * to beans; strategies override it to aggregate the columns directly.
+     * @param grades Compact grades
+     * @return Calculated result as String
+     */
+    default String calculateGrade(CompactGradeList grades) {
+        return calculateGrade(grades == null ? null : grades.toGrades());
+    }
+    
+    /**
+     * Calculate a numeric value used to rank students under this strategy.
+     * Defaults to the weighted average, which is what letter grades and
+     * classifications are derived from. Sums are exact fixed-point integers,
+     * so the result does not depend on the order of the grades.
+     * @param grades List of grades
+     * @return Ranking value, higher is better
+     */
+    default double calculateScore(List<Grade> grades) {
+        if (grades == null || grades.isEmpty()) {
+            return 0.0;
+        }
+        long totalWeightedScore = 0;
+        long totalCoefficient = 0;
+        for (Grade grade : grades) {
+            totalWeightedScore += grade.getWeightedScoreTenThousandths();
+            totalCoefficient += grade.getCoefficientHundredths();
+        }
+        return totalCoefficient == 0 ? 0.0 : FixedPoint.toDouble(totalWeightedScore) / totalCoefficient;
+    }
+    
+    /**
+     * Calculate the ranking value from compact grades, summing in exact
+     * integer hundredths. Defaults to the weighted average.
+     * @param grades Compact grades
+     * @return Ranking value, higher is better
+     */
+    default double calculateScore(CompactGradeList grades) {
+        if (grades == null || grades.isEmpty()) {
+            return 0.0;
+        }
+        long totalCoefficient = grades.coefficientSum();
+        return totalCoefficient == 0 ? 0.0 : FixedPoint.toDouble(grades.weightedScoreSum()) / totalCoefficient;
+    }
+    
     /**
      * Get the name of this calculation strategy
      * @return Strategy name
@@ -1,5 +1,6 @@
 package com.studentmanager.strategy;
 
+import com.studentmanager.model.CompactGradeList;
 import com.studentmanager.model.Grade;
 import java.util.List;
 
@@ -26,6 +27,10 @@ public class GradeCalculator {
         return strategy.calculateGrade(grades);
     }
     
+    public String calculateGrade(CompactGradeList grades) {
+        return strategy.calculateGrade(grades);
+    }
+    
     public String getStrategyName() {
         return strategy.getStrategyName();
     }
@@ -1,5 +1,6 @@
 package com.studentmanager.strategy;
 
+import com.studentmanager.model.CompactGradeList;
 import com.studentmanager.model.Grade;
 import java.util.List;
 
@@ -23,6 +24,16 @@ public class LetterGradeStrategy implements GradeCalculationStrategy {
         return convertToLetterGrade(average);
     }
     
+    @Override
+    public String calculateGrade(CompactGradeList grades) {
+        if (grades == null || grades.isEmpty()) {
+            return "F";
+        }
+        
+        String avgString = new AverageGradeStrategy().calculateGrade(grades);
+        return convertToLetterGrade(Double.parseDouble(avgString));
+    }
+    
     private String convertToLetterGrade(double score) {
         if (score >= 8.5) {
             return "A";
@@ -0,0 +1,98 @@
+package com.studentmanager.util;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 CSV reader: comma separated, fields optionally quoted with
+ * doubled quotes inside, records ending in CRLF or LF. Reads the files
+ * written by {@link DataExporter}. A leading UTF-8 byte order mark is skipped.
+ */
+public class CsvReader implements Closeable {
+    private final BufferedReader reader;
+    private final StringBuilder field = new StringBuilder();
+    private boolean firstRecord = true;
+    private long lineNumber = 0;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader, 1 << 16);
+    }
+
+    /**
+     * Read the next record
+     * @return Field values, or null at end of input
+     * @throws IOException if reading fails or a quoted field is not closed
+     */
+    public String[] readRecord() throws IOException {
+        int ch = reader.read();
+        if (firstRecord) {
+            firstRecord = false;
+            if (ch == '\uFEFF') {
+                ch = reader.read();
+            }
+        }
+        if (ch == -1) {
+            return null;
+        }
+        lineNumber++;
+
+        List<String> fields = new ArrayList<>();
+        field.setLength(0);
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (ch == -1) {
+                    throw new IOException("Unterminated quoted field on line " + lineNumber);
+                }
+                if (ch == '"') {
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        ch = next;
+                        continue;
+                    }
+                } else {
+                    if (ch == '\n') {
+                        lineNumber++;
+                    }
+                    field.append((char) ch);
+                }
+            } else if (ch == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (ch == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (ch == '\r' || ch == '\n' || ch == -1) {
+                if (ch == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') {
+                        reader.reset();
+                    }
+                }
+                fields.add(field.toString());
+                return fields.toArray(new String[0]);
+            } else {
+                field.append((char) ch);
+            }
+            ch = reader.read();
+        }
+    }
+
+    /**
+     * @return Line number where the last record returned ended
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,465 @@
+package com.studentmanager.util;
+
+import com.studentmanager.dao.ChangeLogDAO;
+import com.studentmanager.dao.GradeDAO;
+import com.studentmanager.dao.StudentDAO;
+import com.studentmanager.model.Grade;
+import com.studentmanager.model.Student;
+import com.studentmanager.strategy.GradeCalculationStrategy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Machine-readable exports of students, grades and strategy results.
+ * Rows are streamed from the DAO cursors and encoded into a fixed-size
+ * buffer that is written through a FileChannel (optionally gzipped), so
+ * exporting millions of grades runs in constant heap.
+ */
+public class DataExporter {
+    private static final int EXPORT_BUFFER_SIZE = 1 << 20;
+    private static final int GZIP_BUFFER_SIZE = 1 << 16;
+
+    private static final String[] STUDENT_COLUMNS =
+        {"id", "student_id", "full_name", "email", "phone_number", "major"};
+    private static final String[] GRADE_COLUMNS =
+        {"id", "student_id", "subject", "score", "coefficient", "semester", "year"};
+    private static final String[] STRATEGY_RESULT_COLUMNS =
+        {"student_id", "full_name", "major", "grade_count", "strategy", "score", "result"};
+
+    /**
+     * Supported export formats
+     */
+    public enum Format {
+        CSV("csv"),
+        JSON("json"),
+        NDJSON("ndjson");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        /**
+         * @return File extension without the leading dot
+         */
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    /**
+     * Writes one export file
+     */
+    private interface ExportWriter {
+        /**
+         * @param path File to write
+         * @return Number of rows written, or -1 if reading the rows failed
+         */
+        long write(Path path) throws IOException;
+    }
+
+    /**
+     * Export all students ordered by name
+     * @param outputPath Output file path
+     * @param format Output format
+     * @param gzip true to gzip the output
+     * @return Number of rows exported, or -1 if the export failed
+     */
+    public static long exportStudents(Path outputPath, Format format, boolean gzip) {
+        return exportAtomically(outputPath, "students", path -> {
+            try (RecordEncoder encoder = openEncoder(path, format, gzip, STUDENT_COLUMNS)) {
+                IOException[] failure = {null};
+                int read = new StudentDAO().forEachStudent(student -> {
+                    if (failure[0] != null) {
+                        return;
+                    }
+                    try {
+                        writeStudent(encoder, student);
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                });
+                if (failure[0] != null) {
+                    throw failure[0];
+                }
+                return read < 0 ? -1 : encoder.getRecordCount();
+            }
+        });
+    }
+
+    /**
+     * Export all grades ordered by student
+     * @param outputPath Output file path
+     * @param format Output format
+     * @param gzip true to gzip the output
+     * @return Number of rows exported, or -1 if the export failed
+     */
+    public static long exportGrades(Path outputPath, Format format, boolean gzip) {
+        return exportAtomically(outputPath, "grades", path -> {
+            try (RecordEncoder encoder = openEncoder(path, format, gzip, GRADE_COLUMNS)) {
+                IOException[] failure = {null};
+                int read = new GradeDAO().forEachGrade(grade -> {
+                    if (failure[0] != null) {
+                        return;
+                    }
+                    try {
+                        writeGrade(encoder, grade);
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                });
+                if (failure[0] != null) {
+                    throw failure[0];
+                }
+                return read < 0 ? -1 : encoder.getRecordCount();
+            }
+        });
+    }
+
+    /**
+     * Export one row per student and strategy with the computed score and result.
+     * Student rows are kept in memory for the join; grades are streamed and
+     * only one student's grades are held at a time.
+     * @param outputPath Output file path
+     * @param format Output format
+     * @param gzip true to gzip the output
+     * @param strategies Strategies to evaluate
+     * @return Number of rows exported, or -1 if the export failed
+     */
+    public static long exportStrategyResults(Path outputPath, Format format, boolean gzip,
+                                             GradeCalculationStrategy... strategies) {
+        Map<Integer, Student> pending = new LinkedHashMap<>();
+        if (new StudentDAO().forEachStudent(student -> pending.put(student.getId(), student)) < 0) {
+            return -1;
+        }
+
+        return exportAtomically(outputPath, "strategy results", path -> {
+            try (RecordEncoder encoder = openEncoder(path, format, gzip, STRATEGY_RESULT_COLUMNS)) {
+                IOException[] failure = {null};
+                List<Grade> group = new ArrayList<>();
+                int read = new GradeDAO().forEachGrade(grade -> {
+                    if (failure[0] != null) {
+                        return;
+                    }
+                    try {
+                        if (!group.isEmpty() && group.get(0).getStudentId() != grade.getStudentId()) {
+                            writeStrategyResults(encoder, pending.remove(group.get(0).getStudentId()), group, strategies);
+                            group.clear();
+                        }
+                        group.add(grade);
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                });
+                if (failure[0] != null) {
+                    throw failure[0];
+                }
+                if (read < 0) {
+                    return -1;
+                }
+                if (!group.isEmpty()) {
+                    writeStrategyResults(encoder, pending.remove(group.get(0).getStudentId()), group, strategies);
+                }
+                // Students without grades
+                for (Student student : pending.values()) {
+                    writeStrategyResults(encoder, student, Collections.emptyList(), strategies);
+                }
+                return encoder.getRecordCount();
+            }
+        });
+    }
+
+    /**
+     * Export the students and grades inserted, updated or deleted since the
+     * consumer's last export, then advance its watermark. The first export of
+     * a consumer, and the next one of a consumer whose watermark the change
+     * log was pruned past, is a full export: it starts with a row whose "op"
+     * is reset, telling the consumer to discard its copy, followed by every
+     * row as an insert. Writes
+     * students_changes.&lt;ext&gt; and grades_changes.&lt;ext&gt; (plus .gz when
+     * gzipped) into the output directory; each row starts with an "op" field
+     * of insert, update or delete, and deleted rows carry only their id.
+     * Both files are moved into place and the watermark stored only once both
+     * are complete, so a failed run is simply repeated by the next one.
+     * @param consumer Name the watermark is stored under, e.g. "campus-portal"
+     * @param outputDirectory Directory for the two files
+     * @param format Output format
+     * @param gzip true to gzip the output
+     * @return Number of rows exported, or -1 if the export failed
+     */
+    public static long exportChanges(String consumer, Path outputDirectory, Format format, boolean gzip) {
+        ChangeLogDAO changeLogDAO = new ChangeLogDAO();
+        long watermark = changeLogDAO.getWatermark(consumer);
+        // Buffered grade writes are only in the log once flushed
+        GradeDAO.flushWrites();
+        long upTo = changeLogDAO.getCurrentSequence();
+        long pruned = changeLogDAO.getPrunedSequence();
+        if (pruned < 0) {
+            return -1;
+        }
+        // Entries after the watermark were pruned, deletes among them, so its copy cannot be patched
+        boolean full = watermark < 0 || watermark < pruned;
+        if (full && watermark >= 0) {
+            System.err.println("Change log pruned past consumer " + consumer + " (" + watermark + " < "
+                    + pruned + "), sending a full export");
+        }
+        String suffix = "_changes." + format.getExtension() + (gzip ? ".gz" : "");
+        Path studentsPath = outputDirectory.resolve("students" + suffix);
+        Path gradesPath = outputDirectory.resolve("grades" + suffix);
+        Path studentsTemp = temporaryPath(studentsPath);
+        Path gradesTemp = temporaryPath(gradesPath);
+
+        try {
+            Files.createDirectories(outputDirectory);
+            long rows = 0;
+            IOException[] failure = {null};
+
+            try (RecordEncoder encoder = openEncoder(studentsTemp, format, gzip, withOperation(STUDENT_COLUMNS))) {
+                ChangeLogDAO.ChangeConsumer<Student> writer = (operation, rowId, student) -> {
+                    if (failure[0] != null) {
+                        return;
+                    }
+                    try {
+                        encoder.beginRecord();
+                        encoder.text(operationName(operation));
+                        if (student != null) {
+                            writeStudentFields(encoder, student);
+                        } else {
+                            writeTombstone(encoder, rowId, STUDENT_COLUMNS.length);
+                        }
+                        encoder.endRecord();
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                };
+                if (full) {
+                    writeReset(encoder, STUDENT_COLUMNS.length);
+                }
+                long read = full
+                        ? new StudentDAO().forEachStudent(student -> writer.accept(ChangeLogDAO.INSERTED, student.getId(), student))
+                        : changeLogDAO.forEachStudentChange(watermark, upTo, writer);
+                if (failure[0] != null) {
+                    throw failure[0];
+                }
+                if (read < 0) {
+                    return -1;
+                }
+                rows += encoder.getRecordCount() - (full ? 1 : 0);
+            }
+
+            try (RecordEncoder encoder = openEncoder(gradesTemp, format, gzip, withOperation(GRADE_COLUMNS))) {
+                ChangeLogDAO.ChangeConsumer<Grade> writer = (operation, rowId, grade) -> {
+                    if (failure[0] != null) {
+                        return;
+                    }
+                    try {
+                        encoder.beginRecord();
+                        encoder.text(operationName(operation));
+                        if (grade != null) {
+                            writeGradeFields(encoder, grade);
+                        } else {
+                            writeTombstone(encoder, rowId, GRADE_COLUMNS.length);
+                        }
+                        encoder.endRecord();
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                };
+                if (full) {
+                    writeReset(encoder, GRADE_COLUMNS.length);
+                }
+                long read = full
+                        ? new GradeDAO().forEachGrade(grade -> writer.accept(ChangeLogDAO.INSERTED, grade.getId(), grade))
+                        : changeLogDAO.forEachGradeChange(watermark, upTo, writer);
+                if (failure[0] != null) {
+                    throw failure[0];
+                }
+                if (read < 0) {
+                    return -1;
+                }
+                rows += encoder.getRecordCount() - (full ? 1 : 0);
+            }
+
+            moveIntoPlace(studentsTemp, studentsPath);
+            moveIntoPlace(gradesTemp, gradesPath);
+            if (!changeLogDAO.setWatermark(consumer, upTo)) {
+                return -1;
+            }
+            changeLogDAO.pruneChangeLog();
+            return rows;
+        } catch (IOException e) {
+            System.err.println("Error exporting changes: " + e.getMessage());
+            return -1;
+        } finally {
+            deleteQuietly(studentsTemp);
+            deleteQuietly(gradesTemp);
+        }
+    }
+
+    /**
+     * Write an export to a temporary file next to the output and move it into
+     * place only once it is complete, so a failed read or write never leaves
+     * a truncated file that still parses
+     */
+    private static long exportAtomically(Path outputPath, String description, ExportWriter writer) {
+        Path temp = temporaryPath(outputPath);
+        try {
+            long rows = writer.write(temp);
+            if (rows >= 0) {
+                moveIntoPlace(temp, outputPath);
+            }
+            return rows;
+        } catch (IOException e) {
+            System.err.println("Error exporting " + description + ": " + e.getMessage());
+            return -1;
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    private static Path temporaryPath(Path outputPath) {
+        return outputPath.resolveSibling(outputPath.getFileName() + ".tmp");
+    }
+
+    private static void moveIntoPlace(Path temp, Path outputPath) throws IOException {
+        try {
+            Files.move(temp, outputPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, outputPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Could not delete " + path + ": " + e.getMessage());
+        }
+    }
+
+    private static String[] withOperation(String[] columns) {
+        String[] withOperation = new String[columns.length + 1];
+        withOperation[0] = "op";
+        System.arraycopy(columns, 0, withOperation, 1, columns.length);
+        return withOperation;
+    }
+
+    private static String operationName(char operation) {
+        switch (operation) {
+            case ChangeLogDAO.INSERTED:
+                return "insert";
+            case ChangeLogDAO.DELETED:
+                return "delete";
+            default:
+                return "update";
+        }
+    }
+
+    /**
+     * Write the record that starts a full export, with every field but the
+     * operation empty
+     */
+    private static void writeReset(RecordEncoder encoder, int columnCount) throws IOException {
+        encoder.beginRecord();
+        encoder.text("reset");
+        for (int i = 0; i < columnCount; i++) {
+            encoder.text(null);
+        }
+        encoder.endRecord();
+    }
+
+    /**
+     * Write the id of a deleted row and leave its other fields empty
+     */
+    private static void writeTombstone(RecordEncoder encoder, int rowId, int columnCount) throws IOException {
+        encoder.number(rowId);
+        for (int i = 1; i < columnCount; i++) {
+            encoder.text(null);
+        }
+    }
+
+    /**
+     * Open an encoder over a new output file
+     */
+    static RecordEncoder openEncoder(Path outputPath, Format format, boolean gzip, String... columns)
+            throws IOException {
+        FileChannel file = FileChannel.open(outputPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            if (gzip) {
+                WritableByteChannel channel = Channels.newChannel(
+                        new GZIPOutputStream(Channels.newOutputStream(file), GZIP_BUFFER_SIZE));
+                return new RecordEncoder(channel, ByteBuffer.allocate(EXPORT_BUFFER_SIZE), format, columns);
+            }
+            // A direct buffer is handed to the file channel without an extra copy
+            return new RecordEncoder(file, ByteBuffer.allocateDirect(EXPORT_BUFFER_SIZE), format, columns);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    static void writeStudent(RecordEncoder encoder, Student student) throws IOException {
+        encoder.beginRecord();
+        writeStudentFields(encoder, student);
+        encoder.endRecord();
+    }
+
+    static void writeGrade(RecordEncoder encoder, Grade grade) throws IOException {
+        encoder.beginRecord();
+        writeGradeFields(encoder, grade);
+        encoder.endRecord();
+    }
+
+    private static void writeStudentFields(RecordEncoder encoder, Student student) throws IOException {
+        encoder.number(student.getId())
+               .text(student.getStudentId())
+               .text(student.getFullName())
+               .text(student.getEmail())
+               .text(student.getPhoneNumber())
+               .text(student.getMajor());
+    }
+
+    private static void writeGradeFields(RecordEncoder encoder, Grade grade) throws IOException {
+        encoder.number(grade.getId())
+               .number(grade.getStudentId())
+               .text(grade.getSubject())
+               .decimal(grade.getScore())
+               .decimal(grade.getCoefficient())
+               .text(grade.getSemester())
+               .number(grade.getYear());
+    }
+
+    private static void writeStrategyResults(RecordEncoder encoder, Student student, List<Grade> grades,
+                                             GradeCalculationStrategy[] strategies) throws IOException {
+        if (student == null) {
+            return; // Grades left behind by a deleted student
+        }
+        for (GradeCalculationStrategy strategy : strategies) {
+            encoder.beginRecord();
+            encoder.text(student.getStudentId())
+                   .text(student.getFullName())
+                   .text(student.getMajor())
+                   .number(grades.size())
+                   .text(strategy.getStrategyName())
+                   .decimal(strategy.calculateScore(grades))
+                   .text(strategy.calculateGrade(grades));
+            encoder.endRecord();
+        }
+    }
+}
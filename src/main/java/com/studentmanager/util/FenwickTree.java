@@ -0,0 +1,119 @@
+package com.studentmanager.util;
+
+import java.util.Arrays;
+
+/**
+ * Binary indexed tree of counts over a fixed range of buckets, e.g. scores
+ * in hundredths. Adding to a bucket, summing a prefix of buckets and finding
+ * the bucket that holds the n-th item all take O(log n) of the bucket count,
+ * so ranks and quantiles can be read while the counts keep changing.
+ *
+ * Not thread-safe; callers guard it with their own lock.
+ */
+public final class FenwickTree {
+    // 1-based: tree[i] holds the sum of the buckets (i - lowbit(i), i]
+    private final int[] tree;
+    private final int size;
+    private final int highestPowerOfTwo;
+    private long total;
+
+    /**
+     * @param size Number of buckets, numbered 0 to size - 1
+     */
+    public FenwickTree(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Size must be positive: " + size);
+        }
+        this.size = size;
+        this.tree = new int[size + 1];
+        this.highestPowerOfTwo = Integer.highestOneBit(size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param bucket Bucket to change
+     * @param delta Amount to add, negative to remove
+     */
+    public void add(int bucket, int delta) {
+        checkBucket(bucket);
+        total += delta;
+        for (int i = bucket + 1; i <= size; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * @param bucket Last bucket to include, or -1 for none
+     * @return Sum of buckets 0 to bucket
+     */
+    public long prefixSum(int bucket) {
+        long sum = 0;
+        for (int i = Math.min(bucket, size - 1) + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * @param bucket Bucket to read
+     * @return Count in that bucket
+     */
+    public long get(int bucket) {
+        checkBucket(bucket);
+        return prefixSum(bucket) - prefixSum(bucket - 1);
+    }
+
+    /**
+     * @return Sum of all buckets
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * Find the bucket holding the item at a position, counting from the
+     * lowest bucket
+     * @param rank Position, 1 for the first item
+     * @return Lowest bucket whose prefix sum reaches rank, or -1 if rank is
+     *         not between 1 and the total; counts must not be negative
+     */
+    public int findByRank(long rank) {
+        if (rank < 1 || rank > total) {
+            return -1;
+        }
+        int position = 0;
+        long remaining = rank;
+        for (int step = highestPowerOfTwo; step > 0; step >>= 1) {
+            int next = position + step;
+            if (next <= size && tree[next] < remaining) {
+                position = next;
+                remaining -= tree[next];
+            }
+        }
+        // position is the last 1-based index whose prefix stays below rank
+        return position;
+    }
+
+    /**
+     * @param bucket Upper bound, exclusive
+     * @return Highest non-empty bucket below the bound, or -1 if there is none
+     */
+    public int previousNonEmpty(int bucket) {
+        long below = prefixSum(bucket - 1);
+        return below == 0 ? -1 : findByRank(below);
+    }
+
+    public void clear() {
+        Arrays.fill(tree, 0);
+        total = 0;
+    }
+
+    private void checkBucket(int bucket) {
+        if (bucket < 0 || bucket >= size) {
+            throw new IndexOutOfBoundsException("Bucket " + bucket + " outside 0.." + (size - 1));
+        }
+    }
+}
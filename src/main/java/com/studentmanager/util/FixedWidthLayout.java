@@ -0,0 +1,176 @@
+package com.studentmanager.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+/**
+ * Precompiled fixed-width row layout for text reports. Produces the same
+ * output as a printf pattern like "%-8d %-15s %-10.2f%n" (left-aligned,
+ * padded, one space between columns) but formats into a reusable char
+ * buffer instead of parsing a format string for every row.
+ * Not thread-safe: use one instance per thread.
+ */
+public class FixedWidthLayout {
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+
+    private final int[] widths;
+    private char[] line;
+    private int length;
+    private int column;
+
+    /**
+     * @param widths Minimum width of each column, in characters
+     */
+    public FixedWidthLayout(int... widths) {
+        this.widths = widths.clone();
+        int capacity = widths.length + LINE_SEPARATOR.length();
+        for (int width : widths) {
+            capacity += width;
+        }
+        this.line = new char[Math.max(capacity, 64)];
+    }
+
+    /**
+     * Start a new row, discarding anything not yet written
+     * @return this layout
+     */
+    public FixedWidthLayout row() {
+        length = 0;
+        column = 0;
+        return this;
+    }
+
+    /**
+     * Append a text cell; null is written as "null" like printf does
+     * @param value Cell text
+     * @return this layout
+     */
+    public FixedWidthLayout text(String value) {
+        String text = value == null ? "null" : value;
+        startCell();
+        ensureCapacity(text.length());
+        text.getChars(0, text.length(), line, length);
+        length += text.length();
+        return endCell(text.length());
+    }
+
+    /**
+     * Append an integer cell
+     * @param value Cell value
+     * @return this layout
+     */
+    public FixedWidthLayout number(long value) {
+        startCell();
+        int start = length;
+        appendLong(value);
+        return endCell(length - start);
+    }
+
+    /**
+     * Append a decimal cell rounded half-up to a fixed number of decimals
+     * @param value Cell value
+     * @param decimals Digits after the decimal point (0-6)
+     * @return this layout
+     */
+    public FixedWidthLayout decimal(double value, int decimals) {
+        startCell();
+        int start = length;
+        long scale = POWERS_OF_TEN[decimals];
+        double magnitude = Math.abs(value) * scale;
+        long scaled = Math.round(magnitude);
+        if (Math.abs(magnitude - Math.floor(magnitude) - 0.5) < 1e-6) {
+            // Near a tie, round the shortest decimal form like printf does (1.005 -> 1.01)
+            scaled = new BigDecimal(Double.toString(Math.abs(value)))
+                    .setScale(decimals, RoundingMode.HALF_UP).unscaledValue().longValue();
+        }
+        if (Double.doubleToRawLongBits(value) < 0) {
+            ensureCapacity(1);
+            line[length++] = '-';
+        }
+        appendLong(scaled / scale);
+        if (decimals > 0) {
+            ensureCapacity(decimals + 1);
+            line[length++] = '.';
+            long fraction = scaled % scale;
+            for (int i = decimals - 1; i >= 0; i--) {
+                line[length + i] = (char) ('0' + fraction % 10);
+                fraction /= 10;
+            }
+            length += decimals;
+        }
+        return endCell(length - start);
+    }
+
+    /**
+     * Write the row followed by a line separator
+     * @param writer Destination
+     * @throws IOException if writing fails
+     */
+    public void writeTo(Writer writer) throws IOException {
+        ensureCapacity(LINE_SEPARATOR.length());
+        LINE_SEPARATOR.getChars(0, LINE_SEPARATOR.length(), line, length);
+        writer.write(line, 0, length + LINE_SEPARATOR.length());
+        row();
+    }
+
+    /**
+     * Append the row to a builder followed by a line separator
+     * @param builder Destination
+     */
+    public void appendTo(StringBuilder builder) {
+        builder.append(line, 0, length).append(LINE_SEPARATOR);
+        row();
+    }
+
+    private void startCell() {
+        if (column > 0) {
+            ensureCapacity(1);
+            line[length++] = ' ';
+        }
+    }
+
+    private FixedWidthLayout endCell(int written) {
+        int width = column < widths.length ? widths[column] : 0;
+        if (written < width) {
+            ensureCapacity(width - written);
+            Arrays.fill(line, length, length + width - written, ' ');
+            length += width - written;
+        }
+        column++;
+        return this;
+    }
+
+    private void appendLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            String text = Long.toString(value);
+            ensureCapacity(text.length());
+            text.getChars(0, text.length(), line, length);
+            length += text.length();
+            return;
+        }
+        ensureCapacity(20);
+        if (value < 0) {
+            line[length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = digits - 1; i >= 0; i--) {
+            line[length + i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > line.length) {
+            line = Arrays.copyOf(line, Math.max(line.length * 2, length + extra));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.studentmanager.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.util.function.Supplier;
+
+/**
+ * Rough measurement of how much heap a loaded data set retains. Collects
+ * garbage before and after loading so only reachable objects are counted;
+ * run it on an otherwise idle JVM for stable numbers.
+ */
+public final class HeapMeter {
+    private static final int GC_ROUNDS = 4;
+
+    private HeapMeter() {}
+
+    /**
+     * Measure the heap retained by the result of a loader
+     * @param loader Loads the data set; its result is kept reachable until measured
+     * @return Bytes retained by the result, approximately
+     */
+    public static long retainedBytes(Supplier<?> loader) {
+        long before = usedHeapAfterGc();
+        Object result = loader.get();
+        long after = usedHeapAfterGc();
+        Reference.reachabilityFence(result);
+        return Math.max(0, after - before);
+    }
+
+    /**
+     * @return Heap in use after collecting garbage
+     */
+    public static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < GC_ROUNDS; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+
+    /**
+     * @param bytes Byte count
+     * @return Count in MiB with one decimal, e.g. "12.5 MiB"
+     */
+    public static String format(long bytes) {
+        return String.format("%.1f MiB", bytes / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,289 @@
+package com.studentmanager.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes records as CSV, JSON or NDJSON straight into one reusable byte
+ * buffer that is drained to a channel whenever it fills up. Field names are
+ * encoded once up front, and values are converted to UTF-8 char by char,
+ * so heap use does not grow with the number of records.
+ * Not thread-safe.
+ */
+class RecordEncoder implements Closeable {
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CSV_LINE_END = {'\r', '\n'};
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final DataExporter.Format format;
+    private final byte[][] jsonKeys;
+    private long records;
+    private int field;
+
+    /**
+     * @param channel Destination; closed by {@link #close()}
+     * @param buffer Reusable output buffer
+     * @param format Output format
+     * @param columns Column names, in the order fields will be written
+     * @throws IOException if the header cannot be written
+     */
+    RecordEncoder(WritableByteChannel channel, ByteBuffer buffer, DataExporter.Format format, String... columns)
+            throws IOException {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.format = format;
+        this.jsonKeys = new byte[columns.length][];
+        for (int i = 0; i < columns.length; i++) {
+            jsonKeys[i] = ("\"" + columns[i] + "\":").getBytes(StandardCharsets.UTF_8);
+        }
+        buffer.clear();
+
+        if (format == DataExporter.Format.CSV) {
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    put((byte) ',');
+                }
+                putCsvText(columns[i]);
+            }
+            put(CSV_LINE_END);
+        } else if (format == DataExporter.Format.JSON) {
+            put((byte) '[');
+        }
+    }
+
+    /**
+     * Start a new record
+     * @throws IOException if the buffer cannot be drained
+     */
+    void beginRecord() throws IOException {
+        field = 0;
+        if (format == DataExporter.Format.JSON) {
+            if (records > 0) {
+                put((byte) ',');
+            }
+            put((byte) '\n');
+        }
+        if (format != DataExporter.Format.CSV) {
+            put((byte) '{');
+        }
+    }
+
+    /**
+     * Write a text field; null becomes an empty CSV cell or JSON null
+     */
+    RecordEncoder text(String value) throws IOException {
+        startField();
+        if (format == DataExporter.Format.CSV) {
+            if (value != null) {
+                putCsvText(value);
+            }
+        } else if (value == null) {
+            put(NULL);
+        } else {
+            putJsonText(value);
+        }
+        return this;
+    }
+
+    /**
+     * Write an integer field
+     */
+    RecordEncoder number(long value) throws IOException {
+        startField();
+        putLong(value);
+        return this;
+    }
+
+    /**
+     * Write a decimal field in its shortest round-trip form
+     */
+    RecordEncoder decimal(double value) throws IOException {
+        startField();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            // Not representable in JSON
+            if (format != DataExporter.Format.CSV) {
+                put(NULL);
+            }
+            return this;
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            // Whole numbers without the trailing ".0" (this also drops the sign of -0.0)
+            putLong((long) value);
+            return this;
+        }
+        putAscii(Double.toString(value));
+        return this;
+    }
+
+    /**
+     * Finish the current record
+     * @throws IOException if the buffer cannot be drained
+     */
+    void endRecord() throws IOException {
+        if (format == DataExporter.Format.CSV) {
+            put(CSV_LINE_END);
+        } else {
+            put((byte) '}');
+            if (format == DataExporter.Format.NDJSON) {
+                put((byte) '\n');
+            }
+        }
+        records++;
+    }
+
+    long getRecordCount() {
+        return records;
+    }
+
+    /**
+     * Write the closing bracket for JSON, drain the buffer and close the channel
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (format == DataExporter.Format.JSON) {
+                put(records == 0 ? new byte[] {']', '\n'} : new byte[] {'\n', ']', '\n'});
+            }
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void startField() throws IOException {
+        if (field > 0) {
+            put((byte) ',');
+        }
+        if (format != DataExporter.Format.CSV) {
+            put(jsonKeys[field]);
+        }
+        field++;
+    }
+
+    private void putCsvText(String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char ch = value.charAt(i);
+            quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+        }
+        if (quote) {
+            put((byte) '"');
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '"') {
+                put((byte) '"');
+            }
+            i = putChar(value, i);
+        }
+        if (quote) {
+            put((byte) '"');
+        }
+    }
+
+    private void putJsonText(String value) throws IOException {
+        put((byte) '"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '"' || ch == '\\') {
+                put((byte) '\\');
+                put((byte) ch);
+            } else if (ch < 0x20) {
+                ensure(6);
+                buffer.put((byte) '\\').put((byte) 'u').put((byte) '0').put((byte) '0')
+                      .put(HEX[ch >> 4]).put(HEX[ch & 0xF]);
+            } else {
+                i = putChar(value, i);
+            }
+        }
+        put((byte) '"');
+    }
+
+    /**
+     * Encode the char at index i as UTF-8
+     * @return Index of the last char consumed (i + 1 for a surrogate pair)
+     */
+    private int putChar(String value, int i) throws IOException {
+        char ch = value.charAt(i);
+        ensure(4);
+        if (ch < 0x80) {
+            buffer.put((byte) ch);
+        } else if (ch < 0x800) {
+            buffer.put((byte) (0xC0 | ch >> 6))
+                  .put((byte) (0x80 | ch & 0x3F));
+        } else if (Character.isHighSurrogate(ch) && i + 1 < value.length()
+                   && Character.isLowSurrogate(value.charAt(i + 1))) {
+            int codePoint = Character.toCodePoint(ch, value.charAt(i + 1));
+            buffer.put((byte) (0xF0 | codePoint >> 18))
+                  .put((byte) (0x80 | codePoint >> 12 & 0x3F))
+                  .put((byte) (0x80 | codePoint >> 6 & 0x3F))
+                  .put((byte) (0x80 | codePoint & 0x3F));
+            return i + 1;
+        } else if (Character.isSurrogate(ch)) {
+            buffer.put((byte) '?');
+        } else {
+            buffer.put((byte) (0xE0 | ch >> 12))
+                  .put((byte) (0x80 | ch >> 6 & 0x3F))
+                  .put((byte) (0x80 | ch & 0x3F));
+        }
+        return i;
+    }
+
+    private void putLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            putAscii(Long.toString(value));
+            return;
+        }
+        ensure(20);
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int end = buffer.position() + digits;
+        for (int pos = end - 1; pos >= end - digits; pos--) {
+            buffer.put(pos, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(end);
+    }
+
+    private void putAscii(String value) throws IOException {
+        ensure(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            buffer.put((byte) value.charAt(i));
+        }
+    }
+
+    private void put(byte value) throws IOException {
+        ensure(1);
+        buffer.put(value);
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        ensure(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
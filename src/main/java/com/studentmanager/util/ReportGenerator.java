@@ -1,9 +1,20 @@
 package com.studentmanager.util;
 
+import com.studentmanager.dao.GradeDAO;
+import com.studentmanager.dao.StudentDAO;
 import com.studentmanager.model.Student;
 import com.studentmanager.model.Grade;
+import com.studentmanager.model.FixedPoint;
+import com.studentmanager.model.GradeSlice;
+import com.studentmanager.model.ScoreDistribution;
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
+import java.util.Map;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
@@ -11,6 +22,8 @@ import java.time.format.DateTimeFormatter;
  * Utility class for generating reports
  */
 public class ReportGenerator {
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final int REPORT_BUFFER_SIZE = 1 << 20;
     
     /**
      * Generate transcript report for a student
@@ -20,46 +33,11 @@ public class ReportGenerator {
      * @return true if successful, false otherwise
      */
     public static boolean generateTranscript(Student student, List<Grade> grades, String outputPath) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(outputPath, true))) {
-            writer.println("=".repeat(80));
-            writer.println("                    BẢNG ĐIỂM SINH VIÊN");
-            writer.println("=".repeat(80));
-            writer.println();
-            writer.println("Thời gian tạo: " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")));
-            writer.println();
-            writer.println("THÔNG TIN SINH VIÊN:");
-            writer.println("- Mã sinh viên: " + student.getStudentId());
-            writer.println("- Họ tên: " + student.getFullName());
-            writer.println("- Email: " + (student.getEmail() != null ? student.getEmail() : "N/A"));
-            writer.println("- Số điện thoại: " + (student.getPhoneNumber() != null ? student.getPhoneNumber() : "N/A"));
-            writer.println("- Ngành học: " + (student.getMajor() != null ? student.getMajor() : "N/A"));
-            writer.println();
-            
-            if (grades != null && !grades.isEmpty()) {
-                writer.println("CHI TIẾT ĐIỂM:");
-                writer.println("-".repeat(80));
-                writer.printf("%-25s %-8s %-8s %-12s %-8s%n", "Môn học", "Điểm", "Hệ số", "Học kỳ", "Năm");
-                writer.println("-".repeat(80));
-                
-                for (Grade grade : grades) {
-                    writer.printf("%-25s %-8.2f %-8.1f %-12s %-8d%n",
-                        grade.getSubject(),
-                        grade.getScore(),
-                        grade.getCoefficient(),
-                        grade.getSemester(),
-                        grade.getYear());
-                }
-                
-                writer.println("-".repeat(80));
-                writer.println("Tổng số môn: " + grades.size());
-            } else {
-                writer.println("Chưa có điểm nào được ghi nhận.");
-            }
-            
-            writer.println();
-            writer.println("=".repeat(80));
-            writer.println();
-            
+        StringBuilder transcript = new StringBuilder(2048);
+        renderTranscript(student, grades, LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")),
+                         newTranscriptLayout(), transcript);
+        try (Writer writer = new FileWriter(outputPath, true)) {
+            writer.append(transcript);
             return true;
         } catch (IOException e) {
             System.err.println("Error generating transcript: " + e.getMessage());
@@ -67,6 +45,67 @@ public class ReportGenerator {
         }
     }
     
+    /**
+     * Create the column layout used for transcript grade rows
+     * @return New layout; not thread-safe
+     */
+    static FixedWidthLayout newTranscriptLayout() {
+        return new FixedWidthLayout(25, 8, 8, 12, 8);
+    }
+    
+    /**
+     * Render one transcript into a builder
+     * @param student Student object
+     * @param grades List of grades
+     * @param generatedAt Formatted creation time printed in the header
+     * @param layout Layout from {@link #newTranscriptLayout()}, owned by the calling thread
+     * @param out Destination
+     */
+    static void renderTranscript(Student student, List<Grade> grades, String generatedAt,
+                                 FixedWidthLayout layout, StringBuilder out) {
+        String rule = "=".repeat(80) + LINE_SEPARATOR;
+        String separator = "-".repeat(80) + LINE_SEPARATOR;
+        out.append(rule);
+        out.append("                    BẢNG ĐIỂM SINH VIÊN").append(LINE_SEPARATOR);
+        out.append(rule);
+        out.append(LINE_SEPARATOR);
+        out.append("Thời gian tạo: ").append(generatedAt).append(LINE_SEPARATOR);
+        out.append(LINE_SEPARATOR);
+        out.append("THÔNG TIN SINH VIÊN:").append(LINE_SEPARATOR);
+        out.append("- Mã sinh viên: ").append(student.getStudentId()).append(LINE_SEPARATOR);
+        out.append("- Họ tên: ").append(student.getFullName()).append(LINE_SEPARATOR);
+        out.append("- Email: ").append(student.getEmail() != null ? student.getEmail() : "N/A").append(LINE_SEPARATOR);
+        out.append("- Số điện thoại: ").append(student.getPhoneNumber() != null ? student.getPhoneNumber() : "N/A").append(LINE_SEPARATOR);
+        out.append("- Ngành học: ").append(student.getMajor() != null ? student.getMajor() : "N/A").append(LINE_SEPARATOR);
+        out.append(LINE_SEPARATOR);
+        
+        if (grades != null && !grades.isEmpty()) {
+            out.append("CHI TIẾT ĐIỂM:").append(LINE_SEPARATOR);
+            out.append(separator);
+            layout.row().text("Môn học").text("Điểm").text("Hệ số").text("Học kỳ").text("Năm").appendTo(out);
+            out.append(separator);
+            
+            for (Grade grade : grades) {
+                layout.row()
+                      .text(grade.getSubject())
+                      .decimal(grade.getScore(), 2)
+                      .decimal(grade.getCoefficient(), 1)
+                      .text(grade.getSemester())
+                      .number(grade.getYear())
+                      .appendTo(out);
+            }
+            
+            out.append(separator);
+            out.append("Tổng số môn: ").append(grades.size()).append(LINE_SEPARATOR);
+        } else {
+            out.append("Chưa có điểm nào được ghi nhận.").append(LINE_SEPARATOR);
+        }
+        
+        out.append(LINE_SEPARATOR);
+        out.append(rule);
+        out.append(LINE_SEPARATOR);
+    }
+    
     /**
      * Generate summary report for all students
      * @param students List of students
@@ -110,81 +149,295 @@ public class ReportGenerator {
     }
     
     /**
-     * Generate grade statistics report
-     * @param students List of students with grades
+     * Generate summary report for all students, streaming rows from the database.
+     * Produces the same layout as {@link #generateSummaryReport(List, String)} but
+     * holds only one row in memory at a time, whatever the number of students.
      * @param outputPath Output file path
      * @return true if successful, false otherwise
      */
-    public static boolean generateStatisticsReport(List<Student> students, String outputPath) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(outputPath))) {
-            writer.println("=".repeat(80));
-            writer.println("                    BÁO CÁO THỐNG KÊ ĐIỂM");
-            writer.println("=".repeat(80));
-            writer.println();
-            writer.println("Thời gian tạo: " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")));
-            writer.println();
-            
-            int totalStudents = students.size();
-            int studentsWithGrades = 0;
-            int totalGrades = 0;
-            double totalScore = 0.0;
-            
-            int excellent = 0, good = 0, fair = 0, average = 0, poor = 0;
+    public static boolean generateSummaryReport(String outputPath) {
+        StudentDAO studentDAO = new StudentDAO();
+        int totalStudents = studentDAO.countStudents();
+        
+        try (Writer writer = openReportWriter(outputPath, false)) {
+            String rule = "=".repeat(100) + LINE_SEPARATOR;
+            writer.write(rule);
+            writer.write("                         BÁO CÁO TỔNG QUAN SINH VIÊN" + LINE_SEPARATOR);
+            writer.write(rule);
+            writer.write(LINE_SEPARATOR);
+            writer.write("Thời gian tạo: " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")) + LINE_SEPARATOR);
+            writer.write("Tổng số sinh viên: " + totalStudents + LINE_SEPARATOR);
+            writer.write(LINE_SEPARATOR);
             
-            for (Student student : students) {
-                if (!student.getGrades().isEmpty()) {
-                    studentsWithGrades++;
-                    totalGrades += student.getGrades().size();
-                    
-                    // Calculate student's average
-                    double sum = 0, weightSum = 0;
-                    for (Grade grade : student.getGrades()) {
-                        sum += grade.getScore() * grade.getCoefficient();
-                        weightSum += grade.getCoefficient();
-                        totalScore += grade.getScore();
+            if (totalStudents > 0) {
+                FixedWidthLayout layout = new FixedWidthLayout(8, 15, 25, 25, 20, 10);
+                layout.row().text("STT").text("Mã SV").text("Họ tên").text("Email").text("Ngành").text("Số môn").writeTo(writer);
+                String separator = "-".repeat(100) + LINE_SEPARATOR;
+                writer.write(separator);
+                
+                long[] rowNumber = {0};
+                IOException[] failure = {null};
+                int read = studentDAO.forEachStudentWithGradeCount((student, gradeCount) -> {
+                    if (failure[0] != null) {
+                        return;
                     }
-                    
-                    if (weightSum > 0) {
-                        double avg = sum / weightSum;
-                        if (avg >= 8.5) excellent++;
-                        else if (avg >= 7.0) good++;
-                        else if (avg >= 5.5) fair++;
-                        else if (avg >= 4.0) average++;
-                        else poor++;
+                    try {
+                        layout.row()
+                              .number(++rowNumber[0])
+                              .text(student.getStudentId())
+                              .text(student.getFullName())
+                              .text(student.getEmail() != null ? student.getEmail() : "N/A")
+                              .text(student.getMajor() != null ? student.getMajor() : "N/A")
+                              .number(gradeCount)
+                              .writeTo(writer);
+                    } catch (IOException e) {
+                        failure[0] = e;
                     }
+                });
+                if (failure[0] != null) {
+                    throw failure[0];
+                }
+                if (read < 0) {
+                    return false;
                 }
+                
+                writer.write(separator);
             }
             
-            writer.println("THỐNG KÊ TỔNG QUAN:");
-            writer.println("- Tổng số sinh viên: " + totalStudents);
-            writer.println("- Sinh viên có điểm: " + studentsWithGrades);
-            writer.println("- Tổng số bài kiểm tra: " + totalGrades);
-            if (totalGrades > 0) {
-                writer.println("- Điểm trung bình chung: " + String.format("%.2f", totalScore / totalGrades));
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error generating summary report: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Generate a report of score distributions: count, mean, standard
+     * deviation and percentiles of every slice of each dimension
+     * @param distributions Distributions per slice, by dimension
+     * @param overall Distribution of all grades, or null to leave it out
+     * @param outputPath Output file path
+     * @return true if successful, false otherwise
+     */
+    public static boolean generateDistributionReport(Map<GradeSlice.Dimension, Map<GradeSlice, ScoreDistribution>> distributions,
+                                                     ScoreDistribution overall, String outputPath) {
+        StringBuilder report = new StringBuilder(8192);
+        String rule = "=".repeat(100) + LINE_SEPARATOR;
+        report.append(rule);
+        report.append("                         BÁO CÁO PHÂN BỐ ĐIỂM").append(LINE_SEPARATOR);
+        report.append(rule);
+        report.append(LINE_SEPARATOR);
+        report.append("Thời gian tạo: ").append(LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")))
+              .append(LINE_SEPARATOR);
+        report.append(LINE_SEPARATOR);
+        if (overall != null) {
+            report.append("TOÀN TRƯỜNG:").append(LINE_SEPARATOR);
+            FixedWidthLayout layout = newDistributionLayout(report);
+            renderDistribution(layout, "Tất cả", overall, report);
+            report.append(LINE_SEPARATOR);
+        }
+        for (Map.Entry<GradeSlice.Dimension, Map<GradeSlice, ScoreDistribution>> entry : distributions.entrySet()) {
+            renderDistributions("THEO " + entry.getKey().getDisplayName().toUpperCase(), entry.getValue(), report);
+        }
+
+        try (Writer writer = openReportWriter(outputPath, false)) {
+            writer.append(report);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error generating distribution report: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Render one table of score distributions, one row per slice
+     * @param title Section title
+     * @param distributions Distributions per slice
+     * @param out Destination
+     */
+    public static void renderDistributions(String title, Map<GradeSlice, ScoreDistribution> distributions, StringBuilder out) {
+        out.append(title).append(":").append(LINE_SEPARATOR);
+        FixedWidthLayout layout = newDistributionLayout(out);
+        for (Map.Entry<GradeSlice, ScoreDistribution> entry : distributions.entrySet()) {
+            renderDistribution(layout, entry.getKey().getLabel(), entry.getValue(), out);
+        }
+        out.append(LINE_SEPARATOR);
+    }
+    
+    private static FixedWidthLayout newDistributionLayout(StringBuilder out) {
+        FixedWidthLayout layout = new FixedWidthLayout(25, 8, 6, 8, 6, 6, 9, 6, 6, 6);
+        layout.row().text("Nhóm").text("Số điểm").text("TB").text("Độ lệch").text("Min").text("P25")
+              .text("Trung vị").text("P75").text("P90").text("Max").appendTo(out);
+        out.append("-".repeat(100)).append(LINE_SEPARATOR);
+        return layout;
+    }
+    
+    private static void renderDistribution(FixedWidthLayout layout, String label, ScoreDistribution distribution,
+                                           StringBuilder out) {
+        if (distribution.isEmpty()) {
+            return;
+        }
+        layout.row()
+              .text(label)
+              .number(distribution.getCount())
+              .text(FixedPoint.format(distribution.getMeanHundredths()))
+              .decimal(distribution.getStandardDeviation(), 2)
+              .text(FixedPoint.format(distribution.getMinHundredths()))
+              .text(FixedPoint.format(distribution.getQuantileHundredths(0.25)))
+              .text(FixedPoint.format(distribution.getMedianHundredths()))
+              .text(FixedPoint.format(distribution.getQuantileHundredths(0.75)))
+              .text(FixedPoint.format(distribution.getQuantileHundredths(0.90)))
+              .text(FixedPoint.format(distribution.getMaxHundredths()))
+              .appendTo(out);
+    }
+    
+    /**
+     * Open a UTF-8 writer over a file channel with a large output buffer,
+     * so rows are encoded in bulk and written with few system calls
+     * @param outputPath Output file path
+     * @param append true to append to an existing file
+     * @return Writer; closing it closes the channel
+     * @throws IOException if the file cannot be opened
+     */
+    static Writer openReportWriter(String outputPath, boolean append) throws IOException {
+        FileChannel channel = append
+                ? FileChannel.open(Paths.get(outputPath), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+                : FileChannel.open(Paths.get(outputPath), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), REPORT_BUFFER_SIZE);
+    }
+    
+    /**
+     * Generate grade statistics report
+     * @param students List of students with grades
+     * @param outputPath Output file path
+     * @return true if successful, false otherwise
+     */
+    public static boolean generateStatisticsReport(List<Student> students, String outputPath) {
+        GradeStatistics statistics = new GradeStatistics();
+        for (Student student : students) {
+            for (Grade grade : student.getGrades()) {
+                statistics.add(grade);
             }
-            writer.println();
-            
-            writer.println("THỐNG KÊ THEO XẾP LOẠI:");
-            writer.println("- Xuất sắc (≥ 8.5): " + excellent + " sinh viên");
-            writer.println("- Giỏi (≥ 7.0): " + good + " sinh viên");
-            writer.println("- Khá (≥ 5.5): " + fair + " sinh viên");
-            writer.println("- Trung bình (≥ 4.0): " + average + " sinh viên");
-            writer.println("- Yếu (< 4.0): " + poor + " sinh viên");
-            
-            if (studentsWithGrades > 0) {
-                writer.println();
-                writer.println("TỶ LỆ PHẦN TRĂM:");
-                writer.println("- Xuất sắc: " + String.format("%.1f%%", (double)excellent/studentsWithGrades*100));
-                writer.println("- Giỏi: " + String.format("%.1f%%", (double)good/studentsWithGrades*100));
-                writer.println("- Khá: " + String.format("%.1f%%", (double)fair/studentsWithGrades*100));
-                writer.println("- Trung bình: " + String.format("%.1f%%", (double)average/studentsWithGrades*100));
-                writer.println("- Yếu: " + String.format("%.1f%%", (double)poor/studentsWithGrades*100));
+            statistics.endStudent();
+        }
+        
+        try (PrintWriter writer = new PrintWriter(new FileWriter(outputPath))) {
+            writeStatistics(writer, students.size(), statistics);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error generating statistics report: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Generate grade statistics report, streaming grades from the database in
+     * student order. Produces the same report as
+     * {@link #generateStatisticsReport(List, String)} but holds only the sums
+     * of the current student in memory, whatever the number of grades.
+     * @param outputPath Output file path
+     * @return true if successful, false otherwise
+     */
+    public static boolean generateStatisticsReport(String outputPath) {
+        int totalStudents = new StudentDAO().countStudents();
+        GradeStatistics statistics = new GradeStatistics();
+        int[] currentStudent = {-1};
+        int read = new GradeDAO().forEachGrade(grade -> {
+            if (grade.getStudentId() != currentStudent[0]) {
+                statistics.endStudent();
+                currentStudent[0] = grade.getStudentId();
+            }
+            statistics.add(grade);
+        });
+        if (read < 0) {
+            return false;
+        }
+        statistics.endStudent();
+        
+        try (PrintWriter writer = new PrintWriter(openReportWriter(outputPath, false))) {
+            writeStatistics(writer, totalStudents, statistics);
+            if (writer.checkError()) {
+                throw new IOException("write failed");
             }
-            
             return true;
         } catch (IOException e) {
             System.err.println("Error generating statistics report: " + e.getMessage());
             return false;
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Totals and classification counts, fed one student's grades at a time
+     */
+    private static final class GradeStatistics {
+        int studentsWithGrades;
+        int totalGrades;
+        long totalScore;      // hundredths
+        long weightedSum;     // ten-thousandths, current student
+        long weightSum;       // hundredths, current student
+        int currentGrades;
+        int excellent, good, fair, average, poor;
+        
+        void add(Grade grade) {
+            currentGrades++;
+            totalGrades++;
+            totalScore += grade.getScoreHundredths();
+            weightedSum += grade.getWeightedScoreTenThousandths();
+            weightSum += grade.getCoefficientHundredths();
+        }
+        
+        void endStudent() {
+            if (currentGrades > 0) {
+                studentsWithGrades++;
+                if (weightSum > 0) {
+                    // Student's average in exact fixed point
+                    long avg = FixedPoint.weightedAverage(weightedSum, weightSum);
+                    if (avg >= 850) excellent++;
+                    else if (avg >= 700) good++;
+                    else if (avg >= 550) fair++;
+                    else if (avg >= 400) average++;
+                    else poor++;
+                }
+            }
+            currentGrades = 0;
+            weightedSum = 0;
+            weightSum = 0;
+        }
+    }
+    
+    private static void writeStatistics(PrintWriter writer, int totalStudents, GradeStatistics statistics) {
+        int studentsWithGrades = statistics.studentsWithGrades;
+        writer.println("=".repeat(80));
+        writer.println("                    BÁO CÁO THỐNG KÊ ĐIỂM");
+        writer.println("=".repeat(80));
+        writer.println();
+        writer.println("Thời gian tạo: " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")));
+        writer.println();
+        
+        writer.println("THỐNG KÊ TỔNG QUAN:");
+        writer.println("- Tổng số sinh viên: " + totalStudents);
+        writer.println("- Sinh viên có điểm: " + studentsWithGrades);
+        writer.println("- Tổng số bài kiểm tra: " + statistics.totalGrades);
+        if (statistics.totalGrades > 0) {
+            writer.println("- Điểm trung bình chung: " + FixedPoint.format(FixedPoint.average(statistics.totalScore, statistics.totalGrades)));
+        }
+        writer.println();
+        
+        writer.println("THỐNG KÊ THEO XẾP LOẠI:");
+        writer.println("- Xuất sắc (≥ 8.5): " + statistics.excellent + " sinh viên");
+        writer.println("- Giỏi (≥ 7.0): " + statistics.good + " sinh viên");
+        writer.println("- Khá (≥ 5.5): " + statistics.fair + " sinh viên");
+        writer.println("- Trung bình (≥ 4.0): " + statistics.average + " sinh viên");
+        writer.println("- Yếu (< 4.0): " + statistics.poor + " sinh viên");
+        
+        if (studentsWithGrades > 0) {
+            writer.println();
+            writer.println("TỶ LỆ PHẦN TRĂM:");
+            writer.println("- Xuất sắc: " + String.format("%.1f%%", (double)statistics.excellent/studentsWithGrades*100));
+            writer.println("- Giỏi: " + String.format("%.1f%%", (double)statistics.good/studentsWithGrades*100));
+            writer.println("- Khá: " + String.format("%.1f%%", (double)statistics.fair/studentsWithGrades*100));
+            writer.println("- Trung bình: " + String.format("%.1f%%", (double)statistics.average/studentsWithGrades*100));
+            writer.println("- Yếu: " + String.format("%.1f%%", (double)statistics.poor/studentsWithGrades*100));
+        }
+    }
+}
@@ -0,0 +1,642 @@
+package com.studentmanager.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of non-negative ints, laid out like a Roaring bitmap: the
+ * values are split by their high 16 bits into chunks, and each chunk is a
+ * sorted char array while it holds at most 4096 values and a 65536-bit
+ * bitmap once it holds more. Sparse sets cost about two bytes per value,
+ * dense sets one bit, and intersections and unions work chunk by chunk.
+ *
+ * Not thread-safe. and(), or() and andNot() return new bitmaps and never
+ * change their arguments.
+ */
+public final class RoaringBitmap {
+    // Above this many values an array chunk takes more space than a bitmap chunk
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+
+    public RoaringBitmap() {
+        keys = new char[4];
+        containers = new Container[4];
+    }
+
+    private RoaringBitmap(int capacity) {
+        keys = new char[Math.max(1, capacity)];
+        containers = new Container[Math.max(1, capacity)];
+    }
+
+    /**
+     * @param values Values to add
+     * @return New bitmap holding the values
+     */
+    public static RoaringBitmap of(int... values) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int value : values) {
+            bitmap.add(value);
+        }
+        return bitmap;
+    }
+
+    /**
+     * @param value Value to add, must not be negative
+     * @return true if the value was not in the set yet
+     */
+    public boolean add(int value) {
+        checkValue(value);
+        char key = (char) (value >>> 16);
+        int position = findKey(key);
+        if (position < 0) {
+            position = -position - 1;
+            insertKey(position, key, new ArrayContainer());
+        }
+        Container container = containers[position];
+        int before = container.cardinality();
+        containers[position] = container.add((char) value);
+        return containers[position].cardinality() > before;
+    }
+
+    /**
+     * @param value Value to remove
+     * @return true if the value was in the set
+     */
+    public boolean remove(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int position = findKey((char) (value >>> 16));
+        if (position < 0) {
+            return false;
+        }
+        Container container = containers[position];
+        int before = container.cardinality();
+        container = container.remove((char) value);
+        if (container.cardinality() == 0) {
+            removeKey(position);
+        } else {
+            containers[position] = container;
+        }
+        return container.cardinality() < before;
+    }
+
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int position = findKey((char) (value >>> 16));
+        return position >= 0 && containers[position].contains((char) value);
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return Approximate bytes used by the chunks
+     */
+    public long getSizeInBytes() {
+        long bytes = 3L * keys.length + 16;
+        for (int i = 0; i < size; i++) {
+            bytes += containers[i].sizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * @param high High 16 bits of the values in the chunk
+     * @return true if the chunk is stored as a bitmap rather than an array
+     */
+    boolean isBitmapChunk(int high) {
+        int position = findKey((char) high);
+        return position >= 0 && containers[position] instanceof BitmapContainer;
+    }
+
+    /**
+     * @param other Bitmap to intersect with
+     * @return New bitmap of the values in both
+     */
+    public RoaringBitmap and(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap(Math.min(size, other.size));
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container container = containers[i].and(other.containers[j]);
+                if (container.cardinality() > 0) {
+                    result.appendKey(keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param other Bitmap to unite with
+     * @return New bitmap of the values in either
+     */
+    public RoaringBitmap or(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap(size + other.size);
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+                result.appendKey(keys[i], containers[i].copy());
+                i++;
+            } else if (i == size || keys[i] > other.keys[j]) {
+                result.appendKey(other.keys[j], other.containers[j].copy());
+                j++;
+            } else {
+                result.appendKey(keys[i], containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Add every value of another bitmap to this one, reusing this bitmap's
+     * chunks where possible; cheaper than or() when uniting many bitmaps
+     * @param other Bitmap whose values to add
+     */
+    public void addAll(RoaringBitmap other) {
+        for (int j = 0; j < other.size; j++) {
+            int position = findKey(other.keys[j]);
+            if (position < 0) {
+                insertKey(-position - 1, other.keys[j], other.containers[j].copy());
+            } else {
+                containers[position] = containers[position].orInPlace(other.containers[j]);
+            }
+        }
+    }
+
+    /**
+     * @param other Bitmap of the values to leave out
+     * @return New bitmap of the values in this one but not in the other
+     */
+    public RoaringBitmap andNot(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap(size);
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            Container container = j < other.size && other.keys[j] == keys[i]
+                    ? containers[i].andNot(other.containers[j])
+                    : containers[i].copy();
+            if (container.cardinality() > 0) {
+                result.appendKey(keys[i], container);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return Independent copy of this bitmap
+     */
+    public RoaringBitmap copy() {
+        RoaringBitmap result = new RoaringBitmap(size);
+        for (int i = 0; i < size; i++) {
+            result.appendKey(keys[i], containers[i].copy());
+        }
+        return result;
+    }
+
+    /**
+     * Visit the values in ascending order
+     * @param consumer Receives each value
+     */
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, consumer);
+        }
+    }
+
+    /**
+     * @return Values in ascending order
+     */
+    public int[] toArray() {
+        int[] values = new int[cardinality()];
+        int[] next = new int[1];
+        forEach(value -> values[next[0]++] = value);
+        return values;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof RoaringBitmap)) {
+            return false;
+        }
+        return Arrays.equals(toArray(), ((RoaringBitmap) other).toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return "RoaringBitmap{cardinality=" + cardinality() + ", chunks=" + size + "}";
+    }
+
+    private static void checkValue(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+    }
+
+    private int findKey(char key) {
+        // Most lookups hit the last chunk when values are added in order
+        if (size > 0 && keys[size - 1] == key) {
+            return size - 1;
+        }
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] < key) {
+                low = middle + 1;
+            } else if (keys[middle] > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void insertKey(int position, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, position, keys, position + 1, size - position);
+        System.arraycopy(containers, position, containers, position + 1, size - position);
+        keys[position] = key;
+        containers[position] = container;
+        size++;
+    }
+
+    private void appendKey(char key, Container container) {
+        insertKey(size, key, container);
+    }
+
+    private void removeKey(int position) {
+        System.arraycopy(keys, position + 1, keys, position, size - position - 1);
+        System.arraycopy(containers, position + 1, containers, position, size - position - 1);
+        containers[--size] = null;
+    }
+
+    /**
+     * Low 16 bits of the values of one chunk. Updates return the container
+     * to use from then on, which changes when the chunk switches layout.
+     */
+    private abstract static class Container {
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract boolean contains(char value);
+
+        abstract int cardinality();
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        Container orInPlace(Container other) {
+            return or(other);
+        }
+
+        abstract Container andNot(Container other);
+
+        abstract Container copy();
+
+        abstract void forEach(int high, IntConsumer consumer);
+
+        abstract long sizeInBytes();
+    }
+
+    private static final class ArrayContainer extends Container {
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            int position = Arrays.binarySearch(values, 0, cardinality, value);
+            if (position >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX) {
+                return toBitmap().add(value);
+            }
+            position = -position - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, position, values, position + 1, cardinality - position);
+            values[position] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int position = Arrays.binarySearch(values, 0, cardinality, value);
+            if (position >= 0) {
+                System.arraycopy(values, position + 1, values, position, cardinality - position - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[Math.min(cardinality, other.cardinality())];
+            int count = 0;
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result[count++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        result[count++] = values[i];
+                    }
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            char[] result = new char[cardinality + array.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < array.cardinality) {
+                if (j == array.cardinality || (i < cardinality && values[i] < array.values[j])) {
+                    result[count++] = values[i++];
+                } else if (i == cardinality || values[i] > array.values[j]) {
+                    result[count++] = array.values[j++];
+                } else {
+                    result[count++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+            ArrayContainer union = new ArrayContainer(result, count);
+            return count > ARRAY_MAX ? union.toBitmap() : union;
+        }
+
+        @Override
+        Container andNot(Container other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (!other.contains(values[i])) {
+                    result[count++] = values[i];
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(1, cardinality)), cardinality);
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (int i = 0; i < cardinality; i++) {
+                consumer.accept(high | values[i]);
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 2L * values.length + 16;
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer() {
+            this(new long[BITMAP_WORDS], 0);
+        }
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) == 0) {
+                words[value >>> 6] |= bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            clear(value);
+            return cardinality <= ARRAY_MAX ? toArray() : this;
+        }
+
+        private void clear(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) != 0) {
+                words[value >>> 6] &= ~bit;
+                cardinality--;
+            }
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            long[] result = new long[BITMAP_WORDS];
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result[i] = words[i] & otherWords[i];
+                count += Long.bitCount(result[i]);
+            }
+            return shrink(result, count);
+        }
+
+        @Override
+        Container or(Container other) {
+            long[] result = words.clone();
+            if (other instanceof ArrayContainer) {
+                BitmapContainer union = new BitmapContainer(result, cardinality);
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    union.add(array.values[i]);
+                }
+                return union;
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result[i] |= otherWords[i];
+                count += Long.bitCount(result[i]);
+            }
+            return new BitmapContainer(result, count);
+        }
+
+        @Override
+        Container orInPlace(Container other) {
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    add(array.values[i]);
+                }
+                return this;
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                words[i] |= otherWords[i];
+                count += Long.bitCount(words[i]);
+            }
+            cardinality = count;
+            return this;
+        }
+
+        @Override
+        Container andNot(Container other) {
+            long[] result = words.clone();
+            if (other instanceof ArrayContainer) {
+                BitmapContainer difference = new BitmapContainer(result, cardinality);
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    difference.clear(array.values[i]);
+                }
+                return shrink(result, difference.cardinality);
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result[i] &= ~otherWords[i];
+                count += Long.bitCount(result[i]);
+            }
+            return shrink(result, count);
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    consumer.accept(high | (i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 8L * BITMAP_WORDS + 16;
+        }
+
+        private static Container shrink(long[] words, int cardinality) {
+            BitmapContainer bitmap = new BitmapContainer(words, cardinality);
+            return cardinality <= ARRAY_MAX ? bitmap.toArray() : bitmap;
+        }
+
+        ArrayContainer toArray() {
+            char[] values = new char[Math.max(1, cardinality)];
+            int[] count = new int[1];
+            forEach(0, value -> values[count[0]++] = (char) value);
+            return new ArrayContainer(values, cardinality);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.studentmanager.util;
+
+import com.studentmanager.dao.GradeDAO;
+import com.studentmanager.dao.StudentDAO;
+import com.studentmanager.model.Grade;
+import com.studentmanager.model.Student;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates transcripts for a whole cohort in one run.
+ * Students and grades are loaded with two queries, transcripts are rendered
+ * on a worker pool (each worker keeps its own layout and buffer), and the
+ * results go either to one file per student or to a single ZIP archive.
+ * Only a bounded window of rendered transcripts is held in memory at once.
+ */
+public class TranscriptBatchJob {
+    private static final int IN_FLIGHT_PER_THREAD = 4;
+
+    /**
+     * Where rendered transcripts are written
+     */
+    public enum OutputMode {
+        /** One text file per student inside the output directory */
+        PER_STUDENT_FILES,
+        /** One ZIP archive with a text entry per student */
+        ZIP
+    }
+
+    /**
+     * Receives progress updates on the thread that called {@link #run}
+     */
+    public interface ProgressListener {
+        void onProgress(int completed, int total);
+    }
+
+    /**
+     * Outcome of a batch run
+     */
+    public static class Result {
+        private final int total;
+        private final int completed;
+        private final long bytesWritten;
+        private final long elapsedNanos;
+        private final boolean cancelled;
+
+        Result(int total, int completed, long bytesWritten, long elapsedNanos, boolean cancelled) {
+            this.total = total;
+            this.completed = completed;
+            this.bytesWritten = bytesWritten;
+            this.elapsedNanos = elapsedNanos;
+            this.cancelled = cancelled;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getCompleted() {
+            return completed;
+        }
+
+        public long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public double getTranscriptsPerSecond() {
+            return elapsedNanos > 0 ? completed * 1e9 / elapsedNanos : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d/%d bảng điểm, %.1f MB trong %d ms (%.0f bảng điểm/giây)%s",
+                    completed, total, bytesWritten / (1024.0 * 1024.0), getElapsedMillis(),
+                    getTranscriptsPerSecond(), cancelled ? " - đã hủy" : "");
+        }
+    }
+
+    /**
+     * One rendered transcript
+     */
+    private static class Rendered {
+        final String entryName;
+        final byte[] content;
+
+        Rendered(String entryName, byte[] content) {
+            this.entryName = entryName;
+            this.content = content;
+        }
+    }
+
+    private final String major;
+    private final String semester;
+    private final Integer year;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private ProgressListener progressListener;
+    private volatile boolean cancelled;
+
+    /**
+     * @param major Major of the cohort, or null for all majors
+     * @param semester Only include grades from this semester, or null
+     * @param year Only include grades from this year, or null
+     */
+    public TranscriptBatchJob(String major, String semester, Integer year) {
+        this.major = major;
+        this.semester = semester;
+        this.year = year;
+    }
+
+    /**
+     * Set the number of rendering threads
+     * @param threads Worker count, at least 1
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Stop the job; transcripts already written are kept and a ZIP archive
+     * is still closed properly. Safe to call from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Run the job. When a semester or year filter is set, only students with
+     * grades in that term get a transcript.
+     * @param output Output directory for {@link OutputMode#PER_STUDENT_FILES}, or the ZIP file path
+     * @param mode Output mode
+     * @return Counts and throughput of the run
+     * @throws IOException if the output cannot be written
+     */
+    public Result run(Path output, OutputMode mode) throws IOException {
+        long start = System.nanoTime();
+        List<Student> students = loadCohort();
+        Map<Integer, List<Grade>> gradesByStudent = new GradeDAO().getGradesForCohort(major, semester, year);
+        boolean termFilter = semester != null || year != null;
+        if (termFilter) {
+            students.removeIf(student -> !gradesByStudent.containsKey(student.getId()));
+        }
+        int total = students.size();
+        String generatedAt = LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss"));
+
+        if (mode == OutputMode.PER_STUDENT_FILES) {
+            Files.createDirectories(output);
+        } else if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, workerThreadFactory());
+        CompletionService<Rendered> completion = new ExecutorCompletionService<>(executor);
+        ThreadLocal<FixedWidthLayout> layouts = ThreadLocal.withInitial(ReportGenerator::newTranscriptLayout);
+        ThreadLocal<StringBuilder> buffers = ThreadLocal.withInitial(() -> new StringBuilder(4096));
+
+        int submitted = 0;
+        int completed = 0;
+        long bytesWritten = 0;
+        int window = threads * IN_FLIGHT_PER_THREAD;
+
+        try (ZipOutputStream zip = mode == OutputMode.ZIP ? new ZipOutputStream(Files.newOutputStream(output)) : null) {
+            while (completed < submitted || (submitted < total && !cancelled)) {
+                while (submitted < total && submitted - completed < window && !cancelled) {
+                    Student student = students.get(submitted++);
+                    List<Grade> grades = gradesByStudent.getOrDefault(student.getId(), Collections.emptyList());
+                    completion.submit(() -> {
+                        StringBuilder buffer = buffers.get();
+                        buffer.setLength(0);
+                        ReportGenerator.renderTranscript(student, grades, generatedAt, layouts.get(), buffer);
+                        byte[] content = buffer.toString().getBytes(StandardCharsets.UTF_8);
+                        String entryName = fileNameFor(student);
+                        if (mode == OutputMode.PER_STUDENT_FILES) {
+                            // Workers write their own files; nothing to hand back
+                            Files.write(output.resolve(entryName), content);
+                        }
+                        return new Rendered(entryName, content);
+                    });
+                }
+                if (completed == submitted) {
+                    break;
+                }
+
+                Rendered rendered = takeNext(completion);
+                if (zip != null) {
+                    zip.putNextEntry(new ZipEntry(rendered.entryName));
+                    zip.write(rendered.content);
+                    zip.closeEntry();
+                }
+                bytesWritten += rendered.content.length;
+                completed++;
+                if (progressListener != null) {
+                    progressListener.onProgress(completed, total);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return new Result(total, completed, bytesWritten, System.nanoTime() - start, cancelled && completed < total);
+    }
+
+    /**
+     * Load the students of the cohort
+     */
+    private List<Student> loadCohort() {
+        return new ArrayList<>(new StudentDAO().getStudentsByMajor(major, 0, Integer.MAX_VALUE));
+    }
+
+    private static Rendered takeNext(CompletionService<Rendered> completion) throws IOException {
+        try {
+            return completion.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Transcript generation interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Error rendering transcript: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * File or ZIP entry name for a student's transcript
+     */
+    private static String fileNameFor(Student student) {
+        return "bang_diem_" + student.getStudentId().replaceAll("[^A-Za-z0-9._-]", "_") + ".txt";
+    }
+
+    private static ThreadFactory workerThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "transcript-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,82 @@
+package com.studentmanager.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AsyncDAOTest {
+    // Counts without end; only an interrupt stops it
+    private static final String ENDLESS_QUERY =
+            "WITH RECURSIVE n(x) AS (SELECT 1 UNION ALL SELECT x + 1 FROM n) SELECT COUNT(*) FROM n";
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void open() {
+        TestDatabase.open(directory);
+    }
+
+    @AfterEach
+    void close() {
+        TestDatabase.close();
+    }
+
+    @Test
+    void timedOutReadsStopTheirStatement() throws Exception {
+        AsyncDAO async = new AsyncDAO(new StudentDAO(), new GradeDAO(), 200, TimeUnit.MILLISECONDS);
+        List<CompletableFuture<Long>> endless = new ArrayList<>();
+        // One per executor thread: a later call only runs once they are stopped
+        for (int i = 0; i < DatabaseConnection.getPoolSize(); i++) {
+            endless.add(async.supply(() -> count(ENDLESS_QUERY)));
+        }
+        for (CompletableFuture<Long> future : endless) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(TimeoutException.class, e.getCause());
+        }
+
+        assertEquals(0L, async.supply(() -> count("SELECT COUNT(*) FROM students")).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void writesHaveNoTimeout() throws Exception {
+        AsyncDAO async = new AsyncDAO(new StudentDAO(), new GradeDAO(), 1, TimeUnit.MILLISECONDS);
+        CompletableFuture<Long> write = async.write(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return count("SELECT 1");
+        });
+
+        assertEquals(1L, write.get(5, TimeUnit.SECONDS));
+    }
+
+    private static long count(String sql) {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            return -1;
+        }
+    }
+}
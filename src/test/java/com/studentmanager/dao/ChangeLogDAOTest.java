@@ -0,0 +1,199 @@
+package com.studentmanager.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.studentmanager.model.Grade;
+import com.studentmanager.model.Student;
+import com.studentmanager.util.DataExporter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ChangeLogDAOTest {
+    @TempDir
+    Path directory;
+
+    private final StudentDAO studentDAO = new StudentDAO();
+    private final GradeDAO gradeDAO = new GradeDAO();
+    private final ChangeLogDAO changeLogDAO = new ChangeLogDAO();
+
+    @BeforeEach
+    void openDatabase() {
+        TestDatabase.open(directory);
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        TestDatabase.close();
+    }
+
+    @Test
+    void collapsesEachRowToItsNetChange() {
+        Student kept = student("SV001", "CNTT");
+        Student removed = student("SV002", "CNTT");
+        Grade updated = grade(kept, 5.0);
+        Grade deleted = grade(kept, 6.0);
+        long watermark = changeLogDAO.getCurrentSequence();
+
+        // Inserted then updated: one insert with the current values
+        Grade inserted = grade(kept, 7.0);
+        inserted.setScore(7.5);
+        gradeDAO.updateGrade(inserted);
+        // Updated twice: one update
+        updated.setScore(5.5);
+        gradeDAO.updateGrade(updated);
+        updated.setScore(9.0);
+        gradeDAO.updateGrade(updated);
+        // Inserted and deleted in the range: never seen by the consumer
+        Grade shortLived = grade(kept, 8.0);
+        gradeDAO.deleteGrade(shortLived.getId());
+        gradeDAO.deleteGrade(deleted.getId());
+        studentDAO.deleteStudent(removed.getId());
+
+        List<String> grades = new ArrayList<>();
+        assertEquals(3, changeLogDAO.forEachGradeChange(watermark, changeLogDAO.getCurrentSequence(),
+                (operation, id, grade) -> grades.add(operation + " " + id + " " + (grade != null ? grade.getScore() : null))));
+        assertEquals(List.of(
+                "U " + updated.getId() + " 9.0",
+                "D " + deleted.getId() + " null",
+                "I " + inserted.getId() + " 7.5"), grades);
+
+        List<String> students = new ArrayList<>();
+        changeLogDAO.forEachStudentChange(watermark, changeLogDAO.getCurrentSequence(),
+                (operation, id, student) -> students.add(operation + " " + id));
+        assertEquals(List.of("D " + removed.getId()), students);
+    }
+
+    @Test
+    void updatesBackToTheOldValueStillCount() {
+        Student student = student("SV001", "CNTT");
+        long watermark = changeLogDAO.getCurrentSequence();
+        student.setMajor("Toán");
+        studentDAO.updateStudent(student);
+        student.setMajor("CNTT");
+        studentDAO.updateStudent(student);
+
+        List<Student> changed = new ArrayList<>();
+        changeLogDAO.forEachStudentChange(watermark, changeLogDAO.getCurrentSequence(),
+                (operation, id, row) -> changed.add(row));
+        assertEquals(1, changed.size());
+        assertEquals("CNTT", changed.get(0).getMajor());
+    }
+
+    @Test
+    void fixedPointSyncLogsNoExtraEntry() throws SQLException {
+        Student student = student("SV001", "CNTT");
+        long watermark = changeLogDAO.getCurrentSequence();
+
+        // A writer that knows nothing of the fixed-point columns
+        execute("INSERT INTO grades (id, student_id, subject, score, coefficient, semester, year) " +
+                "VALUES (500, " + student.getId() + ", 'Toán', 8.345, 1.5, 'HK1', 2024)");
+        execute("UPDATE grades SET score = 9.0 WHERE id = 500");
+
+        assertEquals(List.of("I", "U"), operationsSince(watermark));
+        Grade stored = gradeDAO.getGradeById(500);
+        assertEquals(900, stored.getScoreHundredths());
+        assertEquals(150, stored.getCoefficientHundredths());
+    }
+
+    @Test
+    void prunedSequenceFollowsTheOldestWatermark() throws SQLException {
+        Student student = student("SV001", "CNTT");
+        grade(student, 5.0);
+        long first = changeLogDAO.getCurrentSequence();
+        changeLogDAO.setWatermark("a", first);
+        changeLogDAO.setWatermark("b", first - 1);
+        grade(student, 6.0);
+
+        changeLogDAO.pruneChangeLog();
+        assertEquals(first - 1, changeLogDAO.getPrunedSequence());
+
+        // A consumer unused for too long is dropped and no longer holds the log back
+        execute("UPDATE export_watermarks SET updated_at = '2000-01-01T00:00:00.000Z' WHERE name = 'b'");
+        changeLogDAO.pruneChangeLog();
+        assertEquals(-1, changeLogDAO.getWatermark("b"));
+        assertEquals(first, changeLogDAO.getPrunedSequence());
+
+        // Nobody left: the whole log goes
+        execute("DELETE FROM export_watermarks");
+        changeLogDAO.pruneChangeLog();
+        assertEquals(changeLogDAO.getCurrentSequence(), changeLogDAO.getPrunedSequence());
+    }
+
+    @Test
+    void consumerPrunedPastGetsAResetExport() throws IOException, SQLException {
+        Student student = student("SV001", "CNTT");
+        Grade gone = grade(student, 5.0);
+        grade(student, 6.0);
+
+        Path output = directory.resolve("out");
+        assertEquals(3, DataExporter.exportChanges("portal", output, DataExporter.Format.NDJSON, false));
+        assertTrue(lines(output.resolve("grades_changes.ndjson")).get(0).startsWith("{\"op\":\"reset\""));
+
+        gradeDAO.deleteGrade(gone.getId());
+        assertEquals(1, DataExporter.exportChanges("portal", output, DataExporter.Format.NDJSON, false));
+        assertEquals("{\"op\":\"delete\",\"id\":" + gone.getId() + ",\"student_id\":null,\"subject\":null,"
+                + "\"score\":null,\"coefficient\":null,\"semester\":null,\"year\":null}",
+                lines(output.resolve("grades_changes.ndjson")).get(0));
+
+        // Dropped as stale while another consumer moves on: the delete below is pruned away
+        execute("UPDATE export_watermarks SET updated_at = '2000-01-01T00:00:00.000Z' WHERE name = 'portal'");
+        Grade alsoGone = grade(student, 7.0);
+        gradeDAO.deleteGrade(alsoGone.getId());
+        DataExporter.exportChanges("other", directory.resolve("other"), DataExporter.Format.NDJSON, false);
+        assertTrue(changeLogDAO.getPrunedSequence() > 0);
+
+        assertEquals(2, DataExporter.exportChanges("portal", output, DataExporter.Format.NDJSON, false));
+        List<String> grades = lines(output.resolve("grades_changes.ndjson"));
+        assertTrue(grades.get(0).startsWith("{\"op\":\"reset\""), grades.get(0));
+        assertEquals(2, grades.size());
+        assertTrue(grades.get(1).startsWith("{\"op\":\"insert\""), grades.get(1));
+    }
+
+    private Student student(String studentId, String major) {
+        Student student = new Student(studentId, "Sinh viên " + studentId, null, null, major);
+        assertTrue(studentDAO.addStudent(student));
+        return student;
+    }
+
+    private Grade grade(Student student, double score) {
+        Grade grade = new Grade(student.getId(), "Toán", score, 1.0, "HK1", 2024);
+        assertTrue(gradeDAO.addGrade(grade));
+        return grade;
+    }
+
+    private static List<String> operationsSince(long seq) throws SQLException {
+        List<String> operations = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT operation FROM change_log WHERE seq > " + seq + " ORDER BY seq")) {
+            while (rs.next()) {
+                operations.add(rs.getString(1));
+            }
+        }
+        return operations;
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql);
+        }
+    }
+
+    private static List<String> lines(Path file) throws IOException {
+        return Files.readAllLines(file, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,117 @@
+package com.studentmanager.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.studentmanager.model.Grade;
+import com.studentmanager.model.GradeSlice;
+import com.studentmanager.model.Student;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Writes from another connection stand in for another process; they must be
+ * replayed, while the writes of this process must not come back.
+ */
+class ChangeLogFollowerTest {
+    @TempDir
+    Path directory;
+
+    private final StudentDAO studentDAO = new StudentDAO();
+    private final GradeDAO gradeDAO = new GradeDAO();
+    private final List<Set<Integer>> replayed = new ArrayList<>();
+    private final DataChangeListener listener = new DataChangeListener() {
+        @Override
+        public void changesLogged(Set<Integer> studentIds, Set<GradeSlice> slices) {
+            replayed.add(new TreeSet<>(studentIds));
+        }
+    };
+
+    @BeforeEach
+    void openDatabase() {
+        TestDatabase.open(directory);
+        // Start following this database before listening
+        ChangeLogFollower.catchUp();
+        DataChanges.addListener(listener);
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        DataChanges.removeListener(listener);
+        GradeDAO.disableWriteBehind();
+        TestDatabase.close();
+    }
+
+    @Test
+    void ownWritesAreNotReplayed() {
+        Student student = student("SV001");
+        Grade grade = new Grade(student.getId(), "Toán", 7.0, 1.0, "HK1", 2024);
+        assertTrue(gradeDAO.addGrade(grade));
+        grade.setScore(8.0);
+        assertTrue(gradeDAO.updateGrade(grade));
+        assertTrue(gradeDAO.deleteGrade(grade.getId()));
+        assertTrue(studentDAO.deleteStudent(student.getId()));
+
+        ChangeLogFollower.catchUp();
+        assertEquals(List.of(), replayed);
+    }
+
+    @Test
+    void otherWritesAreReplayedBetweenOwnOnes() throws SQLException {
+        student("SV001");
+        int other = insertFromOtherConnection("SV002");
+        Student after = student("SV003");
+        after.setMajor("Kinh tế");
+        assertTrue(studentDAO.updateStudent(after));
+
+        ChangeLogFollower.catchUp();
+        assertEquals(List.of(Set.of(other)), replayed);
+    }
+
+    @Test
+    void catchingUpLeavesBufferedWritesBuffered() {
+        Student student = student("SV001");
+        Grade grade = new Grade(student.getId(), "Toán", 7.0, 1.0, "HK1", 2024);
+        assertTrue(gradeDAO.addGrade(grade));
+        GradeDAO.enableWriteBehind(1000, 60_000);
+        grade.setScore(9.0);
+        assertTrue(gradeDAO.updateGrade(grade));
+
+        ChangeLogFollower.catchUp();
+        assertEquals("1 writes buffered, 0 rows flushed in 0 commits, 1 pending", GradeDAO.getWriteBehindStats());
+
+        // The flush logs the update, which this process already knows about
+        assertTrue(GradeDAO.flushWrites());
+        ChangeLogFollower.catchUp();
+        assertEquals(List.of(), replayed);
+    }
+
+    private Student student(String studentId) {
+        Student student = new Student(studentId, "Sinh viên " + studentId, null, null, "CNTT");
+        assertTrue(studentDAO.addStudent(student));
+        return student;
+    }
+
+    private static int insertFromOtherConnection(String studentId) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + DatabaseConnection.getDatabaseFile());
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO students (student_id, full_name, major) VALUES ('" + studentId
+                    + "', 'Sinh viên " + studentId + "', 'CNTT')");
+            try (ResultSet rs = stmt.executeQuery("SELECT last_insert_rowid()")) {
+                return rs.getInt(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.studentmanager.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.studentmanager.model.Grade;
+import com.studentmanager.model.Student;
+import com.studentmanager.snapshot.GradeSnapshot;
+import com.studentmanager.util.RoaringBitmap;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Writes after the index is built must reach its bitmaps without a rebuild.
+ */
+class CohortIndexTest {
+    private static final CohortIndex.Filter FAILED_MATH = new CohortIndex.Filter()
+            .major("CNTT").subject("Toán").semester("HK1").year(2024).band(CohortIndex.Band.FAIL);
+
+    @TempDir
+    Path directory;
+
+    private final StudentDAO studentDAO = new StudentDAO();
+    private final GradeDAO gradeDAO = new GradeDAO();
+    private Student an;
+    private Student binh;
+    private Student chi;
+    private Grade anMath;
+    private Grade binhMath;
+
+    @BeforeEach
+    void fillDatabase() {
+        TestDatabase.open(directory);
+        CohortIndex.disable();
+        an = student("SV001", "CNTT");
+        binh = student("SV002", "CNTT");
+        chi = student("SV003", "Kinh tế");
+        anMath = grade(an, "Toán", 3.0);
+        binhMath = grade(binh, "Toán", 8.0);
+        grade(chi, "Toán", 2.0);
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        CohortIndex.disable();
+        TestDatabase.close();
+    }
+
+    @Test
+    void gradeWritesUpdateTheBitmaps() {
+        CohortIndex index = CohortIndex.getInstance();
+        assertEquals(List.of(an.getId()), ids(index.findStudents(FAILED_MATH)));
+
+        binhMath.setScore(1.5);
+        assertTrue(gradeDAO.updateGrade(binhMath));
+        assertEquals(List.of(an.getId(), binh.getId()), ids(index.findStudents(FAILED_MATH)));
+
+        assertTrue(gradeDAO.deleteGrade(anMath.getId()));
+        assertEquals(List.of(binh.getId()), ids(index.findStudents(FAILED_MATH)));
+
+        Student dung = student("SV004", "CNTT");
+        grade(dung, "Toán", 0.5);
+        assertEquals(List.of(binh.getId(), dung.getId()), ids(index.findStudents(FAILED_MATH)));
+
+        assertSame(index, CohortIndex.getInstance());
+    }
+
+    @Test
+    void studentWritesUpdateTheBitmaps() {
+        CohortIndex index = CohortIndex.getInstance();
+        binhMath.setScore(1.0);
+        assertTrue(gradeDAO.updateGrade(binhMath));
+        assertEquals(List.of(an.getId(), binh.getId()), ids(index.findStudents(FAILED_MATH)));
+
+        an.setMajor("Kinh tế");
+        assertTrue(studentDAO.updateStudent(an));
+        assertEquals(List.of(binh.getId()), ids(index.findStudents(FAILED_MATH)));
+        assertEquals(2, index.countStudents(new CohortIndex.Filter().major("Kinh tế")));
+
+        assertTrue(studentDAO.deleteStudent(binh.getId()));
+        assertEquals(List.of(), ids(index.findStudents(FAILED_MATH)));
+        assertEquals(2, index.countStudents(new CohortIndex.Filter()));
+
+        assertSame(index, CohortIndex.getInstance());
+    }
+
+    @Test
+    void seededIndexFollowsLaterWrites() {
+        ChangeLogFollower.catchUp();
+        long version = DataVersion.current();
+        GradeSnapshot snapshot = GradeSnapshot.load(gradeDAO);
+        assertTrue(CohortIndex.seed(studentDAO.getAllStudents(),
+                snapshot::getGradesOfStudent, version));
+        CohortIndex index = CohortIndex.getInstance();
+        // Semester matches ignoring case, like the SQL filters
+        CohortIndex.Filter lowerCase = new CohortIndex.Filter()
+                .major("CNTT").subject("Toán").semester("hk1").year(2024).band(CohortIndex.Band.FAIL);
+        assertEquals(List.of(an.getId()), ids(index.findStudents(lowerCase)));
+
+        anMath.setScore(9.0);
+        assertTrue(gradeDAO.updateGrade(anMath));
+        assertEquals(List.of(), ids(index.findStudents(FAILED_MATH)));
+        assertEquals(1, index.countStudents(new CohortIndex.Filter().subject("Toán").semester("HK1")
+                .year(2024).band(CohortIndex.Band.EXCELLENT)));
+
+        assertSame(index, CohortIndex.getInstance());
+    }
+
+    private Student student(String studentId, String major) {
+        Student student = new Student(studentId, "Sinh viên " + studentId, null, null, major);
+        assertTrue(studentDAO.addStudent(student));
+        return student;
+    }
+
+    private Grade grade(Student student, String subject, double score) {
+        Grade grade = new Grade(student.getId(), subject, score, 1.0, "HK1", 2024);
+        assertTrue(gradeDAO.addGrade(grade));
+        return grade;
+    }
+
+    private static List<Integer> ids(RoaringBitmap bitmap) {
+        List<Integer> ids = new ArrayList<>();
+        bitmap.forEach(ids::add);
+        return ids;
+    }
+}
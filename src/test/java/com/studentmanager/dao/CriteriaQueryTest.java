@@ -0,0 +1,145 @@
+package com.studentmanager.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.studentmanager.model.Grade;
+import com.studentmanager.strategy.ClassificationStrategy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs the SQL the queries build against an in-memory database with the
+ * same columns, so no application database is touched.
+ */
+class CriteriaQueryTest {
+    private Connection conn;
+
+    @BeforeEach
+    void createTables() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE students (id INTEGER PRIMARY KEY, student_id TEXT, full_name TEXT, " +
+                         "email TEXT, phone_number TEXT, major TEXT)");
+            stmt.execute("CREATE TABLE grades (id INTEGER PRIMARY KEY, student_id INTEGER, subject TEXT, " +
+                         "score REAL, coefficient REAL, semester TEXT, year INTEGER, " +
+                         "score_x100 INTEGER, coefficient_x100 INTEGER)");
+        }
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    void classificationRoundsTheAverageLikeTheStrategy() throws SQLException {
+        Random random = new Random(42);
+        // Scores close to the band thresholds, where rounding decides the band
+        int[] thresholds = {400, 550, 700, 850};
+        double[] coefficients = {1.0, 1.5, 2.0, 3.0};
+        Map<Integer, List<Grade>> gradesByStudent = new HashMap<>();
+        for (int id = 1; id <= 400; id++) {
+            List<Grade> grades = new ArrayList<>();
+            int count = 1 + random.nextInt(4);
+            for (int i = 0; i < count; i++) {
+                int score = thresholds[random.nextInt(thresholds.length)] + random.nextInt(7) - 3;
+                grades.add(new Grade(id, "Toán", score / 100.0,
+                        coefficients[random.nextInt(coefficients.length)], "HK1", 2024));
+            }
+            gradesByStudent.put(id, grades);
+        }
+        // Exactly half a hundredth below a threshold: 8.495 shows as 8.50
+        gradesByStudent.put(401, List.of(new Grade(401, "Toán", 8.49, 1.0, "HK1", 2024),
+                                         new Grade(401, "Lý", 8.50, 1.0, "HK1", 2024)));
+        gradesByStudent.put(402, List.of(new Grade(402, "Toán", 6.99, 1.0, "HK1", 2024),
+                                         new Grade(402, "Lý", 6.99, 1.0, "HK1", 2024),
+                                         new Grade(402, "Hóa", 7.00, 1.0, "HK1", 2024),
+                                         new Grade(402, "Sinh", 7.00, 1.0, "HK1", 2024)));
+        insert(gradesByStudent);
+
+        ClassificationStrategy strategy = new ClassificationStrategy();
+        for (CohortIndex.Band band : CohortIndex.Band.values()) {
+            Set<Integer> expected = new TreeSet<>();
+            for (Map.Entry<Integer, List<Grade>> entry : gradesByStudent.entrySet()) {
+                if (strategy.calculateGrade(entry.getValue()).equals(band.getLabel())) {
+                    expected.add(entry.getKey());
+                }
+            }
+            assertEquals(expected, studentIds(new StudentQuery(null).classification(band)), band.name());
+        }
+    }
+
+    @Test
+    void classificationUsesOnlyTheSelectedSemester() throws SQLException {
+        Map<Integer, List<Grade>> gradesByStudent = new HashMap<>();
+        gradesByStudent.put(1, List.of(new Grade(1, "Toán", 9.0, 1.0, "HK1", 2024),
+                                       new Grade(1, "Toán", 3.0, 1.0, "HK2", 2024)));
+        insert(gradesByStudent);
+
+        assertEquals(Set.of(1), studentIds(new StudentQuery(null)
+                .semester("hk1").year(2024).classification(CohortIndex.Band.EXCELLENT)));
+        assertEquals(Set.of(1), studentIds(new StudentQuery(null)
+                .semester("HK2").year(2024).classification(CohortIndex.Band.FAIL)));
+        assertEquals(Set.of(1), studentIds(new StudentQuery(null)
+                .classification(CohortIndex.Band.FAIR)));
+        assertEquals(Set.of(), studentIds(new StudentQuery(null)
+                .semester("HK1").year(2025).classification(CohortIndex.Band.EXCELLENT)));
+    }
+
+    private void insert(Map<Integer, List<Grade>> gradesByStudent) throws SQLException {
+        try (PreparedStatement student = conn.prepareStatement(
+                     "INSERT INTO students (id, student_id, full_name) VALUES (?, ?, ?)");
+             PreparedStatement grade = conn.prepareStatement(
+                     "INSERT INTO grades (student_id, subject, score, coefficient, semester, year, " +
+                     "score_x100, coefficient_x100) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (Map.Entry<Integer, List<Grade>> entry : gradesByStudent.entrySet()) {
+                student.setInt(1, entry.getKey());
+                student.setString(2, "SV" + entry.getKey());
+                student.setString(3, "Sinh viên " + entry.getKey());
+                student.executeUpdate();
+                for (Grade value : entry.getValue()) {
+                    grade.setInt(1, value.getStudentId());
+                    grade.setString(2, value.getSubject());
+                    grade.setDouble(3, value.getScore());
+                    grade.setDouble(4, value.getCoefficient());
+                    grade.setString(5, value.getSemester());
+                    grade.setInt(6, value.getYear());
+                    grade.setInt(7, value.getScoreHundredths());
+                    grade.setInt(8, value.getCoefficientHundredths());
+                    grade.executeUpdate();
+                }
+            }
+        }
+    }
+
+    private Set<Integer> studentIds(StudentQuery query) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String sql = query.toSql(params);
+        Set<Integer> ids = new TreeSet<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt("id"));
+                }
+            }
+        }
+        return ids;
+    }
+}
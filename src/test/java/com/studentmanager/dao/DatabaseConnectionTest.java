@@ -0,0 +1,68 @@
+package com.studentmanager.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.studentmanager.model.Grade;
+import com.studentmanager.model.Student;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DatabaseConnectionTest {
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void closeDatabase() {
+        TestDatabase.close();
+    }
+
+    @Test
+    void orphanGradesAreReportedOnceAndKept() throws SQLException {
+        TestDatabase.open(directory);
+        Student student = new Student("SV001", "Sinh viên SV001", null, null, "CNTT");
+        assertTrue(new StudentDAO().addStudent(student));
+        assertTrue(new GradeDAO().addGrade(new Grade(student.getId(), "Toán", 7.0, 1.0, "HK1", 2024)));
+        // As an older build did: foreign keys off, and the check not run yet
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + DatabaseConnection.getDatabaseFile());
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM students WHERE id = " + student.getId());
+            stmt.execute("PRAGMA user_version = 0");
+        }
+
+        assertTrue(errorsWhileOpening().contains("Found 1 grade(s) of students that no longer exist (student id "
+                + student.getId() + ")"));
+        assertEquals(1, countGrades());
+        assertEquals("", errorsWhileOpening());
+    }
+
+    private String errorsWhileOpening() {
+        PrintStream err = System.err;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            TestDatabase.open(directory);
+        } finally {
+            System.setErr(err);
+        }
+        return captured.toString(StandardCharsets.UTF_8);
+    }
+
+    private static int countGrades() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM grades")) {
+            return rs.getInt(1);
+        }
+    }
+}
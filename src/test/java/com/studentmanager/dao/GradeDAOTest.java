@@ -0,0 +1,70 @@
+package com.studentmanager.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.studentmanager.model.Grade;
+import com.studentmanager.model.Student;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GradeDAOTest {
+    @TempDir
+    Path directory;
+
+    private final StudentDAO studentDAO = new StudentDAO();
+    private final GradeDAO gradeDAO = new GradeDAO();
+    private final List<String> notified = new ArrayList<>();
+    private final DataChangeListener listener = new DataChangeListener() {
+        @Override
+        public void gradeChanged(Grade previous, Grade current, String major) {
+            notified.add(current.getId() + ":" + major);
+        }
+    };
+
+    @BeforeEach
+    void openDatabase() {
+        TestDatabase.open(directory);
+        DataChanges.addListener(listener);
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        DataChanges.removeListener(listener);
+        TestDatabase.close();
+    }
+
+    @Test
+    void batchInsertGivesEveryGradeItsIdAndMajor() {
+        Student it = student("SV001", "CNTT");
+        Student economics = student("SV002", "Kinh tế");
+        // Spans more than one executed batch
+        List<Grade> grades = new ArrayList<>();
+        for (int i = 0; i < StudentDAO.BATCH_SIZE + 5; i++) {
+            Student student = i % 2 == 0 ? it : economics;
+            grades.add(new Grade(student.getId(), "Môn " + i, i % 11, 1.0, "HK1", 2024));
+        }
+
+        assertEquals(grades.size(), gradeDAO.addGrades(grades));
+
+        List<String> expected = new ArrayList<>();
+        for (Grade grade : grades) {
+            Grade stored = gradeDAO.getGradeById(grade.getId());
+            assertEquals(grade.getSubject(), stored.getSubject());
+            assertEquals(grade.getStudentId(), stored.getStudentId());
+            expected.add(grade.getId() + ":" + (grade.getStudentId() == it.getId() ? "CNTT" : "Kinh tế"));
+        }
+        assertEquals(expected, notified);
+    }
+
+    private Student student(String studentId, String major) {
+        Student student = new Student(studentId, "Sinh viên " + studentId, null, null, major);
+        assertTrue(studentDAO.addStudent(student));
+        return student;
+    }
+}
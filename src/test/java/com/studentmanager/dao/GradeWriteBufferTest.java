@@ -0,0 +1,129 @@
+package com.studentmanager.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.studentmanager.model.Grade;
+import com.studentmanager.model.Student;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Writes go through GradeDAO with write-behind on; thresholds are high
+ * enough that nothing is flushed until the test asks for it.
+ */
+class GradeWriteBufferTest {
+    @TempDir
+    Path directory;
+
+    private final StudentDAO studentDAO = new StudentDAO();
+    private final GradeDAO gradeDAO = new GradeDAO();
+    private Student student;
+
+    @BeforeEach
+    void openDatabase() {
+        TestDatabase.open(directory);
+        student = new Student("SV001", "Sinh viên SV001", null, null, "CNTT");
+        assertTrue(studentDAO.addStudent(student));
+        GradeDAO.enableWriteBehind(1000, 60_000);
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        GradeDAO.disableWriteBehind();
+        TestDatabase.close();
+    }
+
+    @Test
+    void repeatedWritesToOneGradeBecomeOneRow() throws SQLException {
+        Grade updated = grade("Toán", 5.0, "HK1");
+        Grade deleted = grade("Lý", 6.0, "HK1");
+
+        updated.setScore(6.5);
+        assertTrue(gradeDAO.updateGrade(updated));
+        updated.setScore(8.0);
+        assertTrue(gradeDAO.updateGrade(updated));
+        updated.setScore(9.5);
+        assertTrue(gradeDAO.updateGrade(updated));
+        assertTrue(gradeDAO.deleteGrade(deleted.getId()));
+
+        // Still only in memory
+        assertEquals(5.0, storedScore(updated.getId()));
+        assertEquals(6.0, storedScore(deleted.getId()));
+
+        assertTrue(GradeDAO.flushWrites());
+        assertEquals(9.5, storedScore(updated.getId()));
+        assertNull(storedScore(deleted.getId()));
+        assertEquals("4 writes buffered, 2 rows flushed in 1 commits, 0 pending", GradeDAO.getWriteBehindStats());
+    }
+
+    @Test
+    void readsSeePendingWritesBeforeTheFlush() throws SQLException {
+        Grade updated = grade("Toán", 5.0, "HK1");
+        Grade deleted = grade("Lý", 6.0, "HK1");
+
+        updated.setScore(7.0);
+        gradeDAO.updateGrade(updated);
+        // The caller's object changing later must not reach the buffer
+        updated.setScore(1.0);
+        gradeDAO.deleteGrade(deleted.getId());
+
+        assertEquals(5.0, storedScore(updated.getId()));
+        assertEquals(7.0, gradeDAO.getGradeById(updated.getId()).getScore());
+        assertNull(gradeDAO.getGradeById(deleted.getId()));
+        List<Grade> grades = gradeDAO.getGradesByStudentId(student.getId());
+        assertEquals(1, grades.size());
+        assertEquals(7.0, grades.get(0).getScore());
+    }
+
+    @Test
+    void pendingUpdatesMoveGradesBetweenFilteredResults() {
+        Grade moved = grade("Toán", 5.0, "HK1");
+        Grade stays = grade("Anh", 6.0, "HK1");
+        Grade joins = grade("Hóa", 7.0, "HK2");
+
+        moved.setSemester("HK2");
+        gradeDAO.updateGrade(moved);
+        joins.setSemester("HK1");
+        joins.setSubject("Sinh");
+        gradeDAO.updateGrade(joins);
+
+        assertEquals(List.of(stays.getId(), joins.getId()),
+                ids(gradeDAO.getGradesByStudentAndSemester(student.getId(), "HK1", 2024)));
+        assertEquals(List.of(moved.getId()),
+                ids(gradeDAO.getGradesByStudentAndSemester(student.getId(), "HK2", 2024)));
+        // Pending and stored rows both match the semester ignoring case
+        assertEquals(List.of(stays.getId(), joins.getId()),
+                ids(gradeDAO.getGradesByStudentAndSemester(student.getId(), "hk1", 2024)));
+    }
+
+    private Grade grade(String subject, double score, String semester) {
+        Grade grade = new Grade(student.getId(), subject, score, 1.0, semester, 2024);
+        assertTrue(gradeDAO.addGrade(grade));
+        return grade;
+    }
+
+    private static List<Integer> ids(List<Grade> grades) {
+        return grades.stream().map(Grade::getId).toList();
+    }
+
+    // Reads the table directly, past the buffer
+    private static Double storedScore(int id) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT score FROM grades WHERE id = ?")) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getDouble(1) : null;
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.studentmanager.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.studentmanager.model.LeaderboardEntry;
+import com.studentmanager.model.Student;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class RankingIndexTest {
+
+    @Test
+    void tiedScoresShareRankAndPercentile() {
+        RankingIndex.Ranking ranking = new RankingIndex.Ranking();
+        RankingIndex.Ranked an = ranked(1, "An", 8.5);
+        RankingIndex.Ranked binh = ranked(2, "Bình", 8.495);
+        RankingIndex.Ranked chi = ranked(3, "Chi", 7.0);
+        RankingIndex.Ranked dung = ranked(4, "Dũng", 0.0);
+        for (RankingIndex.Ranked ranked : List.of(dung, chi, binh, an)) {
+            ranking.add(ranked);
+        }
+
+        // 8.495 rounds to the same hundredth as 8.5, as the leaderboard shows it
+        assertEquals(an.bucket, binh.bucket);
+        assertEquals(1, ranking.rank(an.bucket));
+        assertEquals(3, ranking.rank(chi.bucket));
+        assertEquals(4, ranking.rank(dung.bucket));
+        assertEquals(50.0, ranking.percentile(an.bucket), 1e-9);
+        assertEquals(25.0, ranking.percentile(chi.bucket), 1e-9);
+        assertEquals(0.0, ranking.percentile(dung.bucket), 1e-9);
+    }
+
+    @Test
+    void topIncludesEveryStudentTiedAtTheLastPlace() {
+        RankingIndex.Ranking ranking = new RankingIndex.Ranking();
+        ranking.add(ranked(1, "Chi", 8.5));
+        ranking.add(ranked(2, "An", 8.5));
+        ranking.add(ranked(3, "Bình", 7.0));
+        ranking.add(ranked(4, "Dũng", 5.0));
+
+        assertEquals(List.of("An", "Chi"), names(ranking.top(1)));
+        assertEquals(List.of("An", "Chi"), names(ranking.top(2)));
+        assertEquals(List.of("An", "Chi", "Bình"), names(ranking.top(3)));
+        assertEquals(List.of("An", "Chi", "Bình", "Dũng"), names(ranking.top(0)));
+        assertEquals(List.of(1, 1, 3, 4), ranking.top(0).stream().map(LeaderboardEntry::getRank)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void removingAStudentMovesTheOthersUp() {
+        RankingIndex.Ranking ranking = new RankingIndex.Ranking();
+        RankingIndex.Ranked first = ranked(1, "An", 9.0);
+        RankingIndex.Ranked second = ranked(2, "Bình", 6.0);
+        ranking.add(first);
+        ranking.add(second);
+        assertEquals(2, ranking.rank(second.bucket));
+
+        ranking.remove(first);
+        assertEquals(1, ranking.rank(second.bucket));
+        assertEquals(0.0, ranking.percentile(second.bucket), 1e-9);
+        assertEquals(1, ranking.counts.total());
+
+        // Removing again changes nothing
+        ranking.remove(first);
+        assertEquals(1, ranking.counts.total());
+    }
+
+    @Test
+    void scoresOutsideTheRangeAreClamped() {
+        assertEquals(0, ranked(1, "An", -1.0).bucket);
+        assertEquals(1000, ranked(2, "Bình", 12.0).bucket);
+    }
+
+    private static RankingIndex.Ranked ranked(int id, String name, double score) {
+        Student student = new Student(id, "SV" + id, name, null, null, "CNTT");
+        return new RankingIndex.Ranked(student, 1, score, String.valueOf(score));
+    }
+
+    private static List<String> names(List<LeaderboardEntry> entries) {
+        return entries.stream().map(entry -> entry.getStudent().getFullName()).collect(Collectors.toList());
+    }
+}
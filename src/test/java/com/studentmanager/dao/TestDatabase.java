@@ -0,0 +1,29 @@
+package com.studentmanager.dao;
+
+import java.nio.file.Path;
+
+/**
+ * Points the connection pool at a fresh database file for one test, so no
+ * application database is touched.
+ */
+public final class TestDatabase {
+    private TestDatabase() {}
+
+    /**
+     * Close the pooled connections and create the tables in a new file
+     * @param directory Temporary directory of the test
+     */
+    public static void open(Path directory) {
+        DatabaseConnection.closeConnection();
+        System.setProperty("studentmanager.database", directory.resolve("test.db").toString());
+        DatabaseConnection.initializeDatabase();
+    }
+
+    /**
+     * Close the pooled connections of the test database
+     */
+    public static void close() {
+        DatabaseConnection.closeConnection();
+        System.clearProperty("studentmanager.database");
+    }
+}
@@ -0,0 +1,164 @@
+package com.studentmanager.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.studentmanager.dao.ChangeLogDAO;
+import com.studentmanager.dao.GradeDAO;
+import com.studentmanager.dao.StudentDAO;
+import com.studentmanager.dao.TestDatabase;
+import com.studentmanager.model.Grade;
+import com.studentmanager.model.Student;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Opening a snapshot file replays the logged changes and must end up with
+ * the same rows as a full load.
+ */
+class DataSnapshotTest {
+    @TempDir
+    Path directory;
+
+    private final StudentDAO studentDAO = new StudentDAO();
+    private final GradeDAO gradeDAO = new GradeDAO();
+    private final ChangeLogDAO changeLogDAO = new ChangeLogDAO();
+    private Path file;
+    private final List<Student> students = new ArrayList<>();
+    private final List<Grade> grades = new ArrayList<>();
+
+    @BeforeEach
+    void fillDatabase() {
+        TestDatabase.open(directory);
+        file = directory.resolve("data.snap");
+        for (int i = 0; i < 5; i++) {
+            Student student = new Student("SV" + i, "Sinh viên " + i, null, null, i % 2 == 0 ? "CNTT" : "Kinh tế");
+            assertTrue(studentDAO.addStudent(student));
+            students.add(student);
+            for (int j = 0; j < 3; j++) {
+                grades.add(new Grade(student.getId(), "Môn " + j, i + j, 1.0, "HK" + (j % 2 + 1), 2024));
+            }
+        }
+        assertEquals(grades.size(), gradeDAO.addGrades(grades));
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        TestDatabase.close();
+    }
+
+    @Test
+    void reopeningAnUnchangedDatabaseUsesTheFileOnly() {
+        assertEquals(DataSnapshot.Source.DATABASE, open().getSource());
+
+        DataSnapshot snapshot = open();
+        assertEquals(DataSnapshot.Source.FILE, snapshot.getSource());
+        assertMatchesDatabase(snapshot);
+    }
+
+    @Test
+    void changesSinceTheFileAreReplayed() {
+        open();
+
+        Student added = new Student("SV9", "Sinh viên 9", null, null, "CNTT");
+        assertTrue(studentDAO.addStudent(added));
+        Grade addedGrade = new Grade(added.getId(), "Môn 0", 9.5, 2.0, "HK1", 2025);
+        assertTrue(gradeDAO.addGrade(addedGrade));
+        Student renamed = students.get(1);
+        renamed.setMajor("Toán");
+        assertTrue(studentDAO.updateStudent(renamed));
+        Grade updated = grades.get(4);
+        updated.setScore(2.25);
+        updated.setSemester("HK2");
+        assertTrue(gradeDAO.updateGrade(updated));
+        assertTrue(gradeDAO.deleteGrade(grades.get(7).getId()));
+        assertTrue(studentDAO.deleteStudent(students.get(3).getId()));
+
+        DataSnapshot snapshot = open();
+        assertEquals(DataSnapshot.Source.FILE_WITH_DELTA, snapshot.getSource());
+        assertMatchesDatabase(snapshot);
+
+        // The replayed result was written back
+        DataSnapshot reopened = open();
+        assertEquals(DataSnapshot.Source.FILE, reopened.getSource());
+        assertMatchesDatabase(reopened);
+    }
+
+    @Test
+    void damagedFileFallsBackToTheDatabase() throws IOException {
+        open();
+        corrupt();
+        gradeDAO.deleteGrade(grades.get(0).getId());
+
+        DataSnapshot snapshot = open();
+        assertEquals(DataSnapshot.Source.DATABASE, snapshot.getSource());
+        assertMatchesDatabase(snapshot);
+    }
+
+    private DataSnapshot open() {
+        return DataSnapshot.open(file, studentDAO, gradeDAO, changeLogDAO);
+    }
+
+    private void assertMatchesDatabase(DataSnapshot snapshot) {
+        List<String> expectedStudents = new ArrayList<>();
+        List<String> expectedGrades = new ArrayList<>();
+        for (Student student : studentDAO.getAllStudents()) {
+            expectedStudents.add(describe(student));
+            for (Grade grade : gradeDAO.getGradesByStudentId(student.getId())) {
+                expectedGrades.add(describe(grade));
+            }
+        }
+        List<String> actualStudents = new ArrayList<>();
+        List<String> actualGrades = new ArrayList<>();
+        for (Student student : snapshot.getStudents()) {
+            actualStudents.add(describe(student));
+            // Through the loader the snapshot gives its students
+            for (Grade grade : student.getGrades()) {
+                actualGrades.add(describe(grade));
+            }
+        }
+        assertEquals(expectedStudents, actualStudents);
+        assertEquals(expectedGrades.size(), snapshot.getGrades().getGradeCount());
+        assertEquals(expectedGrades.stream().sorted().toList(), actualGrades.stream().sorted().toList());
+    }
+
+    private static String describe(Student student) {
+        return student.getId() + " " + student.getStudentId() + " " + student.getFullName() + " " + student.getMajor();
+    }
+
+    private static String describe(Grade grade) {
+        return grade.getId() + " " + grade.getStudentId() + " " + grade.getSubject() + " " + grade.getScore()
+                + " " + grade.getCoefficient() + " " + grade.getSemester() + " " + grade.getYear();
+    }
+
+    // Flips a byte in the newest generation without truncating the mapped file
+    private void corrupt() throws IOException {
+        Path newest;
+        try (Stream<Path> files = Files.list(directory)) {
+            newest = files.filter(path -> path.getFileName().toString().matches("data\\.snap\\.\\d+"))
+                    .max((a, b) -> Long.compare(generation(a), generation(b)))
+                    .orElseThrow();
+        }
+        try (RandomAccessFile out = new RandomAccessFile(newest.toFile(), "rw")) {
+            long position = out.length() - 1;
+            out.seek(position);
+            int value = out.read();
+            out.seek(position);
+            out.write(value ^ 0xFF);
+        }
+    }
+
+    private static long generation(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(name.lastIndexOf('.') + 1));
+    }
+}
@@ -0,0 +1,95 @@
+package com.studentmanager.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.studentmanager.dao.GradeDAO;
+import com.studentmanager.dao.StudentDAO;
+import com.studentmanager.dao.TestDatabase;
+import com.studentmanager.model.Grade;
+import com.studentmanager.model.GradeSlice;
+import com.studentmanager.model.ScoreDistribution;
+import com.studentmanager.model.Student;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The aggregates of a snapshot must match the GROUP BY queries they replace
+ */
+class GradeSnapshotTest {
+    private static final String[] MAJORS = {"CNTT", "Kinh tế", null};
+    private static final String[] SUBJECTS = {"Toán", "Lý", "Hóa", "Anh văn"};
+    private static final String[] SEMESTERS = {"HK1", "HK2", "HK3"};
+
+    @TempDir
+    Path directory;
+
+    private final StudentDAO studentDAO = new StudentDAO();
+    private final GradeDAO gradeDAO = new GradeDAO();
+    private final Map<Integer, String> majors = new HashMap<>();
+
+    @BeforeEach
+    void fillDatabase() {
+        TestDatabase.open(directory);
+        Random random = new Random(7);
+        List<Grade> grades = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            Student student = new Student("SV" + i, "Sinh viên " + i, null, null, MAJORS[i % MAJORS.length]);
+            assertTrue(studentDAO.addStudent(student));
+            majors.put(student.getId(), student.getMajor());
+            for (int j = random.nextInt(6); j > 0; j--) {
+                grades.add(new Grade(student.getId(), SUBJECTS[random.nextInt(SUBJECTS.length)],
+                        random.nextInt(1001) / 100.0, 1 + random.nextInt(3) / 2.0,
+                        SEMESTERS[random.nextInt(SEMESTERS.length)], 2022 + random.nextInt(3)));
+            }
+        }
+        assertEquals(grades.size(), gradeDAO.addGrades(grades));
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        TestDatabase.close();
+    }
+
+    @Test
+    void distributionsMatchTheQuery() {
+        GradeSnapshot snapshot = GradeSnapshot.load(gradeDAO);
+        for (GradeSlice.Dimension dimension : GradeSlice.Dimension.values()) {
+            Map<GradeSlice, ScoreDistribution> expected = new HashMap<>(gradeDAO.getScoreDistributions(dimension));
+            expected.keySet().removeIf(slice -> slice.getValue() == null);
+            assertFalse(expected.isEmpty());
+            assertEquals(expected, snapshot.getScoreDistributions(dimension, majors::get), dimension.name());
+        }
+    }
+
+    @Test
+    void termScoresMatchTheQuery() {
+        GradeSnapshot snapshot = GradeSnapshot.load(gradeDAO);
+        assertEquals(termScores(null), snapshotTermScores(snapshot, null));
+        assertEquals(termScores("CNTT"), snapshotTermScores(snapshot, "CNTT"));
+    }
+
+    private List<String> termScores(String major) {
+        List<String> rows = new ArrayList<>();
+        gradeDAO.forEachTermScore(null, major, null, (semester, year, score, coefficientSum, count) ->
+                rows.add(year + " " + semester + " " + score + " " + coefficientSum + " " + count));
+        return rows;
+    }
+
+    private List<String> snapshotTermScores(GradeSnapshot snapshot, String major) {
+        List<String> rows = new ArrayList<>();
+        snapshot.forEachTermScore(id -> major == null || major.equals(majors.get(id)),
+                (semester, year, score, coefficientSum, count) ->
+                        rows.add(year + " " + semester + " " + score + " " + coefficientSum + " " + count));
+        return rows;
+    }
+}
@@ -0,0 +1,141 @@
+package com.studentmanager.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.studentmanager.model.CompactGrade;
+import com.studentmanager.model.Grade;
+import com.studentmanager.model.Student;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SnapshotFileTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackWhatWasWritten() throws IOException {
+        Path file = directory.resolve("data.snap");
+        assertFalse(SnapshotFile.exists(file));
+        SnapshotFile.write(snapshot(42), file);
+        assertTrue(SnapshotFile.exists(file));
+
+        DataSnapshot read = SnapshotFile.read(file);
+        assertEquals(42, read.getChangeSequence());
+        assertEquals(DataSnapshot.Source.FILE, read.getSource());
+
+        List<Student> students = read.getStudents();
+        assertEquals(2, students.size());
+        assertEquals("Nguyễn Văn Đức", students.get(0).getFullName());
+        assertEquals("CNTT", students.get(0).getMajor());
+        assertNull(students.get(1).getEmail());
+        assertNull(students.get(1).getMajor());
+
+        GradeSnapshot grades = read.getGrades();
+        assertEquals(3, grades.getGradeCount());
+        assertEquals(2, grades.getStudentCount());
+        CompactGrade first = grades.getGrade(0);
+        assertEquals(1, first.getStudentId());
+        assertEquals("Toán cao cấp", first.getSubject());
+        assertEquals(835, first.getScoreHundredths());
+        assertEquals(150, first.getCoefficientHundredths());
+        assertEquals("HK1", first.getSemester());
+        assertEquals(2024, first.getYear());
+        assertEquals(2, grades.getGradesOfStudent(1).size());
+        assertEquals(1, grades.getGradesOfStudent(2).size());
+    }
+
+    @Test
+    void eachWriteIsANewGenerationAndOldOnesAreDeleted() throws IOException {
+        Path file = directory.resolve("data.snap");
+        SnapshotFile.write(snapshot(1), file);
+        assertTrue(Files.isRegularFile(directory.resolve("data.snap.1")));
+
+        SnapshotFile.write(snapshot(2), file);
+        assertTrue(Files.isRegularFile(directory.resolve("data.snap.2")));
+        assertFalse(Files.exists(directory.resolve("data.snap.1")));
+        assertEquals(2, SnapshotFile.read(file).getChangeSequence());
+
+        // No temporary files left behind
+        try (var entries = Files.list(directory)) {
+            assertEquals(1, entries.count());
+        }
+    }
+
+    @Test
+    void detectsAChangedHeaderByte() throws IOException {
+        Path file = directory.resolve("data.snap");
+        SnapshotFile.write(snapshot(7), file);
+        // The change log sequence, which the body checksum alone would not cover
+        flipByte(directory.resolve("data.snap.1"), 8);
+
+        IOException e = assertThrows(IOException.class, () -> SnapshotFile.read(file));
+        assertTrue(e.getMessage().contains("checksum"), e.getMessage());
+    }
+
+    @Test
+    void detectsAChangedBodyByte() throws IOException {
+        Path file = directory.resolve("data.snap");
+        SnapshotFile.write(snapshot(7), file);
+        Path written = directory.resolve("data.snap.1");
+        flipByte(written, (int) Files.size(written) - 1);
+
+        assertThrows(IOException.class, () -> SnapshotFile.read(file));
+    }
+
+    @Test
+    void rejectsOtherFilesAndVersions() throws IOException {
+        Path tooShort = directory.resolve("short.snap");
+        Files.write(tooShort, new byte[10]);
+        assertThrows(IOException.class, () -> SnapshotFile.read(tooShort));
+
+        Path file = directory.resolve("data.snap");
+        SnapshotFile.write(snapshot(7), file);
+        Path written = directory.resolve("data.snap.1");
+        flipByte(written, 0);
+        IOException e = assertThrows(IOException.class, () -> SnapshotFile.read(file));
+        assertTrue(e.getMessage().startsWith("Not a snapshot file"), e.getMessage());
+
+        flipByte(written, 0);
+        flipByte(written, 4);
+        e = assertThrows(IOException.class, () -> SnapshotFile.read(file));
+        assertTrue(e.getMessage().startsWith("Unsupported snapshot version"), e.getMessage());
+    }
+
+    private static DataSnapshot snapshot(long changeSequence) {
+        List<Student> students = List.of(
+                new Student(1, "SV001", "Nguyễn Văn Đức", "duc@example.com", "0901234567", "CNTT"),
+                new Student(2, "SV002", "Trần Thị Bình", null, null, null));
+        GradeSnapshot.Builder builder = new GradeSnapshot.Builder(1);
+        builder.add(grade(11, 1, "Toán cao cấp", 8.345, 1.5, "HK1", 2024));
+        builder.add(grade(12, 1, "Vật lý", 6.0, 1.0, "HK2", 2024));
+        builder.add(grade(13, 2, "Toán cao cấp", 10.0, 2.0, "HK1", 2025));
+        return new DataSnapshot(students, builder.build(), changeSequence, DataSnapshot.Source.DATABASE);
+    }
+
+    private static Grade grade(int id, int studentId, String subject, double score, double coefficient,
+                               String semester, int year) {
+        Grade grade = new Grade(studentId, subject, score, coefficient, semester, year);
+        grade.setId(id);
+        return grade;
+    }
+
+    private static void flipByte(Path file, int position) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer one = ByteBuffer.allocate(1);
+            channel.read(one, position);
+            one.put(0, (byte) ~one.get(0)).rewind();
+            channel.write(one, position);
+        }
+    }
+}
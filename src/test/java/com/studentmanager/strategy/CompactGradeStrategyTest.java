@@ -0,0 +1,60 @@
+package com.studentmanager.strategy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.studentmanager.model.CompactGradeList;
+import com.studentmanager.model.Grade;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Every strategy must give the same result for compact grades as for the
+ * equivalent list of Grade beans
+ */
+class CompactGradeStrategyTest {
+    private static final String[] SUBJECTS = {"Toán", "Lý", "Hóa", "Văn", "Anh"};
+    private static final String[] SEMESTERS = {"HK1", "HK2", "HK3"};
+    private static final double[] COEFFICIENTS = {0.5, 1.0, 1.5, 2.0, 3.0};
+
+    private static final List<GradeCalculationStrategy> STRATEGIES = List.of(
+            new AverageGradeStrategy(), new LetterGradeStrategy(),
+            new ClassificationStrategy(), new GPACalculationStrategy());
+
+    @Test
+    void compactListsMatchBeanLists() {
+        Random random = new Random(42);
+        for (int round = 0; round < 2000; round++) {
+            List<Grade> grades = randomGrades(random, random.nextInt(12));
+            CompactGradeList compact = CompactGradeList.of(grades);
+            for (GradeCalculationStrategy strategy : STRATEGIES) {
+                String name = strategy.getStrategyName() + " on " + grades.size() + " grades, round " + round;
+                assertEquals(strategy.calculateGrade(grades), strategy.calculateGrade(compact), name);
+                assertEquals(strategy.calculateScore(grades), strategy.calculateScore(compact), name);
+            }
+        }
+    }
+
+    @Test
+    void emptyAndNullListsMatch() {
+        for (GradeCalculationStrategy strategy : STRATEGIES) {
+            assertEquals(strategy.calculateGrade(new ArrayList<>()),
+                    strategy.calculateGrade(new CompactGradeList()), strategy.getStrategyName());
+            assertEquals(strategy.calculateScore((List<Grade>) null),
+                    strategy.calculateScore((CompactGradeList) null), strategy.getStrategyName());
+        }
+    }
+
+    private static List<Grade> randomGrades(Random random, int count) {
+        List<Grade> grades = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // Scores are stored in hundredths, so only generate values the database can hold
+            double score = random.nextInt(1001) / 100.0;
+            grades.add(new Grade(i + 1, 7, SUBJECTS[random.nextInt(SUBJECTS.length)], score,
+                    COEFFICIENTS[random.nextInt(COEFFICIENTS.length)],
+                    SEMESTERS[random.nextInt(SEMESTERS.length)], 2020 + random.nextInt(5)));
+        }
+        return grades;
+    }
+}
@@ -0,0 +1,92 @@
+package com.studentmanager.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class FenwickTreeTest {
+
+    @Test
+    void matchesPlainCountsUnderRandomUpdates() {
+        Random random = new Random(42);
+        for (int size : new int[] {1, 2, 7, 64, 1001}) {
+            FenwickTree tree = new FenwickTree(size);
+            long[] counts = new long[size];
+            for (int round = 0; round < 2000; round++) {
+                int bucket = random.nextInt(size);
+                // Removals only where there is something to remove, as the rankings do
+                int delta = counts[bucket] > 0 && random.nextInt(3) == 0 ? -1 : 1 + random.nextInt(3);
+                tree.add(bucket, delta);
+                counts[bucket] += delta;
+            }
+            assertMatches(tree, counts);
+        }
+    }
+
+    @Test
+    void walksNonEmptyBucketsFromTheTop() {
+        // Bucketed like RankingIndex: 8.50 twice, 7.00 once, 0.00 once
+        FenwickTree tree = new FenwickTree(1001);
+        tree.add(850, 2);
+        tree.add(700, 1);
+        tree.add(0, 1);
+
+        assertEquals(850, tree.previousNonEmpty(1001));
+        assertEquals(700, tree.previousNonEmpty(850));
+        assertEquals(0, tree.previousNonEmpty(700));
+        assertEquals(-1, tree.previousNonEmpty(0));
+        assertEquals(2, tree.prefixSum(849));
+
+        tree.add(850, -2);
+        assertEquals(700, tree.previousNonEmpty(1001));
+        assertEquals(2, tree.total());
+    }
+
+    @Test
+    void rejectsBucketsOutsideRange() {
+        FenwickTree tree = new FenwickTree(10);
+        assertThrows(IndexOutOfBoundsException.class, () -> tree.add(10, 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> tree.add(-1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new FenwickTree(0));
+        assertEquals(-1, tree.findByRank(1));
+
+        tree.add(3, 1);
+        assertEquals(-1, tree.findByRank(0));
+        assertEquals(-1, tree.findByRank(2));
+        assertEquals(1, tree.prefixSum(100));
+        assertEquals(0, tree.prefixSum(-1));
+
+        tree.clear();
+        assertEquals(0, tree.total());
+        assertEquals(0, tree.get(3));
+    }
+
+    private static void assertMatches(FenwickTree tree, long[] counts) {
+        long sum = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            assertEquals(counts[bucket], tree.get(bucket), "bucket " + bucket);
+            assertEquals(sum, tree.prefixSum(bucket - 1), "prefix below " + bucket);
+            sum += counts[bucket];
+            assertEquals(sum, tree.prefixSum(bucket), "prefix " + bucket);
+        }
+        assertEquals(sum, tree.total());
+
+        // Every rank lands in the bucket holding that item
+        long rank = 1;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            for (long i = 0; i < counts[bucket]; i++, rank++) {
+                assertEquals(bucket, tree.findByRank(rank), "rank " + rank);
+            }
+        }
+
+        int expected = -1;
+        for (int bucket = 0; bucket <= counts.length; bucket++) {
+            assertEquals(expected, tree.previousNonEmpty(bucket), "below " + bucket);
+            if (bucket < counts.length && counts[bucket] > 0) {
+                expected = bucket;
+            }
+        }
+    }
+}
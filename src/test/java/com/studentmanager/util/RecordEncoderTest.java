@@ -0,0 +1,121 @@
+package com.studentmanager.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class RecordEncoderTest {
+    // Small enough that every record drains the buffer several times
+    private static final int BUFFER_SIZE = 32;
+
+    private static final String[] TEXTS = {
+        "Nguyễn Văn Đức",
+        "a,b",
+        "say \"hi\"",
+        "line\nbreak",
+        "cr\rlf",
+        "emoji 😀 pair",
+        "",
+        "x".repeat(100),
+    };
+
+    @Test
+    void csvRoundTripsThroughCsvReader() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (RecordEncoder encoder = encoder(out, DataExporter.Format.CSV, "text", "number", "decimal")) {
+            for (int i = 0; i < TEXTS.length; i++) {
+                encoder.beginRecord();
+                encoder.text(TEXTS[i]).number(-12345678901L * i).decimal(i + 0.25);
+                encoder.endRecord();
+            }
+            encoder.beginRecord();
+            encoder.text(null).number(Long.MIN_VALUE).decimal(Double.NaN);
+            encoder.endRecord();
+            assertEquals(TEXTS.length + 1, encoder.getRecordCount());
+        }
+
+        try (CsvReader reader = new CsvReader(new StringReader(out.toString(StandardCharsets.UTF_8)))) {
+            assertArrayEquals(new String[] {"text", "number", "decimal"}, reader.readRecord());
+            for (int i = 0; i < TEXTS.length; i++) {
+                assertArrayEquals(new String[] {TEXTS[i], Long.toString(-12345678901L * i), Double.toString(i + 0.25)},
+                        reader.readRecord(), "record " + i);
+            }
+            // null and NaN are empty cells
+            assertArrayEquals(new String[] {"", Long.toString(Long.MIN_VALUE), ""}, reader.readRecord());
+            assertNull(reader.readRecord());
+        }
+    }
+
+    @Test
+    void jsonEscapesAndFormatsValues() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (RecordEncoder encoder = encoder(out, DataExporter.Format.JSON, "name", "n", "score")) {
+            encoder.beginRecord();
+            encoder.text("Đức \"Q\" \\ \u0001\t😀").number(0).decimal(8.25);
+            encoder.endRecord();
+            encoder.beginRecord();
+            encoder.text(null).number(-7).decimal(9.0);
+            encoder.endRecord();
+            encoder.beginRecord();
+            encoder.text("").number(Long.MAX_VALUE).decimal(Double.POSITIVE_INFINITY);
+            encoder.endRecord();
+        }
+
+        assertEquals("[\n"
+                + "{\"name\":\"Đức \\\"Q\\\" \\\\ \\u0001\\u0009😀\",\"n\":0,\"score\":8.25},\n"
+                + "{\"name\":null,\"n\":-7,\"score\":9},\n"
+                + "{\"name\":\"\",\"n\":9223372036854775807,\"score\":null}\n"
+                + "]\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void ndjsonWritesOneObjectPerLine() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (RecordEncoder encoder = encoder(out, DataExporter.Format.NDJSON, "id", "score")) {
+            for (int i = 1; i <= 3; i++) {
+                encoder.beginRecord();
+                encoder.number(i).decimal(i / 4.0);
+                encoder.endRecord();
+            }
+        }
+
+        assertEquals("{\"id\":1,\"score\":0.25}\n"
+                + "{\"id\":2,\"score\":0.5}\n"
+                + "{\"id\":3,\"score\":0.75}\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void emptyExportsAreStillValid() throws IOException {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        encoder(json, DataExporter.Format.JSON, "id").close();
+        assertEquals("[]\n", json.toString(StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        encoder(csv, DataExporter.Format.CSV, "id", "full name, with comma").close();
+        assertEquals("id,\"full name, with comma\"\r\n", csv.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void loneSurrogatesBecomeQuestionMarks() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (RecordEncoder encoder = encoder(out, DataExporter.Format.CSV, "text")) {
+            encoder.beginRecord();
+            encoder.text("a\uD83Db\uDE00");
+            encoder.endRecord();
+        }
+        assertEquals("text\r\na?b?\r\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    private static RecordEncoder encoder(ByteArrayOutputStream out, DataExporter.Format format, String... columns)
+            throws IOException {
+        return new RecordEncoder(Channels.newChannel(out), ByteBuffer.allocate(BUFFER_SIZE), format, columns);
+    }
+}
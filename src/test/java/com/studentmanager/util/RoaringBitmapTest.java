@@ -0,0 +1,146 @@
+package com.studentmanager.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class RoaringBitmapTest {
+    private static final int ARRAY_MAX = 4096;
+
+    @Test
+    void chunkBecomesBitmapAboveArrayMaxAndArrayAgainBelow() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int value = 0; value < ARRAY_MAX; value++) {
+            bitmap.add(value * 3);
+        }
+        assertFalse(bitmap.isBitmapChunk(0));
+        assertEquals(ARRAY_MAX, bitmap.cardinality());
+
+        assertTrue(bitmap.add(1));
+        assertTrue(bitmap.isBitmapChunk(0));
+        assertEquals(ARRAY_MAX + 1, bitmap.cardinality());
+        assertFalse(bitmap.add(1));
+
+        assertTrue(bitmap.remove(0));
+        assertFalse(bitmap.isBitmapChunk(0));
+        assertEquals(ARRAY_MAX, bitmap.cardinality());
+        assertTrue(bitmap.contains(1));
+        assertFalse(bitmap.contains(0));
+        for (int value = 1; value < ARRAY_MAX; value++) {
+            assertTrue(bitmap.contains(value * 3), "value " + value * 3);
+        }
+    }
+
+    @Test
+    void chunksAreIndependent() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int value = 0; value <= ARRAY_MAX; value++) {
+            bitmap.add(value);
+        }
+        bitmap.add(1 << 16);
+        bitmap.add((5 << 16) + 7);
+        assertTrue(bitmap.isBitmapChunk(0));
+        assertFalse(bitmap.isBitmapChunk(1));
+        assertFalse(bitmap.isBitmapChunk(5));
+        assertEquals(ARRAY_MAX + 3, bitmap.cardinality());
+
+        assertTrue(bitmap.remove(1 << 16));
+        assertFalse(bitmap.contains(1 << 16));
+        assertEquals(ARRAY_MAX + 2, bitmap.cardinality());
+    }
+
+    @Test
+    void andShrinksBitmapResultToArray() {
+        RoaringBitmap evens = build(value -> value % 2 == 0, 20000);
+        RoaringBitmap threes = build(value -> value % 3 == 0, 20000);
+        assertTrue(evens.isBitmapChunk(0));
+        assertTrue(threes.isBitmapChunk(0));
+
+        RoaringBitmap sixes = evens.and(threes);
+        assertFalse(sixes.isBitmapChunk(0));
+        assertArrayEquals(expected(value -> value % 6 == 0, 20000), sixes.toArray());
+    }
+
+    @Test
+    void orGrowsArrayResultToBitmap() {
+        RoaringBitmap low = build(value -> value < 3000, 6000);
+        RoaringBitmap high = build(value -> value >= 3000, 6000);
+        assertFalse(low.isBitmapChunk(0));
+        assertFalse(high.isBitmapChunk(0));
+
+        RoaringBitmap all = low.or(high);
+        assertTrue(all.isBitmapChunk(0));
+        assertEquals(6000, all.cardinality());
+    }
+
+    @Test
+    void setOperationsMatchTreeSetAcrossContainerKinds() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            TreeSet<Integer> leftValues = new TreeSet<>();
+            TreeSet<Integer> rightValues = new TreeSet<>();
+            RoaringBitmap left = randomBitmap(random, leftValues);
+            RoaringBitmap right = randomBitmap(random, rightValues);
+            int[] leftBefore = left.toArray();
+            int[] rightBefore = right.toArray();
+
+            TreeSet<Integer> both = new TreeSet<>(leftValues);
+            both.retainAll(rightValues);
+            TreeSet<Integer> either = new TreeSet<>(leftValues);
+            either.addAll(rightValues);
+            TreeSet<Integer> onlyLeft = new TreeSet<>(leftValues);
+            onlyLeft.removeAll(rightValues);
+
+            assertArrayEquals(toArray(both), left.and(right).toArray(), "and, round " + round);
+            assertArrayEquals(toArray(either), left.or(right).toArray(), "or, round " + round);
+            assertArrayEquals(toArray(onlyLeft), left.andNot(right).toArray(), "andNot, round " + round);
+
+            RoaringBitmap union = left.copy();
+            union.addAll(right);
+            assertEquals(left.or(right), union, "addAll, round " + round);
+
+            // The operations return new bitmaps and leave their arguments alone
+            assertArrayEquals(leftBefore, left.toArray());
+            assertArrayEquals(rightBefore, right.toArray());
+        }
+    }
+
+    /**
+     * Fill up to three chunks, each randomly sparse (array) or dense (bitmap)
+     */
+    private static RoaringBitmap randomBitmap(Random random, TreeSet<Integer> values) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int high = 0; high < 3; high++) {
+            if (random.nextInt(4) == 0) {
+                continue;
+            }
+            int count = random.nextBoolean() ? random.nextInt(ARRAY_MAX) : ARRAY_MAX + random.nextInt(20000);
+            for (int i = 0; i < count; i++) {
+                int value = (high << 16) | random.nextInt(1 << 16);
+                bitmap.add(value);
+                values.add(value);
+            }
+        }
+        assertEquals(values.size(), bitmap.cardinality());
+        return bitmap;
+    }
+
+    private static RoaringBitmap build(IntPredicate member, int limit) {
+        return RoaringBitmap.of(expected(member, limit));
+    }
+
+    private static int[] expected(IntPredicate member, int limit) {
+        return IntStream.range(0, limit).filter(member).toArray();
+    }
+
+    private static int[] toArray(TreeSet<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+}